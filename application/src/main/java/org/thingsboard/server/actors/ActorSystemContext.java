@@ -103,6 +103,7 @@ import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.component.ComponentDiscoveryService;
 import org.thingsboard.server.service.edge.rpc.EdgeRpcService;
 import org.thingsboard.server.service.entitiy.entityview.TbEntityViewService;
+import org.thingsboard.server.service.event.RuleNodeDebugEventSink;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
 import org.thingsboard.server.service.executors.ExternalCallExecutorService;
 import org.thingsboard.server.service.executors.NotificationExecutorService;
@@ -271,6 +272,10 @@ public class ActorSystemContext {
     @Getter
     private EventService eventService;
 
+    @Autowired
+    @Getter
+    private RuleNodeDebugEventSink debugEventSink;
+
     @Autowired
     @Getter
     private RelationService relationService;
@@ -680,7 +685,8 @@ public class ActorSystemContext {
     }
 
     private void persistDebugAsync(TenantId tenantId, EntityId entityId, String type, TbMsg tbMsg, String relationType, Throwable error, String failureMessage) {
-        if (checkLimits(tenantId, tbMsg, error)) {
+        // only sampled events consume the tenant debug rate limit
+        if (debugEventSink.isSampled(entityId, tbMsg.getId(), error != null || failureMessage != null) && checkLimits(tenantId, tbMsg, error)) {
             try {
                 RuleNodeDebugEvent.RuleNodeDebugEventBuilder event = RuleNodeDebugEvent.builder()
                         .tenantId(tenantId)
@@ -701,7 +707,7 @@ public class ActorSystemContext {
                     event.error(failureMessage);
                 }
 
-                ListenableFuture<Void> future = eventService.saveAsync(event.build());
+                ListenableFuture<Void> future = debugEventSink.submit(event.build());
                 Futures.addCallback(future, RULE_NODE_DEBUG_EVENT_ERROR_CALLBACK, MoreExecutors.directExecutor());
             } catch (IllegalArgumentException ex) {
                 log.warn("Failed to persist rule node debug message", ex);
@@ -19,6 +19,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.ListenableFuture;
 import jakarta.mail.MessagingException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolation;
 import lombok.Getter;
@@ -27,7 +28,9 @@ import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -165,6 +168,7 @@ import org.thingsboard.server.service.entitiy.user.TbUserSettingsService;
 import org.thingsboard.server.service.ota.OtaPackageStateService;
 import org.thingsboard.server.service.profile.TbAssetProfileCache;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+import org.thingsboard.server.service.resource.TbResourceDataCache.ResourceData;
 import org.thingsboard.server.service.security.model.SecurityUser;
 import org.thingsboard.server.service.security.permission.AccessControlService;
 import org.thingsboard.server.service.security.permission.Operation;
@@ -198,6 +202,8 @@ import static org.thingsboard.server.dao.service.Validator.validateId;
 @TbCoreComponent
 public abstract class BaseController {
 
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
     protected final Logger log = org.slf4j.LoggerFactory.getLogger(getClass());
 
     /*Swagger UI description*/
@@ -952,6 +958,52 @@ public abstract class BaseController {
         return ResponseEntity.status(status).build();
     }
 
+    protected static boolean isNotModified(String ifNoneMatch, String etag) {
+        if (StringUtils.isEmpty(ifNoneMatch) || StringUtils.isEmpty(etag)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            candidate = StringUtils.removeStart(candidate, "W/");
+            candidate = StringUtils.removeEnd(candidate.replace("\"", ""), GZIP_ETAG_SUFFIX); // etag is wrapped in double quotes due to HTTP specification
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected ResponseEntity<ByteArrayResource> resourceDataResponse(ResponseEntity.BodyBuilder response, ResourceData resourceData, HttpServletRequest request) {
+        if (resourceData.hasGzipData()) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+            // byte ranges are served from the identity representation only
+            if (request.getHeader(HttpHeaders.RANGE) == null && StringUtils.contains(acceptEncoding, "gzip")) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .headers(headers -> {
+                            if (headers.getETag() != null) {
+                                headers.setETag(toGzipETag(headers.getETag()));
+                            }
+                        })
+                        .body(new ByteArrayResource(resourceData.gzipData()));
+            }
+        }
+        return response.body(new ByteArrayResource(resourceData.data()));
+    }
+
+    /**
+     * The gzip representation differs from the identity one byte by byte, so it gets its own strong ETag
+     * */
+    protected static String toGzipETag(String etag) {
+        if (etag.endsWith("\"")) {
+            return etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+        }
+        return etag + GZIP_ETAG_SUFFIX;
+    }
+
     protected <T> ResponseEntity<T> redirectTo(String location) {
         URI uri;
         try {
@@ -17,6 +17,7 @@ package org.thingsboard.server.controller;
 
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -57,6 +58,8 @@ import org.thingsboard.server.dao.resource.ImageService;
 import org.thingsboard.server.dao.service.validator.ResourceDataValidator;
 import org.thingsboard.server.queue.util.TbCoreComponent;
 import org.thingsboard.server.service.resource.TbImageService;
+import org.thingsboard.server.service.resource.TbResourceDataCache;
+import org.thingsboard.server.service.resource.TbResourceDataCache.ResourceData;
 import org.thingsboard.server.service.security.model.SecurityUser;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.security.permission.Resource;
@@ -81,6 +84,7 @@ public class ImageController extends BaseController {
     private final ImageService imageService;
     private final TbImageService tbImageService;
     private final ResourceDataValidator resourceValidator;
+    private final TbResourceDataCache resourceDataCache;
 
     @Value("${cache.image.systemImagesBrowserTtlInMinutes:0}")
     private int systemImagesBrowserTtlInMinutes;
@@ -180,15 +184,17 @@ public class ImageController extends BaseController {
                                                            @PathVariable String type,
                                                            @Parameter(description = IMAGE_KEY_PARAM_DESCRIPTION, required = true)
                                                            @PathVariable String key,
-                                                           @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws Exception {
-        return downloadIfChanged(type, key, etag, false);
+                                                           @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                           HttpServletRequest request) throws Exception {
+        return downloadIfChanged(type, key, etag, false, request);
     }
 
     @GetMapping(value = "/api/images/public/{publicResourceKey}", produces = "image/*")
     public ResponseEntity<ByteArrayResource> downloadPublicImage(@PathVariable String publicResourceKey,
-                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws Exception {
+                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                 HttpServletRequest request) throws Exception {
         ImageCacheKey cacheKey = ImageCacheKey.forPublicImage(publicResourceKey);
-        return downloadIfChanged(cacheKey, etag, () -> imageService.getPublicImageInfoByKey(publicResourceKey));
+        return downloadIfChanged(cacheKey, etag, () -> imageService.getPublicImageInfoByKey(publicResourceKey), request);
     }
 
     @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN')")
@@ -248,8 +254,9 @@ public class ImageController extends BaseController {
                                                                   @PathVariable String type,
                                                                   @Parameter(description = IMAGE_KEY_PARAM_DESCRIPTION, required = true)
                                                                   @PathVariable String key,
-                                                                  @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws Exception {
-        return downloadIfChanged(type, key, etag, true);
+                                                                  @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                  HttpServletRequest request) throws Exception {
+        return downloadIfChanged(type, key, etag, true, request);
     }
 
     @PreAuthorize("hasAnyAuthority('SYS_ADMIN', 'TENANT_ADMIN')")
@@ -303,33 +310,30 @@ public class ImageController extends BaseController {
         return (result.isSuccess() ? ResponseEntity.ok() : ResponseEntity.badRequest()).body(result);
     }
 
-    private ResponseEntity<ByteArrayResource> downloadIfChanged(String type, String key, String etag, boolean preview) throws Exception {
+    private ResponseEntity<ByteArrayResource> downloadIfChanged(String type, String key, String etag, boolean preview, HttpServletRequest request) throws Exception {
         ImageCacheKey cacheKey = ImageCacheKey.forImage(getTenantId(type), key, preview);
-        return downloadIfChanged(cacheKey, etag, () -> checkImageInfo(type, key, Operation.READ));
+        return downloadIfChanged(cacheKey, etag, () -> checkImageInfo(type, key, Operation.READ), request);
     }
 
-    private ResponseEntity<ByteArrayResource> downloadIfChanged(ImageCacheKey cacheKey, String etag, ThrowingSupplier<TbResourceInfo> imageInfoSupplier) throws Exception {
-        if (StringUtils.isNotEmpty(etag)) {
-            etag = StringUtils.remove(etag, '\"'); // etag is wrapped in double quotes due to HTTP specification
-            if (etag.equals(tbImageService.getETag(cacheKey))) {
-                return response(HttpStatus.NOT_MODIFIED);
-            }
+    private ResponseEntity<ByteArrayResource> downloadIfChanged(ImageCacheKey cacheKey, String etag, ThrowingSupplier<TbResourceInfo> imageInfoSupplier,
+                                                                HttpServletRequest request) throws Exception {
+        if (StringUtils.isNotEmpty(etag) && isNotModified(etag, tbImageService.getETag(cacheKey))) {
+            return response(HttpStatus.NOT_MODIFIED);
         }
 
         TbResourceInfo imageInfo = checkNotNull(imageInfoSupplier.get());
         String fileName = imageInfo.getFileName();
         ImageDescriptor descriptor = imageInfo.getDescriptor(ImageDescriptor.class);
-        byte[] data;
+        ResourceData resourceData;
         if (cacheKey.isPreview()) {
             descriptor = descriptor.getPreviewDescriptor();
-            data = imageService.getImagePreview(imageInfo.getTenantId(), imageInfo.getId());
+            resourceData = resourceDataCache.get(descriptor.getEtag(), () -> imageService.getImagePreview(imageInfo.getTenantId(), imageInfo.getId()));
         } else {
-            data = imageService.getImageData(imageInfo.getTenantId(), imageInfo.getId());
+            resourceData = resourceDataCache.get(descriptor.getEtag(), () -> imageService.getImageData(imageInfo.getTenantId(), imageInfo.getId()));
         }
         tbImageService.putETag(cacheKey, descriptor.getEtag());
         var result = ResponseEntity.ok()
                 .header("Content-Type", descriptor.getMediaType())
-                .contentLength(data.length)
                 .eTag(descriptor.getEtag());
         if (!cacheKey.isPublic()) {
             result
@@ -343,7 +347,7 @@ public class ImageController extends BaseController {
         } else {
             result.cacheControl(CacheControl.noCache());
         }
-        return result.body(new ByteArrayResource(data));
+        return resourceDataResponse(result, resourceData, request);
     }
 
     private TbResourceInfo checkImageInfo(String imageType, String key, Operation operation) throws ThingsboardException {
@@ -18,6 +18,7 @@ package org.thingsboard.server.controller;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -52,6 +53,8 @@ import org.thingsboard.server.common.data.security.Authority;
 import org.thingsboard.server.common.data.util.ThrowingSupplier;
 import org.thingsboard.server.config.annotations.ApiOperation;
 import org.thingsboard.server.queue.util.TbCoreComponent;
+import org.thingsboard.server.service.resource.TbResourceDataCache;
+import org.thingsboard.server.service.resource.TbResourceDataCache.ResourceData;
 import org.thingsboard.server.service.resource.TbResourceService;
 import org.thingsboard.server.service.security.permission.Operation;
 import org.thingsboard.server.service.security.permission.Resource;
@@ -87,6 +90,7 @@ public class TbResourceController extends BaseController {
 
     private static final String DOWNLOAD_RESOURCE_IF_NOT_CHANGED = "Download Resource based on the provided Resource Id or return 304 status code if resource was not changed.";
     private final TbResourceService tbResourceService;
+    private final TbResourceDataCache resourceDataCache;
 
     public static final String RESOURCE_ID = "resourceId";
 
@@ -118,10 +122,11 @@ public class TbResourceController extends BaseController {
                                                                        @PathVariable String scope,
                                                                        @Parameter(description = "Key of the resource, e.g. 'extension.js'")
                                                                        @PathVariable String key,
-                                                                       @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws ThingsboardException {
+                                                                       @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                       HttpServletRequest request) throws ThingsboardException {
 
         ResourceType resourceType = ResourceType.valueOf(resourceTypeStr.toUpperCase());
-        return downloadResourceIfChanged(() -> checkResourceInfo(scope, resourceType, key, Operation.READ), etag);
+        return downloadResourceIfChanged(() -> checkResourceInfo(scope, resourceType, key, Operation.READ), etag, request);
     }
 
     @ApiOperation(value = "Download LWM2M Resource (downloadLwm2mResourceIfChanged)", notes = DOWNLOAD_RESOURCE_IF_NOT_CHANGED + SYSTEM_OR_TENANT_AUTHORITY_PARAGRAPH)
@@ -129,8 +134,9 @@ public class TbResourceController extends BaseController {
     @GetMapping(value = "/resource/lwm2m/{resourceId}/download", produces = "application/xml")
     public ResponseEntity<ByteArrayResource> downloadLwm2mResourceIfChanged(@Parameter(description = RESOURCE_ID_PARAM_DESCRIPTION)
                                                                             @PathVariable(RESOURCE_ID) String strResourceId,
-                                                                            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws ThingsboardException {
-        return downloadResourceIfChanged(strResourceId, etag);
+                                                                            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                            HttpServletRequest request) throws ThingsboardException {
+        return downloadResourceIfChanged(strResourceId, etag, request);
     }
 
     @ApiOperation(value = "Download PKCS_12 Resource (downloadPkcs12ResourceIfChanged)", notes = DOWNLOAD_RESOURCE_IF_NOT_CHANGED + SYSTEM_OR_TENANT_AUTHORITY_PARAGRAPH)
@@ -138,8 +144,9 @@ public class TbResourceController extends BaseController {
     @RequestMapping(value = "/resource/pkcs12/{resourceId}/download", method = RequestMethod.GET, produces = "application/x-pkcs12")
     public ResponseEntity<ByteArrayResource> downloadPkcs12ResourceIfChanged(@Parameter(description = RESOURCE_ID_PARAM_DESCRIPTION)
                                                                              @PathVariable(RESOURCE_ID) String strResourceId,
-                                                                             @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws ThingsboardException {
-        return downloadResourceIfChanged(strResourceId, etag);
+                                                                             @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                             HttpServletRequest request) throws ThingsboardException {
+        return downloadResourceIfChanged(strResourceId, etag, request);
     }
 
     @ApiOperation(value = "Download JKS Resource (downloadJksResourceIfChanged)",
@@ -148,8 +155,9 @@ public class TbResourceController extends BaseController {
     @GetMapping(value = "/resource/jks/{resourceId}/download", produces = "application/x-java-keystore")
     public ResponseEntity<ByteArrayResource> downloadJksResourceIfChanged(@Parameter(description = RESOURCE_ID_PARAM_DESCRIPTION)
                                                                           @PathVariable(RESOURCE_ID) String strResourceId,
-                                                                          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws ThingsboardException {
-        return downloadResourceIfChanged(strResourceId, etag);
+                                                                          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                          HttpServletRequest request) throws ThingsboardException {
+        return downloadResourceIfChanged(strResourceId, etag, request);
     }
 
     @ApiOperation(value = "Download JS Resource (downloadJsResourceIfChanged)", notes = DOWNLOAD_RESOURCE_IF_NOT_CHANGED + AVAILABLE_FOR_ANY_AUTHORIZED_USER)
@@ -157,8 +165,9 @@ public class TbResourceController extends BaseController {
     @GetMapping(value = "/resource/js/{resourceId}/download", produces = "application/javascript")
     public ResponseEntity<ByteArrayResource> downloadJsResourceIfChanged(@Parameter(description = RESOURCE_ID_PARAM_DESCRIPTION)
                                                                          @PathVariable(RESOURCE_ID) String strResourceId,
-                                                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag) throws ThingsboardException {
-        return downloadResourceIfChanged(strResourceId, etag);
+                                                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String etag,
+                                                                         HttpServletRequest request) throws ThingsboardException {
+        return downloadResourceIfChanged(strResourceId, etag, request);
     }
 
     @ApiOperation(value = "Get Resource Info (getResourceInfoById)",
@@ -307,34 +316,31 @@ public class TbResourceController extends BaseController {
         tbResourceService.delete(tbResource, getCurrentUser());
     }
 
-    private ResponseEntity<ByteArrayResource> downloadResourceIfChanged(String strResourceId, String etag) throws ThingsboardException {
+    private ResponseEntity<ByteArrayResource> downloadResourceIfChanged(String strResourceId, String etag, HttpServletRequest request) throws ThingsboardException {
         checkParameter(RESOURCE_ID, strResourceId);
         TbResourceId resourceId = new TbResourceId(toUUID(strResourceId));
-        return downloadResourceIfChanged(() -> checkResourceInfoId(resourceId, Operation.READ), etag);
+        return downloadResourceIfChanged(() -> checkResourceInfoId(resourceId, Operation.READ), etag, request);
     }
 
     private ResponseEntity<ByteArrayResource> downloadResourceIfChanged(ThrowingSupplier<TbResourceInfo> resourceInfoProvider,
-                                                                        String etag) throws ThingsboardException {
+                                                                        String etag, HttpServletRequest request) throws ThingsboardException {
         TbResourceInfo resourceInfo = resourceInfoProvider.get();
-        if (etag != null) {
-            etag = StringUtils.remove(etag, '\"'); // etag is wrapped in double quotes due to HTTP specification
-            if (etag.equals(resourceInfo.getEtag())) {
-                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
-                        .eTag(resourceInfo.getEtag())
-                        .build();
-            }
+        if (etag != null && isNotModified(etag, resourceInfo.getEtag())) {
+            // echoing the ETag of the representation the client has cached
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag.contains(toGzipETag(resourceInfo.getEtag())) ? toGzipETag(resourceInfo.getEtag()) : resourceInfo.getEtag())
+                    .build();
         }
 
-        byte[] data = resourceService.getResourceData(resourceInfo.getTenantId(), resourceInfo.getId());
-        ByteArrayResource resource = new ByteArrayResource(data);
-        return ResponseEntity.ok()
+        ResourceData resourceData = resourceDataCache.get(resourceInfo.getEtag(),
+                () -> resourceService.getResourceData(resourceInfo.getTenantId(), resourceInfo.getId()));
+        var response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + resourceInfo.getFileName())
                 .header("x-filename", resourceInfo.getFileName())
-                .contentLength(resource.contentLength())
                 .header("Content-Type", resourceInfo.getResourceType().getMediaType())
                 .cacheControl(CacheControl.noCache())
-                .eTag(resourceInfo.getEtag())
-                .body(resource);
+                .eTag(resourceInfo.getEtag());
+        return resourceDataResponse(response, resourceData, request);
     }
 
     private TbResourceInfo checkResourceInfo(String scope, ResourceType resourceType, String key, Operation operation) throws ThingsboardException {
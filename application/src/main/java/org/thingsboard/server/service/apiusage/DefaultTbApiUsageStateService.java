@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.ListenableFuture;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -26,6 +27,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.server.common.data.ApiFeature;
 import org.thingsboard.server.common.data.ApiUsageRecordKey;
@@ -80,6 +82,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -130,14 +134,25 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
     @Value("${usage.stats.gauge_report_interval:180000}")
     private long gaugeReportInterval;
 
+    @Value("${usage.stats.persist_interval:5000}")
+    private long persistInterval;
+
     private final Lock updateLock = new ReentrantLock();
 
+    // Latest usage counts that are not persisted yet, by owner (tenant or customer)
+    private final Map<EntityId, PendingUsageStats> pendingUsageStats = new ConcurrentHashMap<>();
+    private ExecutorService statsProcessingExecutor;
+
     @PostConstruct
     public void init() {
         super.init();
+        statsProcessingExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("api-usage-processing"));
         if (enabled) {
             log.info("Starting api usage service.");
             scheduledExecutor.scheduleAtFixedRate(this::checkStartOfNextCycle, nextCycleCheckInterval, nextCycleCheckInterval, TimeUnit.MILLISECONDS);
+            if (persistInterval > 0) {
+                scheduledExecutor.scheduleWithFixedDelay(this::persistPendingUsageStats, persistInterval, persistInterval, TimeUnit.MILLISECONDS);
+            }
             log.info("Started api usage service.");
         }
     }
@@ -164,8 +179,16 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
             ownerId = tenantId;
         }
 
-        processEntityUsageStats(tenantId, ownerId, statsMsg.getValuesList(), statsMsg.getServiceId());
-        callback.onSuccess();
+        // keeping the consumer thread free; the usage states are updated under a global lock anyway
+        statsProcessingExecutor.execute(() -> {
+            try {
+                processEntityUsageStats(tenantId, ownerId, statsMsg.getValuesList(), statsMsg.getServiceId());
+                callback.onSuccess();
+            } catch (Throwable e) {
+                log.warn("[{}][{}] Failed to process usage stats", tenantId, ownerId, e);
+                callback.onFailure(e);
+            }
+        });
     }
 
     private void processEntityUsageStats(TenantId tenantId, EntityId ownerId, List<UsageStatsKVProto> values, String serviceId) {
@@ -213,13 +236,48 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
         } finally {
             updateLock.unlock();
         }
-        log.trace("[{}][{}] Saving new stats: {}", tenantId, ownerId, updatedEntries);
-        tsWsService.saveAndNotifyInternal(tenantId, usageState.getApiUsageState().getId(), updatedEntries, VOID_CALLBACK);
+        if (persistInterval > 0) {
+            addPendingUsageStats(tenantId, usageState.getEntityId(), usageState.getApiUsageState().getId(), updatedEntries);
+        } else {
+            log.trace("[{}][{}] Saving new stats: {}", tenantId, ownerId, updatedEntries);
+            tsWsService.saveAndNotifyInternal(tenantId, usageState.getApiUsageState().getId(), updatedEntries, VOID_CALLBACK);
+        }
         if (!result.isEmpty()) {
             persistAndNotify(usageState, result);
         }
     }
 
+    void addPendingUsageStats(TenantId tenantId, EntityId ownerId, ApiUsageStateId apiUsageStateId, List<TsKvEntry> entries) {
+        pendingUsageStats.compute(ownerId, (id, pendingStats) -> {
+            if (pendingStats == null) {
+                pendingStats = new PendingUsageStats(tenantId, apiUsageStateId);
+            }
+            for (TsKvEntry entry : entries) {
+                // only the latest count of each key and cycle/hour is kept
+                pendingStats.getEntries().put(entry.getKey() + "_" + entry.getTs(), entry);
+            }
+            return pendingStats;
+        });
+    }
+
+    void persistPendingUsageStats() {
+        try {
+            pendingUsageStats.keySet().forEach(this::persistPendingUsageStats);
+        } catch (Throwable e) {
+            log.error("Failed to persist usage stats", e);
+        }
+    }
+
+    private void persistPendingUsageStats(EntityId ownerId) {
+        PendingUsageStats pendingStats = pendingUsageStats.remove(ownerId);
+        if (pendingStats == null || deletedEntities.contains(ownerId)) {
+            return;
+        }
+        List<TsKvEntry> entries = new ArrayList<>(pendingStats.getEntries().values());
+        log.trace("[{}][{}] Saving new stats: {}", pendingStats.getTenantId(), ownerId, entries);
+        tsWsService.saveAndNotifyInternal(pendingStats.getTenantId(), pendingStats.getApiUsageStateId(), entries, VOID_CALLBACK);
+    }
+
     @Override
     public ApiUsageState getApiUsageState(TenantId tenantId) {
         TenantApiUsageState tenantState = (TenantApiUsageState) myUsageStates.get(tenantId);
@@ -327,6 +385,7 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
 
     public void onTenantDelete(TenantId tenantId) {
         deletedEntities.add(tenantId);
+        pendingUsageStats.remove(tenantId);
         myUsageStates.remove(tenantId);
         otherUsageStates.remove(tenantId);
     }
@@ -334,11 +393,14 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
     @Override
     public void onCustomerDelete(CustomerId customerId) {
         deletedEntities.add(customerId);
+        pendingUsageStats.remove(customerId);
         myUsageStates.remove(customerId);
     }
 
     @Override
     protected void cleanupEntityOnPartitionRemoval(EntityId entityId) {
+        // the new owner of the partition loads the counts from the db
+        persistPendingUsageStats(entityId);
         myUsageStates.remove(entityId);
     }
 
@@ -558,5 +620,17 @@ public class DefaultTbApiUsageStateService extends AbstractPartitionBasedService
     @PreDestroy
     private void destroy() {
         super.stop();
+        if (statsProcessingExecutor != null) {
+            statsProcessingExecutor.shutdownNow();
+        }
+        persistPendingUsageStats();
     }
+
+    @Data
+    private static class PendingUsageStats {
+        private final TenantId tenantId;
+        private final ApiUsageStateId apiUsageStateId;
+        private final Map<String, TsKvEntry> entries = new HashMap<>();
+    }
+
 }
@@ -13,23 +13,25 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.thingsboard.server.common.transport.limits;
+package org.thingsboard.server.service.event;
 
-public class DummyTransportRateLimit implements TransportRateLimit {
+public enum DebugEventSamplingStrategy {
 
-    @Override
-    public String getConfiguration() {
-        return "";
-    }
-
-    @Override
-    public boolean tryConsume(long number) {
-        return true;
-    }
-
-    @Override
-    public boolean tryConsume() {
-        return true;
-    }
+    /**
+     * Every debug event is persisted
+     * */
+    ALL,
+    /**
+     * Only first N debug events per rule node within the sampling interval are persisted
+     * */
+    FIRST_N,
+    /**
+     * Only debug events of one in K messages are persisted, picked by msg id
+     * */
+    ONE_IN_K,
+    /**
+     * Only debug events with errors are persisted
+     * */
+    ERRORS_ONLY
 
 }
@@ -0,0 +1,195 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.event;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.event.Event;
+import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+import org.thingsboard.server.dao.event.EventService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples rule node debug events and, if buffering is enabled, persists them in batches
+ * from a bounded buffer, dropping the events when the buffer is full instead of blocking the caller.
+ * */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RuleNodeDebugEventSink {
+
+    private final EventService eventService;
+    private final StatsFactory statsFactory;
+
+    @Value("${event.debug.sampling.strategy:ALL}")
+    private DebugEventSamplingStrategy samplingStrategy;
+    @Value("${event.debug.sampling.first-n:100}")
+    private int firstN;
+    @Value("${event.debug.sampling.interval-ms:60000}")
+    private long samplingInterval;
+    @Value("${event.debug.sampling.one-in-k:10}")
+    private int oneInK;
+    @Value("${event.debug.buffer.enabled:false}")
+    private boolean bufferEnabled;
+    @Value("${event.debug.buffer.capacity:100000}")
+    private int bufferCapacity;
+    @Value("${event.debug.buffer.batch-size:1000}")
+    private int batchSize;
+    @Value("${event.debug.buffer.flush-interval-ms:1000}")
+    private long flushInterval;
+
+    private final ConcurrentMap<UUID, SamplingState> samplingStates = new ConcurrentHashMap<>();
+    private final Queue<Event> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferSize = new AtomicInteger();
+
+    private ScheduledExecutorService flushExecutor;
+    private StatsCounter sampledOutCounter;
+    private StatsCounter droppedCounter;
+    private StatsCounter savedCounter;
+    private StatsCounter failedCounter;
+
+    @PostConstruct
+    private void init() {
+        sampledOutCounter = statsFactory.createStatsCounter(StatsType.RULE_ENGINE.getName(), "debugEventsSampledOut");
+        droppedCounter = statsFactory.createStatsCounter(StatsType.RULE_ENGINE.getName(), "debugEventsDropped");
+        savedCounter = statsFactory.createStatsCounter(StatsType.RULE_ENGINE.getName(), "debugEventsSaved");
+        failedCounter = statsFactory.createStatsCounter(StatsType.RULE_ENGINE.getName(), "debugEventsFailed");
+        statsFactory.createGauge(StatsType.RULE_ENGINE.getName() + ".debugEventsBufferSize", bufferSize);
+        if (bufferEnabled) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("debug-events-flush"));
+            flushExecutor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            flush();
+        }
+    }
+
+    /**
+     * Checks whether the debug event of the rule node should be persisted. Meant to be called
+     * before the event is built, so that the msg serialization is skipped for sampled out events.
+     * ONE_IN_K sampling is done per msg, so the IN and OUT events of a msg are kept or dropped together
+     * */
+    public boolean isSampled(EntityId ruleNodeId, UUID msgId, boolean error) {
+        if (error || samplingStrategy == DebugEventSamplingStrategy.ALL) {
+            return true;
+        }
+        boolean sampled = switch (samplingStrategy) {
+            case FIRST_N -> getSamplingState(ruleNodeId).tryAcquireInInterval(firstN, samplingInterval);
+            case ONE_IN_K -> Math.floorMod(msgId.hashCode(), oneInK) == 0;
+            default -> false;
+        };
+        if (!sampled) {
+            sampledOutCounter.increment();
+        }
+        return sampled;
+    }
+
+    public ListenableFuture<Void> submit(RuleNodeDebugEvent event) {
+        if (!bufferEnabled) {
+            return eventService.saveAsync(event);
+        }
+        if (bufferSize.incrementAndGet() > bufferCapacity) {
+            bufferSize.decrementAndGet();
+            droppedCounter.increment();
+        } else {
+            buffer.offer(event);
+        }
+        return Futures.immediateVoidFuture();
+    }
+
+    private void flush() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        Event event;
+        while ((event = buffer.poll()) != null) {
+            bufferSize.decrementAndGet();
+            batch.add(event);
+            if (batch.size() >= batchSize) {
+                save(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            save(batch);
+        }
+    }
+
+    private void save(List<Event> batch) {
+        try {
+            eventService.saveAll(batch);
+            savedCounter.add(batch.size());
+        } catch (Exception e) {
+            log.warn("Failed to save {} rule node debug events, saving them one by one", batch.size(), e);
+            for (Event event : batch) {
+                try {
+                    eventService.saveAll(List.of(event));
+                    savedCounter.increment();
+                } catch (Exception ex) {
+                    failedCounter.increment();
+                    log.error("Failed to save rule node debug event {}", event, ex);
+                }
+            }
+        }
+    }
+
+    private SamplingState getSamplingState(EntityId ruleNodeId) {
+        return samplingStates.computeIfAbsent(ruleNodeId.getId(), id -> new SamplingState());
+    }
+
+    private static class SamplingState {
+
+        private final AtomicLong counter = new AtomicLong();
+        private final AtomicLong intervalStartTs = new AtomicLong();
+
+        boolean tryAcquireInInterval(int limit, long interval) {
+            long now = System.currentTimeMillis();
+            long startTs = intervalStartTs.get();
+            if (now - startTs >= interval && intervalStartTs.compareAndSet(startTs, now)) {
+                counter.set(0);
+            }
+            return counter.incrementAndGet() <= limit;
+        }
+
+    }
+
+}
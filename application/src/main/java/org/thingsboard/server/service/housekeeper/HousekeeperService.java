@@ -36,6 +36,8 @@ import org.thingsboard.server.queue.util.TbCoreComponent;
 import org.thingsboard.server.service.housekeeper.processor.HousekeeperTaskProcessor;
 import org.thingsboard.server.service.housekeeper.stats.HousekeeperStatsService;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -43,6 +45,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -61,7 +64,10 @@ public class HousekeeperService {
     private final QueueConsumerManager<TbProtoQueueMsg<ToHousekeeperServiceMsg>> consumer;
 
     private final ExecutorService consumerExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("housekeeper-consumer"));
-    private final ExecutorService taskExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("housekeeper-task-processor"));
+    private final ExecutorService taskExecutor;
+    private final ExecutorService shardExecutor;
+    private final int shardsCount;
+    private final Map<HousekeeperTaskType, Semaphore> taskTypeLimits = new EnumMap<>(HousekeeperTaskType.class);
 
     public HousekeeperService(HousekeeperConfig config,
                               HousekeeperReprocessingService reprocessingService,
@@ -81,6 +87,24 @@ public class HousekeeperService {
                 .consumerExecutor(consumerExecutor)
                 .build();
         this.taskProcessors = taskProcessors.stream().collect(Collectors.toMap(HousekeeperTaskProcessor::getTaskType, p -> p));
+
+        this.shardsCount = Math.max(config.getTaskProcessingThreads(), 1);
+        if (shardsCount > 1) {
+            /*
+             * tasks are sharded by msg key (entity id), so that tasks related to the same entity
+             * are still processed sequentially, while tasks for different entities run in parallel
+             * */
+            this.taskExecutor = Executors.newFixedThreadPool(shardsCount, ThingsBoardThreadFactory.forName("housekeeper-task-processor"));
+            this.shardExecutor = Executors.newFixedThreadPool(shardsCount, ThingsBoardThreadFactory.forName("housekeeper-shard"));
+        } else {
+            this.taskExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("housekeeper-task-processor"));
+            this.shardExecutor = null;
+        }
+        config.getTaskTypeConcurrencyLimits().forEach((taskType, limit) -> {
+            if (limit > 0) {
+                taskTypeLimits.put(taskType, new Semaphore(limit));
+            }
+        });
     }
 
     @AfterStartUp(order = AfterStartUp.REGULAR_SERVICE)
@@ -90,18 +114,54 @@ public class HousekeeperService {
     }
 
     private void processMsgs(List<TbProtoQueueMsg<ToHousekeeperServiceMsg>> msgs, TbQueueConsumer<TbProtoQueueMsg<ToHousekeeperServiceMsg>> consumer) {
+        if (shardExecutor == null || msgs.size() <= 1) {
+            if (!processShard(msgs)) {
+                return;
+            }
+        } else {
+            List<List<TbProtoQueueMsg<ToHousekeeperServiceMsg>>> shards = new ArrayList<>(shardsCount);
+            for (int i = 0; i < shardsCount; i++) {
+                shards.add(new ArrayList<>());
+            }
+            for (TbProtoQueueMsg<ToHousekeeperServiceMsg> msg : msgs) {
+                shards.get(Math.floorMod(msg.getKey().hashCode(), shardsCount)).add(msg);
+            }
+            List<Future<Boolean>> futures = new ArrayList<>(shardsCount);
+            for (List<TbProtoQueueMsg<ToHousekeeperServiceMsg>> shard : shards) {
+                if (!shard.isEmpty()) {
+                    futures.add(shardExecutor.submit(() -> processShard(shard)));
+                }
+            }
+            try {
+                for (Future<Boolean> future : futures) {
+                    if (!future.get()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                return;
+            } catch (ExecutionException e) {
+                log.error("Unexpected error during messages processing", e.getCause());
+                return;
+            }
+        }
+        consumer.commit();
+    }
+
+    private boolean processShard(List<TbProtoQueueMsg<ToHousekeeperServiceMsg>> msgs) {
         for (TbProtoQueueMsg<ToHousekeeperServiceMsg> msg : msgs) {
             log.trace("Processing task: {}", msg);
             try {
                 processTask(msg.getValue());
             } catch (InterruptedException e) {
-                return;
+                return false;
             } catch (Throwable e) {
                 log.error("Unexpected error during message processing [{}]", msg, e);
                 reprocessingService.submitForReprocessing(msg.getValue(), e);
             }
         }
-        consumer.commit();
+        return true;
     }
 
     @SuppressWarnings("unchecked")
@@ -117,9 +177,22 @@ public class HousekeeperService {
             throw new IllegalArgumentException("Unsupported task type " + taskType);
         }
 
+        Semaphore limit = taskTypeLimits.get(taskType);
+        boolean permitAcquired = false;
+        boolean submitted = false;
+        Future<Object> future = null;
         try {
+            if (limit != null) {
+                if (!limit.tryAcquire(config.getTaskProcessingTimeout(), TimeUnit.MILLISECONDS)) {
+                    throw new TimeoutException("Timeout after " + config.getTaskProcessingTimeout() + " ms waiting for the " + taskType + " concurrency limit");
+                }
+                permitAcquired = true;
+            }
+            statsService.ifPresent(statsService -> statsService.reportSubmitted(taskType));
+            submitted = true;
+
             long startTs = System.currentTimeMillis();
-            Future<Object> future = taskExecutor.submit(() -> {
+            future = taskExecutor.submit(() -> {
                 taskProcessor.process((T) task);
                 return null;
             });
@@ -136,8 +209,8 @@ public class HousekeeperService {
             Throwable error = e;
             if (e instanceof ExecutionException) {
                 error = e.getCause();
-            } else if (e instanceof TimeoutException) {
-                error = new TimeoutException("Timeout after " + config.getTaskProcessingTimeout() + " seconds");
+            } else if (e instanceof TimeoutException && future != null) {
+                error = new TimeoutException("Timeout after " + config.getTaskProcessingTimeout() + " ms");
             }
 
             if (msg.getTask().getAttempt() < config.getMaxReprocessingAttempts()) {
@@ -153,6 +226,17 @@ public class HousekeeperService {
                         .build());
             }
             statsService.ifPresent(statsService -> statsService.reportFailure(taskType, msg));
+        } finally {
+            // a timed out or interrupted task is cancelled so that it does not keep running in the background
+            if (future != null && !future.isDone()) {
+                future.cancel(true);
+            }
+            if (permitAcquired) {
+                limit.release();
+            }
+            if (submitted) {
+                statsService.ifPresent(statsService -> statsService.reportCompleted(taskType));
+            }
         }
     }
 
@@ -160,6 +244,10 @@ public class HousekeeperService {
     private void stop() {
         consumer.stop();
         consumerExecutor.shutdownNow();
+        if (shardExecutor != null) {
+            shardExecutor.shutdownNow();
+        }
+        taskExecutor.shutdownNow();
         log.info("Stopped Housekeeper service");
     }
 
@@ -21,8 +21,11 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.housekeeper.HousekeeperTaskType;
 import org.thingsboard.server.common.data.housekeeper.TsHistoryDeletionHousekeeperTask;
 import org.thingsboard.server.common.data.kv.BaseDeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.queue.housekeeper.HousekeeperConfig;
 
 import java.util.List;
 
@@ -32,12 +35,38 @@ import java.util.List;
 public class TsHistoryDeletionTaskProcessor extends HousekeeperTaskProcessor<TsHistoryDeletionHousekeeperTask> {
 
     private final TimeseriesService timeseriesService;
+    private final HousekeeperConfig config;
 
     @Override
     public void process(TsHistoryDeletionHousekeeperTask task) throws Exception {
-        DeleteTsKvQuery deleteQuery = new BaseDeleteTsKvQuery(task.getKey(), 0, System.currentTimeMillis(), false, false);
-        timeseriesService.remove(task.getTenantId(), task.getEntityId(), List.of(deleteQuery)).get();
-        log.debug("[{}][{}][{}] Deleted timeseries history for key '{}'", task.getTenantId(), task.getEntityId().getEntityType(), task.getEntityId(), task.getKey());
+        long chunkDuration = config.getTsHistoryDeletionChunkDuration();
+        if (chunkDuration <= 0) {
+            DeleteTsKvQuery deleteQuery = new BaseDeleteTsKvQuery(task.getKey(), 0, System.currentTimeMillis(), false, false);
+            timeseriesService.remove(task.getTenantId(), task.getEntityId(), List.of(deleteQuery)).get();
+            log.debug("[{}][{}][{}] Deleted timeseries history for key '{}'", task.getTenantId(), task.getEntityId().getEntityType(), task.getEntityId(), task.getKey());
+            return;
+        }
+
+        long startTs = task.getStartTs();
+        long endTs = task.getEndTs() > 0 ? task.getEndTs() : System.currentTimeMillis();
+        for (int chunk = 0; chunk < config.getTsHistoryDeletionMaxChunksPerTask(); chunk++) {
+            List<TsKvEntry> earliest = timeseriesService.findAll(task.getTenantId(), task.getEntityId(),
+                    List.of(new BaseReadTsKvQuery(task.getKey(), startTs, endTs, 1, "ASC"))).get();
+            if (earliest.isEmpty()) {
+                log.debug("[{}][{}][{}] Deleted timeseries history for key '{}'", task.getTenantId(), task.getEntityId().getEntityType(), task.getEntityId(), task.getKey());
+                return;
+            }
+            long chunkStartTs = earliest.get(0).getTs();
+            long chunkEndTs = Math.min(chunkStartTs + chunkDuration, endTs);
+            DeleteTsKvQuery deleteQuery = new BaseDeleteTsKvQuery(task.getKey(), chunkStartTs, chunkEndTs, false, false);
+            timeseriesService.remove(task.getTenantId(), task.getEntityId(), List.of(deleteQuery)).get();
+            startTs = chunkEndTs;
+        }
+
+        // checkpointing the progress so that other tasks are not blocked by a single entity with a long history
+        log.debug("[{}][{}][{}] Deleted timeseries history for key '{}' up to {}, submitting remaining deletion", task.getTenantId(),
+                task.getEntityId().getEntityType(), task.getEntityId(), task.getKey(), startTs);
+        housekeeperClient.submitTask(new TsHistoryDeletionHousekeeperTask(task.getTenantId(), task.getEntityId(), task.getKey(), startTs, endTs));
     }
 
     @Override
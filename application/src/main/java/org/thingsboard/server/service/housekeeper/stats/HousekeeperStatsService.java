@@ -33,6 +33,8 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +43,7 @@ import java.util.stream.Collectors;
 public class HousekeeperStatsService {
 
     private final Map<HousekeeperTaskType, HousekeeperStats> stats = new EnumMap<>(HousekeeperTaskType.class);
+    private volatile long lastReportTs = System.currentTimeMillis();
 
     public HousekeeperStatsService(StatsFactory statsFactory) {
         for (HousekeeperTaskType taskType : HousekeeperTaskType.values()) {
@@ -51,24 +54,38 @@ public class HousekeeperStatsService {
     @Scheduled(initialDelayString = "${queue.core.housekeeper.stats.print-interval-ms:60000}",
             fixedDelayString = "${queue.core.housekeeper.stats.print-interval-ms:60000}")
     private void reportStats() {
+        long now = System.currentTimeMillis();
+        long intervalSeconds = Math.max(TimeUnit.MILLISECONDS.toSeconds(now - lastReportTs), 1);
         String statsStr = stats.values().stream().map(stats -> {
             String countersStr = stats.getCounters().stream()
                     .filter(counter -> counter.get() > 0)
                     .map(counter -> counter.getName() + " = [" + counter.get() + "]")
                     .collect(Collectors.joining(" "));
-            if (countersStr.isEmpty()) {
+            int backlog = stats.getBacklog().get();
+            if (countersStr.isEmpty() && backlog == 0) {
                 return null;
             } else {
-                return stats.getTaskType() + " " + countersStr + " avgProcessingTime [" + stats.getProcessingTimer().getAvg() + " ms]";
+                long completed = stats.getProcessedCounter().get() + stats.getReprocessedCounter().get();
+                return stats.getTaskType() + " " + countersStr + " avgProcessingTime [" + stats.getProcessingTimer().getAvg() + " ms]" +
+                        " throughput [" + (completed / intervalSeconds) + " tasks/s] backlog [" + backlog + "]";
             }
         }).filter(Objects::nonNull).collect(Collectors.joining(", "));
 
+        lastReportTs = now;
         if (!statsStr.isEmpty()) {
             stats.values().forEach(HousekeeperStats::reset);
             log.info("Housekeeper stats: {}", statsStr);
         }
     }
 
+    public void reportSubmitted(HousekeeperTaskType taskType) {
+        stats.get(taskType).getBacklog().incrementAndGet();
+    }
+
+    public void reportCompleted(HousekeeperTaskType taskType) {
+        stats.get(taskType).getBacklog().decrementAndGet();
+    }
+
     public void reportProcessed(HousekeeperTaskType taskType, ToHousekeeperServiceMsg msg, long timing) {
         HousekeeperStats stats = this.stats.get(taskType);
         if (msg.getTask().getErrorsCount() == 0) {
@@ -99,6 +116,7 @@ public class HousekeeperStatsService {
         private final StatsCounter failedReprocessingCounter;
 
         private final StatsTimer processingTimer;
+        private final AtomicInteger backlog;
 
         public HousekeeperStats(HousekeeperTaskType taskType, StatsFactory statsFactory) {
             this.taskType = taskType;
@@ -107,6 +125,7 @@ public class HousekeeperStatsService {
             this.reprocessedCounter = register("reprocessed", statsFactory);
             this.failedReprocessingCounter = register("failedReprocessing", statsFactory);
             this.processingTimer = statsFactory.createTimer(StatsType.HOUSEKEEPER, "processingTime", "taskType", taskType.name());
+            this.backlog = statsFactory.createGauge(StatsType.HOUSEKEEPER.getName() + ".backlog", new AtomicInteger(0), "taskType", taskType.name());
         }
 
         private StatsCounter register(String statsName, StatsFactory statsFactory) {
@@ -15,10 +15,12 @@
  */
 package org.thingsboard.server.service.notification;
 
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.FutureCallback;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.rule.engine.api.NotificationCenter;
 import org.thingsboard.server.cache.limits.RateLimitService;
@@ -67,6 +69,8 @@ import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.TopicService;
 import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+import org.thingsboard.server.queue.util.PropertyUtils;
 import org.thingsboard.server.service.executors.NotificationExecutorService;
 import org.thingsboard.server.service.notification.channels.NotificationChannel;
 import org.thingsboard.server.service.subscription.TbSubscriptionUtils;
@@ -77,10 +81,14 @@ import org.thingsboard.server.service.ws.notification.sub.NotificationUpdate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.common.data.notification.NotificationDeliveryMethod.WEB;
@@ -100,8 +108,16 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
     private final TopicService topicService;
     private final TbQueueProducerProvider producerProvider;
     private final RateLimitService rateLimitService;
+    private final SchedulerComponent scheduler;
 
     private Map<NotificationDeliveryMethod, NotificationChannel> channels;
+    private final Map<NotificationDeliveryMethod, Long> deliveryIntervals = new ConcurrentHashMap<>();
+    private final Map<NotificationDeliveryMethod, AtomicLong> nextDeliverySlots = new ConcurrentHashMap<>();
+
+    @Value("${notification_system.recipients_chunk_size:256}")
+    private int recipientsChunkSize;
+    @Value("${notification_system.stats_update_interval_ms:5000}")
+    private long statsUpdateIntervalMs;
 
     @Override
     public NotificationRequest processNotificationRequest(TenantId tenantId, NotificationRequest request, FutureCallback<NotificationRequestStats> callback) {
@@ -218,38 +234,38 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
     }
 
     private void processNotificationRequestAsync(NotificationProcessingContext ctx, List<NotificationTarget> targets, FutureCallback<NotificationRequestStats> callback) {
-        notificationExecutor.submit(() -> {
-            long startTs = System.currentTimeMillis();
-            NotificationRequestId requestId = ctx.getRequest().getId();
-            for (NotificationTarget target : targets) {
-                try {
-                    processForTarget(target, ctx);
-                } catch (Exception e) {
-                    log.error("[{}] Failed to process notification request for target {}", requestId, target.getId(), e);
-                    ctx.getStats().setError(e.getMessage());
-                    updateRequestStats(ctx, requestId, ctx.getStats());
+        notificationExecutor.submit(() -> new RequestProcessing(ctx, targets.iterator(), callback).process());
+    }
 
-                    if (callback != null) {
-                        callback.onFailure(e);
-                    }
-                    return;
-                }
-            }
+    private void onRequestProcessed(NotificationProcessingContext ctx, long startTs, FutureCallback<NotificationRequestStats> callback) {
+        NotificationRequestId requestId = ctx.getRequest().getId();
+        NotificationRequestStats stats = ctx.getStats();
+        long time = System.currentTimeMillis() - startTs;
+        int sent = stats.getTotalSent().get();
+        int errors = stats.getTotalErrors().get();
+        if (errors > 0) {
+            log.info("[{}][{}] Notification request processing finished in {} ms (sent: {}, errors: {})", ctx.getTenantId(), requestId, time, sent, errors);
+        } else {
+            log.info("[{}][{}] Notification request processing finished in {} ms (sent: {})", ctx.getTenantId(), requestId, time, sent);
+        }
+        updateRequestStats(ctx, requestId, stats);
+        if (callback != null) {
+            callback.onSuccess(stats);
+        }
+    }
 
-            NotificationRequestStats stats = ctx.getStats();
-            long time = System.currentTimeMillis() - startTs;
-            int sent = stats.getTotalSent().get();
-            int errors = stats.getTotalErrors().get();
-            if (errors > 0) {
-                log.info("[{}][{}] Notification request processing finished in {} ms (sent: {}, errors: {})", ctx.getTenantId(), requestId, time, sent, errors);
-            } else {
-                log.info("[{}][{}] Notification request processing finished in {} ms (sent: {})", ctx.getTenantId(), requestId, time, sent);
-            }
-            updateRequestStats(ctx, requestId, stats);
-            if (callback != null) {
-                callback.onSuccess(stats);
-            }
-        });
+    private void updateRequestStatsIfNeeded(NotificationProcessingContext ctx) {
+        long ts = System.currentTimeMillis();
+        if (ts - ctx.getLastStatsUpdateTs() < statsUpdateIntervalMs) {
+            return;
+        }
+        ctx.setLastStatsUpdateTs(ts);
+        NotificationRequestId requestId = ctx.getRequest().getId();
+        try {
+            notificationRequestService.updateNotificationRequest(ctx.getTenantId(), requestId, NotificationRequestStatus.PROCESSING, ctx.getStats());
+        } catch (Exception e) {
+            log.error("[{}] Failed to update intermediate stats for notification request", requestId, e);
+        }
     }
 
     private void updateRequestStats(NotificationProcessingContext ctx, NotificationRequestId requestId, NotificationRequestStats stats) {
@@ -260,7 +276,7 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
         }
     }
 
-    private void processForTarget(NotificationTarget target, NotificationProcessingContext ctx) {
+    private Iterator<List<NotificationRecipient>> getRecipientsChunks(NotificationTarget target, NotificationProcessingContext ctx) {
         Iterable<? extends NotificationRecipient> recipients;
         switch (target.getConfiguration().getType()) {
             case PLATFORM_USERS -> {
@@ -285,31 +301,59 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
             }
             default -> recipients = Collections.emptyList();
         }
+        return Iterables.partition(Iterables.<NotificationRecipient>unmodifiableIterable(recipients), recipientsChunkSize).iterator();
+    }
 
+    private Set<NotificationDeliveryMethod> getDeliveryMethods(NotificationTarget target, NotificationProcessingContext ctx) {
         Set<NotificationDeliveryMethod> deliveryMethods = new HashSet<>(ctx.getDeliveryMethods());
         deliveryMethods.removeIf(deliveryMethod -> !target.getConfiguration().getType().getSupportedDeliveryMethods().contains(deliveryMethod));
         log.debug("[{}] Processing notification request for {} target ({}) for delivery methods {}", ctx.getRequest().getId(), target.getConfiguration().getType(), target.getId(), deliveryMethods);
-        if (deliveryMethods.isEmpty()) {
-            return;
-        }
+        return deliveryMethods;
+    }
 
+    /**
+     * Prepares the chunk and saves its web notifications, returns the rest of the deliveries to be sent
+     * */
+    private List<Delivery> processForRecipients(List<NotificationRecipient> recipients, Set<NotificationDeliveryMethod> deliveryMethods, NotificationProcessingContext ctx) {
+        List<User> webRecipients = new ArrayList<>();
+        List<Notification> webNotifications = new ArrayList<>();
+        List<Delivery> deliveries = new ArrayList<>();
         for (NotificationRecipient recipient : recipients) {
             for (NotificationDeliveryMethod deliveryMethod : deliveryMethods) {
                 try {
-                    processForRecipient(deliveryMethod, recipient, ctx);
-                    ctx.getStats().reportSent(deliveryMethod, recipient);
+                    DeliveryMethodNotificationTemplate processedTemplate = prepareForRecipient(deliveryMethod, recipient, ctx);
+                    if (deliveryMethod == WEB && recipient instanceof User user) {
+                        // web notifications of the chunk are saved with a single batch insert
+                        webRecipients.add(user);
+                        webNotifications.add(createWebNotification(user, (WebDeliveryMethodNotificationTemplate) processedTemplate, ctx));
+                    } else {
+                        deliveries.add(new Delivery(deliveryMethod, recipient, processedTemplate));
+                    }
                 } catch (Exception error) {
                     ctx.getStats().reportError(deliveryMethod, error, recipient);
                 }
             }
         }
+        saveWebNotifications(webRecipients, webNotifications, ctx);
+        return deliveries;
     }
 
-    private void processForRecipient(NotificationDeliveryMethod deliveryMethod, NotificationRecipient recipient, NotificationProcessingContext ctx) throws Exception {
-        if (ctx.getStats().contains(deliveryMethod, recipient.getId())) {
+    private void deliver(Delivery delivery, NotificationProcessingContext ctx) {
+        NotificationDeliveryMethod deliveryMethod = delivery.deliveryMethod();
+        NotificationRecipient recipient = delivery.recipient();
+        try {
+            log.trace("[{}] Sending {} notification for recipient {}", ctx.getRequest().getId(), deliveryMethod, recipient);
+            channels.get(deliveryMethod).sendNotification(recipient, delivery.processedTemplate(), ctx);
+            ctx.getStats().reportSent(deliveryMethod, recipient);
+        } catch (Exception error) {
+            ctx.getStats().reportError(deliveryMethod, error, recipient);
+        }
+    }
+
+    private DeliveryMethodNotificationTemplate prepareForRecipient(NotificationDeliveryMethod deliveryMethod, NotificationRecipient recipient, NotificationProcessingContext ctx) {
+        // the recipient is marked as processed before the delivery is reserved, so that a recipient of several targets is notified once
+        if (!ctx.getStats().reportProcessed(deliveryMethod, recipient.getId())) {
             throw new AlreadySentException();
-        } else {
-            ctx.getStats().reportProcessed(deliveryMethod, recipient.getId());
         }
 
         if (recipient instanceof User) {
@@ -318,18 +362,57 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
                 throw new RuntimeException("User disabled " + deliveryMethod.getName() + " notifications of this type");
             }
         }
+        return ctx.getProcessedTemplate(deliveryMethod, recipient);
+    }
 
-        NotificationChannel notificationChannel = channels.get(deliveryMethod);
-        DeliveryMethodNotificationTemplate processedTemplate = ctx.getProcessedTemplate(deliveryMethod, recipient);
+    private void saveWebNotifications(List<User> recipients, List<Notification> notifications, NotificationProcessingContext ctx) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        List<Notification> savedNotifications;
+        try {
+            savedNotifications = notificationService.saveNotifications(ctx.getTenantId(), notifications);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to save {} notifications in batch, saving one by one", ctx.getRequest().getId(), notifications.size(), e);
+            for (int i = 0; i < notifications.size(); i++) {
+                User recipient = recipients.get(i);
+                try {
+                    saveWebNotification(recipient, notifications.get(i));
+                    ctx.getStats().reportSent(WEB, recipient);
+                } catch (Exception error) {
+                    ctx.getStats().reportError(WEB, error, recipient);
+                }
+            }
+            return;
+        }
+        for (int i = 0; i < savedNotifications.size(); i++) {
+            User recipient = recipients.get(i);
+            onWebNotificationCreated(recipient, savedNotifications.get(i));
+            ctx.getStats().reportSent(WEB, recipient);
+        }
+    }
 
-        log.trace("[{}] Sending {} notification for recipient {}", ctx.getRequest().getId(), deliveryMethod, recipient);
-        notificationChannel.sendNotification(recipient, processedTemplate, ctx);
+    /**
+     * Reserves the next delivery slot of the delivery method, returns the delay in nanos until the slot
+     * */
+    private long reserveDeliverySlot(NotificationDeliveryMethod deliveryMethod) {
+        Long intervalNanos = deliveryIntervals.get(deliveryMethod);
+        if (intervalNanos == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long slot = nextDeliverySlots.get(deliveryMethod).getAndAccumulate(now, (next, ts) -> Math.max(next, ts) + intervalNanos);
+        return slot - now;
     }
 
     @Override
     public void sendNotification(User recipient, WebDeliveryMethodNotificationTemplate processedTemplate, NotificationProcessingContext ctx) throws Exception {
+        saveWebNotification(recipient, createWebNotification(recipient, processedTemplate, ctx));
+    }
+
+    private Notification createWebNotification(User recipient, WebDeliveryMethodNotificationTemplate processedTemplate, NotificationProcessingContext ctx) {
         NotificationRequest request = ctx.getRequest();
-        Notification notification = Notification.builder()
+        return Notification.builder()
                 .requestId(request.getId())
                 .recipientId(recipient.getId())
                 .type(ctx.getNotificationType())
@@ -340,13 +423,19 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
                 .info(request.getInfo())
                 .status(NotificationStatus.SENT)
                 .build();
+    }
+
+    private void saveWebNotification(User recipient, Notification notification) {
         try {
             notification = notificationService.saveNotification(recipient.getTenantId(), notification);
         } catch (Exception e) {
             log.error("Failed to create notification for recipient {}", recipient.getId(), e);
             throw e;
         }
+        onWebNotificationCreated(recipient, notification);
+    }
 
+    private void onWebNotificationCreated(User recipient, Notification notification) {
         NotificationUpdate update = NotificationUpdate.builder()
                 .created(true)
                 .notification(notification)
@@ -475,10 +564,100 @@ public class DefaultNotificationCenter extends AbstractSubscriptionService imple
         return "notification";
     }
 
+    @Autowired
+    public void setDeliveryRateLimits(@Value("${notification_system.delivery_rate_limits:}") String deliveryRateLimitsStr) {
+        PropertyUtils.getProps(deliveryRateLimitsStr).forEach((deliveryMethod, rate) -> {
+            double ratePerSecond = Double.parseDouble(rate);
+            if (ratePerSecond > 0) {
+                NotificationDeliveryMethod method = NotificationDeliveryMethod.valueOf(deliveryMethod);
+                deliveryIntervals.put(method, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+                nextDeliverySlots.put(method, new AtomicLong(System.nanoTime()));
+            }
+        });
+    }
+
     @Autowired
     public void setChannels(List<NotificationChannel> channels, NotificationCenter webNotificationChannel) {
         this.channels = channels.stream().collect(Collectors.toMap(NotificationChannel::getDeliveryMethod, c -> c));
         this.channels.put(WEB, (NotificationChannel) webNotificationChannel);
     }
 
+    /**
+     * Processes the targets of a request chunk by chunk. Only the deliveries of the current chunk are kept,
+     * when a delivery has to wait for its slot the processing is continued by the scheduler without blocking the notification executor
+     * */
+    @RequiredArgsConstructor
+    private class RequestProcessing {
+
+        private final NotificationProcessingContext ctx;
+        private final Iterator<NotificationTarget> targets;
+        private final FutureCallback<NotificationRequestStats> callback;
+        private final long startTs = System.currentTimeMillis();
+
+        private NotificationTarget target;
+        private Set<NotificationDeliveryMethod> deliveryMethods;
+        private Iterator<List<NotificationRecipient>> recipientsChunks = Collections.emptyIterator();
+        private Iterator<Delivery> deliveries = Collections.emptyIterator();
+        private boolean chunkInProgress;
+
+        void process() {
+            try {
+                while (true) {
+                    if (deliveries.hasNext()) {
+                        Delivery delivery = deliveries.next();
+                        long delayNanos = reserveDeliverySlot(delivery.deliveryMethod());
+                        if (delayNanos > 0) {
+                            scheduleDelivery(delivery, delayNanos);
+                            return;
+                        }
+                        deliver(delivery, ctx);
+                    } else if (chunkInProgress) {
+                        chunkInProgress = false;
+                        updateRequestStatsIfNeeded(ctx);
+                    } else if (recipientsChunks.hasNext()) {
+                        deliveries = processForRecipients(recipientsChunks.next(), deliveryMethods, ctx).iterator();
+                        chunkInProgress = true;
+                    } else if (targets.hasNext()) {
+                        target = targets.next();
+                        deliveryMethods = getDeliveryMethods(target, ctx);
+                        recipientsChunks = deliveryMethods.isEmpty() ? Collections.emptyIterator() : getRecipientsChunks(target, ctx);
+                    } else {
+                        onRequestProcessed(ctx, startTs, callback);
+                        return;
+                    }
+                }
+            } catch (Exception e) {
+                onFailure(e);
+            }
+        }
+
+        private void scheduleDelivery(Delivery delivery, long delayNanos) {
+            scheduler.schedule(() -> {
+                try {
+                    notificationExecutor.execute(() -> {
+                        deliver(delivery, ctx);
+                        process();
+                    });
+                } catch (Exception e) {
+                    ctx.getStats().reportError(delivery.deliveryMethod(), e, delivery.recipient());
+                    onFailure(e);
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void onFailure(Exception e) {
+            NotificationRequestId requestId = ctx.getRequest().getId();
+            log.error("[{}] Failed to process notification request for target {}", requestId, target != null ? target.getId() : null, e);
+            ctx.getStats().setError(e.getMessage());
+            updateRequestStats(ctx, requestId, ctx.getStats());
+
+            if (callback != null) {
+                callback.onFailure(e);
+            }
+        }
+
+    }
+
+    private record Delivery(NotificationDeliveryMethod deliveryMethod, NotificationRecipient recipient, DeliveryMethodNotificationTemplate processedTemplate) {}
+
 }
@@ -18,6 +18,7 @@ package org.thingsboard.server.service.notification;
 import com.google.common.base.Strings;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.notification.NotificationDeliveryMethod;
@@ -34,12 +35,18 @@ import org.thingsboard.server.common.data.util.TemplateUtils;
 
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unchecked")
 public class NotificationProcessingContext {
 
+    private static final List<String> RECIPIENT_TEMPLATE_PARAMS = List.of("recipientTitle", "recipientEmail", "recipientFirstName", "recipientLastName");
+    private static final int MAX_PROCESSED_TEMPLATES = 1000;
+
     @Getter
     private final TenantId tenantId;
     private final NotificationSettings settings;
@@ -54,8 +61,13 @@ public class NotificationProcessingContext {
     private final NotificationType notificationType;
 
     private final Map<NotificationDeliveryMethod, DeliveryMethodNotificationTemplate> templates;
+    private final Map<NotificationDeliveryMethod, Set<String>> recipientTemplateParams;
+    private final Map<ProcessedTemplateKey, DeliveryMethodNotificationTemplate> processedTemplates;
     @Getter
     private final NotificationRequestStats stats;
+    @Getter
+    @Setter
+    private volatile long lastStatsUpdateTs;
 
     @Builder
     public NotificationProcessingContext(TenantId tenantId, NotificationRequest request, Set<NotificationDeliveryMethod> deliveryMethods,
@@ -68,7 +80,10 @@ public class NotificationProcessingContext {
         this.notificationTemplate = template;
         this.notificationType = template.getNotificationType();
         this.templates = new EnumMap<>(NotificationDeliveryMethod.class);
+        this.recipientTemplateParams = new EnumMap<>(NotificationDeliveryMethod.class);
+        this.processedTemplates = new ConcurrentHashMap<>();
         this.stats = new NotificationRequestStats();
+        this.lastStatsUpdateTs = System.currentTimeMillis();
         init();
     }
 
@@ -78,6 +93,10 @@ public class NotificationProcessingContext {
             if (template.isEnabled()) {
                 template = processTemplate(template, null); // processing template with immutable params
                 templates.put(deliveryMethod, template);
+                DeliveryMethodNotificationTemplate processedTemplate = template;
+                recipientTemplateParams.put(deliveryMethod, RECIPIENT_TEMPLATE_PARAMS.stream()
+                        .filter(param -> processedTemplate.getTemplatableValues().stream().anyMatch(value -> value.containsParams(List.of(param))))
+                        .collect(Collectors.toSet()));
             }
         });
     }
@@ -95,9 +114,20 @@ public class NotificationProcessingContext {
     public <T extends DeliveryMethodNotificationTemplate> T getProcessedTemplate(NotificationDeliveryMethod deliveryMethod, NotificationRecipient recipient) {
         T template = (T) templates.get(deliveryMethod);
         if (recipient != null) {
-            Map<String, String> additionalTemplateContext = createTemplateContextForRecipient(recipient);
-            if (template.getTemplatableValues().stream().anyMatch(value -> value.containsParams(additionalTemplateContext.keySet()))) {
-                template = processTemplate(template, additionalTemplateContext);
+            Set<String> usedParams = recipientTemplateParams.get(deliveryMethod);
+            if (!usedParams.isEmpty()) {
+                Map<String, String> additionalTemplateContext = new HashMap<>(createTemplateContextForRecipient(recipient));
+                additionalTemplateContext.keySet().retainAll(usedParams);
+                // recipients sharing the same values of the used params get the same rendered template
+                ProcessedTemplateKey key = new ProcessedTemplateKey(deliveryMethod, additionalTemplateContext);
+                T processedTemplate = (T) processedTemplates.get(key);
+                if (processedTemplate == null) {
+                    processedTemplate = processTemplate(template, additionalTemplateContext);
+                    if (processedTemplates.size() < MAX_PROCESSED_TEMPLATES) {
+                        processedTemplates.put(key, processedTemplate);
+                    }
+                }
+                template = processedTemplate;
             }
         }
         return template;
@@ -133,4 +163,6 @@ public class NotificationProcessingContext {
         );
     }
 
+    private record ProcessedTemplateKey(NotificationDeliveryMethod deliveryMethod, Map<String, String> templateContext) {}
+
 }
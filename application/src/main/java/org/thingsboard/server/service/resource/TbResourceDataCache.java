@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.resource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.exception.ThingsboardException;
+import org.thingsboard.server.common.data.util.ThrowingSupplier;
+import org.thingsboard.server.queue.util.TbCoreComponent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps resource and image bytes, together with their gzip-encoded form, keyed by ETag.
+ * ETag is a SHA-256 of the content, so cached entries never go stale and are shared by all resources with the same content.
+ */
+@Service
+@Slf4j
+@TbCoreComponent
+public class TbResourceDataCache {
+
+    private final Cache<String, ResourceData> cache;
+    private final int compressionMinSize;
+
+    public TbResourceDataCache(@Value("${cache.resourceData.timeToLiveInMinutes:1440}") int cacheTtl,
+                               @Value("${cache.resourceData.maxSizeInBytes:104857600}") long cacheMaxSizeInBytes,
+                               @Value("${cache.resourceData.compressionMinSize:1024}") int compressionMinSize) {
+        this.cache = cacheMaxSizeInBytes > 0 ? Caffeine.newBuilder()
+                .expireAfterAccess(cacheTtl, TimeUnit.MINUTES)
+                .maximumWeight(cacheMaxSizeInBytes)
+                .<String, ResourceData>weigher((etag, resourceData) -> resourceData.size())
+                .build() : null;
+        this.compressionMinSize = compressionMinSize;
+    }
+
+    public ResourceData get(String etag, ThrowingSupplier<byte[]> dataLoader) throws ThingsboardException {
+        if (cache == null || StringUtils.isEmpty(etag)) {
+            return new ResourceData(dataLoader.get(), null);
+        }
+        ResourceData resourceData = cache.getIfPresent(etag);
+        if (resourceData == null) {
+            byte[] data = dataLoader.get();
+            if (data == null) {
+                return new ResourceData(null, null);
+            }
+            resourceData = new ResourceData(data, compress(data));
+            // the resource may have been updated after its info was fetched; such data must not be cached under the old etag
+            if (etag.equals(Hashing.sha256().hashBytes(data).toString())) {
+                cache.put(etag, resourceData);
+            } else {
+                log.debug("[{}] Loaded data does not match the etag, skipping caching", etag);
+            }
+        }
+        return resourceData;
+    }
+
+    private byte[] compress(byte[] data) {
+        if (data.length < compressionMinSize) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            log.warn("Failed to compress resource data", e);
+            return null;
+        }
+        // already compressed formats (png, jpeg, etc.) are served as is
+        return out.size() < data.length * 0.9 ? out.toByteArray() : null;
+    }
+
+    public record ResourceData(byte[] data, byte[] gzipData) {
+
+        public boolean hasGzipData() {
+            return gzipData != null;
+        }
+
+        int size() {
+            return data.length + (gzipData != null ? gzipData.length : 0);
+        }
+
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.service.sync.vc;
 
+import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -66,7 +67,6 @@ import org.thingsboard.server.common.data.sync.vc.request.load.SingleEntityVersi
 import org.thingsboard.server.common.data.sync.vc.request.load.VersionLoadConfig;
 import org.thingsboard.server.common.data.sync.vc.request.load.VersionLoadRequest;
 import org.thingsboard.server.common.data.util.ThrowingRunnable;
-import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.exception.DeviceCredentialsValidationException;
 import org.thingsboard.server.queue.util.TbCoreComponent;
 import org.thingsboard.server.service.entitiy.TbLogEntityActionService;
@@ -88,6 +88,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -105,6 +106,8 @@ import static org.thingsboard.server.common.data.sync.vc.VcUtils.checkBranchName
 @Slf4j
 public class DefaultEntitiesVersionControlService implements EntitiesVersionControlService {
 
+    private static final int EXPORT_BATCH_SIZE = 100;
+
     private final TbRepositorySettingsService repositorySettingsService;
     private final TbAutoCommitSettingsService autoCommitSettingsService;
     private final GitVersionControlQueueService gitServiceQueue;
@@ -183,31 +186,45 @@ public class DefaultEntitiesVersionControlService implements EntitiesVersionCont
 
     private void handleComplexRequest(ComplexEntitiesExportCtx parentCtx) {
         ComplexVersionCreateRequest request = parentCtx.getRequest();
-        request.getEntityTypes().forEach((entityType, config) -> {
+        // entities are exported batch by batch, so that a big export does not occupy the whole version control executor
+        ListenableFuture<Void> future = Futures.immediateVoidFuture();
+        for (var entry : request.getEntityTypes().entrySet()) {
+            EntityType entityType = entry.getKey();
+            EntityTypeVersionCreateConfig config = entry.getValue();
             EntityTypeExportCtx ctx = new EntityTypeExportCtx(parentCtx, config, request.getSyncStrategy(), entityType);
             if (ctx.isOverwrite()) {
                 ctx.add(gitServiceQueue.deleteAll(ctx.getCommit(), entityType));
             }
 
-            if (config.isAllEntities()) {
-                DaoUtil.processInBatches(pageLink -> exportableEntitiesService.findEntitiesIdsByTenantId(ctx.getTenantId(), entityType, pageLink),
-                        100, entityId -> {
-                            try {
-                                ctx.add(saveEntityData(ctx, entityId));
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
-                        });
-            } else {
-                for (UUID entityId : config.getEntityIds()) {
-                    try {
-                        ctx.add(saveEntityData(ctx, EntityIdFactory.getByTypeAndUuid(entityType, entityId)));
-                    } catch (Exception e) {
-                        throw new RuntimeException(e);
-                    }
+            future = Futures.transformAsync(future, v -> {
+                Iterable<EntityId> entityIds;
+                if (config.isAllEntities()) {
+                    entityIds = new PageDataIterable<>(pageLink -> exportableEntitiesService.findEntitiesIdsByTenantId(ctx.getTenantId(), entityType, pageLink), EXPORT_BATCH_SIZE);
+                } else {
+                    entityIds = Iterables.transform(config.getEntityIds(), entityId -> EntityIdFactory.getByTypeAndUuid(entityType, entityId));
                 }
-            }
-        });
+                return saveEntitiesDataAsync(ctx, Iterables.partition(entityIds, EXPORT_BATCH_SIZE).iterator());
+            }, executor);
+        }
+        parentCtx.add(future);
+    }
+
+    private ListenableFuture<Void> saveEntitiesDataAsync(EntitiesExportCtx<?> ctx, Iterator<List<EntityId>> batches) {
+        if (!batches.hasNext()) {
+            return Futures.immediateVoidFuture();
+        }
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (EntityId entityId : batches.next()) {
+            futures.add(saveEntityDataAsync(ctx, entityId));
+        }
+        ListenableFuture<List<Void>> batchFuture = Futures.allAsList(futures);
+        // the rest of the batch is not exported once an entity fails, the next batch is not submitted
+        DonAsynchron.withCallback(batchFuture, result -> {}, e -> futures.forEach(future -> future.cancel(false)), MoreExecutors.directExecutor());
+        return Futures.transformAsync(batchFuture, result -> saveEntitiesDataAsync(ctx, batches), executor);
+    }
+
+    private ListenableFuture<Void> saveEntityDataAsync(EntitiesExportCtx<?> ctx, EntityId entityId) {
+        return Futures.submitAsync(() -> saveEntityData(ctx, entityId), executor);
     }
 
     private ListenableFuture<Void> saveEntityData(EntitiesExportCtx<?> ctx, EntityId entityId) throws Exception {
@@ -372,12 +389,18 @@ public class DefaultEntitiesVersionControlService implements EntitiesVersionCont
         int limit = 100;
         int offset = 0;
         List<EntityExportData> entityDataList;
+        ListenableFuture<List<EntityExportData>> nextPageFuture = gitServiceQueue.getEntities(ctx.getTenantId(), ctx.getVersionId(), entityType, offset, limit);
         do {
             try {
-                entityDataList = gitServiceQueue.getEntities(ctx.getTenantId(), ctx.getVersionId(), entityType, offset, limit).get();
+                entityDataList = nextPageFuture.get();
             } catch (ExecutionException e) {
                 throw e.getCause();
             }
+            offset += limit;
+            if (entityDataList.size() == limit) {
+                // fetching the next pack from the repository while the current one is being imported
+                nextPageFuture = gitServiceQueue.getEntities(ctx.getTenantId(), ctx.getVersionId(), entityType, offset, limit);
+            }
             log.debug("[{}] Loading {} entities pack ({})", ctx.getTenantId(), entityType, entityDataList.size());
             for (EntityExportData entityData : entityDataList) {
                 EntityExportData reimportBackup = JacksonUtil.clone(entityData);
@@ -399,7 +422,6 @@ public class DefaultEntitiesVersionControlService implements EntitiesVersionCont
 
             persistToCache(ctx);
             log.debug("Imported {} pack ({}) for tenant {}", entityType, entityDataList.size(), ctx.getTenantId());
-            offset += limit;
         } while (entityDataList.size() == limit);
     }
 
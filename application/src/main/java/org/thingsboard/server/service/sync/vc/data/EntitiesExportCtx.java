@@ -26,9 +26,9 @@ import org.thingsboard.server.common.data.sync.vc.request.create.VersionCreateCo
 import org.thingsboard.server.common.data.sync.vc.request.create.VersionCreateRequest;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Data
@@ -45,7 +45,7 @@ public abstract class EntitiesExportCtx<R extends VersionCreateRequest> {
         this.commit = commit;
         this.request = request;
         this.futures = new ArrayList<>();
-        this.externalIdMap = new HashMap<>();
+        this.externalIdMap = new ConcurrentHashMap<>();
     }
 
     protected <T extends R> EntitiesExportCtx(EntitiesExportCtx<T> other) {
@@ -22,7 +22,9 @@ import com.google.common.util.concurrent.ListenableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.EntitySubtype;
@@ -53,6 +55,7 @@ import org.thingsboard.server.common.data.query.AlarmDataQuery;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
+import org.thingsboard.server.dao.alarm.AlarmBatchWriter;
 import org.thingsboard.server.dao.alarm.AlarmService;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.entitiy.alarm.TbAlarmCommentService;
@@ -74,6 +77,9 @@ public class DefaultAlarmSubscriptionService extends AbstractSubscriptionService
     private final TbApiUsageStateService apiUsageStateService;
     private final NotificationRuleProcessor notificationRuleProcessor;
 
+    @Autowired(required = false)
+    private AlarmBatchWriter alarmBatchWriter;
+
     @Override
     protected String getExecutorPrefix() {
         return "alarm";
@@ -82,7 +88,12 @@ public class DefaultAlarmSubscriptionService extends AbstractSubscriptionService
     @Override
     public AlarmApiCallResult createAlarm(AlarmCreateOrUpdateActiveRequest request) {
         boolean creationEnabled = apiUsageStateService.getApiUsageState(request.getTenantId()).isAlarmCreationEnabled();
-        var result = alarmService.createAlarm(request, creationEnabled);
+        AlarmApiCallResult result;
+        if (isBatchWriteAllowed()) {
+            result = alarmBatchWriter.createAlarm(request, creationEnabled);
+        } else {
+            result = alarmService.createAlarm(request, creationEnabled);
+        }
         if (result.isCreated()) {
             apiUsageClient.report(request.getTenantId(), null, ApiUsageRecordKey.CREATED_ALARMS_COUNT);
         }
@@ -101,6 +112,9 @@ public class DefaultAlarmSubscriptionService extends AbstractSubscriptionService
 
     @Override
     public AlarmApiCallResult clearAlarm(TenantId tenantId, AlarmId alarmId, long clearTs, JsonNode details) {
+        if (isBatchWriteAllowed()) {
+            return withWsCallback(alarmBatchWriter.clearAlarm(tenantId, alarmId, clearTs, details));
+        }
         return withWsCallback(alarmService.clearAlarm(tenantId, alarmId, clearTs, details));
     }
 
@@ -181,6 +195,13 @@ public class DefaultAlarmSubscriptionService extends AbstractSubscriptionService
         return alarmService.findAlarmTypesByTenantId(tenantId, pageLink);
     }
 
+    /*
+     * Callers that already run inside a transaction expect the alarm to be written within it.
+     */
+    private boolean isBatchWriteAllowed() {
+        return alarmBatchWriter != null && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
     private void onAlarmUpdated(AlarmApiCallResult result) {
         wsCallBackExecutor.submit(() -> {
             AlarmInfo alarm = result.getAlarm();
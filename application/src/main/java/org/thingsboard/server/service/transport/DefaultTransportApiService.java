@@ -18,6 +18,7 @@ package org.thingsboard.server.service.transport;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -83,12 +84,15 @@ import org.thingsboard.server.dao.relation.RelationService;
 import org.thingsboard.server.dao.resource.ResourceService;
 import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
 import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceNameTypeProto;
 import org.thingsboard.server.gen.transport.TransportProtos.GetDeviceCredentialsRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetDeviceRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetResourceRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesResponseMsg;
@@ -104,6 +108,7 @@ import org.thingsboard.server.queue.util.TbCoreComponent;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentMap;
@@ -166,6 +171,10 @@ public class DefaultTransportApiService implements TransportApiService {
     @Override
     public ListenableFuture<TbProtoQueueMsg<TransportApiResponseMsg>> handle(TbProtoQueueMsg<TransportApiRequestMsg> tbProtoQueueMsg) {
         TransportApiRequestMsg transportApiRequestMsg = tbProtoQueueMsg.getValue();
+        if (transportApiRequestMsg.hasGetOrCreateDevicesRequestMsg()) {
+            return Futures.transform(handle(transportApiRequestMsg.getGetOrCreateDevicesRequestMsg()),
+                    result -> new TbProtoQueueMsg<>(tbProtoQueueMsg.getKey(), result, tbProtoQueueMsg.getHeaders()), MoreExecutors.directExecutor());
+        }
         return handlerExecutor.submit(() -> {
             TransportApiResponseMsg result = handle(transportApiRequestMsg);
             return new TbProtoQueueMsg<>(tbProtoQueueMsg.getKey(), result, tbProtoQueueMsg.getHeaders());
@@ -332,18 +341,52 @@ public class DefaultTransportApiService implements TransportApiService {
     private TransportApiResponseMsg handle(GetOrCreateDeviceFromGatewayRequestMsg requestMsg) {
         DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
         Device gateway = deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gatewayId);
-        Lock deviceCreationLock = deviceCreationLocks.computeIfAbsent(requestMsg.getDeviceName(), id -> new ReentrantLock());
+        return TransportApiResponseMsg.newBuilder()
+                .setGetOrCreateDeviceResponseMsg(getOrCreateDevice(gateway, requestMsg.getDeviceName(), requestMsg.getDeviceType()))
+                .build();
+    }
+
+    /**
+     * Devices of the batch are resolved in parallel on the handler executor, so one slow device creation does not hold the others.
+     * Every device gets its own response in the request order.
+     */
+    private ListenableFuture<TransportApiResponseMsg> handle(GetOrCreateDevicesFromGatewayRequestMsg requestMsg) {
+        DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
+        ListenableFuture<Device> gatewayFuture = handlerExecutor.submit(() -> deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gatewayId));
+        return Futures.transformAsync(gatewayFuture, gateway -> {
+            List<ListenableFuture<GetOrCreateDeviceFromGatewayResponseMsg>> responses = new ArrayList<>(requestMsg.getDevicesCount());
+            for (GatewayDeviceNameTypeProto device : requestMsg.getDevicesList()) {
+                responses.add(handlerExecutor.submit(() -> {
+                    try {
+                        return getOrCreateDevice(gateway, device.getDeviceName(), device.getDeviceType());
+                    } catch (Exception e) {
+                        log.warn("[{}] Failed to get or create device [{}] for gateway", gatewayId, device.getDeviceName(), e);
+                        return GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
+                                .setError(TransportProtos.TransportApiRequestErrorCode.UNKNOWN_TRANSPORT_API_ERROR)
+                                .build();
+                    }
+                }));
+            }
+            return Futures.transform(Futures.allAsList(responses), deviceResponses -> TransportApiResponseMsg.newBuilder()
+                    .setGetOrCreateDevicesResponseMsg(GetOrCreateDevicesFromGatewayResponseMsg.newBuilder().addAllResponses(deviceResponses))
+                    .build(), MoreExecutors.directExecutor());
+        }, MoreExecutors.directExecutor());
+    }
+
+    private GetOrCreateDeviceFromGatewayResponseMsg getOrCreateDevice(Device gateway, String deviceName, String deviceType) {
+        DeviceId gatewayId = gateway.getId();
+        Lock deviceCreationLock = deviceCreationLocks.computeIfAbsent(deviceName, id -> new ReentrantLock());
         deviceCreationLock.lock();
         try {
-            Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), requestMsg.getDeviceName());
+            Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), deviceName);
             if (device == null) {
                 TenantId tenantId = gateway.getTenantId();
                 device = new Device();
                 device.setTenantId(tenantId);
-                device.setName(requestMsg.getDeviceName());
-                device.setType(requestMsg.getDeviceType());
+                device.setName(deviceName);
+                device.setType(deviceType);
                 device.setCustomerId(gateway.getCustomerId());
-                DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), requestMsg.getDeviceType());
+                DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), deviceType);
 
                 device.setDeviceProfileId(deviceProfile.getId());
                 ObjectNode additionalInfo = JacksonUtil.newObjectNode();
@@ -385,18 +428,14 @@ public class DefaultTransportApiService implements TransportApiService {
             } else {
                 log.warn("[{}] Failed to find device profile [{}] for device. ", device.getId(), device.getDeviceProfileId());
             }
-            return TransportApiResponseMsg.newBuilder()
-                    .setGetOrCreateDeviceResponseMsg(builder.build())
-                    .build();
+            return builder.build();
         } catch (JsonProcessingException e) {
-            log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, requestMsg.getDeviceName(), e);
+            log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, deviceName, e);
             throw new RuntimeException(e);
         } catch (EntitiesLimitException e) {
             log.warn("[{}][{}] API limit exception: [{}]", e.getTenantId(), gatewayId, e.getMessage());
-            return TransportApiResponseMsg.newBuilder()
-                    .setGetOrCreateDeviceResponseMsg(
-                            GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
-                                    .setError(TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT))
+            return GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
+                    .setError(TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT)
                     .build();
         } finally {
             deviceCreationLock.unlock();
@@ -21,7 +21,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.mock.web.MockPart;
@@ -39,9 +41,12 @@ import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.dao.service.DaoSqlTest;
 import org.thingsboard.server.dao.sql.resource.TbResourceRepository;
 
+import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -119,6 +124,42 @@ public class ImageControllerTest extends AbstractControllerTest {
         assertThat(downloadImagePreview("tenant", filename)).hasSize((int) imageDescriptor.getPreviewDescriptor().getSize());
     }
 
+    @Test
+    public void testDownloadImageEncodings() throws Exception {
+        String filename = "my_svg_image.svg";
+        TbResourceInfo imageInfo = uploadImage(HttpMethod.POST, "/api/image", filename, "image/svg+xml", SVG_IMAGE);
+        String etag = imageInfo.getDescriptor(ImageDescriptor.class).getEtag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = doGet("/api/images/tenant/" + filename, headers).andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        String gzipETag = response.getHeader(HttpHeaders.ETAG);
+        assertThat(gzipETag).isEqualTo("\"" + etag + "-gzip\"");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertThat(in.readAllBytes()).containsExactly(SVG_IMAGE);
+        }
+
+        headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        headers.set(HttpHeaders.RANGE, "bytes=0-99");
+        response = doGet("/api/images/tenant/" + filename, headers).andExpect(status().isPartialContent())
+                .andReturn().getResponse();
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + etag + "\"");
+        assertThat(response.getContentAsByteArray()).containsExactly(Arrays.copyOf(SVG_IMAGE, 100));
+
+        headers = new HttpHeaders();
+        headers.setIfNoneMatch(List.of("W/\"" + etag + "\"", "\"other\""));
+        doGet("/api/images/tenant/" + filename, headers).andExpect(status().isNotModified());
+
+        headers = new HttpHeaders();
+        headers.setIfNoneMatch(gzipETag);
+        doGet("/api/images/tenant/" + filename, headers).andExpect(status().isNotModified());
+    }
+
     @Test
     public void testUploadScadaSymbolImage() throws Exception {
         String filename = "my_scada_symbol_image.svg";
@@ -23,14 +23,28 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.server.common.data.ApiUsageState;
+import org.thingsboard.server.common.data.id.ApiUsageStateId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.service.telemetry.InternalTelemetryService;
 
+import java.util.List;
 import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class DefaultTbApiUsageStateServiceTest {
@@ -38,7 +52,11 @@ public class DefaultTbApiUsageStateServiceTest {
     @Mock
     TenantApiUsageState tenantUsageStateMock;
 
+    @Mock
+    InternalTelemetryService tsWsService;
+
     TenantId tenantId = TenantId.fromUUID(UUID.fromString("00797a3b-7aeb-4b5b-b57a-c2a810d0f112"));
+    ApiUsageStateId apiUsageStateId = new ApiUsageStateId(UUID.fromString("5f6c1c2e-5e4b-4c1e-9d0a-3b5f2b7a9c11"));
 
     @Spy
     @InjectMocks
@@ -46,6 +64,7 @@ public class DefaultTbApiUsageStateServiceTest {
 
     @BeforeEach
     public void setUp() {
+        ReflectionTestUtils.setField(service, "tsWsService", tsWsService);
     }
 
     @Test
@@ -56,4 +75,47 @@ public class DefaultTbApiUsageStateServiceTest {
         Mockito.verify(service, never()).getOrFetchState(tenantId, tenantId);
     }
 
-}
\ No newline at end of file
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenSeveralUpdatesOfSameCounts_whenPersistingPendingStats_thenOnlyLatestValuesAreSavedOnce() {
+        service.addPendingUsageStats(tenantId, tenantId, apiUsageStateId, List.of(
+                new BasicTsKvEntry(1000, new LongDataEntry("transportMsgCount", 1L)),
+                new BasicTsKvEntry(2000, new LongDataEntry("transportMsgCountHourly", 1L))));
+        List<TsKvEntry> latest = List.of(
+                new BasicTsKvEntry(1000, new LongDataEntry("transportMsgCount", 5L)),
+                new BasicTsKvEntry(2000, new LongDataEntry("transportMsgCountHourly", 5L)),
+                new BasicTsKvEntry(3000, new LongDataEntry("transportMsgCountHourly", 2L)));
+        service.addPendingUsageStats(tenantId, tenantId, apiUsageStateId, latest);
+
+        service.persistPendingUsageStats();
+
+        ArgumentCaptor<List<TsKvEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(tsWsService, times(1)).saveAndNotifyInternal(eq(tenantId), eq(apiUsageStateId), captor.capture(), any());
+        assertThat(captor.getValue(), containsInAnyOrder(latest.toArray(new TsKvEntry[0])));
+
+        service.persistPendingUsageStats();
+        verify(tsWsService, times(1)).saveAndNotifyInternal(any(), any(ApiUsageStateId.class), anyList(), any());
+    }
+
+    @Test
+    public void givenPendingStats_whenPartitionIsRemoved_thenPendingStatsArePersisted() {
+        service.addPendingUsageStats(tenantId, tenantId, apiUsageStateId, List.of(
+                new BasicTsKvEntry(1000, new LongDataEntry("transportMsgCount", 1L))));
+
+        service.cleanupEntityOnPartitionRemoval(tenantId);
+
+        verify(tsWsService).saveAndNotifyInternal(eq(tenantId), eq(apiUsageStateId), anyList(), any());
+    }
+
+    @Test
+    public void givenPendingStats_whenTenantIsDeleted_thenPendingStatsAreDropped() {
+        service.addPendingUsageStats(tenantId, tenantId, apiUsageStateId, List.of(
+                new BasicTsKvEntry(1000, new LongDataEntry("transportMsgCount", 1L))));
+
+        service.onTenantDelete(tenantId);
+        service.persistPendingUsageStats();
+
+        verify(tsWsService, never()).saveAndNotifyInternal(any(), any(ApiUsageStateId.class), anyList(), any());
+    }
+
+}
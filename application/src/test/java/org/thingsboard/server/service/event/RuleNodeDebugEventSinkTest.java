@@ -0,0 +1,196 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.event.Event;
+import org.thingsboard.server.common.data.event.RuleNodeDebugEvent;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.event.EventService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class RuleNodeDebugEventSinkTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("3d5a2e2b-0d3b-4b7d-9a2e-1f0c6f6b7a11"));
+
+    @Mock
+    private EventService eventService;
+    @Mock
+    private StatsFactory statsFactory;
+
+    private RuleNodeDebugEventSink sink;
+
+    @BeforeEach
+    void setUp() {
+        when(statsFactory.createStatsCounter(anyString(), anyString())).thenAnswer(inv -> mock(StatsCounter.class));
+        when(statsFactory.createGauge(anyString(), any())).thenAnswer(inv -> inv.getArgument(1));
+        sink = new RuleNodeDebugEventSink(eventService, statsFactory);
+        ReflectionTestUtils.setField(sink, "samplingStrategy", DebugEventSamplingStrategy.ALL);
+        ReflectionTestUtils.setField(sink, "firstN", 5);
+        ReflectionTestUtils.setField(sink, "samplingInterval", 60000L);
+        ReflectionTestUtils.setField(sink, "oneInK", 4);
+        ReflectionTestUtils.setField(sink, "bufferCapacity", 3);
+        ReflectionTestUtils.setField(sink, "batchSize", 2);
+        ReflectionTestUtils.setField(sink, "flushInterval", 60000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(sink, "destroy");
+    }
+
+    @Test
+    void givenFirstNStrategy_whenSampling_thenOnlyFirstNEventsPerNodeAreSampled() {
+        ReflectionTestUtils.setField(sink, "samplingStrategy", DebugEventSamplingStrategy.FIRST_N);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+        RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+        RuleNodeId otherRuleNodeId = new RuleNodeId(UUID.randomUUID());
+
+        long sampled = IntStream.range(0, 20).filter(i -> sink.isSampled(ruleNodeId, UUID.randomUUID(), false)).count();
+
+        assertThat(sampled).isEqualTo(5);
+        assertThat(sink.isSampled(otherRuleNodeId, UUID.randomUUID(), false)).isTrue();
+        assertThat(sink.isSampled(ruleNodeId, UUID.randomUUID(), true)).isTrue();
+    }
+
+    @Test
+    void givenOneInKStrategy_whenSampling_thenEventsOfOneInKMsgsAreSampled() {
+        ReflectionTestUtils.setField(sink, "samplingStrategy", DebugEventSamplingStrategy.ONE_IN_K);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+        RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+        long sampled = IntStream.range(0, 20).filter(i -> sink.isSampled(ruleNodeId, new UUID(0, i), false)).count();
+
+        assertThat(sampled).isEqualTo(5);
+    }
+
+    @Test
+    void givenOneInKStrategy_whenSamplingInAndOutEvents_thenBothAreKeptOrDropped() {
+        ReflectionTestUtils.setField(sink, "samplingStrategy", DebugEventSamplingStrategy.ONE_IN_K);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+        RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+        // events are submitted the way the actor system context does it, only when they are sampled
+        IntStream.range(0, 20).mapToObj(i -> new UUID(0, i)).forEach(msgId -> {
+            for (String eventType : List.of("IN", "OUT")) {
+                if (sink.isSampled(ruleNodeId, msgId, false)) {
+                    sink.submit(newEvent(ruleNodeId, msgId, eventType));
+                }
+            }
+        });
+
+        ArgumentCaptor<Event> savedEvents = ArgumentCaptor.forClass(Event.class);
+        verify(eventService, times(10)).saveAsync(savedEvents.capture());
+        Map<UUID, List<String>> eventTypesByMsg = savedEvents.getAllValues().stream()
+                .map(RuleNodeDebugEvent.class::cast)
+                .collect(Collectors.groupingBy(RuleNodeDebugEvent::getMsgId, Collectors.mapping(RuleNodeDebugEvent::getEventType, Collectors.toList())));
+        assertThat(eventTypesByMsg).hasSize(5);
+        assertThat(eventTypesByMsg.values()).allSatisfy(eventTypes -> assertThat(eventTypes).containsExactly("IN", "OUT"));
+    }
+
+    @Test
+    void givenErrorsOnlyStrategy_whenSampling_thenOnlyErrorsAreSampled() {
+        ReflectionTestUtils.setField(sink, "samplingStrategy", DebugEventSamplingStrategy.ERRORS_ONLY);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+        RuleNodeId ruleNodeId = new RuleNodeId(UUID.randomUUID());
+
+        assertThat(sink.isSampled(ruleNodeId, UUID.randomUUID(), false)).isFalse();
+        assertThat(sink.isSampled(ruleNodeId, UUID.randomUUID(), true)).isTrue();
+    }
+
+    @Test
+    void givenBufferEnabled_whenBufferIsFull_thenEventsAreDroppedAndRestAreSavedInBatches() {
+        ReflectionTestUtils.setField(sink, "bufferEnabled", true);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+
+        IntStream.range(0, 5).forEach(i -> sink.submit(newEvent()));
+        verify(eventService, never()).saveAsync(any());
+
+        ReflectionTestUtils.invokeMethod(sink, "flush");
+
+        verify(eventService).saveAll(argThat(events -> events.size() == 2));
+        verify(eventService).saveAll(argThat(events -> events.size() == 1));
+        verify(eventService, never()).saveAll(argThat(events -> events.size() > 2));
+    }
+
+    @Test
+    void givenBatchSaveFailure_whenFlush_thenEventsAreSavedOneByOne() {
+        ReflectionTestUtils.setField(sink, "bufferEnabled", true);
+        ReflectionTestUtils.invokeMethod(sink, "init");
+        doThrow(new RuntimeException("Failed to save batch")).when(eventService).saveAll(argThat(events -> events.size() > 1));
+
+        IntStream.range(0, 2).forEach(i -> sink.submit(newEvent()));
+        ReflectionTestUtils.invokeMethod(sink, "flush");
+
+        verify(eventService, times(2)).saveAll(argThat(events -> events.size() == 1));
+    }
+
+    @Test
+    void givenBufferDisabled_whenSubmit_thenEventIsSavedAsync() {
+        ReflectionTestUtils.invokeMethod(sink, "init");
+
+        sink.submit(newEvent());
+
+        verify(eventService).saveAsync(any());
+        verify(eventService, never()).saveAll(anyList());
+    }
+
+    private RuleNodeDebugEvent newEvent() {
+        return newEvent(new RuleNodeId(UUID.randomUUID()), UUID.randomUUID(), "IN");
+    }
+
+    private RuleNodeDebugEvent newEvent(RuleNodeId ruleNodeId, UUID msgId, String eventType) {
+        return RuleNodeDebugEvent.builder()
+                .tenantId(TENANT_ID)
+                .entityId(ruleNodeId.getId())
+                .serviceId("test")
+                .eventType(eventType)
+                .msgId(msgId)
+                .build();
+    }
+
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.housekeeper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.housekeeper.HousekeeperTask;
+import org.thingsboard.server.common.data.housekeeper.HousekeeperTaskType;
+import org.thingsboard.server.common.data.housekeeper.TsHistoryDeletionHousekeeperTask;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
+import org.thingsboard.server.gen.transport.TransportProtos.HousekeeperTaskProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ToHousekeeperServiceMsg;
+import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.housekeeper.HousekeeperConfig;
+import org.thingsboard.server.queue.provider.TbCoreQueueFactory;
+import org.thingsboard.server.service.housekeeper.processor.HousekeeperTaskProcessor;
+import org.thingsboard.server.service.housekeeper.stats.HousekeeperStatsService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class HousekeeperTaskProcessingTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("0a5b6c2d-8e1f-4d3a-9b7c-2e4f6a8b0c1d"));
+
+    @Mock
+    private HousekeeperConfig config;
+    @Mock
+    private HousekeeperReprocessingService reprocessingService;
+    @Mock
+    private HousekeeperStatsService statsService;
+    @Mock
+    private NotificationRuleProcessor notificationRuleProcessor;
+    @Mock
+    private HousekeeperTaskProcessor<HousekeeperTask> taskProcessor;
+    @Mock
+    private TbQueueConsumer<TbProtoQueueMsg<ToHousekeeperServiceMsg>> consumer;
+
+    private final Map<HousekeeperTaskType, Integer> concurrencyLimits = new EnumMap<>(HousekeeperTaskType.class);
+    private HousekeeperService housekeeperService;
+
+    @BeforeEach
+    void setUp() {
+        when(config.getPollInterval()).thenReturn(500);
+        when(config.getTaskProcessingTimeout()).thenReturn(5000);
+        when(config.getMaxReprocessingAttempts()).thenReturn(10);
+        when(config.getDisabledTaskTypes()).thenReturn(Collections.emptySet());
+        when(config.getTaskTypeConcurrencyLimits()).thenReturn(concurrencyLimits);
+        when(taskProcessor.getTaskType()).thenReturn(HousekeeperTaskType.DELETE_TS_HISTORY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (housekeeperService != null) {
+            ReflectionTestUtils.invokeMethod(housekeeperService, "stop");
+        }
+    }
+
+    @Test
+    void givenSeveralThreads_whenProcessingMsgs_thenTasksOfSameEntityAreProcessedInOrder() throws Exception {
+        initService(4);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        List<String> processedKeys = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            TsHistoryDeletionHousekeeperTask task = invocation.getArgument(0);
+            if (task.getEntityId().equals(deviceId)) {
+                processedKeys.add(task.getKey());
+            }
+            return null;
+        }).when(taskProcessor).process(any());
+
+        List<TbProtoQueueMsg<ToHousekeeperServiceMsg>> msgs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            msgs.add(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, deviceId, "key" + i)));
+            msgs.add(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, new DeviceId(UUID.randomUUID()), "key" + i)));
+        }
+        processMsgs(msgs);
+
+        assertThat(processedKeys).containsExactly("key0", "key1", "key2", "key3", "key4", "key5", "key6", "key7", "key8", "key9");
+        verify(taskProcessor, times(20)).process(any());
+        verify(consumer).commit();
+    }
+
+    @Test
+    void givenSeveralThreads_whenProcessingMsgs_thenTasksOfDifferentEntitiesAreProcessedInParallel() throws Exception {
+        initService(2);
+        DeviceId firstDeviceId = findDeviceOfShard(0, 2);
+        DeviceId secondDeviceId = findDeviceOfShard(1, 2);
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            bothStarted.countDown();
+            // does not complete unless the task of the other entity is being processed at the same time
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new TimeoutException("Tasks are not processed in parallel");
+            }
+            return null;
+        }).when(taskProcessor).process(any());
+
+        processMsgs(List.of(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, firstDeviceId, "key")),
+                toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, secondDeviceId, "key"))));
+
+        verify(reprocessingService, never()).submitForReprocessing(any(ToHousekeeperServiceMsg.class), any());
+        verify(statsService, times(2)).reportProcessed(eq(HousekeeperTaskType.DELETE_TS_HISTORY), any(), anyLong());
+        verify(consumer).commit();
+    }
+
+    @Test
+    void givenTaskProcessingTimeout_whenProcessingTask_thenTaskIsCancelledAndReprocessed() throws Exception {
+        when(config.getTaskProcessingTimeout()).thenReturn(200);
+        initService(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }).when(taskProcessor).process(any());
+
+        housekeeperService.processTask(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, new DeviceId(UUID.randomUUID()), "key")).getValue());
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(reprocessingService).submitForReprocessing(any(ToHousekeeperServiceMsg.class), argThat(e -> e instanceof TimeoutException));
+        verify(statsService).reportSubmitted(HousekeeperTaskType.DELETE_TS_HISTORY);
+        verify(statsService).reportCompleted(HousekeeperTaskType.DELETE_TS_HISTORY);
+        verify(statsService).reportFailure(eq(HousekeeperTaskType.DELETE_TS_HISTORY), any());
+        verify(statsService, never()).reportProcessed(any(), any(), anyLong());
+    }
+
+    @Test
+    void givenConcurrencyLimitReached_whenProcessingTask_thenTaskIsReprocessedAfterTimeout() throws Exception {
+        when(config.getTaskProcessingTimeout()).thenReturn(200);
+        concurrencyLimits.put(HousekeeperTaskType.DELETE_TS_HISTORY, 1);
+        initService(1);
+        getConcurrencyLimit(HousekeeperTaskType.DELETE_TS_HISTORY).acquire();
+
+        housekeeperService.processTask(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, new DeviceId(UUID.randomUUID()), "key")).getValue());
+
+        verify(taskProcessor, never()).process(any());
+        verify(reprocessingService).submitForReprocessing(any(ToHousekeeperServiceMsg.class), argThat(e -> e instanceof TimeoutException));
+        verify(statsService, never()).reportSubmitted(any());
+        verify(statsService, never()).reportCompleted(any());
+        verify(statsService).reportFailure(eq(HousekeeperTaskType.DELETE_TS_HISTORY), any());
+    }
+
+    @Test
+    void givenConcurrencyLimit_whenTaskFails_thenPermitIsReleased() throws Exception {
+        concurrencyLimits.put(HousekeeperTaskType.DELETE_TS_HISTORY, 1);
+        initService(1);
+        doThrow(new RuntimeException("Failed to delete")).when(taskProcessor).process(any());
+
+        housekeeperService.processTask(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, new DeviceId(UUID.randomUUID()), "key")).getValue());
+
+        assertThat(getConcurrencyLimit(HousekeeperTaskType.DELETE_TS_HISTORY).availablePermits()).isEqualTo(1);
+        verify(reprocessingService).submitForReprocessing(any(ToHousekeeperServiceMsg.class), argThat(e -> "Failed to delete".equals(e.getMessage())));
+        verify(statsService).reportSubmitted(HousekeeperTaskType.DELETE_TS_HISTORY);
+        verify(statsService).reportCompleted(HousekeeperTaskType.DELETE_TS_HISTORY);
+        verify(statsService).reportFailure(eq(HousekeeperTaskType.DELETE_TS_HISTORY), any());
+    }
+
+    @Test
+    void givenDisabledTaskType_whenProcessingTask_thenTaskIsIgnored() throws Exception {
+        when(config.getDisabledTaskTypes()).thenReturn(Set.of(HousekeeperTaskType.DELETE_TS_HISTORY));
+        initService(1);
+
+        housekeeperService.processTask(toMsg(new TsHistoryDeletionHousekeeperTask(TENANT_ID, new DeviceId(UUID.randomUUID()), "key")).getValue());
+
+        verify(taskProcessor, never()).process(any());
+        verify(statsService, never()).reportSubmitted(any());
+    }
+
+    private void initService(int threads) {
+        when(config.getTaskProcessingThreads()).thenReturn(threads);
+        TbCoreQueueFactory queueFactory = mock(TbCoreQueueFactory.class);
+        when(queueFactory.createHousekeeperMsgConsumer()).thenReturn(consumer);
+        housekeeperService = new HousekeeperService(config, reprocessingService, queueFactory, Optional.of(statsService),
+                notificationRuleProcessor, List.of(taskProcessor));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Semaphore getConcurrencyLimit(HousekeeperTaskType taskType) {
+        return ((Map<HousekeeperTaskType, Semaphore>) ReflectionTestUtils.getField(housekeeperService, "taskTypeLimits")).get(taskType);
+    }
+
+    private void processMsgs(List<TbProtoQueueMsg<ToHousekeeperServiceMsg>> msgs) {
+        ReflectionTestUtils.invokeMethod(housekeeperService, "processMsgs", msgs, consumer);
+    }
+
+    private DeviceId findDeviceOfShard(int shard, int shardsCount) {
+        while (true) {
+            DeviceId deviceId = new DeviceId(UUID.randomUUID());
+            if (Math.floorMod(deviceId.getId().hashCode(), shardsCount) == shard) {
+                return deviceId;
+            }
+        }
+    }
+
+    private TbProtoQueueMsg<ToHousekeeperServiceMsg> toMsg(HousekeeperTask task) {
+        return new TbProtoQueueMsg<>(task.getEntityId().getId(), ToHousekeeperServiceMsg.newBuilder()
+                .setTask(HousekeeperTaskProto.newBuilder()
+                        .setValue(JacksonUtil.toString(task))
+                        .setTs(task.getTs())
+                        .setAttempt(0)
+                        .build())
+                .build());
+    }
+
+}
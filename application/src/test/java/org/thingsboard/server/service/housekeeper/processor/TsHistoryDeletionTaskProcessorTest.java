@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.housekeeper.processor;
+
+import com.google.common.util.concurrent.Futures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.housekeeper.HousekeeperTask;
+import org.thingsboard.server.common.data.housekeeper.TsHistoryDeletionHousekeeperTask;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.msg.housekeeper.HousekeeperClient;
+import org.thingsboard.server.dao.timeseries.TimeseriesService;
+import org.thingsboard.server.queue.housekeeper.HousekeeperConfig;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class TsHistoryDeletionTaskProcessorTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("5e1d9c3b-7a2f-4b6e-8d0c-1f3a5b7c9e2d"));
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.fromString("9c8b7a6d-5e4f-4a3b-2c1d-0e9f8a7b6c5d"));
+
+    @Mock
+    private TimeseriesService timeseriesService;
+    @Mock
+    private HousekeeperConfig config;
+    @Mock
+    private HousekeeperClient housekeeperClient;
+
+    private TsHistoryDeletionTaskProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new TsHistoryDeletionTaskProcessor(timeseriesService, config);
+        ReflectionTestUtils.setField(processor, "housekeeperClient", housekeeperClient);
+        when(config.getTsHistoryDeletionChunkDuration()).thenReturn(1000L);
+        when(config.getTsHistoryDeletionMaxChunksPerTask()).thenReturn(3);
+        when(timeseriesService.remove(eq(TENANT_ID), eq(DEVICE_ID), any())).thenReturn(Futures.immediateFuture(Collections.emptyList()));
+    }
+
+    @Test
+    void givenChunkDurationDisabled_whenProcessing_thenHistoryIsDeletedWithSingleQuery() throws Exception {
+        when(config.getTsHistoryDeletionChunkDuration()).thenReturn(0L);
+
+        processor.process(new TsHistoryDeletionHousekeeperTask(TENANT_ID, DEVICE_ID, "temperature"));
+
+        List<DeleteTsKvQuery> queries = captureDeleteQueries(1);
+        assertThat(queries.get(0).getStartTs()).isZero();
+        verify(timeseriesService, never()).findAll(any(), any(), any());
+        verify(housekeeperClient, never()).submitTask(any());
+    }
+
+    @Test
+    void givenShortHistory_whenProcessing_thenHistoryIsDeletedChunkByChunkStartingFromEarliestEntry() throws Exception {
+        mockEarliestEntries(List.of(newEntry(100)), List.of(newEntry(5000)), List.of());
+
+        processor.process(new TsHistoryDeletionHousekeeperTask(TENANT_ID, DEVICE_ID, "temperature", 0, 10000));
+
+        List<DeleteTsKvQuery> queries = captureDeleteQueries(2);
+        assertThat(queries).extracting(DeleteTsKvQuery::getStartTs).containsExactly(100L, 5000L);
+        assertThat(queries).extracting(DeleteTsKvQuery::getEndTs).containsExactly(1100L, 6000L);
+        verify(housekeeperClient, never()).submitTask(any());
+    }
+
+    @Test
+    void givenLongHistory_whenMaxChunksAreDeleted_thenRemainingDeletionIsSubmittedAsNewTask() throws Exception {
+        mockEarliestEntries(List.of(newEntry(0)), List.of(newEntry(1000)), List.of(newEntry(2500)));
+
+        processor.process(new TsHistoryDeletionHousekeeperTask(TENANT_ID, DEVICE_ID, "temperature", 0, 10000));
+
+        List<DeleteTsKvQuery> queries = captureDeleteQueries(3);
+        assertThat(queries).extracting(DeleteTsKvQuery::getEndTs).containsExactly(1000L, 2000L, 3500L);
+        ArgumentCaptor<HousekeeperTask> remainingTask = ArgumentCaptor.forClass(HousekeeperTask.class);
+        verify(housekeeperClient).submitTask(remainingTask.capture());
+        assertThat(remainingTask.getValue()).isInstanceOfSatisfying(TsHistoryDeletionHousekeeperTask.class, task -> {
+            assertThat(task.getKey()).isEqualTo("temperature");
+            assertThat(task.getStartTs()).isEqualTo(3500L);
+            assertThat(task.getEndTs()).isEqualTo(10000L);
+        });
+    }
+
+    @Test
+    void givenChunkExceedingEndTs_whenProcessing_thenChunkIsBoundedByEndTs() throws Exception {
+        mockEarliestEntries(List.of(newEntry(9500)), List.of());
+
+        processor.process(new TsHistoryDeletionHousekeeperTask(TENANT_ID, DEVICE_ID, "temperature", 0, 10000));
+
+        List<DeleteTsKvQuery> queries = captureDeleteQueries(1);
+        assertThat(queries.get(0).getEndTs()).isEqualTo(10000L);
+    }
+
+    @SafeVarargs
+    private void mockEarliestEntries(List<TsKvEntry> first, List<TsKvEntry>... next) {
+        var stubbing = when(timeseriesService.findAll(eq(TENANT_ID), eq(DEVICE_ID), any())).thenReturn(Futures.immediateFuture(first));
+        for (List<TsKvEntry> entries : next) {
+            stubbing = stubbing.thenReturn(Futures.immediateFuture(entries));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DeleteTsKvQuery> captureDeleteQueries(int expectedCount) {
+        ArgumentCaptor<List<DeleteTsKvQuery>> queries = ArgumentCaptor.forClass(List.class);
+        verify(timeseriesService, times(expectedCount)).remove(eq(TENANT_ID), eq(DEVICE_ID), queries.capture());
+        return queries.getAllValues().stream().map(list -> list.get(0)).toList();
+    }
+
+    private TsKvEntry newEntry(long ts) {
+        return new BasicTsKvEntry(ts, new StringDataEntry("temperature", "22"));
+    }
+
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.notification;
+
+import com.google.common.util.concurrent.FutureCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cache.limits.RateLimitService;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.User;
+import org.thingsboard.server.common.data.id.NotificationRequestId;
+import org.thingsboard.server.common.data.id.NotificationTargetId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.notification.Notification;
+import org.thingsboard.server.common.data.notification.NotificationDeliveryMethod;
+import org.thingsboard.server.common.data.notification.NotificationRequest;
+import org.thingsboard.server.common.data.notification.NotificationRequestStats;
+import org.thingsboard.server.common.data.notification.NotificationRequestStatus;
+import org.thingsboard.server.common.data.notification.NotificationType;
+import org.thingsboard.server.common.data.notification.settings.UserNotificationSettings;
+import org.thingsboard.server.common.data.notification.targets.NotificationTarget;
+import org.thingsboard.server.common.data.notification.targets.platform.AllUsersFilter;
+import org.thingsboard.server.common.data.notification.targets.platform.PlatformUsersNotificationTargetConfig;
+import org.thingsboard.server.common.data.notification.template.DeliveryMethodNotificationTemplate;
+import org.thingsboard.server.common.data.notification.template.EmailDeliveryMethodNotificationTemplate;
+import org.thingsboard.server.common.data.notification.template.NotificationTemplate;
+import org.thingsboard.server.common.data.notification.template.NotificationTemplateConfig;
+import org.thingsboard.server.common.data.notification.template.WebDeliveryMethodNotificationTemplate;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.dao.notification.NotificationRequestService;
+import org.thingsboard.server.dao.notification.NotificationService;
+import org.thingsboard.server.dao.notification.NotificationSettingsService;
+import org.thingsboard.server.dao.notification.NotificationTargetService;
+import org.thingsboard.server.dao.notification.NotificationTemplateService;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TopicService;
+import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+import org.thingsboard.server.service.executors.NotificationExecutorService;
+import org.thingsboard.server.service.notification.channels.NotificationChannel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DefaultNotificationCenterTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("6f6a7c2e-2b4a-4f0e-9d6e-0c5b1f0a9e21"));
+
+    @Mock
+    private NotificationTargetService notificationTargetService;
+    @Mock
+    private NotificationRequestService notificationRequestService;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private NotificationSettingsService notificationSettingsService;
+    @Mock
+    private NotificationExecutorService notificationExecutor;
+    @Mock
+    private RateLimitService rateLimitService;
+    @Mock
+    private SchedulerComponent scheduler;
+    @Mock
+    private NotificationChannel emailChannel;
+    @Mock
+    private FutureCallback<NotificationRequestStats> callback;
+
+    private DefaultNotificationCenter notificationCenter;
+    private final NotificationRequestId requestId = new NotificationRequestId(UUID.randomUUID());
+
+    @BeforeEach
+    void setUp() {
+        notificationCenter = new DefaultNotificationCenter(notificationTargetService, notificationRequestService, notificationService,
+                mock(NotificationTemplateService.class), notificationSettingsService, notificationExecutor, mock(TopicService.class),
+                mock(TbQueueProducerProvider.class), rateLimitService, scheduler);
+        ReflectionTestUtils.setField(notificationCenter, "partitionService", mock(PartitionService.class));
+        ReflectionTestUtils.setField(notificationCenter, "clusterService", mock(TbClusterService.class));
+        ReflectionTestUtils.setField(notificationCenter, "recipientsChunkSize", 2);
+        ReflectionTestUtils.setField(notificationCenter, "statsUpdateIntervalMs", 0L);
+        when(emailChannel.getDeliveryMethod()).thenReturn(NotificationDeliveryMethod.EMAIL);
+        notificationCenter.setChannels(List.of(emailChannel), notificationCenter);
+
+        when(rateLimitService.checkRateLimit(any(), any(TenantId.class))).thenReturn(true);
+        when(notificationRequestService.saveNotificationRequest(any(), any())).thenAnswer(invocation -> {
+            NotificationRequest request = invocation.getArgument(1);
+            request.setId(requestId);
+            return request;
+        });
+        when(notificationSettingsService.getUserNotificationSettings(any(), any(), anyBoolean())).thenReturn(UserNotificationSettings.DEFAULT);
+        when(notificationService.saveNotifications(any(), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(notificationExecutor.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        });
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(notificationExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void givenManyRecipients_whenProcessingRequest_thenWebNotificationsAreSavedPerChunk() {
+        mockRecipients(5);
+
+        notificationCenter.processNotificationRequest(TENANT_ID, newRequest(webTemplate()), callback);
+
+        ArgumentCaptor<List<Notification>> batches = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(3)).saveNotifications(eq(TENANT_ID), batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+        verify(notificationService, never()).saveNotification(any(), any());
+
+        ArgumentCaptor<NotificationRequestStats> stats = ArgumentCaptor.forClass(NotificationRequestStats.class);
+        verify(callback).onSuccess(stats.capture());
+        assertThat(stats.getValue().getTotalSent().get()).isEqualTo(5);
+    }
+
+    @Test
+    void givenStatsUpdateInterval_whenProcessingRequest_thenIntermediateStatsArePersisted() {
+        mockRecipients(5);
+
+        notificationCenter.processNotificationRequest(TENANT_ID, newRequest(webTemplate()), callback);
+
+        InOrder inOrder = inOrder(notificationRequestService);
+        inOrder.verify(notificationRequestService, times(3)).updateNotificationRequest(eq(TENANT_ID), eq(requestId), eq(NotificationRequestStatus.PROCESSING), any());
+        inOrder.verify(notificationRequestService).updateNotificationRequest(eq(TENANT_ID), eq(requestId), eq(NotificationRequestStatus.SENT), any());
+    }
+
+    @Test
+    void givenBatchSaveFailure_whenProcessingRequest_thenWebNotificationsAreSavedOneByOne() {
+        mockRecipients(2);
+        when(notificationService.saveNotifications(any(), anyList())).thenThrow(new RuntimeException("Failed to save batch"));
+        when(notificationService.saveNotification(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        notificationCenter.processNotificationRequest(TENANT_ID, newRequest(webTemplate()), callback);
+
+        verify(notificationService, times(2)).saveNotification(any(), any());
+        ArgumentCaptor<NotificationRequestStats> stats = ArgumentCaptor.forClass(NotificationRequestStats.class);
+        verify(callback).onSuccess(stats.capture());
+        assertThat(stats.getValue().getTotalSent().get()).isEqualTo(2);
+    }
+
+    @Test
+    void givenDeliveryRateLimit_whenProcessingRequest_thenDeliveriesAreScheduledAfterWebNotificationsAreSaved() throws Exception {
+        notificationCenter.setDeliveryRateLimits("EMAIL:1");
+        ReflectionTestUtils.setField(notificationCenter, "recipientsChunkSize", 256);
+        mockRecipients(2);
+        List<Runnable> scheduled = new ArrayList<>();
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            assertThat(invocation.<Long>getArgument(1)).isPositive();
+            assertThat(invocation.<TimeUnit>getArgument(2)).isEqualTo(TimeUnit.NANOSECONDS);
+            return null;
+        });
+
+        notificationCenter.processNotificationRequest(TENANT_ID, newRequest(webTemplate(), emailTemplate()), callback);
+
+        InOrder inOrder = inOrder(notificationService, emailChannel);
+        inOrder.verify(notificationService).saveNotifications(eq(TENANT_ID), anyList());
+        inOrder.verify(emailChannel).sendNotification(any(), any(), any());
+        assertThat(scheduled).hasSize(1);
+        verify(callback, never()).onSuccess(any());
+
+        scheduled.forEach(Runnable::run);
+
+        verify(emailChannel, times(2)).sendNotification(any(), any(), any());
+        ArgumentCaptor<NotificationRequestStats> stats = ArgumentCaptor.forClass(NotificationRequestStats.class);
+        verify(callback).onSuccess(stats.capture());
+        assertThat(stats.getValue().getTotalSent().get()).isEqualTo(4);
+    }
+
+    @Test
+    void givenDeliveryRateLimit_whenProcessingRequest_thenOnlyOneDeliveryIsScheduledAtATime() throws Exception {
+        notificationCenter.setDeliveryRateLimits("EMAIL:1");
+        mockRecipients(5);
+        List<Runnable> scheduled = new ArrayList<>();
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+
+        notificationCenter.processNotificationRequest(TENANT_ID, newRequest(emailTemplate()), callback);
+
+        for (int i = 1; i < 5; i++) {
+            assertThat(scheduled).hasSize(i);
+            verify(emailChannel, times(i)).sendNotification(any(), any(), any());
+            scheduled.get(i - 1).run();
+        }
+        assertThat(scheduled).hasSize(4);
+        verify(emailChannel, times(5)).sendNotification(any(), any(), any());
+        verify(callback).onSuccess(any());
+    }
+
+    @Test
+    void givenRecipientOfTwoTargetsAndDeliveryRateLimit_whenProcessingRequest_thenRecipientIsNotifiedOnce() throws Exception {
+        notificationCenter.setDeliveryRateLimits("EMAIL:1");
+        mockRecipients(2);
+        List<Runnable> scheduled = new ArrayList<>();
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            scheduled.add(invocation.getArgument(0));
+            return null;
+        });
+        NotificationRequest request = newRequest(emailTemplate());
+        request.setTargets(List.of(UUID.randomUUID(), UUID.randomUUID()));
+
+        notificationCenter.processNotificationRequest(TENANT_ID, request, callback);
+        while (!scheduled.isEmpty()) {
+            scheduled.remove(0).run();
+        }
+
+        verify(emailChannel, times(2)).sendNotification(any(), any(), any());
+        ArgumentCaptor<NotificationRequestStats> stats = ArgumentCaptor.forClass(NotificationRequestStats.class);
+        verify(callback).onSuccess(stats.capture());
+        assertThat(stats.getValue().getTotalSent().get()).isEqualTo(2);
+        assertThat(stats.getValue().getTotalErrors().get()).isZero();
+    }
+
+    private void mockRecipients(int count) {
+        NotificationTarget target = new NotificationTarget();
+        target.setId(new NotificationTargetId(UUID.randomUUID()));
+        target.setTenantId(TENANT_ID);
+        PlatformUsersNotificationTargetConfig targetConfig = new PlatformUsersNotificationTargetConfig();
+        targetConfig.setUsersFilter(new AllUsersFilter());
+        target.setConfiguration(targetConfig);
+        when(notificationTargetService.findNotificationTargetById(eq(TENANT_ID), any())).thenReturn(target);
+
+        List<User> users = IntStream.range(0, count).mapToObj(i -> {
+            User user = new User(new UserId(UUID.randomUUID()));
+            user.setTenantId(TENANT_ID);
+            user.setEmail("user" + i + "@thingsboard.org");
+            user.setFirstName("User " + i);
+            return user;
+        }).toList();
+        when(notificationTargetService.findRecipientsForNotificationTargetConfig(eq(TENANT_ID), any(), any()))
+                .thenReturn(new PageData<>(users, 1, users.size(), false));
+    }
+
+    private NotificationRequest newRequest(DeliveryMethodNotificationTemplate... deliveryMethodTemplates) {
+        Map<NotificationDeliveryMethod, DeliveryMethodNotificationTemplate> templates = new LinkedHashMap<>();
+        for (DeliveryMethodNotificationTemplate deliveryMethodTemplate : deliveryMethodTemplates) {
+            templates.put(deliveryMethodTemplate.getMethod(), deliveryMethodTemplate);
+        }
+        NotificationTemplateConfig templateConfig = new NotificationTemplateConfig();
+        templateConfig.setDeliveryMethodsTemplates(templates);
+        NotificationTemplate template = new NotificationTemplate();
+        template.setTenantId(TENANT_ID);
+        template.setNotificationType(NotificationType.GENERAL);
+        template.setConfiguration(templateConfig);
+        return NotificationRequest.builder()
+                .tenantId(TENANT_ID)
+                .template(template)
+                .targets(List.of(UUID.randomUUID()))
+                .build();
+    }
+
+    private WebDeliveryMethodNotificationTemplate webTemplate() {
+        WebDeliveryMethodNotificationTemplate template = new WebDeliveryMethodNotificationTemplate();
+        template.setEnabled(true);
+        template.setSubject("Maintenance");
+        template.setBody("Hello, ${recipientFirstName}");
+        return template;
+    }
+
+    private EmailDeliveryMethodNotificationTemplate emailTemplate() {
+        EmailDeliveryMethodNotificationTemplate template = new EmailDeliveryMethodNotificationTemplate();
+        template.setEnabled(true);
+        template.setSubject("Maintenance");
+        template.setBody("Hello, ${recipientFirstName}");
+        return template;
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.notification;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.User;
+import org.thingsboard.server.common.data.id.NotificationRequestId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.notification.NotificationDeliveryMethod;
+import org.thingsboard.server.common.data.notification.NotificationRequest;
+import org.thingsboard.server.common.data.notification.NotificationType;
+import org.thingsboard.server.common.data.notification.template.NotificationTemplate;
+import org.thingsboard.server.common.data.notification.template.NotificationTemplateConfig;
+import org.thingsboard.server.common.data.notification.template.WebDeliveryMethodNotificationTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NotificationProcessingContextTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("6f6a7c2e-2b4a-4f0e-9d6e-0c5b1f0a9e21"));
+
+    @Test
+    void givenRecipientsWithSameUsedParams_whenGettingProcessedTemplate_thenTemplateIsRenderedOnce() {
+        NotificationProcessingContext ctx = newContext("Hello, ${recipientFirstName}");
+
+        WebDeliveryMethodNotificationTemplate first = ctx.getProcessedTemplate(NotificationDeliveryMethod.WEB, newUser("John", "john@thingsboard.org"));
+        WebDeliveryMethodNotificationTemplate second = ctx.getProcessedTemplate(NotificationDeliveryMethod.WEB, newUser("John", "john.doe@thingsboard.org"));
+        WebDeliveryMethodNotificationTemplate other = ctx.getProcessedTemplate(NotificationDeliveryMethod.WEB, newUser("Jane", "jane@thingsboard.org"));
+
+        assertThat(first.getBody()).isEqualTo("Hello, John");
+        assertThat(second).isSameAs(first);
+        assertThat(other.getBody()).isEqualTo("Hello, Jane");
+    }
+
+    @Test
+    void givenTemplateWithoutRecipientParams_whenGettingProcessedTemplate_thenSameTemplateIsReturned() {
+        NotificationProcessingContext ctx = newContext("Maintenance at night");
+
+        WebDeliveryMethodNotificationTemplate first = ctx.getProcessedTemplate(NotificationDeliveryMethod.WEB, newUser("John", "john@thingsboard.org"));
+        WebDeliveryMethodNotificationTemplate second = ctx.getProcessedTemplate(NotificationDeliveryMethod.WEB, newUser("Jane", "jane@thingsboard.org"));
+
+        assertThat(first.getBody()).isEqualTo("Maintenance at night");
+        assertThat(second).isSameAs(first);
+    }
+
+    private NotificationProcessingContext newContext(String body) {
+        WebDeliveryMethodNotificationTemplate webTemplate = new WebDeliveryMethodNotificationTemplate();
+        webTemplate.setEnabled(true);
+        webTemplate.setSubject("Maintenance");
+        webTemplate.setBody(body);
+        NotificationTemplateConfig templateConfig = new NotificationTemplateConfig();
+        templateConfig.setDeliveryMethodsTemplates(Map.of(NotificationDeliveryMethod.WEB, webTemplate));
+        NotificationTemplate template = new NotificationTemplate();
+        template.setNotificationType(NotificationType.GENERAL);
+        template.setConfiguration(templateConfig);
+
+        NotificationRequest request = NotificationRequest.builder()
+                .tenantId(TENANT_ID)
+                .template(template)
+                .build();
+        request.setId(new NotificationRequestId(UUID.randomUUID()));
+        return NotificationProcessingContext.builder()
+                .tenantId(TENANT_ID)
+                .request(request)
+                .deliveryMethods(Set.of(NotificationDeliveryMethod.WEB))
+                .template(template)
+                .build();
+    }
+
+    private User newUser(String firstName, String email) {
+        User user = new User(new UserId(UUID.randomUUID()));
+        user.setTenantId(TENANT_ID);
+        user.setFirstName(firstName);
+        user.setEmail(email);
+        return user;
+    }
+
+}
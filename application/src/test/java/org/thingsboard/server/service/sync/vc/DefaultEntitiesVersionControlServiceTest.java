@@ -0,0 +1,225 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.sync.vc;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.cache.TbTransactionalCache;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.User;
+import org.thingsboard.server.common.data.asset.Asset;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.page.PageLink;
+import org.thingsboard.server.common.data.sync.ie.EntityExportData;
+import org.thingsboard.server.common.data.sync.ie.EntityImportResult;
+import org.thingsboard.server.common.data.sync.ie.EntityImportSettings;
+import org.thingsboard.server.common.data.sync.vc.request.create.ComplexVersionCreateRequest;
+import org.thingsboard.server.common.data.sync.vc.request.create.EntityTypeVersionCreateConfig;
+import org.thingsboard.server.common.data.sync.vc.request.create.SyncStrategy;
+import org.thingsboard.server.service.entitiy.TbLogEntityActionService;
+import org.thingsboard.server.service.executors.VersionControlExecutor;
+import org.thingsboard.server.service.sync.ie.EntitiesExportImportService;
+import org.thingsboard.server.service.sync.ie.exporting.ExportableEntitiesService;
+import org.thingsboard.server.service.sync.vc.autocommit.TbAutoCommitSettingsService;
+import org.thingsboard.server.service.sync.vc.data.CommitGitRequest;
+import org.thingsboard.server.service.sync.vc.data.ComplexEntitiesExportCtx;
+import org.thingsboard.server.service.sync.vc.data.EntitiesImportCtx;
+import org.thingsboard.server.service.sync.vc.repository.TbRepositorySettingsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class DefaultEntitiesVersionControlServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("4b2e8c1d-6a3f-4e5b-9c7d-0f1e2a3b4c5d"));
+    private static final String VERSION_ID = "version";
+
+    @Mock
+    private GitVersionControlQueueService gitServiceQueue;
+    @Mock
+    private EntitiesExportImportService exportImportService;
+    @Mock
+    private ExportableEntitiesService exportableEntitiesService;
+    @Mock
+    private TbTransactionalCache<UUID, VersionControlTaskCacheEntry> taskCache;
+    @Mock
+    private VersionControlExecutor executor;
+
+    private DefaultEntitiesVersionControlService versionControlService;
+    private User user;
+    private final List<SettableFuture<Void>> commitFutures = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        versionControlService = new DefaultEntitiesVersionControlService(mock(TbRepositorySettingsService.class), mock(TbAutoCommitSettingsService.class),
+                gitServiceQueue, exportImportService, exportableEntitiesService, mock(TbLogEntityActionService.class),
+                mock(TransactionTemplate.class), taskCache, executor);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+
+        user = new User(new UserId(UUID.randomUUID()));
+        user.setTenantId(TENANT_ID);
+
+        when(exportImportService.exportEntity(any(), any())).thenAnswer(invocation -> new EntityExportData<>());
+        when(gitServiceQueue.addToCommit(any(), any())).thenAnswer(invocation -> {
+            SettableFuture<Void> future = SettableFuture.create();
+            commitFutures.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    void givenManyEntities_whenExporting_thenNextBatchIsExportedWhenPreviousBatchIsDone() throws Exception {
+        mockAssetIds(150);
+        ComplexEntitiesExportCtx ctx = newExportCtx();
+
+        ReflectionTestUtils.invokeMethod(versionControlService, "handleComplexRequest", ctx);
+
+        verify(exportImportService, times(100)).exportEntity(any(), any());
+        List.copyOf(commitFutures).forEach(future -> future.set(null));
+        verify(exportImportService, times(150)).exportEntity(any(), any());
+        assertThat(ctx.getFutures()).hasSize(1);
+        assertThat(ctx.getFutures().get(0).isDone()).isFalse();
+
+        List.copyOf(commitFutures).forEach(future -> future.set(null));
+        assertThat(ctx.getFutures().get(0).isDone()).isTrue();
+        ctx.getFutures().get(0).get();
+    }
+
+    @Test
+    void givenEntityExportFailure_whenExporting_thenRestOfBatchIsCancelledAndNextBatchIsNotExported() throws Exception {
+        mockAssetIds(150);
+        ComplexEntitiesExportCtx ctx = newExportCtx();
+
+        ReflectionTestUtils.invokeMethod(versionControlService, "handleComplexRequest", ctx);
+        commitFutures.get(0).setException(new RuntimeException("Failed to add to commit"));
+
+        assertThat(commitFutures.subList(1, commitFutures.size())).allMatch(ListenableFuture::isCancelled);
+        verify(exportImportService, times(100)).exportEntity(any(), any());
+        assertThatThrownBy(() -> ctx.getFutures().get(0).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("Failed to add to commit");
+    }
+
+    @Test
+    void givenSeveralPacks_whenImporting_thenNextPackIsRequestedBeforeCurrentIsImported() throws Exception {
+        mockEntityPacks(100, 100, 30);
+        EntitiesImportCtx ctx = new EntitiesImportCtx(UUID.randomUUID(), user, VERSION_ID, EntityImportSettings.builder().build());
+
+        ReflectionTestUtils.invokeMethod(versionControlService, "importEntities", ctx, EntityType.ASSET);
+
+        InOrder inOrder = inOrder(gitServiceQueue, exportImportService);
+        inOrder.verify(gitServiceQueue).getEntities(TENANT_ID, VERSION_ID, EntityType.ASSET, 0, 100);
+        inOrder.verify(gitServiceQueue).getEntities(TENANT_ID, VERSION_ID, EntityType.ASSET, 100, 100);
+        inOrder.verify(exportImportService, times(100)).importEntity(any(), any());
+        inOrder.verify(gitServiceQueue).getEntities(TENANT_ID, VERSION_ID, EntityType.ASSET, 200, 100);
+        inOrder.verify(exportImportService, times(130)).importEntity(any(), any());
+        verify(gitServiceQueue, times(3)).getEntities(any(), any(), any(), anyInt(), anyInt());
+        assertThat(ctx.getImportedEntities().get(EntityType.ASSET)).hasSize(230);
+    }
+
+    @Test
+    void givenFullLastPack_whenImporting_thenEmptyPackEndsImport() throws Exception {
+        mockEntityPacks(100, 0);
+        EntitiesImportCtx ctx = new EntitiesImportCtx(UUID.randomUUID(), user, VERSION_ID, EntityImportSettings.builder().build());
+
+        ReflectionTestUtils.invokeMethod(versionControlService, "importEntities", ctx, EntityType.ASSET);
+
+        verify(gitServiceQueue, times(2)).getEntities(any(), any(), any(), anyInt(), anyInt());
+        verify(exportImportService, times(100)).importEntity(any(), any());
+    }
+
+    private void mockAssetIds(int count) {
+        List<EntityId> assetIds = IntStream.range(0, count).<EntityId>mapToObj(i -> new AssetId(UUID.randomUUID())).toList();
+        when(exportableEntitiesService.findEntitiesIdsByTenantId(eq(TENANT_ID), eq(EntityType.ASSET), any())).thenAnswer(invocation -> {
+            PageLink pageLink = invocation.getArgument(2);
+            int from = pageLink.getPage() * pageLink.getPageSize();
+            int to = Math.min(from + pageLink.getPageSize(), assetIds.size());
+            return new PageData<>(assetIds.subList(from, to), (assetIds.size() + pageLink.getPageSize() - 1) / pageLink.getPageSize(), assetIds.size(), to < assetIds.size());
+        });
+    }
+
+    private ComplexEntitiesExportCtx newExportCtx() {
+        EntityTypeVersionCreateConfig config = new EntityTypeVersionCreateConfig();
+        config.setAllEntities(true);
+        ComplexVersionCreateRequest request = new ComplexVersionCreateRequest();
+        request.setSyncStrategy(SyncStrategy.MERGE);
+        request.setEntityTypes(Map.of(EntityType.ASSET, config));
+        return new ComplexEntitiesExportCtx(user, new CommitGitRequest(TENANT_ID, request), request);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void mockEntityPacks(int... packSizes) throws Exception {
+        int offset = 0;
+        for (int packSize : packSizes) {
+            List<EntityExportData> pack = new ArrayList<>();
+            for (int i = 0; i < packSize; i++) {
+                Asset asset = new Asset(new AssetId(UUID.randomUUID()));
+                asset.setTenantId(TENANT_ID);
+                asset.setName("Asset " + (offset + i));
+                EntityExportData<Asset> entityData = new EntityExportData<>();
+                entityData.setEntityType(EntityType.ASSET);
+                entityData.setEntity(asset);
+                pack.add(entityData);
+            }
+            when(gitServiceQueue.getEntities(TENANT_ID, VERSION_ID, EntityType.ASSET, offset, 100)).thenReturn(Futures.immediateFuture(pack));
+            offset += packSize;
+        }
+        when(exportImportService.importEntity(any(), any())).thenAnswer(invocation -> {
+            EntityExportData<Asset> entityData = invocation.getArgument(1);
+            EntityImportResult<Asset> importResult = new EntityImportResult<>();
+            importResult.setSavedEntity(entityData.getEntity());
+            importResult.setCreated(true);
+            return importResult;
+        });
+    }
+
+}
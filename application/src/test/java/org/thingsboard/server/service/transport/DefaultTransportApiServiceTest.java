@@ -26,12 +26,19 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.thingsboard.server.cache.ota.OtaPackageDataCache;
 import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.DeviceProfileProvisionType;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceConfiguration;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceTransportConfiguration;
+import org.thingsboard.server.common.data.device.data.DeviceData;
 import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
 import org.thingsboard.server.common.data.device.profile.X509CertificateChainProvisionConfiguration;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.security.DeviceCredentials;
 import org.thingsboard.server.common.data.security.DeviceCredentialsType;
 import org.thingsboard.server.common.msg.EncryptionUtil;
@@ -47,6 +54,7 @@ import org.thingsboard.server.dao.relation.RelationService;
 import org.thingsboard.server.dao.resource.ResourceService;
 import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
 import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
@@ -57,12 +65,16 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -158,6 +170,93 @@ public class DefaultTransportApiServiceTest {
         verify(deviceProvisionService, times(1)).provisionDeviceViaX509Chain(any(), any());
     }
 
+    @Test
+    public void givenSeveralDevices_whenGetOrCreateDevicesFromGateway_thenGatewayIsFetchedOnceAndResponsesKeepRequestOrder() throws Exception {
+        Device gateway = createDevice();
+        gateway.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        when(deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gateway.getId())).thenReturn(gateway);
+
+        Device device = createDevice();
+        device.setTenantId(gateway.getTenantId());
+        device.setName("device1");
+        device.setType("default");
+        device.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        device.setAdditionalInfo(JacksonUtil.newObjectNode().put(DataConstants.LAST_CONNECTED_GATEWAY, gateway.getId().toString()));
+        DeviceData deviceData = new DeviceData();
+        deviceData.setConfiguration(new DefaultDeviceConfiguration());
+        deviceData.setTransportConfiguration(new DefaultDeviceTransportConfiguration());
+        device.setDeviceData(deviceData);
+        when(deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), "device1")).thenReturn(device);
+        when(deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), "device2")).thenThrow(new RuntimeException("Failed to fetch device"));
+
+        TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg requestMsg = TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getId().getId().getLeastSignificantBits())
+                .addDevices(TransportProtos.GatewayDeviceNameTypeProto.newBuilder().setDeviceName("device2").setDeviceType("default").build())
+                .addDevices(TransportProtos.GatewayDeviceNameTypeProto.newBuilder().setDeviceName("device1").setDeviceType("default").build())
+                .build();
+
+        TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg responseMsg = service.handle(new TbProtoQueueMsg<>(UUID.randomUUID(),
+                        TransportProtos.TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(requestMsg).build()))
+                .get().getValue().getGetOrCreateDevicesResponseMsg();
+
+        assertThat(responseMsg.getResponsesCount()).isEqualTo(2);
+        assertThat(responseMsg.getResponses(0).hasDeviceInfo()).isFalse();
+        assertThat(responseMsg.getResponses(0).getError()).isEqualTo(TransportProtos.TransportApiRequestErrorCode.UNKNOWN_TRANSPORT_API_ERROR);
+        assertThat(responseMsg.getResponses(1).getDeviceInfo().getDeviceName()).isEqualTo("device1");
+        verify(deviceService, times(1)).findDeviceById(any(), any());
+        verify(deviceService, never()).saveDevice(any());
+    }
+
+    @Test
+    public void givenSlowDevice_whenGetOrCreateDevicesFromGateway_thenOtherDevicesAreResolvedInParallel() throws Exception {
+        Device gateway = createDevice();
+        gateway.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        when(deviceService.findDeviceById(TenantId.SYS_TENANT_ID, gateway.getId())).thenReturn(gateway);
+        CountDownLatch fastDeviceResolved = new CountDownLatch(1);
+        Device slowDevice = createGatewayDevice(gateway, "slowDevice");
+        Device fastDevice = createGatewayDevice(gateway, "fastDevice");
+        when(deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), "slowDevice")).thenAnswer(invocation -> {
+            if (!fastDeviceResolved.await(10, TimeUnit.SECONDS)) {
+                throw new RuntimeException("Devices are resolved sequentially");
+            }
+            return slowDevice;
+        });
+        when(deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), "fastDevice")).thenAnswer(invocation -> {
+            fastDeviceResolved.countDown();
+            return fastDevice;
+        });
+
+        TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg requestMsg = TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getId().getId().getLeastSignificantBits())
+                .addDevices(TransportProtos.GatewayDeviceNameTypeProto.newBuilder().setDeviceName("slowDevice").setDeviceType("default").build())
+                .addDevices(TransportProtos.GatewayDeviceNameTypeProto.newBuilder().setDeviceName("fastDevice").setDeviceType("default").build())
+                .build();
+
+        TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg responseMsg = service.handle(new TbProtoQueueMsg<>(UUID.randomUUID(),
+                        TransportProtos.TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(requestMsg).build()))
+                .get(30, TimeUnit.SECONDS).getValue().getGetOrCreateDevicesResponseMsg();
+
+        assertThat(responseMsg.getResponsesCount()).isEqualTo(2);
+        assertThat(responseMsg.getResponses(0).getDeviceInfo().getDeviceName()).isEqualTo("slowDevice");
+        assertThat(responseMsg.getResponses(1).getDeviceInfo().getDeviceName()).isEqualTo("fastDevice");
+    }
+
+    private Device createGatewayDevice(Device gateway, String name) {
+        Device device = createDevice();
+        device.setTenantId(gateway.getTenantId());
+        device.setName(name);
+        device.setType("default");
+        device.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        device.setAdditionalInfo(JacksonUtil.newObjectNode().put(DataConstants.LAST_CONNECTED_GATEWAY, gateway.getId().toString()));
+        DeviceData deviceData = new DeviceData();
+        deviceData.setConfiguration(new DefaultDeviceConfiguration());
+        deviceData.setTransportConfiguration(new DefaultDeviceTransportConfiguration());
+        device.setDeviceData(deviceData);
+        return device;
+    }
+
     private DeviceProfile createDeviceProfile(String certificateValue) {
         X509CertificateChainProvisionConfiguration provision = new X509CertificateChainProvisionConfiguration();
         provision.setProvisionDeviceSecret(certificateValue);
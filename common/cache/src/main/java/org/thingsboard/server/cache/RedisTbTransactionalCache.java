@@ -34,9 +34,13 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.util.JedisClusterCRC16;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -91,21 +95,79 @@ public abstract class RedisTbTransactionalCache<K extends Serializable, V extend
             return null;
         }
         try (var connection = connectionFactory.getConnection()) {
-            byte[] rawValue = doGet(key, connection);
-            if (rawValue == null || rawValue.length == 0) {
-                return null;
-            } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
-                return SimpleTbCacheValueWrapper.empty();
-            } else {
-                long startTime = System.nanoTime();
-                V value = valueSerializer.deserialize(key, rawValue);
+            return toValueWrapper(key, doGet(key, connection));
+        }
+    }
+
+    /**
+     * Pipelines the lookups to avoid a round trip per key.
+     * In cluster mode the keys are grouped by the node that owns their slot according to the cluster topology
+     * and each group is pipelined to that node. If a pipeline fails, e.g. because slots are being migrated,
+     * the keys of that group are looked up one by one through the node that currently owns each of them.
+     */
+    @Override
+    public Map<K, TbCacheValueWrapper<V>> getAll(Collection<K> keys) {
+        if (!cacheEnabled || keys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<K>> keysByNode = groupKeysByNode(keys);
+        Map<K, TbCacheValueWrapper<V>> result = new HashMap<>(keys.size());
+        for (List<K> nodeKeys : keysByNode.values()) {
+            List<Object> rawValues;
+            try (var connection = getConnection(getRawKey(nodeKeys.get(0)))) {
+                connection.openPipeline();
+                for (K key : nodeKeys) {
+                    doGet(key, connection);
+                }
+                rawValues = connection.closePipeline();
+            } catch (Exception e) {
+                log.debug("[{}] Failed to pipeline the lookup of {} keys, falling back to single lookups", cacheName, nodeKeys.size(), e);
+                rawValues = new ArrayList<>(nodeKeys.size());
+                for (K key : nodeKeys) {
+                    try (var connection = getConnection(getRawKey(key))) {
+                        rawValues.add(doGet(key, connection));
+                    }
+                }
+            }
+            for (int i = 0; i < nodeKeys.size(); i++) {
+                K key = nodeKeys.get(i);
+                TbCacheValueWrapper<V> value = toValueWrapper(key, (byte[]) rawValues.get(i));
                 if (value != null) {
-                    fstStatsService.recordDecodeTime(value.getClass(), startTime);
-                    fstStatsService.incrementDecode(value.getClass());
+                    result.put(key, value);
                 }
-                return SimpleTbCacheValueWrapper.wrap(value);
             }
         }
+        return result;
+    }
+
+    private Map<String, List<K>> groupKeysByNode(Collection<K> keys) {
+        if (!connectionFactory.isRedisClusterAware()) {
+            return Map.of("", new ArrayList<>(keys));
+        }
+        Map<String, List<K>> keysByNode = new HashMap<>();
+        try (var connection = (JedisClusterConnection) connectionFactory.getClusterConnection()) {
+            for (K key : keys) {
+                String node = connection.clusterGetNodeForKey(getRawKey(key)).asString();
+                keysByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(key);
+            }
+        }
+        return keysByNode;
+    }
+
+    private TbCacheValueWrapper<V> toValueWrapper(K key, byte[] rawValue) {
+        if (rawValue == null || rawValue.length == 0) {
+            return null;
+        } else if (Arrays.equals(rawValue, BINARY_NULL_VALUE)) {
+            return SimpleTbCacheValueWrapper.empty();
+        } else {
+            long startTime = System.nanoTime();
+            V value = valueSerializer.deserialize(key, rawValue);
+            if (value != null) {
+                fstStatsService.recordDecodeTime(value.getClass(), startTime);
+                fstStatsService.incrementDecode(value.getClass());
+            }
+            return SimpleTbCacheValueWrapper.wrap(value);
+        }
     }
 
     protected byte[] doGet(K key, RedisConnection connection) {
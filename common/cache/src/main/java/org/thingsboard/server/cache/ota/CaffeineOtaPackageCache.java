@@ -56,6 +56,12 @@ public class CaffeineOtaPackageCache implements OtaPackageDataCache {
         return new byte[0];
     }
 
+    @Override
+    public long getSize(String key) {
+        byte[] data = cacheManager.getCache(OTA_PACKAGE_DATA_CACHE).get(key, byte[].class);
+        return data != null ? data.length : 0;
+    }
+
     @Override
     public void put(String key, byte[] value) {
         cacheManager.getCache(OTA_PACKAGE_DATA_CACHE).putIfAbsent(key, value);
@@ -21,6 +21,8 @@ public interface OtaPackageDataCache {
 
     byte[] get(String key, int chunkSize, int chunk);
 
+    long getSize(String key);
+
     void put(String key, byte[] value);
 
     void evict(String key);
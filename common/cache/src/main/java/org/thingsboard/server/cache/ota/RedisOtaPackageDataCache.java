@@ -15,20 +15,41 @@
  */
 package org.thingsboard.server.cache.ota;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.thingsboard.server.common.data.CacheConstants.OTA_PACKAGE_DATA_CACHE;
 
 @Service
 @ConditionalOnProperty(prefix = "cache", value = "type", havingValue = "redis")
-@RequiredArgsConstructor
 public class RedisOtaPackageDataCache implements OtaPackageDataCache {
 
     private final RedisConnectionFactory redisConnectionFactory;
+    private final Cache<ChunkKey, byte[]> localChunks;
+    private final Cache<String, Long> localSizes;
+
+    public RedisOtaPackageDataCache(RedisConnectionFactory redisConnectionFactory,
+                                    @Value("${cache.otaPackageChunks.timeToLiveInMinutes:60}") int chunksTtl,
+                                    @Value("${cache.otaPackageChunks.maxSizeInBytes:104857600}") long chunksMaxSizeInBytes) {
+        this.redisConnectionFactory = redisConnectionFactory;
+        // Package data is immutable, so chunks requested by many devices are kept locally instead of going to Redis every time
+        this.localChunks = chunksMaxSizeInBytes > 0 ? Caffeine.newBuilder()
+                .expireAfterAccess(chunksTtl, TimeUnit.MINUTES)
+                .maximumWeight(chunksMaxSizeInBytes)
+                .<ChunkKey, byte[]>weigher((key, value) -> value.length)
+                .build() : null;
+        this.localSizes = Caffeine.newBuilder()
+                .expireAfterAccess(chunksTtl, TimeUnit.MINUTES)
+                .maximumSize(1000)
+                .build();
+    }
 
     @Override
     public byte[] get(String key) {
@@ -37,15 +58,34 @@ public class RedisOtaPackageDataCache implements OtaPackageDataCache {
 
     @Override
     public byte[] get(String key, int chunkSize, int chunk) {
-        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
-            if (chunkSize == 0) {
-                return connection.get(toOtaPackageCacheKey(key));
+        if (chunkSize == 0 || localChunks == null) {
+            return getFromRedis(key, chunkSize, chunk);
+        }
+        ChunkKey chunkKey = new ChunkKey(key, chunkSize, chunk);
+        byte[] data = localChunks.getIfPresent(chunkKey);
+        if (data == null) {
+            data = getFromRedis(key, chunkSize, chunk);
+            if (data != null && data.length > 0) {
+                localChunks.put(chunkKey, data);
             }
+        }
+        return data;
+    }
 
-            int startIndex = chunkSize * chunk;
-            int endIndex = startIndex + chunkSize - 1;
-            return connection.getRange(toOtaPackageCacheKey(key), startIndex, endIndex);
+    @Override
+    public long getSize(String key) {
+        Long size = localSizes.getIfPresent(key);
+        if (size == null) {
+            try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+                size = connection.strLen(toOtaPackageCacheKey(key));
+            }
+            if (size == null || size == 0) {
+                // not cached in Redis yet, so the size must not be remembered
+                return 0;
+            }
+            localSizes.put(key, size);
         }
+        return size;
     }
 
     @Override
@@ -53,6 +93,7 @@ public class RedisOtaPackageDataCache implements OtaPackageDataCache {
         try (RedisConnection connection = redisConnectionFactory.getConnection()) {
             connection.set(toOtaPackageCacheKey(key), value);
         }
+        localSizes.invalidate(key);
     }
 
     @Override
@@ -60,9 +101,35 @@ public class RedisOtaPackageDataCache implements OtaPackageDataCache {
         try (RedisConnection connection = redisConnectionFactory.getConnection()) {
             connection.del(toOtaPackageCacheKey(key));
         }
+        localSizes.invalidate(key);
+        if (localChunks != null) {
+            localChunks.asMap().keySet().removeIf(chunkKey -> chunkKey.key().equals(key));
+        }
+    }
+
+    @Override
+    public boolean has(String key) {
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            return Boolean.TRUE.equals(connection.exists(toOtaPackageCacheKey(key)));
+        }
+    }
+
+    private byte[] getFromRedis(String key, int chunkSize, int chunk) {
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            if (chunkSize == 0) {
+                return connection.get(toOtaPackageCacheKey(key));
+            }
+
+            long startIndex = (long) chunkSize * chunk;
+            long endIndex = startIndex + chunkSize - 1;
+            return connection.getRange(toOtaPackageCacheKey(key), startIndex, endIndex);
+        }
     }
 
     private byte[] toOtaPackageCacheKey(String key) {
         return String.format("%s::%s", OTA_PACKAGE_DATA_CACHE, key).getBytes();
     }
+
+    private record ChunkKey(String key, int chunkSize, int chunk) {}
+
 }
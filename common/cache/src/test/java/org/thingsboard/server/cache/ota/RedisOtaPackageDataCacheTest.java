@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.cache.ota;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.server.common.data.CacheConstants.OTA_PACKAGE_DATA_CACHE;
+
+class RedisOtaPackageDataCacheTest {
+
+    private static final String KEY = "ota-package-id";
+    private static final byte[] REDIS_KEY = (OTA_PACKAGE_DATA_CACHE + "::" + KEY).getBytes();
+
+    private RedisConnection connection;
+    private RedisOtaPackageDataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        var connectionFactory = mock(RedisConnectionFactory.class);
+        connection = mock(RedisConnection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        cache = new RedisOtaPackageDataCache(connectionFactory, 60, 1024);
+    }
+
+    @Test
+    void givenChunkLoaded_whenGetAgain_thenServedLocally() {
+        when(connection.getRange(REDIS_KEY, 16, 31)).thenReturn(new byte[16]);
+
+        assertThat(cache.get(KEY, 16, 1)).hasSize(16);
+        assertThat(cache.get(KEY, 16, 1)).hasSize(16);
+
+        verify(connection, times(1)).getRange(REDIS_KEY, 16, 31);
+    }
+
+    @Test
+    void givenEmptyChunk_whenGetAgain_thenNotCachedLocally() {
+        when(connection.getRange(REDIS_KEY, 32, 47)).thenReturn(new byte[0]);
+
+        assertThat(cache.get(KEY, 16, 2)).isEmpty();
+        assertThat(cache.get(KEY, 16, 2)).isEmpty();
+
+        verify(connection, times(2)).getRange(REDIS_KEY, 32, 47);
+    }
+
+    @Test
+    void givenChunkCachedLocally_whenEvict_thenNextGetGoesToRedis() {
+        when(connection.getRange(REDIS_KEY, 0, 15)).thenReturn(new byte[16]);
+        cache.get(KEY, 16, 0);
+
+        cache.evict(KEY);
+        cache.get(KEY, 16, 0);
+
+        verify(connection).del(REDIS_KEY);
+        verify(connection, times(2)).getRange(REDIS_KEY, 0, 15);
+    }
+
+    @Test
+    void givenLocalChunksDisabled_whenGetAgain_thenAlwaysGoesToRedis() {
+        var connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        cache = new RedisOtaPackageDataCache(connectionFactory, 60, 0);
+        when(connection.getRange(REDIS_KEY, 0, 15)).thenReturn(new byte[16]);
+
+        cache.get(KEY, 16, 0);
+        cache.get(KEY, 16, 0);
+
+        verify(connection, times(2)).getRange(REDIS_KEY, 0, 15);
+    }
+
+    @Test
+    void givenSizeLoaded_whenGetSizeAgain_thenServedLocally() {
+        when(connection.strLen(REDIS_KEY)).thenReturn(100L);
+
+        assertThat(cache.getSize(KEY)).isEqualTo(100L);
+        assertThat(cache.getSize(KEY)).isEqualTo(100L);
+
+        verify(connection, times(1)).strLen(REDIS_KEY);
+    }
+
+    @Test
+    void givenPackageNotInRedis_whenGetSize_thenZeroIsNotCached() {
+        when(connection.strLen(REDIS_KEY)).thenReturn(0L, 100L);
+
+        assertThat(cache.getSize(KEY)).isZero();
+        assertThat(cache.getSize(KEY)).isEqualTo(100L);
+    }
+
+    @Test
+    void givenSizeCached_whenPutOrEvict_thenSizeIsReloaded() {
+        when(connection.strLen(REDIS_KEY)).thenReturn(100L, 200L, 300L);
+        cache.getSize(KEY);
+
+        cache.put(KEY, new byte[200]);
+        assertThat(cache.getSize(KEY)).isEqualTo(200L);
+
+        cache.evict(KEY);
+        assertThat(cache.getSize(KEY)).isEqualTo(300L);
+
+        verify(connection, times(3)).strLen(REDIS_KEY);
+    }
+
+    @Test
+    void givenNoChunkSize_whenGet_thenWholePackageIsRead() {
+        when(connection.get(REDIS_KEY)).thenReturn(new byte[100]);
+
+        assertThat(cache.get(KEY)).hasSize(100);
+
+        verify(connection, never()).getRange(any(), anyLong(), anyLong());
+        verify(connection).get(eq(REDIS_KEY));
+    }
+
+}
@@ -24,6 +24,7 @@ import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -37,6 +38,12 @@ public interface AttributesService {
 
     ListenableFuture<List<AttributeKvEntry>> findAll(TenantId tenantId, EntityId entityId, AttributeScope scope);
 
+    /**
+     * Fetches the given attributes of many entities at once.
+     * @return attributes by entity id; entities that have none of the requested attributes are not present in the result
+     */
+    ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findAll(TenantId tenantId, Collection<EntityId> entityIds, AttributeScope scope, Collection<String> attributeKeys);
+
     @Deprecated(since = "3.7.0")
     ListenableFuture<List<Long>> save(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes);
 
@@ -30,12 +30,24 @@ import org.thingsboard.server.common.data.id.TenantId;
 public class TsHistoryDeletionHousekeeperTask extends HousekeeperTask {
 
     private String key;
+    /*
+     * progress checkpoint for chunked deletion: history in [0, startTs) is already deleted;
+     * endTs is the upper bound of the history to delete, 0 means task submission time
+     * */
+    private long startTs;
+    private long endTs;
 
     public TsHistoryDeletionHousekeeperTask(TenantId tenantId, EntityId entityId, String key) {
         super(tenantId, entityId, HousekeeperTaskType.DELETE_TS_HISTORY);
         this.key = key;
     }
 
+    public TsHistoryDeletionHousekeeperTask(TenantId tenantId, EntityId entityId, String key, long startTs, long endTs) {
+        this(tenantId, entityId, key);
+        this.startTs = startTs;
+        this.endTs = endTs;
+    }
+
     @Override
     public String getDescription() {
         return super.getDescription() + (key != null ? " for key '" + key + "'" : "");
@@ -87,8 +87,11 @@ public class NotificationRequestStats {
         totalErrors.incrementAndGet();
     }
 
-    public void reportProcessed(NotificationDeliveryMethod deliveryMethod, Object recipientId) {
-        processedRecipients.computeIfAbsent(deliveryMethod, k -> ConcurrentHashMap.newKeySet()).add(recipientId);
+    /**
+     * Returns false if the recipient was already processed for the delivery method
+     * */
+    public boolean reportProcessed(NotificationDeliveryMethod deliveryMethod, Object recipientId) {
+        return processedRecipients.computeIfAbsent(deliveryMethod, k -> ConcurrentHashMap.newKeySet()).add(recipientId);
     }
 
     public boolean contains(NotificationDeliveryMethod deliveryMethod, Object recipientId) {
@@ -16,6 +16,7 @@
 package org.thingsboard.server.common.data.page;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.EqualsAndHashCode;
@@ -38,20 +39,27 @@ public class PageData<T> implements Serializable {
     private final int totalPages;
     private final long totalElements;
     private final boolean hasNext;
+    private final boolean totalElementsApproximate;
 
     public PageData() {
         this(Collections.emptyList(), 0, 0, false);
     }
 
+    public PageData(List<T> data, int totalPages, long totalElements, boolean hasNext) {
+        this(data, totalPages, totalElements, hasNext, false);
+    }
+
     @JsonCreator
     public PageData(@JsonProperty("data") List<T> data,
                     @JsonProperty("totalPages") int totalPages,
                     @JsonProperty("totalElements") long totalElements,
-                    @JsonProperty("hasNext") boolean hasNext) {
+                    @JsonProperty("hasNext") boolean hasNext,
+                    @JsonProperty("totalElementsApproximate") boolean totalElementsApproximate) {
         this.data = data;
         this.totalPages = totalPages;
         this.totalElements = totalElements;
         this.hasNext = hasNext;
+        this.totalElementsApproximate = totalElementsApproximate;
     }
 
     @SuppressWarnings("unchecked")
@@ -80,8 +88,15 @@ public class PageData<T> implements Serializable {
         return hasNext;
     }
 
+    @Schema(description = "'true' value indicates that 'totalElements' and 'totalPages' are estimated or cached rather than counted for this request. " +
+            "Only returned when an approximate count was requested", accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isTotalElementsApproximate() {
+        return totalElementsApproximate;
+    }
+
     public <D> PageData<D> mapData(Function<T, D> mapper) {
-        return new PageData<>(getData().stream().map(mapper).collect(Collectors.toList()), getTotalPages(), getTotalElements(), hasNext());
+        return new PageData<>(getData().stream().map(mapper).collect(Collectors.toList()), getTotalPages(), getTotalElements(), hasNext(), isTotalElementsApproximate());
     }
 
 }
@@ -64,11 +64,13 @@ public class AlarmDataPageLink extends EntityDataPageLink {
 
     @JsonIgnore
     public AlarmDataPageLink nextPageLink() {
-        return new AlarmDataPageLink(this.getPageSize(), this.getPage() + 1, this.getTextSearch(), this.getSortOrder(), this.isDynamic(),
+        AlarmDataPageLink next = new AlarmDataPageLink(this.getPageSize(), this.getPage() + 1, this.getTextSearch(), this.getSortOrder(), this.isDynamic(),
                 this.searchPropagatedAlarms,
                 this.startTs, this.endTs, this.timeWindow,
                 this.typeList, this.statusList, this.severityList,
                 this.assigneeId
         );
+        next.setApproximateCount(this.isApproximateCount());
+        return next;
     }
 }
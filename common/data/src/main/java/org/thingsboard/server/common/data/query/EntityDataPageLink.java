@@ -16,11 +16,11 @@
 package org.thingsboard.server.common.data.query;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.UUID;
+
 @Data
-@AllArgsConstructor
 public class EntityDataPageLink {
 
     private int pageSize;
@@ -28,6 +28,19 @@ public class EntityDataPageLink {
     private String textSearch;
     private EntityDataSortOrder sortOrder;
     private boolean dynamic = false;
+    /**
+     * Id of the last row of the previous page. When set, the next page is fetched with keyset (seek) pagination
+     * after this row instead of skipping 'page * pageSize' rows.
+     */
+    private UUID lastId;
+    /**
+     * Value of the sort key of the last row of the previous page. Used together with {@link #lastId}; null means the value was empty.
+     */
+    private String lastSortValue;
+    /**
+     * Allows to return an estimated or recently cached total number of elements instead of counting it for every request.
+     */
+    private boolean approximateCount;
 
     public EntityDataPageLink() {
     }
@@ -36,8 +49,23 @@ public class EntityDataPageLink {
         this(pageSize, page, textSearch, sortOrder, false);
     }
 
+    public EntityDataPageLink(int pageSize, int page, String textSearch, EntityDataSortOrder sortOrder, boolean dynamic) {
+        this.pageSize = pageSize;
+        this.page = page;
+        this.textSearch = textSearch;
+        this.sortOrder = sortOrder;
+        this.dynamic = dynamic;
+    }
+
+    @JsonIgnore
+    public boolean isKeyset() {
+        return lastId != null;
+    }
+
     @JsonIgnore
     public EntityDataPageLink nextPageLink() {
-        return new EntityDataPageLink(this.pageSize, this.page + 1, this.textSearch, this.sortOrder);
+        EntityDataPageLink next = new EntityDataPageLink(this.pageSize, this.page + 1, this.textSearch, this.sortOrder);
+        next.setApproximateCount(this.approximateCount);
+        return next;
     }
 }
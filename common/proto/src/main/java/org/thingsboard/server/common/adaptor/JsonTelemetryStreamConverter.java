@@ -0,0 +1,234 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Single-pass telemetry converter that reads the payload with a {@link JsonReader} straight into the proto builders.
+ * Produces the same {@link PostTelemetryMsg} as {@link JsonConverter#convertToTelemetryProto(JsonElement, long)}
+ * applied to {@link JsonParser#parseString(String)}, without building a {@link JsonElement} tree for the whole payload.
+ * Only values that are nested JSON objects or arrays are read as a tree, since they are stored as JSON strings anyway.
+ */
+public class JsonTelemetryStreamConverter {
+
+    private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+
+    public static PostTelemetryMsg convertToTelemetryProto(InputStream payload) throws JsonSyntaxException {
+        return convertToTelemetryProto(new InputStreamReader(payload, StandardCharsets.UTF_8), System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(String payload) throws JsonSyntaxException {
+        return convertToTelemetryProto(new StringReader(payload), System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(Reader payload, long systemTs) throws JsonSyntaxException {
+        try (JsonReader reader = new JsonReader(payload)) {
+            // same mode as JsonParser.parseString
+            reader.setLenient(true);
+            PostTelemetryMsg msg = convertToTelemetryProto(reader, systemTs);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+            return msg;
+        } catch (IOException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads a single telemetry value at the current position of the reader, e.g. a member value of an enclosing object.
+     */
+    public static PostTelemetryMsg convertToTelemetryProto(JsonReader reader, long systemTs) throws IOException {
+        PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+        JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT) {
+            parseObject(reader, builder, systemTs);
+        } else if (token == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader));
+                }
+                parseObject(reader, builder, systemTs);
+            }
+            reader.endArray();
+        } else {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + JsonParser.parseReader(reader));
+        }
+        return builder.build();
+    }
+
+    /*
+     * An object is treated as {"ts": ..., "values": {...}} only when it has both keys, in any order;
+     * otherwise every key of the object is a value. Keys of the first shape are not known to be values until
+     * the object ends, so they are converted eagerly and conversion errors are reported only if they are needed.
+     */
+    private static void parseObject(JsonReader reader, PostTelemetryMsg.Builder builder, long systemTs) throws IOException {
+        Map<String, KeyValueProto> values = new LinkedHashMap<>();
+        RuntimeException valuesError = null;
+        boolean hasTs = false;
+        JsonToken tsToken = null;
+        String tsValue = null;
+        boolean hasValues = false;
+        Map<String, KeyValueProto> tsValues = null;
+        JsonElement tsValuesTree = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (TS.equals(key)) {
+                hasTs = true;
+                tsToken = reader.peek();
+                if (tsToken == JsonToken.NUMBER || tsToken == JsonToken.STRING) {
+                    tsValue = reader.nextString();
+                    valuesError = putValue(values, key, tsToken, tsValue, valuesError);
+                } else {
+                    tsValue = null;
+                    valuesError = parseValue(reader, values, key, valuesError);
+                }
+            } else if (VALUES.equals(key)) {
+                hasValues = true;
+                tsValues = null;
+                tsValuesTree = null;
+                if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                    valuesError = parseValue(reader, values, key, valuesError);
+                } else if (hasTs) {
+                    tsValues = parseValues(reader);
+                } else {
+                    tsValuesTree = JsonParser.parseReader(reader);
+                    values.put(key, toJsonKeyValueProto(key, tsValuesTree));
+                }
+            } else if (hasTs && hasValues) {
+                reader.skipValue();
+            } else {
+                valuesError = parseValue(reader, values, key, valuesError);
+            }
+        }
+        reader.endObject();
+
+        TsKvListProto.Builder tsKvList = TsKvListProto.newBuilder();
+        if (hasTs && hasValues) {
+            tsKvList.setTs(toTs(tsToken, tsValue));
+            if (tsValues != null) {
+                tsKvList.addAllKv(tsValues.values());
+            } else if (tsValuesTree != null) {
+                tsKvList.addAllKv(JsonConverter.parseProtoValues(tsValuesTree.getAsJsonObject()));
+            } else {
+                throw new IllegalStateException("Not a JSON Object: " + VALUES);
+            }
+        } else {
+            if (valuesError != null) {
+                throw valuesError;
+            }
+            tsKvList.setTs(systemTs);
+            values.values().stream().filter(Objects::nonNull).forEach(tsKvList::addKv);
+        }
+        builder.addTsKvList(tsKvList.build());
+    }
+
+    private static Map<String, KeyValueProto> parseValues(JsonReader reader) throws IOException {
+        Map<String, KeyValueProto> result = new LinkedHashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            RuntimeException error = parseValue(reader, result, reader.nextName(), null);
+            if (error != null) {
+                throw error;
+            }
+        }
+        reader.endObject();
+        result.values().removeIf(Objects::isNull);
+        return result;
+    }
+
+    /*
+     * Later duplicates of a key replace the earlier value in place and null removes it, as in a Gson JsonObject.
+     */
+    private static RuntimeException parseValue(JsonReader reader, Map<String, KeyValueProto> result, String key, RuntimeException error) throws IOException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case STRING:
+            case NUMBER:
+                return putValue(result, key, token, reader.nextString(), error);
+            case BOOLEAN:
+                result.put(key, KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(reader.nextBoolean()).build());
+                return error;
+            case NULL:
+                reader.nextNull();
+                result.put(key, null);
+                return error;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY:
+                result.put(key, toJsonKeyValueProto(key, JsonParser.parseReader(reader)));
+                return error;
+            default:
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + token);
+        }
+    }
+
+    private static RuntimeException putValue(Map<String, KeyValueProto> result, String key, JsonToken token, String value, RuntimeException error) {
+        try {
+            result.put(key, token == JsonToken.NUMBER ?
+                    JsonConverter.buildNumericKeyValueProto(value, key) : JsonConverter.buildStringKeyValueProto(value, key));
+            return error;
+        } catch (RuntimeException e) {
+            result.remove(key);
+            return error != null ? error : e;
+        }
+    }
+
+    private static KeyValueProto toJsonKeyValueProto(String key, JsonElement value) {
+        return KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(value.toString()).build();
+    }
+
+    /*
+     * Mirrors JsonPrimitive.getAsLong(): numbers are truncated, strings must be plain longs.
+     */
+    private static long toTs(JsonToken token, String value) {
+        if (token == JsonToken.NUMBER) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return new BigDecimal(value).longValue();
+            }
+        } else if (token == JsonToken.STRING) {
+            return Long.parseLong(value);
+        }
+        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + TS);
+    }
+
+}
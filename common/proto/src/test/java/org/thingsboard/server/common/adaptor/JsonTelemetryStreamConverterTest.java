@@ -0,0 +1,100 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.adaptor;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Isolated("JsonConverter static settings being modified")
+public class JsonTelemetryStreamConverterTest {
+
+    private static final long TS = 1700000000000L;
+
+    @AfterEach
+    public void after() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"temperature\": 42, \"humidity\": 73.5, \"active\": true, \"name\": \"sensor\"}",
+            "{\"ts\": 1451649600512, \"values\": {\"key1\": \"value1\", \"key2\": 2}}",
+            "{\"values\": {\"key1\": \"value1\", \"key2\": 2}, \"ts\": 1451649600512}",
+            "{\"ts\": \"1451649600512\", \"values\": {\"key1\": 1}, \"ignored\": \"x\"}",
+            "{\"ignored\": \"x\", \"ts\": 1.451649600512E12, \"values\": {\"key1\": 1}}",
+            "{\"ts\": 1451649600512, \"other\": 5}",
+            "{\"values\": {\"key1\": 1}, \"other\": 5}",
+            "{\"values\": [1, 2, 3]}",
+            "[{\"ts\": 1451649600512, \"values\": {\"key1\": 1}}, {\"key2\": \"2\"}, {\"ts\": 1451649600513, \"values\": {}}]",
+            "{\"json\": {\"a\": [1, {\"b\": null}], \"c\": \"d\\u2028\"}, \"array\": [], \"nullValue\": null}",
+            "{\"long\": 1E+1, \"double\": 101E-1, \"zero\": 42.0, \"big\": 9.9701010061400066E19, \"bigInt\": 99999999999999999999}",
+            "{\"str\": \"11\", \"strDouble\": \"1.1\", \"notNumber\": \"1.1.1\", \"precise\": 0.12345678901234567890}",
+            "{\"dup\": 1, \"other\": 2, \"dup\": \"x\", \"removed\": 3, \"removed\": null}",
+            "{unquoted: value, 'single': 'quoted'}",
+            "{}",
+            "[]"
+    })
+    public void givenValidPayload_whenConvert_thenSameAsTreeConverter(String payload) {
+        assertThat(convert(payload)).isEqualTo(JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), TS));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "null",
+            "42",
+            "[1]",
+            "{\"key\": 1",
+            "{\"key\": 1} {\"key\": 2}",
+            "{\"ts\": 1451649600512, \"values\": 5}",
+            "{\"ts\": 1451649600512, \"values\": {\"key\": \"too long value\"}}"
+    })
+    public void givenInvalidPayload_whenConvert_thenBothConvertersFail(String payload) {
+        JsonConverter.setMaxStringValueLength(5);
+        assertThatThrownBy(() -> JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), TS)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> convert(payload)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void givenTypeCastDisabled_whenConvertBigInteger_thenFail() {
+        JsonConverter.setTypeCastEnabled(false);
+        String payload = "{\"bigInt\": 99999999999999999999}";
+        assertThatThrownBy(() -> convert(payload)).hasMessage("Big integer values are not supported!");
+    }
+
+    @Test
+    public void givenTsAndValuesWithInvalidIgnoredKey_whenConvert_thenIgnoredKeyIsNotValidated() {
+        JsonConverter.setMaxStringValueLength(5);
+        String payload = "{\"ignored\": \"too long value\", \"ts\": 1451649600512, \"values\": {\"key\": 1}}";
+        assertThat(convert(payload)).isEqualTo(JsonConverter.convertToTelemetryProto(JsonParser.parseString(payload), TS));
+    }
+
+    private static PostTelemetryMsg convert(String payload) {
+        return JsonTelemetryStreamConverter.convertToTelemetryProto(new StringReader(payload), TS);
+    }
+
+}
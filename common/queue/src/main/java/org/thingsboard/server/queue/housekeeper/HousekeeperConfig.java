@@ -15,11 +15,15 @@
  */
 package org.thingsboard.server.queue.housekeeper;
 
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.housekeeper.HousekeeperTaskType;
+import org.thingsboard.server.queue.util.PropertyUtils;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
 
 @Component
@@ -36,5 +40,22 @@ public class HousekeeperConfig {
     private int taskReprocessingDelay;
     @Value("${queue.core.housekeeper.max-reprocessing-attempts:10}")
     private int maxReprocessingAttempts;
+    @Value("${queue.core.housekeeper.task-processing-threads:1}")
+    private int taskProcessingThreads;
+    @Value("${queue.core.housekeeper.task-type-concurrency-limits:}")
+    private String taskTypeConcurrencyLimitsStr;
+    @Value("${queue.core.housekeeper.ts-history-deletion.chunk-duration-ms:0}")
+    private long tsHistoryDeletionChunkDuration;
+    @Value("${queue.core.housekeeper.ts-history-deletion.max-chunks-per-task:50}")
+    private int tsHistoryDeletionMaxChunksPerTask;
+
+    private final Map<HousekeeperTaskType, Integer> taskTypeConcurrencyLimits = new EnumMap<>(HousekeeperTaskType.class);
+
+    @PostConstruct
+    private void init() {
+        PropertyUtils.getProps(taskTypeConcurrencyLimitsStr).forEach((taskType, limit) -> {
+            taskTypeConcurrencyLimits.put(HousekeeperTaskType.valueOf(taskType.trim()), Integer.parseInt(limit.trim()));
+        });
+    }
 
 }
@@ -17,6 +17,7 @@ package org.thingsboard.server.queue.usagestats;
 
 import jakarta.annotation.PostConstruct;
 import lombok.Data;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -45,6 +46,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 @Slf4j
@@ -58,7 +60,12 @@ public class DefaultTbApiUsageReportClient implements TbApiUsageReportClient {
     @Value("${usage.stats.report.interval:10}")
     private int interval;
 
-    private final EnumMap<ApiUsageRecordKey, ConcurrentMap<ReportLevel, AtomicLong>> stats = new EnumMap<>(ApiUsageRecordKey.class);
+    // Idle counters are dropped only after this many reports, so that counters of active tenants are not recreated
+    static final int MAX_IDLE_REPORTS = 3;
+
+    // Counters are striped to avoid contention between the threads reporting the same key
+    private final EnumMap<ApiUsageRecordKey, ConcurrentMap<ReportLevel, Counter>> counters = new EnumMap<>(ApiUsageRecordKey.class);
+    private final EnumMap<ApiUsageRecordKey, ConcurrentMap<ReportLevel, AtomicLong>> gauges = new EnumMap<>(ApiUsageRecordKey.class);
 
     private final PartitionService partitionService;
     private final TbServiceInfoProvider serviceInfoProvider;
@@ -67,11 +74,15 @@ public class DefaultTbApiUsageReportClient implements TbApiUsageReportClient {
     private TbQueueProducer<TbProtoQueueMsg<ToUsageStatsServiceMsg>> msgProducer;
 
     @PostConstruct
-    private void init() {
+    void init() {
         if (enabled) {
             msgProducer = this.producerProvider.getTbUsageStatsMsgProducer();
             for (ApiUsageRecordKey key : ApiUsageRecordKey.values()) {
-                stats.put(key, new ConcurrentHashMap<>());
+                if (key.isCounter()) {
+                    counters.put(key, new ConcurrentHashMap<>());
+                } else {
+                    gauges.put(key, new ConcurrentHashMap<>());
+                }
             }
             scheduler.scheduleWithFixedDelay(() -> {
                 try {
@@ -83,39 +94,32 @@ public class DefaultTbApiUsageReportClient implements TbApiUsageReportClient {
         }
     }
 
-    private void reportStats() {
+    void reportStats() {
         ConcurrentMap<ParentEntity, ToUsageStatsServiceMsg.Builder> report = new ConcurrentHashMap<>();
 
-        for (ApiUsageRecordKey key : ApiUsageRecordKey.values()) {
-            ConcurrentMap<ReportLevel, AtomicLong> statsForKey = stats.get(key);
-            statsForKey.forEach((reportLevel, statsValue) -> {
-                long value = statsValue.get();
-                if (value == 0 && key.isCounter()) return;
-
-                ToUsageStatsServiceMsg.Builder statsMsg = report.computeIfAbsent(reportLevel.getParentEntity(), parent -> {
-                    ToUsageStatsServiceMsg.Builder newStatsMsg = ToUsageStatsServiceMsg.newBuilder();
-
-                    TenantId tenantId = parent.getTenantId();
-                    newStatsMsg.setTenantIdMSB(tenantId.getId().getMostSignificantBits());
-                    newStatsMsg.setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
-
-                    CustomerId customerId = parent.getCustomerId();
-                    if (customerId != null) {
-                        newStatsMsg.setCustomerIdMSB(customerId.getId().getMostSignificantBits());
-                        newStatsMsg.setCustomerIdLSB(customerId.getId().getLeastSignificantBits());
-                    }
-
-                    newStatsMsg.setServiceId(serviceInfoProvider.getServiceId());
-                    return newStatsMsg;
-                });
-
-                UsageStatsKVProto.Builder statsItem = UsageStatsKVProto.newBuilder()
-                        .setKey(key.name())
-                        .setValue(value);
-                statsMsg.addValues(statsItem.build());
-            });
-            statsForKey.clear();
-        }
+        counters.forEach((key, statsForKey) -> statsForKey.forEach((reportLevel, counter) -> {
+            long value = counter.getValue().sumThenReset();
+            if (value == 0 && ++counter.idleReports >= MAX_IDLE_REPORTS) {
+                // the counter is idle, so it is dropped to not keep counters of inactive tenants and customers
+                statsForKey.remove(reportLevel, counter);
+                counter.dropped = true;
+                // increments that reached the dropped counter by now are moved to a new one,
+                // the later ones are moved by the reporting threads themselves as they see the counter dropped
+                long late = counter.getValue().sumThenReset();
+                if (late != 0) {
+                    increment(statsForKey, reportLevel, late);
+                }
+                return;
+            }
+            if (value != 0) {
+                counter.idleReports = 0;
+                addToReport(report, reportLevel, key, value);
+            }
+        }));
+        gauges.forEach((key, statsForKey) -> statsForKey.forEach((reportLevel, gauge) -> {
+            statsForKey.remove(reportLevel, gauge);
+            addToReport(report, reportLevel, key, gauge.get());
+        }));
 
         report.forEach(((parent, statsMsg) -> {
             //TODO: figure out how to minimize messages into the queue. Maybe group by 100s of messages?
@@ -135,6 +139,30 @@ public class DefaultTbApiUsageReportClient implements TbApiUsageReportClient {
         }
     }
 
+    private void addToReport(ConcurrentMap<ParentEntity, ToUsageStatsServiceMsg.Builder> report, ReportLevel reportLevel, ApiUsageRecordKey key, long value) {
+        ToUsageStatsServiceMsg.Builder statsMsg = report.computeIfAbsent(reportLevel.getParentEntity(), parent -> {
+            ToUsageStatsServiceMsg.Builder newStatsMsg = ToUsageStatsServiceMsg.newBuilder();
+
+            TenantId tenantId = parent.getTenantId();
+            newStatsMsg.setTenantIdMSB(tenantId.getId().getMostSignificantBits());
+            newStatsMsg.setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
+
+            CustomerId customerId = parent.getCustomerId();
+            if (customerId != null) {
+                newStatsMsg.setCustomerIdMSB(customerId.getId().getMostSignificantBits());
+                newStatsMsg.setCustomerIdLSB(customerId.getId().getLeastSignificantBits());
+            }
+
+            newStatsMsg.setServiceId(serviceInfoProvider.getServiceId());
+            return newStatsMsg;
+        });
+
+        UsageStatsKVProto.Builder statsItem = UsageStatsKVProto.newBuilder()
+                .setKey(key.name())
+                .setValue(value);
+        statsMsg.addValues(statsItem.build());
+    }
+
     @Override
     public void report(TenantId tenantId, CustomerId customerId, ApiUsageRecordKey key, long value) {
         if (!enabled) return;
@@ -156,19 +184,38 @@ public class DefaultTbApiUsageReportClient implements TbApiUsageReportClient {
     }
 
     private void report(ApiUsageRecordKey key, long value, ReportLevel... levels) {
-        ConcurrentMap<ReportLevel, AtomicLong> statsForKey = stats.get(key);
         for (ReportLevel level : levels) {
             if (level == null) continue;
 
-            AtomicLong n = statsForKey.computeIfAbsent(level, k -> new AtomicLong());
             if (key.isCounter()) {
-                n.addAndGet(value);
+                increment(counters.get(key), level, value);
             } else {
-                n.set(value);
+                gauges.get(key).computeIfAbsent(level, k -> new AtomicLong()).set(value);
+            }
+        }
+    }
+
+    private void increment(ConcurrentMap<ReportLevel, Counter> statsForKey, ReportLevel level, long value) {
+        Counter counter = statsForKey.computeIfAbsent(level, k -> new Counter());
+        counter.getValue().add(value);
+        if (counter.dropped) {
+            // the counter was dropped concurrently and may have been drained before this increment
+            long late = counter.getValue().sumThenReset();
+            if (late != 0) {
+                increment(statsForKey, level, late);
             }
         }
     }
 
+    private static class Counter {
+        @Getter
+        private final LongAdder value = new LongAdder();
+        // set after the counter is removed and before it is drained for the last time
+        private volatile boolean dropped;
+        // accessed by the reporting thread only
+        private int idleReports;
+    }
+
     @Data
     private static class ReportLevel {
         private final TenantId tenantId;
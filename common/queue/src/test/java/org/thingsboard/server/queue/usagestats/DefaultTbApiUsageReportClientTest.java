@@ -0,0 +1,181 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.usagestats;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.ApiUsageRecordKey;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.ToUsageStatsServiceMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.UsageStatsKVProto;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class DefaultTbApiUsageReportClientTest {
+
+    @Mock
+    PartitionService partitionService;
+    @Mock
+    TbServiceInfoProvider serviceInfoProvider;
+    @Mock
+    SchedulerComponent scheduler;
+    @Mock
+    TbQueueProducerProvider producerProvider;
+    @Mock
+    TbQueueProducer<TbProtoQueueMsg<ToUsageStatsServiceMsg>> msgProducer;
+
+    TenantId tenantId = TenantId.fromUUID(UUID.fromString("2ba2b7a6-3d1a-4bb4-9a1f-6a8f1e3c2f41"));
+
+    DefaultTbApiUsageReportClient client;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(producerProvider.getTbUsageStatsMsgProducer()).thenReturn(msgProducer);
+        lenient().when(msgProducer.getDefaultTopic()).thenReturn("tb_usage_stats");
+        lenient().when(serviceInfoProvider.getServiceId()).thenReturn("test-service");
+        lenient().when(partitionService.resolve(eq(ServiceType.TB_CORE), any(), any()))
+                .thenReturn(TopicPartitionInfo.builder().topic("tb_core").build());
+
+        client = new DefaultTbApiUsageReportClient(partitionService, serviceInfoProvider, scheduler, producerProvider);
+        ReflectionTestUtils.setField(client, "enabled", true);
+        ReflectionTestUtils.setField(client, "interval", 10);
+        client.init();
+    }
+
+    @Test
+    public void givenReportedCounter_whenReportStats_thenSumIsSentOnceAndResets() throws Exception {
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT, 5);
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT);
+
+        assertThat(reportAndGetTenantValue(ApiUsageRecordKey.TRANSPORT_MSG_COUNT)).isEqualTo(6);
+
+        client.reportStats();
+        verify(msgProducer, never()).send(any(), any(), any());
+    }
+
+    @Test
+    public void givenIdleCounter_whenReportedAgainBeforeItIsDropped_thenNewValueIsSent() throws Exception {
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT, 1);
+        assertThat(reportAndGetTenantValue(ApiUsageRecordKey.TRANSPORT_MSG_COUNT)).isEqualTo(1);
+
+        for (int i = 0; i < DefaultTbApiUsageReportClient.MAX_IDLE_REPORTS - 1; i++) {
+            client.reportStats();
+        }
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT, 3);
+
+        assertThat(reportAndGetTenantValue(ApiUsageRecordKey.TRANSPORT_MSG_COUNT)).isEqualTo(3);
+    }
+
+    @Test
+    public void givenDroppedCounter_whenReportedAgain_thenNewValueIsSent() throws Exception {
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT, 1);
+        assertThat(reportAndGetTenantValue(ApiUsageRecordKey.TRANSPORT_MSG_COUNT)).isEqualTo(1);
+
+        for (int i = 0; i < DefaultTbApiUsageReportClient.MAX_IDLE_REPORTS + 1; i++) {
+            client.reportStats();
+        }
+        client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT, 2);
+
+        assertThat(reportAndGetTenantValue(ApiUsageRecordKey.TRANSPORT_MSG_COUNT)).isEqualTo(2);
+    }
+
+    @Test
+    public void givenConcurrentReports_whenReportingStats_thenNoIncrementIsLost() throws Exception {
+        int threads = 4;
+        int reportsPerThread = 50_000;
+        AtomicBoolean stopped = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < reportsPerThread; i++) {
+                    client.report(tenantId, null, ApiUsageRecordKey.TRANSPORT_MSG_COUNT);
+                }
+                done.countDown();
+            }).start();
+        }
+        Thread reporter = new Thread(() -> {
+            while (!stopped.get()) {
+                client.reportStats();
+            }
+        });
+        reporter.start();
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        stopped.set(true);
+        reporter.join();
+        client.reportStats();
+
+        long total = getSentValues(tenantId, ApiUsageRecordKey.TRANSPORT_MSG_COUNT).stream().mapToLong(Long::longValue).sum();
+        assertThat(total).isEqualTo((long) threads * reportsPerThread);
+    }
+
+    private long reportAndGetTenantValue(ApiUsageRecordKey key) throws InvalidProtocolBufferException {
+        client.reportStats();
+        List<Long> values = getSentValues(tenantId, key);
+        clearInvocations(msgProducer);
+        assertThat(values).hasSize(1);
+        return values.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> getSentValues(TenantId tenantId, ApiUsageRecordKey key) throws InvalidProtocolBufferException {
+        ArgumentCaptor<TbProtoQueueMsg<ToUsageStatsServiceMsg>> captor = ArgumentCaptor.forClass(TbProtoQueueMsg.class);
+        verify(msgProducer, atLeast(0)).send(any(), captor.capture(), any());
+        List<Long> values = new ArrayList<>();
+        for (TbProtoQueueMsg<ToUsageStatsServiceMsg> msg : captor.getAllValues()) {
+            ToUsageStatsServiceMsg statsMsg = ToUsageStatsServiceMsg.parseFrom(msg.getData());
+            if (statsMsg.getTenantIdMSB() != tenantId.getId().getMostSignificantBits()
+                    || statsMsg.getTenantIdLSB() != tenantId.getId().getLeastSignificantBits()) {
+                continue;
+            }
+            for (UsageStatsKVProto kv : statsMsg.getValuesList()) {
+                if (kv.getKey().equals(key.name())) {
+                    values.add(kv.getValue());
+                }
+            }
+        }
+        return values;
+    }
+
+}
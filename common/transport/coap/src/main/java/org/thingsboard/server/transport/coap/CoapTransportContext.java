@@ -60,6 +60,9 @@ public class CoapTransportContext extends TransportContext {
     @Value("${transport.coap.paging_transmission_window:10000}")
     private long pagingTransmissionWindow;
 
+    @Value("${transport.coap.client_state_idle_timeout:600000}")
+    private long clientStateIdleTimeout;
+
     @Autowired
     private JsonCoapAdaptor jsonCoapAdaptor;
 
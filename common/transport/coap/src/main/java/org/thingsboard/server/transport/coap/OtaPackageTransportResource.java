@@ -16,12 +16,14 @@
 package org.thingsboard.server.transport.coap;
 
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.californium.core.coap.BlockOption;
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.Exchange;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.core.server.resources.Resource;
+import org.thingsboard.server.cache.ota.OtaPackageDataCache;
 import org.thingsboard.server.common.data.DeviceTransportType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.DeviceId;
@@ -121,7 +123,7 @@ public class OtaPackageTransportResource extends AbstractCoapTransportResource {
                     String strChunk = exchange.getQueryParameter("chunk");
                     int chunkSize = StringUtils.isEmpty(strChunkSize) ? 0 : Integer.parseInt(strChunkSize);
                     int chunk = StringUtils.isEmpty(strChunk) ? 0 : Integer.parseInt(strChunk);
-                    respondOtaPackage(exchange, transportContext.getOtaPackageDataCache().get(firmwareId, chunkSize, chunk));
+                    respondOtaPackage(exchange, firmwareId, chunkSize, chunk);
                 } else {
                     exchange.respond(CoAP.ResponseCode.BAD_REQUEST);
                 }
@@ -137,17 +139,29 @@ public class OtaPackageTransportResource extends AbstractCoapTransportResource {
         }
     }
 
-    private void respondOtaPackage(CoapExchange exchange, byte[] data) {
+    private void respondOtaPackage(CoapExchange exchange, String firmwareId, int chunkSize, int chunk) {
+        OtaPackageDataCache otaPackageDataCache = transportContext.getOtaPackageDataCache();
         Response response = new Response(CoAP.ResponseCode.CONTENT);
+        BlockOption block2 = exchange.getRequestOptions().getBlock2();
+        byte[] data;
+        if (block2 != null) {
+            // serving only the requested block instead of letting the blockwise layer buffer the whole package per exchange
+            int blockSize = block2.getSize();
+            int blockNum = block2.getNum();
+            data = otaPackageDataCache.get(firmwareId, blockSize, blockNum);
+            // a short block is the last one, only a full block needs the package size to tell whether more blocks follow
+            boolean moreFlag = data != null && data.length == blockSize
+                    && (long) (blockNum + 1) * blockSize < otaPackageDataCache.getSize(firmwareId);
+            response.getOptions().setBlock2(block2.getSzx(), moreFlag, blockNum);
+        } else {
+            data = otaPackageDataCache.get(firmwareId, chunkSize, chunk);
+        }
         if (data != null && data.length > 0) {
             response.setPayload(data);
-            if (exchange.getRequestOptions().getBlock2() != null) {
-                int chunkSize = exchange.getRequestOptions().getBlock2().getSzx();
-                int blockNum = exchange.getRequestOptions().getBlock2().getNum();
-                boolean lastFlag = data.length <= chunkSize;
-                response.getOptions().setBlock2(chunkSize, lastFlag, blockNum);
-            }
             transportContext.getExecutor().submit(() -> exchange.respond(response));
+        } else if (block2 != null) {
+            // a block past the end of the package, answering instead of leaving the client to time out
+            transportContext.getExecutor().submit(() -> exchange.respond(CoAP.ResponseCode.BAD_OPTION, "Block number too large"));
         }
     }
 
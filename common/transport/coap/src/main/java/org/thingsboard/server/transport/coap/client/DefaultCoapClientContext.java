@@ -67,6 +67,7 @@ import org.thingsboard.server.transport.coap.callback.CoapNoOpCallback;
 import org.thingsboard.server.transport.coap.callback.CoapResponseCallback;
 import org.thingsboard.server.transport.coap.callback.CoapResponseCodeCallback;
 
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -91,6 +92,8 @@ public class DefaultCoapClientContext implements CoapClientContext {
     private final PartitionService partitionService;
     private final ConcurrentMap<DeviceId, TbCoapClientState> clients = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, TbCoapClientState> clientsByToken = new ConcurrentHashMap<>();
+    // shared by the clients of the same device profile, so the proto descriptors are not built per device
+    private final ConcurrentMap<DeviceProfileId, ProfileTransportConfiguration> transportConfigurations = new ConcurrentHashMap<>();
 
     public DefaultCoapClientContext(CoapServerContext config, @Lazy CoapTransportContext transportContext,
                                     TransportService transportService, TransportDeviceProfileCache profileCache,
@@ -105,6 +108,7 @@ public class DefaultCoapClientContext implements CoapClientContext {
     @EventListener(DeviceProfileUpdatedEvent.class)
     public void onApplicationEvent(DeviceProfileUpdatedEvent event) {
         var deviceProfile = event.getDeviceProfile();
+        transportConfigurations.remove(deviceProfile.getId());
         clients.values().stream().filter(state -> state.getSession() == null).forEach(state -> {
             state.lock();
             try {
@@ -211,13 +215,37 @@ public class DefaultCoapClientContext implements CoapClientContext {
 
     @Override
     public void reportActivity() {
+        long idleTimeout = transportContext.getClientStateIdleTimeout();
+        long evictBeforeTs = System.currentTimeMillis() - idleTimeout;
         for (TbCoapClientState state : clients.values()) {
             if (state.getSession() != null) {
                 transportService.recordActivity(state.getSession());
+            } else if (idleTimeout > 0 && state.getLastActivityTime() < evictBeforeTs) {
+                evictIdleClient(state, evictBeforeTs);
             }
         }
     }
 
+    /*
+     * The client without observations is restored from the device credentials on the next request,
+     * so there is no need to keep it in memory while the device sleeps.
+     */
+    private void evictIdleClient(TbCoapClientState state, long evictBeforeTs) {
+        state.lock();
+        try {
+            if (state.getSession() == null && state.getLastActivityTime() < evictBeforeTs) {
+                Future<Void> sleepTask = state.getSleepTask();
+                if (sleepTask != null) {
+                    sleepTask.cancel(false);
+                }
+                clients.remove(state.getDeviceId(), state);
+                log.trace("[{}] Evicted idle client state", state.getDeviceId());
+            }
+        } finally {
+            state.unlock();
+        }
+    }
+
     private void onUplink(TbCoapClientState client, boolean notifyOtherServers, long uplinkTs) {
         PowerMode powerMode = client.getPowerMode();
         PowerSavingConfiguration profileSettings = null;
@@ -396,19 +424,26 @@ public class DefaultCoapClientContext implements CoapClientContext {
     @Override
     public TbCoapClientState getOrCreateClient(CoapSessionMsgType type, ValidateDeviceCredentialsResponse deviceCredentials, DeviceProfile deviceProfile) throws AdaptorException {
         DeviceId deviceId = deviceCredentials.getDeviceInfo().getDeviceId();
-        TbCoapClientState state = getClientState(deviceId);
-        state.lock();
-        try {
-            if (state.getConfiguration() == null || state.getAdaptor() == null) {
-                initStateAdaptor(deviceProfile, state);
-            }
-            if (state.getCredentials() == null) {
-                state.init(deviceCredentials);
+        while (true) {
+            TbCoapClientState state = getClientState(deviceId);
+            state.lock();
+            try {
+                if (clients.get(deviceId) != state) {
+                    // evicted as idle in the meantime
+                    continue;
+                }
+                state.updateLastActivityTime(System.currentTimeMillis());
+                if (state.getConfiguration() == null || state.getAdaptor() == null) {
+                    initStateAdaptor(deviceProfile, state);
+                }
+                if (state.getCredentials() == null) {
+                    state.init(deviceCredentials);
+                }
+            } finally {
+                state.unlock();
             }
-        } finally {
-            state.unlock();
+            return state;
         }
-        return state;
     }
 
     @Override
@@ -464,8 +499,18 @@ public class DefaultCoapClientContext implements CoapClientContext {
         }
     }
 
+    private TransportConfigurationContainer getSharedTransportConfigurationContainer(DeviceProfile deviceProfile) throws AdaptorException {
+        ProfileTransportConfiguration configuration = transportConfigurations.get(deviceProfile.getId());
+        if (configuration != null && Objects.equals(configuration.profileVersion(), deviceProfile.getVersion())) {
+            return configuration.container();
+        }
+        TransportConfigurationContainer container = getTransportConfigurationContainer(deviceProfile);
+        transportConfigurations.put(deviceProfile.getId(), new ProfileTransportConfiguration(deviceProfile.getVersion(), container));
+        return container;
+    }
+
     private void initStateAdaptor(DeviceProfile deviceProfile, TbCoapClientState state) throws AdaptorException {
-        state.setConfiguration(getTransportConfigurationContainer(deviceProfile));
+        state.setConfiguration(getSharedTransportConfigurationContainer(deviceProfile));
         state.setAdaptor(getCoapTransportAdaptor(state.getConfiguration().isJsonPayload()));
         state.setContentFormat(state.getAdaptor().getContentFormat());
     }
@@ -849,6 +894,8 @@ public class DefaultCoapClientContext implements CoapClientContext {
         //TODO: add optimistic lock check that the client was already deleted and cleanup "clients" map.
     }
 
+    private record ProfileTransportConfiguration(Long profileVersion, TransportConfigurationContainer container) {}
+
     private void respond(CoapExchange exchange, Response response, int defContentFormat) {
         response.getOptions().setContentFormat(TbCoapContentFormatUtil.getContentFormat(exchange.getRequestOptions().getContentFormat(), defContentFormat));
         exchange.respond(response);
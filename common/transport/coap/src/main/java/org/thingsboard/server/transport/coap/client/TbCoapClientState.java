@@ -40,6 +40,10 @@ import java.util.concurrent.locks.ReentrantLock;
 @Data
 public class TbCoapClientState {
 
+    private static final long NOT_SET = Long.MIN_VALUE;
+
+    // Ids are kept as objects rather than as primitive msb/lsb pairs: the device id instance is the key of the clients map
+    // and the profile id is referenced by the device credentials anyway, so primitives would only add id copies on every read
     private final DeviceId deviceId;
     private final Lock lock;
 
@@ -58,18 +62,18 @@ public class TbCoapClientState {
 
     @Getter
     private PowerMode powerMode;
-    @Getter
-    private Long psmActivityTimer;
-    @Getter
-    private Long edrxCycle;
-    @Getter
-    private Long pagingTransmissionWindow;
+    // primitives instead of boxed values, the state is kept for every device served by the transport
+    private long psmActivityTimer = NOT_SET;
+    private long edrxCycle = NOT_SET;
+    private long pagingTransmissionWindow = NOT_SET;
     @Getter
     @Setter
     private boolean asleep;
     @Getter
     private long lastUplinkTime;
     @Getter
+    private volatile long lastActivityTime;
+    @Getter
     @Setter
     private Future<Void> sleepTask;
 
@@ -84,9 +88,24 @@ public class TbCoapClientState {
         this.credentials = credentials;
         this.profileId = credentials.getDeviceInfo().getDeviceProfileId();
         this.powerMode = credentials.getDeviceInfo().getPowerMode();
-        this.edrxCycle = credentials.getDeviceInfo().getEdrxCycle();
-        this.psmActivityTimer = credentials.getDeviceInfo().getPsmActivityTimer();
-        this.pagingTransmissionWindow = credentials.getDeviceInfo().getPagingTransmissionWindow();
+        setPowerSavingSettings(credentials.getDeviceInfo().getEdrxCycle(), credentials.getDeviceInfo().getPsmActivityTimer(),
+                credentials.getDeviceInfo().getPagingTransmissionWindow());
+    }
+
+    public Long getPsmActivityTimer() {
+        return fromPrimitive(psmActivityTimer);
+    }
+
+    public Long getEdrxCycle() {
+        return fromPrimitive(edrxCycle);
+    }
+
+    public Long getPagingTransmissionWindow() {
+        return fromPrimitive(pagingTransmissionWindow);
+    }
+
+    public void updateLastActivityTime(long ts) {
+        this.lastActivityTime = ts;
     }
 
     public void lock() {
@@ -117,12 +136,24 @@ public class TbCoapClientState {
         if (data.getTransportConfiguration() != null && data.getTransportConfiguration().getType().equals(DeviceTransportType.COAP)) {
             CoapDeviceTransportConfiguration configuration = (CoapDeviceTransportConfiguration) data.getTransportConfiguration();
             this.powerMode = configuration.getPowerMode();
-            this.edrxCycle = configuration.getEdrxCycle();
-            this.psmActivityTimer = configuration.getPsmActivityTimer();
-            this.pagingTransmissionWindow = configuration.getPagingTransmissionWindow();
+            setPowerSavingSettings(configuration.getEdrxCycle(), configuration.getPsmActivityTimer(), configuration.getPagingTransmissionWindow());
         }
     }
 
+    private void setPowerSavingSettings(Long edrxCycle, Long psmActivityTimer, Long pagingTransmissionWindow) {
+        this.edrxCycle = toPrimitive(edrxCycle);
+        this.psmActivityTimer = toPrimitive(psmActivityTimer);
+        this.pagingTransmissionWindow = toPrimitive(pagingTransmissionWindow);
+    }
+
+    private static long toPrimitive(Long value) {
+        return value != null ? value : NOT_SET;
+    }
+
+    private static Long fromPrimitive(long value) {
+        return value != NOT_SET ? value : null;
+    }
+
     public void addQueuedNotification(TransportProtos.AttributeUpdateNotificationMsg msg) {
         if (missedAttributeUpdates == null) {
             missedAttributeUpdates = msg;
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.coap;
+
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.OptionSet;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cache.ota.OtaPackageDataCache;
+import org.thingsboard.server.common.data.ota.OtaPackageType;
+import org.thingsboard.server.common.transport.TransportService;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OtaPackageTransportResourceTest {
+
+    private static final String OTA_PACKAGE_ID = "ota-package-id";
+    private static final int BLOCK_SIZE = 16;
+
+    private OtaPackageDataCache otaPackageDataCache;
+    private CoapExchange exchange;
+    private OtaPackageTransportResource resource;
+
+    @BeforeEach
+    void setUp() {
+        var ctxMock = mock(CoapTransportContext.class);
+        var executorMock = mock(ExecutorService.class);
+        otaPackageDataCache = mock(OtaPackageDataCache.class);
+        exchange = mock(CoapExchange.class);
+
+        when(ctxMock.getTransportService()).thenReturn(mock(TransportService.class));
+        when(ctxMock.getOtaPackageDataCache()).thenReturn(otaPackageDataCache);
+        when(ctxMock.getExecutor()).thenReturn(executorMock);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executorMock).submit(any(Runnable.class));
+
+        resource = new OtaPackageTransportResource(ctxMock, OtaPackageType.FIRMWARE);
+    }
+
+    @Test
+    void givenFullBlockInsidePackage_whenRespond_thenMoreFlagIsSet() {
+        requestBlock(0);
+        when(otaPackageDataCache.get(OTA_PACKAGE_ID, BLOCK_SIZE, 0)).thenReturn(new byte[BLOCK_SIZE]);
+        when(otaPackageDataCache.getSize(OTA_PACKAGE_ID)).thenReturn(3L * BLOCK_SIZE);
+
+        BlockOption block2 = respond().getOptions().getBlock2();
+
+        assertThat(block2.getNum()).isEqualTo(0);
+        assertThat(block2.isM()).isTrue();
+    }
+
+    @Test
+    void givenLastFullBlock_whenRespond_thenMoreFlagIsNotSet() {
+        requestBlock(2);
+        when(otaPackageDataCache.get(OTA_PACKAGE_ID, BLOCK_SIZE, 2)).thenReturn(new byte[BLOCK_SIZE]);
+        when(otaPackageDataCache.getSize(OTA_PACKAGE_ID)).thenReturn(3L * BLOCK_SIZE);
+
+        Response response = respond();
+
+        assertThat(response.getPayloadSize()).isEqualTo(BLOCK_SIZE);
+        assertThat(response.getOptions().getBlock2().getNum()).isEqualTo(2);
+        assertThat(response.getOptions().getBlock2().isM()).isFalse();
+    }
+
+    @Test
+    void givenShortBlock_whenRespond_thenMoreFlagIsNotSetWithoutLookingUpSize() {
+        requestBlock(1);
+        when(otaPackageDataCache.get(OTA_PACKAGE_ID, BLOCK_SIZE, 1)).thenReturn(new byte[BLOCK_SIZE / 2]);
+
+        Response response = respond();
+
+        assertThat(response.getPayloadSize()).isEqualTo(BLOCK_SIZE / 2);
+        assertThat(response.getOptions().getBlock2().isM()).isFalse();
+        verify(otaPackageDataCache, never()).getSize(anyString());
+    }
+
+    @Test
+    void givenBlockPastEndOfPackage_whenRespond_thenBadOption() {
+        requestBlock(3);
+        when(otaPackageDataCache.get(OTA_PACKAGE_ID, BLOCK_SIZE, 3)).thenReturn(new byte[0]);
+
+        ReflectionTestUtils.invokeMethod(resource, "respondOtaPackage", exchange, OTA_PACKAGE_ID, 0, 0);
+
+        verify(exchange).respond(eq(CoAP.ResponseCode.BAD_OPTION), anyString());
+        verify(exchange, never()).respond(any(Response.class));
+    }
+
+    private void requestBlock(int num) {
+        var options = new OptionSet();
+        options.setBlock2(BlockOption.size2Szx(BLOCK_SIZE), false, num);
+        when(exchange.getRequestOptions()).thenReturn(options);
+    }
+
+    private Response respond() {
+        ReflectionTestUtils.invokeMethod(resource, "respondOtaPackage", exchange, OTA_PACKAGE_ID, 0, 0);
+        ArgumentCaptor<Response> captor = ArgumentCaptor.forClass(Response.class);
+        verify(exchange).respond(captor.capture());
+        return captor.getValue();
+    }
+
+}
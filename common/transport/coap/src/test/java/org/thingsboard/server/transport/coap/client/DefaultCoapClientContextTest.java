@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.coap.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.thingsboard.server.coapserver.CoapServerContext;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.device.profile.DefaultDeviceProfileTransportConfiguration;
+import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.transport.coap.CoapSessionMsgType;
+import org.thingsboard.server.transport.coap.CoapTransportContext;
+import org.thingsboard.server.transport.coap.adaptors.JsonCoapAdaptor;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DefaultCoapClientContextTest {
+
+    @Mock
+    CoapServerContext config;
+    @Mock
+    CoapTransportContext transportContext;
+    @Mock
+    TransportService transportService;
+    @Mock
+    TransportDeviceProfileCache profileCache;
+    @Mock
+    PartitionService partitionService;
+    @Mock
+    JsonCoapAdaptor jsonCoapAdaptor;
+
+    DefaultCoapClientContext clientContext;
+    DeviceProfile deviceProfile;
+
+    @BeforeEach
+    void setUp() {
+        given(transportContext.getJsonCoapAdaptor()).willReturn(jsonCoapAdaptor);
+        clientContext = new DefaultCoapClientContext(config, transportContext, transportService, profileCache, partitionService);
+
+        deviceProfile = new DeviceProfile(new DeviceProfileId(UUID.randomUUID()));
+        DeviceProfileData profileData = new DeviceProfileData();
+        profileData.setTransportConfiguration(new DefaultDeviceProfileTransportConfiguration());
+        deviceProfile.setProfileData(profileData);
+        deviceProfile.setVersion(1L);
+    }
+
+    @Test
+    void givenClientsOfSameProfile_whenGetOrCreateClient_thenTransportConfigurationIsShared() throws Exception {
+        TbCoapClientState first = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(newDeviceId()), deviceProfile);
+        TbCoapClientState second = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(newDeviceId()), deviceProfile);
+
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.getConfiguration()).isSameAs(second.getConfiguration());
+    }
+
+    @Test
+    void givenClientWithoutPowerSavingSettings_whenGetOrCreateClient_thenSettingsAreNotSet() throws Exception {
+        TbCoapClientState state = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(newDeviceId()), deviceProfile);
+
+        assertThat(state.getPsmActivityTimer()).isNull();
+        assertThat(state.getEdrxCycle()).isNull();
+        assertThat(state.getPagingTransmissionWindow()).isNull();
+    }
+
+    @Test
+    void givenIdleClientWithoutSession_whenReportActivity_thenStateIsEvictedAndRestoredOnNextRequest() throws Exception {
+        DeviceId deviceId = newDeviceId();
+        TbCoapClientState state = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(deviceId), deviceProfile);
+        state.updateLastActivityTime(System.currentTimeMillis() - 60000);
+        given(transportContext.getClientStateIdleTimeout()).willReturn(30000L);
+
+        clientContext.reportActivity();
+
+        TbCoapClientState restored = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(deviceId), deviceProfile);
+        assertThat(restored).isNotSameAs(state);
+        assertThat(restored.getDeviceId()).isEqualTo(deviceId);
+        assertThat(restored.getCredentials()).isNotNull();
+    }
+
+    @Test
+    void givenActiveClient_whenReportActivity_thenStateIsKept() throws Exception {
+        DeviceId deviceId = newDeviceId();
+        TbCoapClientState state = clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(deviceId), deviceProfile);
+        given(transportContext.getClientStateIdleTimeout()).willReturn(30000L);
+
+        clientContext.reportActivity();
+
+        assertThat(clientContext.getOrCreateClient(CoapSessionMsgType.POST_TELEMETRY_REQUEST, toCredentials(deviceId), deviceProfile)).isSameAs(state);
+    }
+
+    private DeviceId newDeviceId() {
+        return new DeviceId(UUID.randomUUID());
+    }
+
+    private ValidateDeviceCredentialsResponse toCredentials(DeviceId deviceId) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setDeviceId(deviceId);
+        deviceInfo.setDeviceProfileId(deviceProfile.getId());
+        return ValidateDeviceCredentialsResponse.builder()
+                .deviceInfo(deviceInfo)
+                .deviceProfile(deviceProfile)
+                .credentials("token")
+                .build();
+    }
+}
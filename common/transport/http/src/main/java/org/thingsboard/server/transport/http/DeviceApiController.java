@@ -15,9 +15,13 @@
  */
 package org.thingsboard.server.transport.http;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -42,13 +46,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.async.DeferredResult;
 import org.thingsboard.server.common.adaptor.JsonConverter;
+import org.thingsboard.server.common.adaptor.JsonTelemetryStreamConverter;
 import org.thingsboard.server.common.data.DataConstants;
-import org.thingsboard.server.common.data.DeviceTransportType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.TbTransportService;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.ota.OtaPackageType;
 import org.thingsboard.server.common.data.rpc.RpcStatus;
+import org.thingsboard.server.common.data.util.TbPair;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.common.transport.SessionMsgListener;
 import org.thingsboard.server.common.transport.TransportContext;
 import org.thingsboard.server.common.transport.TransportService;
@@ -69,12 +75,20 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToDeviceRpcRequestMs
 import org.thingsboard.server.gen.transport.TransportProtos.ToDeviceRpcResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToServerRpcResponseMsg;
-import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
@@ -150,7 +164,7 @@ public class DeviceApiController implements TbTransportService {
             @Parameter(description = "Comma separated key names for attribute with shared scope", required = true , schema = @Schema(defaultValue = "configuration"))
             @RequestParam(value = "sharedKeys", required = false, defaultValue = "") String sharedKeys) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     GetAttributeRequestMsg.Builder request = GetAttributeRequestMsg.newBuilder().setRequestId(0);
                     List<String> clientKeySet = !StringUtils.isEmpty(clientKeys) ? Arrays.asList(clientKeys.split(",")) : null;
@@ -184,7 +198,7 @@ public class DeviceApiController implements TbTransportService {
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "JSON with attribute key-value pairs. See API call description for example.")
             @RequestBody String json) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
                     transportService.process(sessionInfo, JsonConverter.convertToAttributesProto(JsonParser.parseString(json)),
@@ -202,17 +216,91 @@ public class DeviceApiController implements TbTransportService {
     public DeferredResult<ResponseEntity> postTelemetry(
             @Parameter(description = ACCESS_TOKEN_PARAM_DESCRIPTION, required = true , schema = @Schema(defaultValue = "YOUR_DEVICE_ACCESS_TOKEN"))
             @PathVariable("deviceToken") String deviceToken,
-            @RequestBody String json, HttpServletRequest request) {
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Time series data in JSON format", required = true)
+            InputStream body, HttpServletRequest request) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<ResponseEntity>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        Supplier<TransportProtos.PostTelemetryMsg> postTelemetryMsg = readTelemetry(body);
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
-                    transportService.process(sessionInfo, JsonConverter.convertToTelemetryProto(JsonParser.parseString(json)),
+                    transportService.process(sessionInfo, postTelemetryMsg.get(),
                             new HttpOkCallback(responseWriter));
                 }));
         return responseWriter;
     }
 
+    /*
+     * Reads the batch member by member, converting the telemetry of each device straight from the request stream.
+     */
+    private static Map<String, TransportProtos.PostTelemetryMsg> readTelemetryBatch(InputStream body) {
+        Map<String, TransportProtos.PostTelemetryMsg> msgs = new LinkedHashMap<>();
+        long systemTs = System.currentTimeMillis();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String deviceToken = reader.nextName();
+                msgs.put(deviceToken, JsonTelemetryStreamConverter.convertToTelemetryProto(reader, systemTs));
+            }
+            reader.endObject();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return msgs;
+    }
+
+    /*
+     * The body is converted on the request thread, straight from the request stream and without a String copy.
+     * A malformed body is reported only after the token is validated, the same way as for the other endpoints.
+     */
+    private static Supplier<TransportProtos.PostTelemetryMsg> readTelemetry(InputStream body) {
+        try {
+            TransportProtos.PostTelemetryMsg msg = JsonTelemetryStreamConverter.convertToTelemetryProto(body);
+            return () -> msg;
+        } catch (RuntimeException e) {
+            return () -> {
+                throw e;
+            };
+        }
+    }
+
+    @Operation(summary = "Post time series data of multiple devices (postTelemetryBatch)",
+            description = "Post time series data on behalf of multiple devices in a single request. " +
+                    "Designed for integrations that forward the data of many devices. " +
+                    "The request payload is a JSON object where the keys are device access tokens " +
+                    "and the values are time series data in any of the formats supported by the 'postTelemetry' API call: "
+                    + MARKDOWN_CODE_BLOCK_START
+                    + "{\n \"DEVICE_TOKEN_1\": {\"temperature\":26},\n \"DEVICE_TOKEN_2\": [{\"ts\":1634712287000,\"values\":{\"temperature\":25}}]\n}"
+                    + MARKDOWN_CODE_BLOCK_END
+                    + "The data of the valid tokens is saved even if some tokens are invalid, rate limited or failed. "
+                    + "Such tokens are returned in the 'unauthorized', 'rateLimited' and 'failed' lists of the response. "
+                    + "The response status is 200 if the data of at least one device was accepted, "
+                    + "otherwise 429 if some devices were rate limited, 500 if some failed and 401 if all tokens are invalid.")
+    @RequestMapping(value = "/telemetry", method = RequestMethod.POST, produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity> postTelemetryBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "JSON object with device access tokens as keys and time series data as values.", required = true)
+            InputStream body) {
+        DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
+        Map<String, TransportProtos.PostTelemetryMsg> msgs;
+        try {
+            msgs = readTelemetryBatch(body);
+        } catch (JsonParseException | IllegalStateException e) {
+            log.debug("Failed to parse batch telemetry request: {}", e.getMessage());
+            responseWriter.setResult(new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST));
+            return responseWriter;
+        }
+        if (msgs.isEmpty()) {
+            responseWriter.setResult(new ResponseEntity<>(HttpStatus.OK));
+            return responseWriter;
+        }
+        BatchTelemetryCallback batchCallback = new BatchTelemetryCallback(transportContext, responseWriter, msgs);
+        msgs.keySet().forEach(deviceToken -> transportContext.validateDeviceToken(deviceToken, batchCallback.forDevice(deviceToken)));
+        return responseWriter;
+    }
+
     @Operation(summary = "Save claiming information (claimDevice)",
             description = "Saves the information required for user to claim the device. " +
                     "See more info about claiming in the corresponding 'Claiming devices' platform documentation."
@@ -229,7 +317,7 @@ public class DeviceApiController implements TbTransportService {
             @PathVariable("deviceToken") String deviceToken,
             @RequestBody(required = false) String json) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
                     DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
@@ -251,7 +339,7 @@ public class DeviceApiController implements TbTransportService {
             @Parameter(description = "Optional timeout of the long poll. Typically less then 60 seconds, since limited on the server side.")
             @RequestParam(value = "timeout", required = false, defaultValue = "0") long timeout) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
                     transportService.registerSyncSession(sessionInfo,
@@ -281,7 +369,7 @@ public class DeviceApiController implements TbTransportService {
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Reply to the RPC request, JSON. For example: {\"status\":\"success\"}", required = true)
             @RequestBody String json, HttpServletRequest httpServletRequest) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<ResponseEntity>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
                     transportService.process(sessionInfo, ToDeviceRpcResponseMsg.newBuilder().setRequestId(requestId).setPayload(json).build(), new HttpOkCallback(responseWriter));
@@ -311,7 +399,7 @@ public class DeviceApiController implements TbTransportService {
             @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "The RPC request JSON", required = true)
             @RequestBody String json, HttpServletRequest httpServletRequest) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<ResponseEntity>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     JsonObject request = JsonParser.parseString(json).getAsJsonObject();
                     TransportService transportService = transportContext.getTransportService();
@@ -338,7 +426,7 @@ public class DeviceApiController implements TbTransportService {
             @Parameter(description = "Optional timeout of the long poll. Typically less then 60 seconds, since limited on the server side.")
             @RequestParam(value = "timeout", required = false, defaultValue = "0") long timeout) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportService transportService = transportContext.getTransportService();
                     transportService.registerSyncSession(sessionInfo,
@@ -434,7 +522,7 @@ public class DeviceApiController implements TbTransportService {
 
     private DeferredResult<ResponseEntity> getOtaPackageCallback(String deviceToken, String title, String version, int size, int chunk, OtaPackageType firmwareType) {
         DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
-        transportContext.getTransportService().process(DeviceTransportType.DEFAULT, ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build(),
+        transportContext.validateDeviceToken(deviceToken,
                 new DeviceAuthCallback(transportContext, responseWriter, sessionInfo -> {
                     TransportProtos.GetOtaPackageRequestMsg requestMsg = TransportProtos.GetOtaPackageRequestMsg.newBuilder()
                             .setTenantIdMSB(sessionInfo.getTenantIdMSB())
@@ -475,6 +563,134 @@ public class DeviceApiController implements TbTransportService {
         }
     }
 
+    /**
+     * Collects the token validation results of the batch and pushes the telemetry of all valid devices as a single batch.
+     * Results are tracked per token, so a failure of one device does not fail the telemetry of the others.
+     */
+    static class BatchTelemetryCallback {
+        private final TransportContext transportContext;
+        private final DeferredResult<ResponseEntity> responseWriter;
+        private final Map<String, TransportProtos.PostTelemetryMsg> msgs;
+        private final List<TbPair<SessionInfoProto, TransportProtos.PostTelemetryMsg>> validMsgs;
+        private final List<String> validTokens;
+        private final List<String> unauthorized;
+        private final List<String> accepted;
+        private final List<String> rateLimited;
+        private final List<String> failed;
+        private final AtomicInteger pending;
+
+        BatchTelemetryCallback(TransportContext transportContext, DeferredResult<ResponseEntity> responseWriter,
+                               Map<String, TransportProtos.PostTelemetryMsg> msgs) {
+            this.transportContext = transportContext;
+            this.responseWriter = responseWriter;
+            this.msgs = msgs;
+            this.validMsgs = new ArrayList<>(msgs.size());
+            this.validTokens = new ArrayList<>(msgs.size());
+            this.unauthorized = new ArrayList<>();
+            this.accepted = new ArrayList<>(msgs.size());
+            this.rateLimited = new ArrayList<>();
+            this.failed = new ArrayList<>();
+            this.pending = new AtomicInteger(msgs.size());
+        }
+
+        TransportServiceCallback<ValidateDeviceCredentialsResponse> forDevice(String deviceToken) {
+            return new TransportServiceCallback<>() {
+                @Override
+                public void onSuccess(ValidateDeviceCredentialsResponse msg) {
+                    synchronized (BatchTelemetryCallback.this) {
+                        if (msg.hasDeviceInfo()) {
+                            validMsgs.add(new TbPair<>(SessionInfoCreator.create(msg, transportContext, UUID.randomUUID()), msgs.get(deviceToken)));
+                            validTokens.add(deviceToken);
+                        } else {
+                            unauthorized.add(deviceToken);
+                        }
+                    }
+                    onValidationDone();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    log.warn("Failed to validate device token in BatchTelemetryCallback", e);
+                    synchronized (BatchTelemetryCallback.this) {
+                        failed.add(deviceToken);
+                    }
+                    onValidationDone();
+                }
+            };
+        }
+
+        private void onValidationDone() {
+            if (pending.decrementAndGet() > 0) {
+                return;
+            }
+            if (validMsgs.isEmpty()) {
+                onPushDone();
+                return;
+            }
+            pending.set(validMsgs.size());
+            List<TransportServiceCallback<Void>> callbacks = new ArrayList<>(validTokens.size());
+            for (String deviceToken : validTokens) {
+                callbacks.add(new TransportServiceCallback<>() {
+                    @Override
+                    public void onSuccess(Void msg) {
+                        synchronized (BatchTelemetryCallback.this) {
+                            accepted.add(deviceToken);
+                        }
+                        if (pending.decrementAndGet() == 0) {
+                            onPushDone();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        synchronized (BatchTelemetryCallback.this) {
+                            if (e instanceof TbRateLimitsException) {
+                                rateLimited.add(deviceToken);
+                            } else {
+                                log.warn("Failed to push telemetry in BatchTelemetryCallback", e);
+                                failed.add(deviceToken);
+                            }
+                        }
+                        if (pending.decrementAndGet() == 0) {
+                            onPushDone();
+                        }
+                    }
+                });
+            }
+            transportContext.getTransportService().process(validMsgs, callbacks);
+        }
+
+        private synchronized void onPushDone() {
+            HttpStatus status;
+            if (!accepted.isEmpty()) {
+                status = HttpStatus.OK;
+            } else if (!rateLimited.isEmpty()) {
+                status = HttpStatus.TOO_MANY_REQUESTS;
+            } else if (!failed.isEmpty()) {
+                status = HttpStatus.INTERNAL_SERVER_ERROR;
+            } else {
+                status = HttpStatus.UNAUTHORIZED;
+            }
+            JsonObject response = new JsonObject();
+            addTokens(response, "unauthorized", unauthorized);
+            addTokens(response, "rateLimited", rateLimited);
+            addTokens(response, "failed", failed);
+            if (response.size() == 0 || status == HttpStatus.UNAUTHORIZED) {
+                responseWriter.setResult(new ResponseEntity<>(status));
+            } else {
+                responseWriter.setResult(new ResponseEntity<>(response.toString(), status));
+            }
+        }
+
+        private static void addTokens(JsonObject response, String name, List<String> tokens) {
+            if (!tokens.isEmpty()) {
+                JsonArray array = new JsonArray(tokens.size());
+                tokens.forEach(array::add);
+                response.add(name, array);
+            }
+        }
+    }
+
     @RequiredArgsConstructor
     static class DeviceProvisionCallback implements TransportServiceCallback<ProvisionDeviceResponseMsg> {
         private final DeferredResult<ResponseEntity> responseWriter;
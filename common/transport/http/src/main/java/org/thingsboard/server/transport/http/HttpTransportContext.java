@@ -15,6 +15,9 @@
  */
 package org.thingsboard.server.transport.http;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.ProtocolHandler;
@@ -24,7 +27,13 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.DeviceTransportType;
 import org.thingsboard.server.common.transport.TransportContext;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateDeviceTokenRequestMsg;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by ashvayka on 04.10.18.
@@ -42,6 +51,56 @@ public class HttpTransportContext extends TransportContext {
     @Value("${transport.http.max_request_timeout}")
     private long maxRequestTimeout;
 
+    @Value("${transport.http.device_token_cache_ttl_sec:0}")
+    private int deviceTokenCacheTtlSec;
+
+    @Value("${transport.http.device_token_cache_max_size:100000}")
+    private int deviceTokenCacheMaxSize;
+
+    private Cache<String, ValidateDeviceCredentialsResponse> deviceTokenCache;
+
+    @PostConstruct
+    public void init() {
+        super.init();
+        if (deviceTokenCacheTtlSec > 0) {
+            deviceTokenCache = Caffeine.newBuilder()
+                    .expireAfterWrite(deviceTokenCacheTtlSec, TimeUnit.SECONDS)
+                    .maximumSize(deviceTokenCacheMaxSize)
+                    .build();
+        }
+    }
+
+    /**
+     * Validates the device access token. Successful validations are cached if the cache is enabled,
+     * so that the devices posting data frequently are not validated by the core on each request.
+     */
+    public void validateDeviceToken(String deviceToken, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
+        ValidateDeviceTokenRequestMsg requestMsg = ValidateDeviceTokenRequestMsg.newBuilder().setToken(deviceToken).build();
+        if (deviceTokenCache == null) {
+            getTransportService().process(DeviceTransportType.DEFAULT, requestMsg, callback);
+            return;
+        }
+        ValidateDeviceCredentialsResponse cached = deviceTokenCache.getIfPresent(deviceToken);
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+        getTransportService().process(DeviceTransportType.DEFAULT, requestMsg, new TransportServiceCallback<>() {
+            @Override
+            public void onSuccess(ValidateDeviceCredentialsResponse msg) {
+                if (msg.hasDeviceInfo()) {
+                    deviceTokenCache.put(deviceToken, msg);
+                }
+                callback.onSuccess(msg);
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                callback.onError(e);
+            }
+        });
+    }
+
     @Bean
     public TomcatConnectorCustomizer tomcatAsyncTimeoutConnectorCustomizer() {
         return connector -> {
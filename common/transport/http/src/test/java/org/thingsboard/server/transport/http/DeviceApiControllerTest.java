@@ -17,16 +17,37 @@ package org.thingsboard.server.transport.http;
 
 import com.google.gson.JsonParseException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.util.TbPair;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.common.transport.TransportContext;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
 import org.thingsboard.server.gen.transport.TransportProtos;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 class DeviceApiControllerTest {
 
     @Test
@@ -79,4 +100,99 @@ class DeviceApiControllerTest {
 
         callback.onError(new RuntimeException("oops it is run time error"));
     }
+
+    @Test
+    void batchTelemetryCallbackTest() {
+        TransportContext transportContext = Mockito.mock(TransportContext.class);
+        TransportService transportService = Mockito.mock(TransportService.class);
+        when(transportContext.getTransportService()).thenReturn(transportService);
+        when(transportContext.getNodeId()).thenReturn("nodeId");
+        DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
+        Map<String, TransportProtos.PostTelemetryMsg> msgs = new LinkedHashMap<>();
+        msgs.put("token1", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        msgs.put("token2", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        var callback = new DeviceApiController.BatchTelemetryCallback(transportContext, responseWriter, msgs);
+
+        callback.forDevice("token1").onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+        callback.forDevice("token2").onSuccess(ValidateDeviceCredentialsResponse.builder().build());
+
+        ArgumentCaptor<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>> msgsCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> pushCallbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(msgsCaptor.capture(), pushCallbacksCaptor.capture());
+        assertThat(msgsCaptor.getValue()).hasSize(1);
+
+        pushCallbacksCaptor.getValue().get(0).onSuccess(null);
+        ResponseEntity response = (ResponseEntity) responseWriter.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("{\"unauthorized\":[\"token2\"]}");
+    }
+
+    @Test
+    void batchTelemetryCallbackReportsFailuresPerTokenTest() {
+        TransportContext transportContext = Mockito.mock(TransportContext.class);
+        TransportService transportService = Mockito.mock(TransportService.class);
+        when(transportContext.getTransportService()).thenReturn(transportService);
+        when(transportContext.getNodeId()).thenReturn("nodeId");
+        DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
+        Map<String, TransportProtos.PostTelemetryMsg> msgs = new LinkedHashMap<>();
+        msgs.put("token1", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        msgs.put("token2", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        msgs.put("token3", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        msgs.put("token4", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        var callback = new DeviceApiController.BatchTelemetryCallback(transportContext, responseWriter, msgs);
+
+        callback.forDevice("token1").onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+        callback.forDevice("token2").onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+        callback.forDevice("token3").onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+        callback.forDevice("token4").onError(new RuntimeException("Failed to validate token"));
+
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> pushCallbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(Mockito.<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>>any(), pushCallbacksCaptor.capture());
+        List<TransportServiceCallback<Void>> pushCallbacks = pushCallbacksCaptor.getValue();
+        assertThat(pushCallbacks).hasSize(3);
+
+        pushCallbacks.get(0).onSuccess(null);
+        pushCallbacks.get(1).onError(new TbRateLimitsException(EntityType.DEVICE));
+        assertThat(responseWriter.hasResult()).isFalse();
+        pushCallbacks.get(2).onError(new RuntimeException("Failed to push"));
+
+        ResponseEntity response = (ResponseEntity) responseWriter.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo("{\"rateLimited\":[\"token2\"],\"failed\":[\"token4\",\"token3\"]}");
+    }
+
+    @Test
+    void batchTelemetryCallbackRateLimitedTest() {
+        TransportContext transportContext = Mockito.mock(TransportContext.class);
+        TransportService transportService = Mockito.mock(TransportService.class);
+        when(transportContext.getTransportService()).thenReturn(transportService);
+        when(transportContext.getNodeId()).thenReturn("nodeId");
+        DeferredResult<ResponseEntity> responseWriter = new DeferredResult<>();
+        Map<String, TransportProtos.PostTelemetryMsg> msgs = new LinkedHashMap<>();
+        msgs.put("token1", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        msgs.put("token2", TransportProtos.PostTelemetryMsg.getDefaultInstance());
+        var callback = new DeviceApiController.BatchTelemetryCallback(transportContext, responseWriter, msgs);
+
+        callback.forDevice("token1").onSuccess(ValidateDeviceCredentialsResponse.builder().deviceInfo(newDeviceInfo()).build());
+        callback.forDevice("token2").onSuccess(ValidateDeviceCredentialsResponse.builder().build());
+
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> pushCallbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(Mockito.<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>>any(), pushCallbacksCaptor.capture());
+        pushCallbacksCaptor.getValue().get(0).onError(new TbRateLimitsException(EntityType.TENANT));
+
+        ResponseEntity response = (ResponseEntity) responseWriter.getResult();
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(response.getBody()).isEqualTo("{\"unauthorized\":[\"token2\"],\"rateLimited\":[\"token1\"]}");
+    }
+
+    private static TransportDeviceInfo newDeviceInfo() {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceName("device");
+        deviceInfo.setDeviceType("default");
+        return deviceInfo;
+    }
 }
@@ -78,6 +78,10 @@ public class LwM2MTransportServerConfig implements LwM2MSecureServerConfig {
     @Value("${transport.lwm2m.clean_period_in_sec:}")
     private int cleanPeriodInSec;
 
+    @Getter
+    @Value("${transport.lwm2m.registration_replication_interval_ms:1000}")
+    private long registrationReplicationIntervalMs;
+
     @Getter
     @Value("${transport.lwm2m.server.id:}")
     private Integer id;
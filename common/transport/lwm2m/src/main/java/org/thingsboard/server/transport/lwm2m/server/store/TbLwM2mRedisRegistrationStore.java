@@ -45,9 +45,13 @@ import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.springframework.data.redis.connection.RedisClusterConnection;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
 import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.integration.redis.util.RedisLockRegistry;
+import org.springframework.integration.support.locks.LockRegistry;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.thingsboard.server.transport.lwm2m.config.LwM2MTransportServerConfig;
 import org.thingsboard.server.transport.lwm2m.server.LwM2mVersionedModelProvider;
 
@@ -57,14 +61,22 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -105,13 +117,31 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
     private final int cleanLimit; // maximum number to clean in a clean period
     private final long gracePeriod; // in seconds
 
-    private final RedisLockRegistry redisLock;
+    private final LockRegistry redisLock;
 
     private final LwM2MTransportServerConfig config;
     private TokenGenerator tokenGenerator;
 
     private final LwM2mVersionedModelProvider modelProvider;
 
+    /*
+     * Registrations served by this node. Registration updates are handled locally and replicated to Redis in batches.
+     * Redis is the source of truth for other nodes and the fallback on lookup misses (e.g. after failover).
+     * A local registration without a pending update is checked against the registration id index in Redis on read,
+     * as the device may have re-registered on another node meanwhile. Registrations read from Redis are not
+     * indexed here, as nothing would invalidate them when their owner node updates them.
+     */
+    private final ConcurrentMap<String, Registration> localRegistrations = new ConcurrentHashMap<>(); // (Endpoint => Registration)
+    private final ConcurrentMap<String, String> localRegIdIdx = new ConcurrentHashMap<>(); // (Registration ID => Endpoint)
+    private final ConcurrentMap<InetSocketAddress, String> localAddrIdx = new ConcurrentHashMap<>(); // (Socket Address => Endpoint)
+    private final ConcurrentMap<String, String> localIdentityIdx = new ConcurrentHashMap<>(); // (Identity => Endpoint)
+    private final ConcurrentMap<String, Lock> localLocks = new ConcurrentReferenceHashMap<>(16, ConcurrentReferenceHashMap.ReferenceType.WEAK);
+    private final ConcurrentMap<String, UpdatedRegistration> pendingReplications = new ConcurrentHashMap<>(); // (Endpoint => not replicated update)
+    // write lock is held by the replication so that it does not interleave with registrations added or removed in Redis
+    private final ReadWriteLock replicationLock = new ReentrantReadWriteLock();
+    private final long replicationIntervalMs;
+    private ScheduledFuture<?> replicationTask;
+
     public TbLwM2mRedisRegistrationStore(LwM2MTransportServerConfig config, RedisConnectionFactory connectionFactory, LwM2mVersionedModelProvider modelProvider) {
         this(config, connectionFactory, DEFAULT_CLEAN_PERIOD, DEFAULT_GRACE_PERIOD, DEFAULT_CLEAN_LIMIT, modelProvider); // default clean period 60s
     }
@@ -124,14 +154,21 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
 
     public TbLwM2mRedisRegistrationStore(LwM2MTransportServerConfig config, RedisConnectionFactory connectionFactory, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
                                          long lifetimeGracePeriodInSec, int cleanLimit, LwM2mVersionedModelProvider modelProvider) {
+        this(config, connectionFactory, new RedisLockRegistry(connectionFactory, "Registration"), schedExecutor,
+                cleanPeriodInSec, lifetimeGracePeriodInSec, cleanLimit, modelProvider);
+    }
+
+    TbLwM2mRedisRegistrationStore(LwM2MTransportServerConfig config, RedisConnectionFactory connectionFactory, LockRegistry lockRegistry, ScheduledExecutorService schedExecutor,
+                                  long cleanPeriodInSec, long lifetimeGracePeriodInSec, int cleanLimit, LwM2mVersionedModelProvider modelProvider) {
         this.connectionFactory = connectionFactory;
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
         this.cleanLimit = cleanLimit;
         this.gracePeriod = lifetimeGracePeriodInSec;
-        this.redisLock = new RedisLockRegistry(connectionFactory, "Registration");
+        this.redisLock = lockRegistry;
         this.config = config;
         this.modelProvider = modelProvider;
+        this.replicationIntervalMs = config.getRegistrationReplicationIntervalMs();
     }
 
     /* *************** Redis Key utility function **************** */
@@ -159,6 +196,9 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
 
     @Override
     public Deregistration addRegistration(Registration registration) {
+        Lock localLock = localLock(registration.getEndpoint());
+        localLock.lock();
+        replicationLock.readLock().lock();
         Lock lock = null;
         try (var connection = connectionFactory.getConnection()) {
             String lockKey = toLockKey(registration.getEndpoint());
@@ -166,6 +206,9 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
             try {
                 lock = redisLock.obtain(lockKey);
                 lock.lock();
+                // the new registration supersedes any update of the previous one that is not replicated yet
+                pendingReplications.remove(registration.getEndpoint());
+
                 // add registration
                 byte[] k = toEndpointKey(registration.getEndpoint());
                 byte[] old = connection.getSet(k, serializeReg(registration));
@@ -181,6 +224,8 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                 // Add or update expiration
                 addOrUpdateExpiration(connection, registration);
 
+                indexLocally(localRegistrations.get(registration.getEndpoint()), registration);
+
                 if (old != null) {
                     Registration oldRegistration = deserializeReg(old);
                     // remove old secondary index
@@ -204,12 +249,36 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                     lock.unlock();
                 }
             }
+        } finally {
+            replicationLock.readLock().unlock();
+            localLock.unlock();
         }
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
         log.trace("updateRegistration [{}]", update);
+        String endpoint = localRegIdIdx.get(update.getRegistrationId());
+        if (endpoint != null) {
+            Lock localLock = localLock(endpoint);
+            localLock.lock();
+            try {
+                Registration r = localRegistrations.get(endpoint);
+                if (r != null && r.getId().equals(update.getRegistrationId())) {
+                    Registration updatedRegistration = update.update(r);
+                    indexLocally(r, updatedRegistration);
+                    pendingReplications.merge(endpoint, new UpdatedRegistration(r, updatedRegistration),
+                            (pending, next) -> new UpdatedRegistration(pending.getPreviousRegistration(), next.getUpdatedRegistration()));
+                    return new UpdatedRegistration(r, updatedRegistration);
+                }
+            } finally {
+                localLock.unlock();
+            }
+        }
+        return updateRegistrationInRedis(update);
+    }
+
+    private UpdatedRegistration updateRegistrationInRedis(RegistrationUpdate update) {
         Lock lock = null;
         try (var connection = connectionFactory.getConnection()) {
 
@@ -219,6 +288,9 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                 return null;
             }
 
+            Lock localLock = localLock(new String(ep, UTF_8));
+            localLock.lock();
+            replicationLock.readLock().lock();
             String lockKey = toLockKey(ep);
             try {
                 lock = redisLock.obtain(lockKey);
@@ -252,12 +324,17 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                     removeIdentityIndex(connection, r);
                 }
 
+                pendingReplications.remove(updatedRegistration.getEndpoint());
+                indexLocally(localRegistrations.get(updatedRegistration.getEndpoint()), updatedRegistration);
+
                 return new UpdatedRegistration(r, updatedRegistration);
 
             } finally {
                 if (lock != null) {
                     lock.unlock();
                 }
+                replicationLock.readLock().unlock();
+                localLock.unlock();
             }
         }
     }
@@ -265,6 +342,10 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
     @Override
     public Registration getRegistration(String registrationId) {
         try (var connection = connectionFactory.getConnection()) {
+            Registration local = getCurrentLocalRegistration(connection, localRegIdIdx.get(registrationId));
+            if (local != null && local.getId().equals(registrationId)) {
+                return local;
+            }
             return getRegistration(connection, registrationId);
         }
     }
@@ -286,6 +367,10 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
     public Registration getRegistrationByEndpoint(String endpoint) {
         Validate.notNull(endpoint);
         try (var connection = connectionFactory.getConnection()) {
+            Registration local = getCurrentLocalRegistration(connection, endpoint);
+            if (local != null) {
+                return local;
+            }
             byte[] data = connection.get(toEndpointKey(endpoint));
             if (data == null) {
                 return null;
@@ -298,6 +383,10 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
     public Registration getRegistrationByAdress(InetSocketAddress address) {
         Validate.notNull(address);
         try (var connection = connectionFactory.getConnection()) {
+            Registration local = getCurrentLocalRegistration(connection, localAddrIdx.get(address));
+            if (local != null && local.getSocketAddress().equals(address)) {
+                return local;
+            }
             byte[] ep = connection.get(toRegAddrKey(address));
             if (ep == null) {
                 return null;
@@ -314,6 +403,10 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
     public Registration getRegistrationByIdentity(LwM2mIdentity identity) {
         Validate.notNull(identity);
         try (var connection = connectionFactory.getConnection()) {
+            Registration local = getCurrentLocalRegistration(connection, localIdentityIdx.get(identity.toString()));
+            if (local != null && local.getClientTransportData().getIdentity().equals(identity)) {
+                return local;
+            }
             byte[] ep = connection.get(toRegIdentityKey(identity));
             if (ep == null) {
                 return null;
@@ -365,9 +458,22 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
             return null;
         }
 
+        String endpoint = new String(ep, UTF_8);
+        Lock localLock = localLock(endpoint);
+        localLock.lock();
+        replicationLock.readLock().lock();
         Lock lock = null;
         String lockKey = toLockKey(ep);
         try {
+            Registration local = localRegistrations.get(endpoint);
+            if (local != null && !local.getId().equals(registrationId)) {
+                local = null;
+            }
+            if (removeOnlyIfNotAlive && local != null && local.isAlive(gracePeriod)) {
+                // the registration was updated on this node, the update is not replicated yet
+                return null;
+            }
+
             lock = redisLock.obtain(lockKey);
             lock.lock();
 
@@ -386,6 +492,11 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                     removeAddrIndex(connection, r);
                     removeIdentityIndex(connection, r);
                     removeExpiration(connection, r);
+                    if (local != null) {
+                        pendingReplications.remove(endpoint);
+                        unindexLocally(local);
+                        r = local;
+                    }
                     return new Deregistration(r, obsRemoved);
                 }
             }
@@ -394,6 +505,8 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
             if (lock != null) {
                 lock.unlock();
             }
+            replicationLock.readLock().unlock();
+            localLock.unlock();
         }
     }
 
@@ -425,6 +538,136 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
         }
     }
 
+    /* *************** Local index and replication **************** */
+
+    private Lock localLock(String endpoint) {
+        return localLocks.computeIfAbsent(endpoint, ep -> new ReentrantLock());
+    }
+
+    private Registration getLocalRegistration(String endpoint) {
+        return endpoint != null ? localRegistrations.get(endpoint) : null;
+    }
+
+    /**
+     * Returns the local registration of the endpoint if it is still the current one. A registration with a pending update
+     * is newer than the one in Redis. Otherwise, the registration id index is checked, it is removed when the device
+     * re-registers or is deregistered on another node, and the local registration is evicted then.
+     */
+    private Registration getCurrentLocalRegistration(RedisConnection connection, String endpoint) {
+        Registration local = getLocalRegistration(endpoint);
+        if (local == null || pendingReplications.containsKey(endpoint)) {
+            return local;
+        }
+        if (Arrays.equals(connection.get(toRegIdKey(local.getId())), endpoint.getBytes(UTF_8))) {
+            return local;
+        }
+        log.trace("[{}] Registration {} was replaced or removed on another node", endpoint, local.getId());
+        evictLocally(local);
+        return null;
+    }
+
+    private void indexLocally(Registration previous, Registration registration) {
+        if (previous != null) {
+            unindexLocally(previous);
+        }
+        String endpoint = registration.getEndpoint();
+        localRegistrations.put(endpoint, registration);
+        localRegIdIdx.put(registration.getId(), endpoint);
+        localAddrIdx.put(registration.getSocketAddress(), endpoint);
+        localIdentityIdx.put(registration.getClientTransportData().getIdentity().toString(), endpoint);
+    }
+
+    private void unindexLocally(Registration registration) {
+        String endpoint = registration.getEndpoint();
+        localRegistrations.remove(endpoint, registration);
+        localRegIdIdx.remove(registration.getId(), endpoint);
+        localAddrIdx.remove(registration.getSocketAddress(), endpoint);
+        localIdentityIdx.remove(registration.getClientTransportData().getIdentity().toString(), endpoint);
+    }
+
+    void replicatePendingUpdates() {
+        if (pendingReplications.isEmpty()) {
+            return;
+        }
+        List<UpdatedRegistration> updates = new ArrayList<>(pendingReplications.size());
+        List<Registration> superseded = new ArrayList<>();
+        replicationLock.writeLock().lock();
+        try (var connection = connectionFactory.getConnection()) {
+            for (String endpoint : pendingReplications.keySet()) {
+                UpdatedRegistration update = pendingReplications.remove(endpoint);
+                if (update != null) {
+                    updates.add(update);
+                }
+            }
+            if (updates.isEmpty()) {
+                return;
+            }
+
+            // skipping the updates of registrations that were removed or replaced meanwhile
+            List<byte[]> endpoints = connection.mGet(updates.stream()
+                    .map(update -> toRegIdKey(update.getUpdatedRegistration().getId()))
+                    .toArray(byte[][]::new));
+            Map<byte[], byte[]> values = new LinkedHashMap<>();
+            Set<Tuple> expirations = new LinkedHashSet<>();
+            List<UpdatedRegistration> replicated = new ArrayList<>(updates.size());
+            for (int i = 0; i < updates.size(); i++) {
+                Registration registration = updates.get(i).getUpdatedRegistration();
+                byte[] endpoint = registration.getEndpoint().getBytes(UTF_8);
+                if (endpoints == null || !Arrays.equals(endpoints.get(i), endpoint)) {
+                    superseded.add(registration);
+                    continue;
+                }
+                values.put(toEndpointKey(registration.getEndpoint()), serializeReg(registration));
+                values.put(toRegAddrKey(registration.getSocketAddress()), endpoint);
+                values.put(toRegIdentityKey(registration.getClientTransportData().getIdentity()), endpoint);
+                expirations.add(new DefaultTuple(endpoint, (double) registration.getExpirationTimeStamp(gracePeriod)));
+                replicated.add(updates.get(i));
+            }
+            if (!values.isEmpty()) {
+                connection.mSet(values);
+                connection.zAdd(EXP_EP, expirations);
+            }
+            for (UpdatedRegistration update : replicated) {
+                Registration previous = update.getPreviousRegistration();
+                Registration registration = update.getUpdatedRegistration();
+                if (!previous.getSocketAddress().equals(registration.getSocketAddress())) {
+                    removeAddrIndex(connection, previous);
+                }
+                if (!previous.getClientTransportData().getIdentity().equals(registration.getClientTransportData().getIdentity())) {
+                    removeIdentityIndex(connection, previous);
+                }
+            }
+            log.trace("Replicated {} registration updates", replicated.size());
+        } catch (Exception e) {
+            log.warn("Failed to replicate registration updates", e);
+            // retrying on the next run, merged with the updates made meanwhile
+            for (UpdatedRegistration failed : updates) {
+                if (!superseded.contains(failed.getUpdatedRegistration())) {
+                    pendingReplications.merge(failed.getUpdatedRegistration().getEndpoint(), failed,
+                            (newer, retry) -> newer.getPreviousRegistration().getId().equals(retry.getUpdatedRegistration().getId()) ?
+                                    new UpdatedRegistration(retry.getPreviousRegistration(), newer.getUpdatedRegistration()) : newer);
+                }
+            }
+        } finally {
+            replicationLock.writeLock().unlock();
+        }
+        superseded.forEach(this::evictLocally);
+    }
+
+    private void evictLocally(Registration registration) {
+        Lock localLock = localLock(registration.getEndpoint());
+        localLock.lock();
+        try {
+            Registration local = localRegistrations.get(registration.getEndpoint());
+            if (local != null && local.getId().equals(registration.getId())) {
+                pendingReplications.remove(registration.getEndpoint());
+                unindexLocally(local);
+            }
+        } finally {
+            localLock.unlock();
+        }
+    }
+
     private void addOrUpdateExpiration(RedisConnection connection, Registration registration) {
         connection.zAdd(EXP_EP, registration.getExpirationTimeStamp(gracePeriod), registration.getEndpoint().getBytes(UTF_8));
     }
@@ -715,6 +958,7 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
         if (!started) {
             started = true;
             cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+            replicationTask = schedExecutor.scheduleWithFixedDelay(this::replicatePendingUpdates, replicationIntervalMs, replicationIntervalMs, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -729,6 +973,11 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
                 cleanerTask.cancel(false);
                 cleanerTask = null;
             }
+            if (replicationTask != null) {
+                replicationTask.cancel(false);
+                replicationTask = null;
+            }
+            replicatePendingUpdates();
         }
     }
 
@@ -765,6 +1014,9 @@ public class TbLwM2mRedisRegistrationStore implements RegistrationStore, Startab
             } catch (Exception e) {
                 log.warn("Unexpected Exception while registration cleaning", e);
             }
+            localRegistrations.values().stream()
+                    .filter(r -> !r.isAlive(gracePeriod))
+                    .forEach(TbLwM2mRedisRegistrationStore.this::evictLocally);
         }
     }
 
@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.lwm2m.server.store;
+
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.endpoint.EndpointUriUtil;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.peer.IpPeer;
+import org.eclipse.leshan.core.peer.SocketIdentity;
+import org.eclipse.leshan.server.redis.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.integration.support.locks.DefaultLockRegistry;
+import org.thingsboard.server.transport.lwm2m.config.LwM2MTransportServerConfig;
+import org.thingsboard.server.transport.lwm2m.server.LwM2mVersionedModelProvider;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbLwM2mRedisRegistrationStoreTest {
+
+    private static final String ENDPOINT = "endpoint";
+    private static final byte[] EXP_EP = "EXP:EP".getBytes(UTF_8);
+
+    private final RegistrationSerDes registrationSerDes = new RegistrationSerDes();
+
+    private RedisConnection connection;
+    private TbLwM2mRedisRegistrationStore store;
+    private Registration registration;
+
+    @BeforeEach
+    public void setUp() {
+        connection = mock(RedisConnection.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        store = new TbLwM2mRedisRegistrationStore(mock(LwM2MTransportServerConfig.class), connectionFactory, new DefaultLockRegistry(),
+                mock(ScheduledExecutorService.class), TbLwM2mRedisRegistrationStore.DEFAULT_CLEAN_PERIOD,
+                TbLwM2mRedisRegistrationStore.DEFAULT_GRACE_PERIOD, TbLwM2mRedisRegistrationStore.DEFAULT_CLEAN_LIMIT,
+                mock(LwM2mVersionedModelProvider.class));
+
+        InetSocketAddress address = new InetSocketAddress(Inet4Address.getLoopbackAddress(), 1000);
+        registration = new Registration
+                .Builder("regId", ENDPOINT, new IpPeer(address, new SocketIdentity(address)),
+                        EndpointUriUtil.createUri("coap://localhost:5685"))
+                .lifeTimeInSec(100L)
+                .supportedContentFormats()
+                .supportedObjects(Map.of(15, LwM2mVersion.V1_0))
+                .objectLinks(new Link[] { new Link("/15") })
+                .build();
+        store.addRegistration(registration);
+    }
+
+    @Test
+    public void givenLocalUpdate_whenReplicate_thenUpdateIsWrittenToRedis() {
+        Registration updated = store.updateRegistration(update(200L)).getUpdatedRegistration();
+        assertSame(updated, store.getRegistrationByEndpoint(ENDPOINT));
+        verify(connection, never()).mSet(any());
+
+        when(connection.mGet(any(byte[][].class))).thenReturn(List.of(ENDPOINT.getBytes(UTF_8)));
+        store.replicatePendingUpdates();
+
+        assertEquals(200L, replicatedRegistration().getLifeTimeInSec());
+        verify(connection).zAdd(eq(EXP_EP), anySet());
+
+        store.replicatePendingUpdates();
+        verify(connection, times(1)).mSet(any());
+    }
+
+    @Test
+    public void givenReplicationFailure_whenReplicate_thenUpdateIsRetriedWithNewerUpdates() {
+        when(connection.mGet(any(byte[][].class))).thenReturn(List.of(ENDPOINT.getBytes(UTF_8)));
+        when(connection.mSet(any())).thenThrow(new RuntimeException("Redis is unavailable")).thenReturn(true);
+
+        store.updateRegistration(update(200L));
+        store.replicatePendingUpdates();
+        store.updateRegistration(update(300L));
+        store.replicatePendingUpdates();
+
+        verify(connection, times(2)).mSet(any());
+        assertEquals(300L, replicatedRegistration().getLifeTimeInSec());
+
+        store.replicatePendingUpdates();
+        verify(connection, times(2)).mSet(any());
+    }
+
+    @Test
+    public void givenRegistrationReplacedOnOtherNode_whenReplicate_thenLocalUpdateIsDropped() {
+        store.updateRegistration(update(200L));
+        when(connection.mGet(any(byte[][].class))).thenReturn(Arrays.asList((byte[]) null));
+
+        store.replicatePendingUpdates();
+
+        verify(connection, never()).mSet(any());
+        assertNull(store.getRegistrationByEndpoint(ENDPOINT));
+        assertNull(store.getRegistration(registration.getId()));
+    }
+
+    @Test
+    public void givenCurrentLocalRegistration_whenGet_thenRegistrationIsNotReadFromRedis() {
+        when(connection.get(aryEq(("EP:REGID:" + registration.getId()).getBytes(UTF_8)))).thenReturn(ENDPOINT.getBytes(UTF_8));
+
+        assertSame(registration, store.getRegistrationByEndpoint(ENDPOINT));
+        assertSame(registration, store.getRegistration(registration.getId()));
+        assertSame(registration, store.getRegistrationByAdress(registration.getSocketAddress()));
+        assertSame(registration, store.getRegistrationByIdentity(registration.getClientTransportData().getIdentity()));
+
+        verify(connection, never()).get(aryEq(("REG:EP:" + ENDPOINT).getBytes(UTF_8)));
+    }
+
+    @Test
+    public void givenDeviceReRegisteredOnOtherNode_whenGet_thenLocalRegistrationIsEvicted() {
+        InetSocketAddress address = new InetSocketAddress(Inet4Address.getLoopbackAddress(), 2000);
+        Registration reRegistration = new Registration
+                .Builder("otherRegId", ENDPOINT, new IpPeer(address, new SocketIdentity(address)),
+                        EndpointUriUtil.createUri("coap://localhost:5685"))
+                .lifeTimeInSec(100L)
+                .supportedContentFormats()
+                .supportedObjects(Map.of(15, LwM2mVersion.V1_0))
+                .objectLinks(new Link[] { new Link("/15") })
+                .build();
+        when(connection.get(aryEq(("REG:EP:" + ENDPOINT).getBytes(UTF_8)))).thenReturn(registrationSerDes.bSerialize(reRegistration));
+
+        assertEquals("otherRegId", store.getRegistrationByEndpoint(ENDPOINT).getId());
+        assertNull(store.getRegistration(registration.getId()));
+        assertNull(store.getRegistrationByAdress(registration.getSocketAddress()));
+    }
+
+    @Test
+    public void givenPendingLocalUpdate_whenGet_thenRegistrationIdIndexIsNotChecked() {
+        Registration updated = store.updateRegistration(update(200L)).getUpdatedRegistration();
+
+        assertSame(updated, store.getRegistrationByEndpoint(ENDPOINT));
+
+        verify(connection, never()).get(aryEq(("EP:REGID:" + registration.getId()).getBytes(UTF_8)));
+    }
+
+    private RegistrationUpdate update(Long lifetime) {
+        return new RegistrationUpdate(registration.getId(), registration.getClientTransportData(), lifetime, null, null,
+                null, null, null, null, null, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Registration replicatedRegistration() {
+        ArgumentCaptor<Map<byte[], byte[]>> values = ArgumentCaptor.forClass(Map.class);
+        verify(connection, atLeastOnce()).mSet(values.capture());
+        byte[] key = ("REG:EP:" + ENDPOINT).getBytes(UTF_8);
+        return values.getAllValues().get(values.getAllValues().size() - 1).entrySet().stream()
+                .filter(e -> Arrays.equals(e.getKey(), key))
+                .map(e -> registrationSerDes.deserialize(e.getValue()))
+                .findFirst().orElseThrow();
+    }
+}
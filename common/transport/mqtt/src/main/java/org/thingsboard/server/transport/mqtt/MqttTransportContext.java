@@ -88,6 +88,14 @@ public class MqttTransportContext extends TransportContext {
     @Value("${transport.mqtt.proxy_enabled:false}")
     private boolean proxyEnabled;
 
+    @Getter
+    @Value("${transport.mqtt.gateway_devices_resolution_batch_size:100}")
+    private int gatewayDevicesResolutionBatchSize;
+
+    @Getter
+    @Value("${transport.mqtt.gateway_devices_resolution_max_concurrency:4}")
+    private int gatewayDevicesResolutionMaxConcurrency;
+
     private final AtomicInteger connectionsCounter = new AtomicInteger();
 
     @PostConstruct
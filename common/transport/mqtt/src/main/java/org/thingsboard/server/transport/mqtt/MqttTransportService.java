@@ -15,14 +15,22 @@
  */
 package org.thingsboard.server.transport.mqtt;
 
+import io.micrometer.core.instrument.Timer;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.util.AttributeKey;
 import io.netty.util.ResourceLeakDetector;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
@@ -32,8 +40,15 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.TbTransportService;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Andrew Shvayka
@@ -66,14 +81,25 @@ public class MqttTransportService implements TbTransportService {
     private Integer workerGroupThreadCount;
     @Value("${transport.mqtt.netty.so_keep_alive}")
     private boolean keepAlive;
+    @Value("${transport.mqtt.netty.native_transport_enabled:false}")
+    private boolean nativeTransportEnabled;
+    @Value("${transport.mqtt.netty.acceptors_count:1}")
+    private int acceptorsCount;
+    @Value("${transport.mqtt.netty.event_loop_stats_interval_ms:10000}")
+    private long eventLoopStatsIntervalMs;
 
     @Autowired
     private MqttTransportContext context;
 
-    private Channel serverChannel;
-    private Channel sslServerChannel;
+    @Autowired
+    private StatsFactory statsFactory;
+
+    private final List<Channel> serverChannels = new ArrayList<>();
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
+    private Class<? extends ServerSocketChannel> serverChannelClass;
+    private boolean epoll;
+    private ScheduledFuture<?> eventLoopStatsTask;
 
     @PostConstruct
     public void init() throws Exception {
@@ -81,33 +107,86 @@ public class MqttTransportService implements TbTransportService {
         ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(leakDetectorLevel.toUpperCase()));
 
         log.info("Starting MQTT transport...");
-        bossGroup = new NioEventLoopGroup(bossGroupThreadCount);
-        workerGroup = new NioEventLoopGroup(workerGroupThreadCount);
-        ServerBootstrap b = new ServerBootstrap();
-        b.group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .childHandler(new MqttTransportServerInitializer(context, false))
-                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive);
+        epoll = nativeTransportEnabled && isEpollAvailable();
+        if (epoll) {
+            log.info("Using native epoll transport with {} acceptor(s)", acceptorsCount);
+            bossGroup = new EpollEventLoopGroup(bossGroupThreadCount);
+            workerGroup = new EpollEventLoopGroup(workerGroupThreadCount);
+            serverChannelClass = EpollServerSocketChannel.class;
+        } else {
+            bossGroup = new NioEventLoopGroup(bossGroupThreadCount);
+            workerGroup = new NioEventLoopGroup(workerGroupThreadCount);
+            serverChannelClass = NioServerSocketChannel.class;
+        }
 
-        serverChannel = b.bind(host, port).sync().channel();
+        bind(host, port, false);
         if (sslEnabled) {
-            b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
-                    .childHandler(new MqttTransportServerInitializer(context, true))
-                    .childOption(ChannelOption.SO_KEEPALIVE, keepAlive);
-            sslServerChannel = b.bind(sslHost, sslPort).sync().channel();
+            bind(sslHost, sslPort, true);
+        }
+        if (eventLoopStatsIntervalMs > 0) {
+            eventLoopStatsTask = scheduleEventLoopStats();
         }
         log.info("Mqtt transport started!");
     }
 
+    private boolean isEpollAvailable() {
+        if (!Epoll.isAvailable()) {
+            log.warn("Native epoll transport is not available, falling back to NIO", Epoll.unavailabilityCause());
+            return false;
+        }
+        return true;
+    }
+
+    private void bind(String host, int port, boolean sslEnabled) throws InterruptedException {
+        ServerBootstrap b = new ServerBootstrap();
+        b.group(bossGroup, workerGroup)
+                .channel(serverChannelClass)
+                .childHandler(new MqttTransportServerInitializer(context, sslEnabled))
+                .childOption(ChannelOption.SO_KEEPALIVE, keepAlive);
+        int acceptors = 1;
+        if (epoll && acceptorsCount > 1) {
+            // each acceptor gets its own listening socket, the kernel balances the incoming connections between them
+            b.option(EpollChannelOption.SO_REUSEPORT, true);
+            acceptors = acceptorsCount;
+        }
+        for (int i = 0; i < acceptors; i++) {
+            serverChannels.add(b.bind(host, port).sync().channel());
+        }
+    }
+
+    private ScheduledFuture<?> scheduleEventLoopStats() {
+        Timer eventLoopLatencyTimer = statsFactory.createTimer(StatsType.TRANSPORT.getName() + ".mqttEventLoopLatency");
+        AtomicInteger pendingTasks = new AtomicInteger();
+        AtomicInteger maxPendingTasks = new AtomicInteger();
+        context.getTransportService().createGaugeStats("mqttEventLoopPendingTasks", pendingTasks);
+        context.getTransportService().createGaugeStats("mqttEventLoopMaxPendingTasks", maxPendingTasks);
+        return context.getScheduler().scheduleAtFixedRate(() -> {
+            int total = 0;
+            int max = 0;
+            for (EventExecutor executor : workerGroup) {
+                if (executor instanceof SingleThreadEventExecutor eventLoop) {
+                    int pending = eventLoop.pendingTasks();
+                    total += pending;
+                    max = Math.max(max, pending);
+                }
+                // time the probe waits in the queue shows how busy the event loop is with I/O and other tasks
+                long startTs = System.nanoTime();
+                executor.execute(() -> eventLoopLatencyTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS));
+            }
+            pendingTasks.set(total);
+            maxPendingTasks.set(max);
+        }, eventLoopStatsIntervalMs, eventLoopStatsIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
     @PreDestroy
     public void shutdown() throws InterruptedException {
         log.info("Stopping MQTT transport!");
+        if (eventLoopStatsTask != null) {
+            eventLoopStatsTask.cancel(false);
+        }
         try {
-            serverChannel.close().sync();
-            if (sslEnabled) {
-                sslServerChannel.close().sync();
+            for (Channel serverChannel : serverChannels) {
+                serverChannel.close().sync();
             }
         } finally {
             workerGroup.shutdownGracefully();
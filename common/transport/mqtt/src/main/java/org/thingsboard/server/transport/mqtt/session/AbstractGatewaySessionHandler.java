@@ -38,7 +38,7 @@ import lombok.Setter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.function.ThrowingFunction;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.server.common.adaptor.AdaptorException;
 import org.thingsboard.server.common.adaptor.JsonConverter;
@@ -57,7 +57,8 @@ import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGateway
 import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
 import org.thingsboard.server.gen.transport.TransportApiProtos;
 import org.thingsboard.server.gen.transport.TransportProtos;
-import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceNameTypeProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
@@ -71,18 +72,21 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
-import static org.springframework.util.ConcurrentReferenceHashMap.ReferenceType;
 import static org.thingsboard.server.common.data.DataConstants.DEFAULT_DEVICE_TYPE;
 import static org.thingsboard.server.common.transport.service.DefaultTransportService.SESSION_EVENT_MSG_CLOSED;
 import static org.thingsboard.server.common.transport.service.DefaultTransportService.SESSION_EVENT_MSG_OPEN;
@@ -111,9 +115,12 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     protected final TransportDeviceInfo gateway;
     @Getter
     protected final UUID sessionId;
-    private final ConcurrentMap<String, Lock> deviceCreationLockMap;
     private final ConcurrentMap<String, T> devices;
-    private final ConcurrentMap<String, ListenableFuture<T>> deviceFutures;
+    private final ConcurrentMap<String, SettableFuture<T>> deviceFutures;
+    private final Queue<GatewayDeviceNameTypeProto> pendingDevices;
+    private final AtomicInteger devicesResolutionsInProgress;
+    private final int devicesResolutionBatchSize;
+    private final int devicesResolutionMaxConcurrency;
     protected final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
     protected final ChannelHandlerContext channel;
     protected final DeviceSessionCtx deviceSessionCtx;
@@ -131,17 +138,16 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
         this.sessionId = sessionId;
         this.devices = new ConcurrentHashMap<>();
         this.deviceFutures = new ConcurrentHashMap<>();
-        this.deviceCreationLockMap = createWeakMap();
+        this.pendingDevices = new ConcurrentLinkedQueue<>();
+        this.devicesResolutionsInProgress = new AtomicInteger();
+        this.devicesResolutionBatchSize = Math.max(1, context.getGatewayDevicesResolutionBatchSize());
+        this.devicesResolutionMaxConcurrency = Math.max(1, context.getGatewayDevicesResolutionMaxConcurrency());
         this.mqttQoSMap = deviceSessionCtx.getMqttQoSMap();
         this.channel = deviceSessionCtx.getChannel();
         this.overwriteDevicesActivity = overwriteDevicesActivity;
         this.gatewayMetricsService = deviceSessionCtx.getContext().getGatewayMetricsService();
     }
 
-    ConcurrentReferenceHashMap<String, Lock> createWeakMap() {
-        return new ConcurrentReferenceHashMap<>(16, ReferenceType.WEAK);
-    }
-
     public void onDeviceDisconnect(MqttPublishMessage mqttMsg) throws AdaptorException {
         if (isJsonPayloadType()) {
             onDeviceDisconnectJson(mqttMsg);
@@ -251,68 +257,132 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
 
     ListenableFuture<T> onDeviceConnect(String deviceName, String deviceType) {
         T result = devices.get(deviceName);
-        if (result == null) {
-            Lock deviceCreationLock = deviceCreationLockMap.computeIfAbsent(deviceName, s -> new ReentrantLock());
-            deviceCreationLock.lock();
-            try {
-                result = devices.get(deviceName);
-                if (result == null) {
-                    return getDeviceCreationFuture(deviceName, deviceType);
-                } else {
-                    return Futures.immediateFuture(result);
-                }
-            } finally {
-                deviceCreationLock.unlock();
-            }
-        } else {
+        if (result != null) {
             return Futures.immediateFuture(result);
         }
-    }
-
-    private ListenableFuture<T> getDeviceCreationFuture(String deviceName, String deviceType) {
-        final SettableFuture<T> futureToSet = SettableFuture.create();
-        ListenableFuture<T> future = deviceFutures.putIfAbsent(deviceName, futureToSet);
+        SettableFuture<T> futureToSet = SettableFuture.create();
+        SettableFuture<T> future = deviceFutures.putIfAbsent(deviceName, futureToSet);
         if (future != null) {
             return future;
         }
+        result = devices.get(deviceName);
+        if (result != null) {
+            deviceFutures.remove(deviceName, futureToSet);
+            futureToSet.set(result);
+            return futureToSet;
+        }
+        pendingDevices.add(GatewayDeviceNameTypeProto.newBuilder()
+                .setDeviceName(deviceName)
+                .setDeviceType(deviceType)
+                .build());
+        resolvePendingDevices();
+        return futureToSet;
+    }
+
+    /*
+     * Pending devices are drained in batches by at most devicesResolutionMaxConcurrency requests at once.
+     * Devices that arrive while all requests are in flight stay queued and are sent with the next batch,
+     * so messages of unresolved devices wait on their futures instead of blocking the caller.
+     */
+    private void resolvePendingDevices() {
+        while (!pendingDevices.isEmpty()) {
+            int inProgress = devicesResolutionsInProgress.get();
+            if (inProgress >= devicesResolutionMaxConcurrency) {
+                return;
+            }
+            if (!devicesResolutionsInProgress.compareAndSet(inProgress, inProgress + 1)) {
+                continue;
+            }
+            List<GatewayDeviceNameTypeProto> batch = new ArrayList<>();
+            GatewayDeviceNameTypeProto device;
+            while (batch.size() < devicesResolutionBatchSize && (device = pendingDevices.poll()) != null) {
+                batch.add(device);
+            }
+            if (batch.isEmpty()) {
+                devicesResolutionsInProgress.decrementAndGet();
+            } else {
+                resolveDevices(batch);
+            }
+        }
+    }
+
+    private void resolveDevices(List<GatewayDeviceNameTypeProto> batch) {
         try {
             transportService.process(gateway.getTenantId(),
-                    GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
-                            .setDeviceName(deviceName)
-                            .setDeviceType(deviceType)
+                    GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
                             .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
                             .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits())
+                            .addAllDevices(batch)
                             .build(),
                     new TransportServiceCallback<>() {
                         @Override
-                        public void onSuccess(GetOrCreateDeviceFromGatewayResponse msg) {
-                            T deviceSessionCtx = newDeviceSessionCtx(msg);
-                            if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
-                                log.trace("[{}][{}][{}] First got or created device [{}], type [{}] for the gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, deviceType);
-                                SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
-                                transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
-                                transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
-                                        .setSessionInfo(deviceSessionInfo)
-                                        .setSessionEvent(SESSION_EVENT_MSG_OPEN)
-                                        .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
-                                        .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
-                                        .build(), null);
+                        public void onSuccess(List<GetOrCreateDeviceFromGatewayResponse> responses) {
+                            try {
+                                for (int i = 0; i < batch.size(); i++) {
+                                    onDeviceResolved(batch.get(i), responses.get(i));
+                                }
+                            } finally {
+                                onDevicesResolutionDone();
                             }
-                            futureToSet.set(devices.get(deviceName));
-                            deviceFutures.remove(deviceName);
                         }
 
                         @Override
                         public void onError(Throwable t) {
-                            logDeviceCreationError(t, deviceName);
-                            futureToSet.setException(t);
-                            deviceFutures.remove(deviceName);
+                            try {
+                                batch.forEach(device -> onDeviceResolutionFailed(device.getDeviceName(), t));
+                            } finally {
+                                onDevicesResolutionDone();
+                            }
                         }
                     });
-            return futureToSet;
         } catch (Throwable e) {
-            deviceFutures.remove(deviceName);
-            throw e;
+            batch.forEach(device -> onDeviceResolutionFailed(device.getDeviceName(), e));
+            devicesResolutionsInProgress.decrementAndGet();
+        }
+    }
+
+    private void onDevicesResolutionDone() {
+        devicesResolutionsInProgress.decrementAndGet();
+        resolvePendingDevices();
+    }
+
+    private void onDeviceResolved(GatewayDeviceNameTypeProto device, GetOrCreateDeviceFromGatewayResponse msg) {
+        String deviceName = device.getDeviceName();
+        if (msg.getError() != null) {
+            onDeviceResolutionFailed(deviceName, new RuntimeException(msg.getError()));
+            return;
+        }
+        if (msg.getDeviceInfo() == null) {
+            onDeviceResolutionFailed(deviceName, new RuntimeException("Failed to get or create device [" + deviceName + "]"));
+            return;
+        }
+        try {
+            T deviceSessionCtx = newDeviceSessionCtx(msg);
+            if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
+                log.trace("[{}][{}][{}] First got or created device [{}], type [{}] for the gateway session", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, device.getDeviceType());
+                SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
+                transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
+                transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                        .setSessionInfo(deviceSessionInfo)
+                        .setSessionEvent(SESSION_EVENT_MSG_OPEN)
+                        .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
+                        .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
+                        .build(), null);
+            }
+            SettableFuture<T> future = deviceFutures.remove(deviceName);
+            if (future != null) {
+                future.set(devices.get(deviceName));
+            }
+        } catch (Throwable t) {
+            onDeviceResolutionFailed(deviceName, t);
+        }
+    }
+
+    private void onDeviceResolutionFailed(String deviceName, Throwable t) {
+        logDeviceCreationError(t, deviceName);
+        SettableFuture<T> future = deviceFutures.remove(deviceName);
+        if (future != null) {
+            future.setException(t);
         }
     }
 
@@ -372,31 +442,25 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
     protected void onDeviceTelemetryJson(int msgId, ByteBuf payload) throws AdaptorException {
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         validateJsonObject(json);
+        Map<String, JsonElement> deviceMsgs = new LinkedHashMap<>();
         for (Map.Entry<String, JsonElement> deviceEntry : json.getAsJsonObject().entrySet()) {
             if (!deviceEntry.getValue().isJsonArray()) {
                 log.warn("{}[{}]", CAN_T_PARSE_VALUE, json);
                 continue;
             }
-            String deviceName = deviceEntry.getKey();
-            process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, deviceEntry.getValue(), deviceName, msgId),
-                    t -> failedToProcessLog(deviceName, TELEMETRY, t));
+            deviceMsgs.put(deviceEntry.getKey(), deviceEntry.getValue());
         }
+        processPostTelemetryMsgs(msgId, deviceMsgs, this::convertToPostTelemetryMsg);
     }
 
-    private void processPostTelemetryMsg(T deviceCtx, JsonElement msg, String deviceName, int msgId) {
-        try {
-            long systemTs = System.currentTimeMillis();
-            TbPair<TransportProtos.PostTelemetryMsg, List<GatewayMetadata>> gatewayPayloadPair = JsonConverter.convertToGatewayTelemetry(msg.getAsJsonArray(), systemTs);
-            TransportProtos.PostTelemetryMsg postTelemetryMsg = gatewayPayloadPair.getFirst();
-            List<GatewayMetadata> metadata = gatewayPayloadPair.getSecond();
-            if (!CollectionUtils.isEmpty(metadata)) {
-                gatewayMetricsService.process(deviceSessionCtx.getSessionInfo(), gateway.getDeviceId(), metadata, systemTs);
-            }
-            transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
-        } catch (Throwable e) {
-            log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
-            ackOrClose(msgId);
+    private TransportProtos.PostTelemetryMsg convertToPostTelemetryMsg(JsonElement msg) {
+        long systemTs = System.currentTimeMillis();
+        TbPair<TransportProtos.PostTelemetryMsg, List<GatewayMetadata>> gatewayPayloadPair = JsonConverter.convertToGatewayTelemetry(msg.getAsJsonArray(), systemTs);
+        List<GatewayMetadata> metadata = gatewayPayloadPair.getSecond();
+        if (!CollectionUtils.isEmpty(metadata)) {
+            gatewayMetricsService.process(deviceSessionCtx.getSessionInfo(), gateway.getDeviceId(), metadata, systemTs);
         }
+        return gatewayPayloadPair.getFirst();
     }
 
     protected void onDeviceTelemetryProto(int msgId, ByteBuf payload) throws AdaptorException {
@@ -408,16 +472,79 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
                 throw new IllegalArgumentException("[" + sessionId + "] Devices telemetry messages is empty for [" + gateway.getDeviceId() + "]");
             }
 
-            deviceMsgList.forEach(telemetryMsg -> {
-                String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
-                process(deviceName, deviceCtx -> processPostTelemetryMsg(deviceCtx, telemetryMsg.getMsg(), deviceName, msgId),
-                        t -> failedToProcessLog(deviceName, TELEMETRY, t));
-            });
+            Map<String, TransportProtos.PostTelemetryMsg> deviceMsgs = new LinkedHashMap<>();
+            deviceMsgList.forEach(telemetryMsg -> deviceMsgs.put(checkDeviceName(telemetryMsg.getDeviceName()), telemetryMsg.getMsg()));
+            processPostTelemetryMsgs(msgId, deviceMsgs, msg -> ProtoConverter.validatePostTelemetryMsg(msg.toByteArray()));
         } catch (RuntimeException | InvalidProtocolBufferException e) {
             throw new AdaptorException(e);
         }
     }
 
+    /*
+     * Pushes the telemetry of the devices whose sessions are already known as a single batch and every other device
+     * as soon as its own session is resolved, so the telemetry of a device is never held back by the other devices
+     * of the publish and keeps its order across publish messages. The gateway gets one acknowledgement per publish message.
+     */
+    private <M> void processPostTelemetryMsgs(int msgId, Map<String, M> deviceMsgs, ThrowingFunction<M, TransportProtos.PostTelemetryMsg> converter) {
+        if (deviceMsgs.isEmpty()) {
+            return;
+        }
+        BatchPubAck batchPubAck = new BatchPubAck(msgId, deviceMsgs.size());
+        List<TbPair<SessionInfoProto, TransportProtos.PostTelemetryMsg>> readyMsgs = new ArrayList<>(deviceMsgs.size());
+        List<TransportServiceCallback<Void>> readyCallbacks = new ArrayList<>(deviceMsgs.size());
+        deviceMsgs.forEach((deviceName, msg) -> {
+            ListenableFuture<T> deviceCtxFuture = onDeviceConnect(deviceName, DEFAULT_DEVICE_TYPE);
+            if (deviceCtxFuture.isDone()) {
+                Throwable failureCause = getFailureCause(deviceCtxFuture);
+                if (failureCause != null) {
+                    failedToProcessLog(deviceName, TELEMETRY, failureCause);
+                    batchPubAck.onDeviceFailed(MqttReasonCodes.PubAck.UNSPECIFIED_ERROR);
+                    return;
+                }
+                TransportProtos.PostTelemetryMsg postTelemetryMsg = convertTelemetry(deviceName, msg, converter, batchPubAck);
+                if (postTelemetryMsg != null) {
+                    readyMsgs.add(TbPair.of(Futures.getUnchecked(deviceCtxFuture).getSessionInfo(), postTelemetryMsg));
+                    readyCallbacks.add(batchPubAck.getDeviceCallback(deviceName));
+                }
+            } else {
+                DonAsynchron.withCallback(deviceCtxFuture, deviceCtx -> {
+                    TransportProtos.PostTelemetryMsg postTelemetryMsg = convertTelemetry(deviceName, msg, converter, batchPubAck);
+                    if (postTelemetryMsg != null) {
+                        transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, batchPubAck.getDeviceCallback(deviceName));
+                    }
+                }, t -> {
+                    failedToProcessLog(deviceName, TELEMETRY, t);
+                    batchPubAck.onDeviceFailed(MqttReasonCodes.PubAck.UNSPECIFIED_ERROR);
+                }, context.getExecutor());
+            }
+        });
+        if (!readyMsgs.isEmpty()) {
+            transportService.process(readyMsgs, readyCallbacks);
+        }
+    }
+
+    private <M> TransportProtos.PostTelemetryMsg convertTelemetry(String deviceName, M msg, ThrowingFunction<M, TransportProtos.PostTelemetryMsg> converter,
+                                                                  BatchPubAck batchPubAck) {
+        try {
+            return converter.apply(msg);
+        } catch (Throwable e) {
+            log.warn("[{}][{}][{}] Failed to convert telemetry: [{}]", gateway.getTenantId(), gateway.getDeviceId(), deviceName, msg, e);
+            batchPubAck.onDeviceFailed(MqttReasonCodes.PubAck.PAYLOAD_FORMAT_INVALID);
+            return null;
+        }
+    }
+
+    private static Throwable getFailureCause(ListenableFuture<?> future) {
+        try {
+            Futures.getDone(future);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
     protected void processPostTelemetryMsg(MqttDeviceAwareSessionContext deviceCtx, TransportProtos.PostTelemetryMsg msg, String deviceName, int msgId) {
         try {
             TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg.toByteArray());
@@ -770,4 +897,67 @@ public abstract class AbstractGatewaySessionHandler<T extends AbstractGatewayDev
             log.trace("Failed to send device disconnect to gateway session", e);
         }
     }
+
+    /**
+     * Acknowledges a publish message with telemetry of several devices exactly once, when the telemetry of all of them is processed.
+     * A failed device is reported through its own session and doesn't close the gateway connection, so the gateway doesn't
+     * resend the telemetry of the devices that were already pushed.
+     */
+    private class BatchPubAck {
+
+        private final int msgId;
+        private final AtomicInteger pending;
+        private final AtomicReference<MqttReasonCodes.PubAck> failure = new AtomicReference<>();
+
+        BatchPubAck(int msgId, int devicesCount) {
+            this.msgId = msgId;
+            this.pending = new AtomicInteger(devicesCount);
+        }
+
+        TransportServiceCallback<Void> getDeviceCallback(String deviceName) {
+            return new TransportServiceCallback<>() {
+                @Override
+                public void onSuccess(Void dummy) {
+                    log.trace("[{}][{}][{}][{}] Published telemetry of msg [{}]", gateway.getTenantId(), gateway.getDeviceId(), sessionId, deviceName, msgId);
+                    onDeviceDone();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    log.trace("[{}][{}][{}] Failed to publish telemetry of msg [{}] for device: [{}]", gateway.getTenantId(), gateway.getDeviceId(), sessionId, msgId, deviceName, e);
+                    if (e instanceof TbRateLimitsException) {
+                        closeDeviceSession(deviceName, MqttReasonCodes.Disconnect.MESSAGE_RATE_TOO_HIGH);
+                        onDeviceFailed(MqttReasonCodes.PubAck.QUOTA_EXCEEDED);
+                    } else {
+                        closeDeviceSession(deviceName, MqttReasonCodes.Disconnect.UNSPECIFIED_ERROR);
+                        onDeviceFailed(MqttReasonCodes.PubAck.UNSPECIFIED_ERROR);
+                    }
+                }
+            };
+        }
+
+        void onDeviceFailed(MqttReasonCodes.PubAck reasonCode) {
+            failure.compareAndSet(null, reasonCode);
+            onDeviceDone();
+        }
+
+        private void onDeviceDone() {
+            if (pending.decrementAndGet() == 0) {
+                onDone();
+            }
+        }
+
+        private void onDone() {
+            MqttReasonCodes.PubAck reasonCode = failure.get();
+            if (reasonCode == null) {
+                ack(msgId, MqttReasonCodes.PubAck.SUCCESS);
+                return;
+            }
+            log.trace("[{}][{}][{}] Telemetry of some devices of msg [{}] was not published", gateway.getTenantId(), gateway.getDeviceId(), sessionId, msgId);
+            // MQTT 3.x acks carry no reason code, the failed devices are reported by closing their sessions only
+            ack(msgId, MqttVersion.MQTT_5.equals(deviceSessionCtx.getMqttVersion()) ? reasonCode : MqttReasonCodes.PubAck.SUCCESS);
+        }
+
+    }
+
 }
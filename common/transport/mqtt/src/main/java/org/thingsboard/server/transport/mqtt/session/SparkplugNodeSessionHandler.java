@@ -43,7 +43,9 @@ import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.MetricDataType;
 import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugTopic;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -70,6 +72,8 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
     private final SparkplugTopic sparkplugTopicNode;
     @Getter
     private final Map<String, SparkplugBProto.Payload.Metric> nodeBirthMetrics;
+    // BIRTH metrics by alias for the node and each of its devices (Device name => (Alias => Metric))
+    private final Map<String, Map<Long, SparkplugBProto.Payload.Metric>> birthMetricsByAlias = new ConcurrentHashMap<>();
     private final MqttTransportHandler parent;
 
     public SparkplugNodeSessionHandler(MqttTransportHandler parent, DeviceSessionCtx deviceSessionCtx, UUID sessionId,
@@ -101,6 +105,10 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
         String deviceName = topic.getNodeDeviceName();
         checkDeviceName(deviceName);
 
+        if (topic.isType(NBIRTH) || topic.isType(DBIRTH)) {
+            setBirthMetricsAliases(deviceName, sparkplugBProto.getMetricsList());
+        }
+        Map<Long, SparkplugBProto.Payload.Metric> aliases = birthMetricsByAlias.getOrDefault(deviceName, Collections.emptyMap());
         ListenableFuture<MqttDeviceAwareSessionContext> contextListenableFuture;
         if (topic.isNode()) {
             if (topic.isType(NBIRTH)) {
@@ -123,10 +131,10 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
         Set<String> attributesMetricNames = ((MqttDeviceProfileTransportConfiguration) deviceSessionCtx
                 .getDeviceProfile().getProfileData().getTransportConfiguration()).getSparkplugAttributesMetricNames();
         if (attributesMetricNames != null) {
-            List<TransportApiProtos.AttributesMsg> attributesMsgList = convertToPostAttributes(sparkplugBProto, attributesMetricNames, deviceName);
+            List<TransportApiProtos.AttributesMsg> attributesMsgList = convertToPostAttributes(sparkplugBProto, aliases, attributesMetricNames, deviceName);
             onDeviceAttributesProto(contextListenableFuture, msgId, attributesMsgList, deviceName);
         }
-        List<TransportProtos.PostTelemetryMsg> postTelemetryMsgList = convertToPostTelemetry(sparkplugBProto, attributesMetricNames, topic.getType().name());
+        List<TransportProtos.PostTelemetryMsg> postTelemetryMsgList = convertToPostTelemetry(sparkplugBProto, aliases, attributesMetricNames, topic.getType().name());
         onDeviceTelemetryProto(contextListenableFuture, msgId, postTelemetryMsgList, deviceName);
     }
 
@@ -185,6 +193,7 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
     }
 
     public void onDeviceDisconnect(MqttPublishMessage mqttMsg, String deviceName) throws AdaptorException {
+        birthMetricsByAlias.remove(deviceName);
         try {
             processOnDisconnect(mqttMsg, deviceName);
         } catch (RuntimeException e) {
@@ -202,16 +211,41 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
         }
     }
 
-    private List<TransportProtos.PostTelemetryMsg> convertToPostTelemetry(SparkplugBProto.Payload sparkplugBProto, Set<String> attributesMetricNames, String topicTypeName) throws AdaptorException {
+    private void setBirthMetricsAliases(String deviceName, List<SparkplugBProto.Payload.Metric> metrics) {
+        Map<Long, SparkplugBProto.Payload.Metric> aliases = new HashMap<>();
+        for (SparkplugBProto.Payload.Metric metric : metrics) {
+            if (metric.hasAlias()) {
+                aliases.put(metric.getAlias(), metric);
+            }
+        }
+        birthMetricsByAlias.put(deviceName, aliases);
+    }
+
+    /**
+     * DATA messages usually carry the alias only, the name and datatype are defined by the BIRTH metric.
+     */
+    private static SparkplugBProto.Payload.Metric getBirthMetric(Map<Long, SparkplugBProto.Payload.Metric> aliases, SparkplugBProto.Payload.Metric protoMetric) {
+        return !protoMetric.hasName() && protoMetric.hasAlias() ? aliases.get(protoMetric.getAlias()) : null;
+    }
+
+    private static int getDatatype(SparkplugBProto.Payload.Metric birthMetric, SparkplugBProto.Payload.Metric protoMetric) {
+        return protoMetric.hasDatatype() || birthMetric == null ? protoMetric.getDatatype() : birthMetric.getDatatype();
+    }
+
+    private List<TransportProtos.PostTelemetryMsg> convertToPostTelemetry(SparkplugBProto.Payload sparkplugBProto, Map<Long, SparkplugBProto.Payload.Metric> aliases,
+                                                                          Set<String> attributesMetricNames, String topicTypeName) throws AdaptorException {
         try {
-            List<TransportProtos.PostTelemetryMsg> msgs = new ArrayList<>();
+            Map<Long, TransportProtos.TsKvListProto.Builder> tsKvLists = new LinkedHashMap<>();
             for (SparkplugBProto.Payload.Metric protoMetric : sparkplugBProto.getMetricsList()) {
-                if (attributesMetricNames == null || !matches(attributesMetricNames, protoMetric)) {
-                    long ts = protoMetric.getTimestamp();
-                    String key = "bdSeq".equals(protoMetric.getName()) ?
-                            topicTypeName + " " + protoMetric.getName() : protoMetric.getName();
-                    Optional<TransportProtos.KeyValueProto> keyValueProtoOpt = fromSparkplugBMetricToKeyValueProto(key, protoMetric);
-                    keyValueProtoOpt.ifPresent(kvProto -> msgs.add(postTelemetryMsgCreated(kvProto, ts)));
+                SparkplugBProto.Payload.Metric birthMetric = getBirthMetric(aliases, protoMetric);
+                String metricName = birthMetric != null ? birthMetric.getName() : protoMetric.getName();
+                if (attributesMetricNames == null || !matches(attributesMetricNames, metricName)) {
+                    long ts = protoMetric.hasTimestamp() ? protoMetric.getTimestamp() : sparkplugBProto.getTimestamp();
+                    String key = "bdSeq".equals(metricName) ? topicTypeName + " " + metricName : metricName;
+                    Optional<TransportProtos.KeyValueProto> keyValueProtoOpt = fromSparkplugBMetricToKeyValueProto(key, getDatatype(birthMetric, protoMetric), protoMetric);
+                    if (keyValueProtoOpt.isPresent()) {
+                        tsKvLists.computeIfAbsent(ts, t -> TransportProtos.TsKvListProto.newBuilder().setTs(t)).addKv(keyValueProtoOpt.get());
+                    }
                 }
             }
 
@@ -220,9 +254,15 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
                 keyValueProtoBuilder.setKey(topicTypeName + " " + "seq");
                 keyValueProtoBuilder.setType(TransportProtos.KeyValueType.LONG_V);
                 keyValueProtoBuilder.setLongV(sparkplugBProto.getSeq());
-                msgs.add(postTelemetryMsgCreated(keyValueProtoBuilder.build(), sparkplugBProto.getTimestamp()));
+                tsKvLists.computeIfAbsent(sparkplugBProto.getTimestamp(), t -> TransportProtos.TsKvListProto.newBuilder().setTs(t)).addKv(keyValueProtoBuilder);
+            }
+            if (tsKvLists.isEmpty()) {
+                return Collections.emptyList();
             }
-            return msgs;
+            // all metrics of the payload are pushed and acknowledged as a single message
+            TransportProtos.PostTelemetryMsg.Builder request = TransportProtos.PostTelemetryMsg.newBuilder();
+            tsKvLists.values().forEach(request::addTsKvList);
+            return Collections.singletonList(request.build());
         } catch (IllegalStateException | JsonSyntaxException | ThingsboardException e) {
             log.error("Failed to decode post telemetry request", e);
             throw new AdaptorException(e);
@@ -230,30 +270,34 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
     }
 
     private List<TransportApiProtos.AttributesMsg> convertToPostAttributes(SparkplugBProto.Payload sparkplugBProto,
+                                                                           Map<Long, SparkplugBProto.Payload.Metric> aliases,
                                                                            Set<String> attributesMetricNames,
                                                                            String deviceName) throws AdaptorException {
         try {
-            List<TransportApiProtos.AttributesMsg> msgs = new ArrayList<>();
+            TransportProtos.PostAttributeMsg.Builder postAttributeMsg = TransportProtos.PostAttributeMsg.newBuilder();
             for (SparkplugBProto.Payload.Metric protoMetric : sparkplugBProto.getMetricsList()) {
-                if (matches(attributesMetricNames, protoMetric)) {
-                    TransportApiProtos.AttributesMsg.Builder deviceAttributesMsgBuilder = TransportApiProtos.AttributesMsg.newBuilder();
-                    Optional<TransportProtos.PostAttributeMsg> msgOpt = getPostAttributeMsg(protoMetric);
-                    if (msgOpt.isPresent()) {
-                        deviceAttributesMsgBuilder.setDeviceName(deviceName);
-                        deviceAttributesMsgBuilder.setMsg(msgOpt.get());
-                        msgs.add(deviceAttributesMsgBuilder.build());
-                    }
+                SparkplugBProto.Payload.Metric birthMetric = getBirthMetric(aliases, protoMetric);
+                String metricName = birthMetric != null ? birthMetric.getName() : protoMetric.getName();
+                if (matches(attributesMetricNames, metricName)) {
+                    Optional<TransportProtos.KeyValueProto> keyValueProtoOpt = fromSparkplugBMetricToKeyValueProto(metricName, getDatatype(birthMetric, protoMetric), protoMetric);
+                    keyValueProtoOpt.ifPresent(postAttributeMsg::addKv);
                 }
             }
-            return msgs;
+            if (postAttributeMsg.getKvCount() == 0) {
+                return Collections.emptyList();
+            }
+            postAttributeMsg.setShared(true);
+            return Collections.singletonList(TransportApiProtos.AttributesMsg.newBuilder()
+                    .setDeviceName(deviceName)
+                    .setMsg(postAttributeMsg)
+                    .build());
         } catch (IllegalStateException | JsonSyntaxException | ThingsboardException e) {
             log.error("Failed to decode post telemetry request", e);
             throw new AdaptorException(e);
         }
     }
 
-    private boolean matches(Set<String> attributesMetricNames, SparkplugBProto.Payload.Metric protoMetric) {
-        String metricName = protoMetric.getName();
+    private boolean matches(Set<String> attributesMetricNames, String metricName) {
         for (String attributeMetricFilter : attributesMetricNames) {
             if (metricName.equals(attributeMetricFilter) ||
                     (attributeMetricFilter.endsWith("*") && metricName.startsWith(
@@ -264,17 +308,6 @@ public class SparkplugNodeSessionHandler extends AbstractGatewaySessionHandler<S
         return false;
     }
 
-    private Optional<TransportProtos.PostAttributeMsg> getPostAttributeMsg(SparkplugBProto.Payload.Metric protoMetric) throws ThingsboardException {
-        Optional<TransportProtos.KeyValueProto> keyValueProtoOpt = fromSparkplugBMetricToKeyValueProto(protoMetric.getName(), protoMetric);
-        if (keyValueProtoOpt.isPresent()) {
-            TransportProtos.PostAttributeMsg.Builder builder = TransportProtos.PostAttributeMsg.newBuilder();
-            builder.addKv(keyValueProtoOpt.get());
-            builder.setShared(true);
-            return Optional.of(builder.build());
-        }
-        return Optional.empty();
-    }
-
     public Optional<MqttPublishMessage> createSparkplugMqttPublishMsg(TransportProtos.TsKvProto tsKvProto,
                                                                       String sparkplugTopic,
                                                                       SparkplugBProto.Payload.Metric metricBirth) {
@@ -46,14 +46,19 @@ import static org.thingsboard.common.util.JacksonUtil.newArrayNode;
 public class SparkplugMetricUtil {
 
     public static Optional<TransportProtos.KeyValueProto> fromSparkplugBMetricToKeyValueProto(String key, SparkplugBProto.Payload.Metric protoMetric) throws ThingsboardException {
+        return fromSparkplugBMetricToKeyValueProto(key, protoMetric.getDatatype(), protoMetric);
+    }
+
+    /**
+     * Converts the metric using the given datatype, for the DATA metrics that refer to the BIRTH metric by alias and omit the datatype.
+     */
+    public static Optional<TransportProtos.KeyValueProto> fromSparkplugBMetricToKeyValueProto(String key, int metricType, SparkplugBProto.Payload.Metric protoMetric) throws ThingsboardException {
         // Check if the null flag has been set indicating that the value is null
         if (protoMetric.getIsNull()) {
             return Optional.empty();
         }
         // Otherwise convert the value based on the type
-        int metricType = protoMetric.getDatatype();
         TransportProtos.KeyValueProto.Builder builderProto = TransportProtos.KeyValueProto.newBuilder();
-        ArrayNode nodeArray = newArrayNode();
         MetricDataType metricDataType = MetricDataType.fromInteger(metricType);
         try {
             switch (metricDataType) {
@@ -97,6 +102,7 @@ public class SparkplugMetricUtil {
                             .setStringV(protoMetric.getStringValue()).build());
                 // byte[]
                 case Bytes:
+                    ArrayNode nodeArray = newArrayNode();
                     ByteBuffer byteBuffer = ByteBuffer.wrap(protoMetric.getBytesValue().toByteArray());
                     while (byteBuffer.hasRemaining()) {
                         nodeArray.add(byteBuffer.get());
@@ -15,30 +15,50 @@
  */
 package org.thingsboard.server.transport.mqtt.session;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttPubReplyMessageVariableHeader;
+import io.netty.handler.codec.mqtt.MqttReasonCodes;
+import io.netty.handler.codec.mqtt.MqttVersion;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.util.ConcurrentReferenceHashMap;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGatewayResponse;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
 import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
+import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +73,9 @@ public class GatewaySessionHandlerTest {
     @Mock
     private MqttTransportContext transportContext;
 
+    @Mock
+    private ChannelHandlerContext channel;
+
     private GatewaySessionHandler handler;
 
     @BeforeEach
@@ -61,6 +84,9 @@ public class GatewaySessionHandlerTest {
         lenient().doNothing().when(transportService).recordActivity(any());
         lenient().when(transportContext.getTransportService()).thenReturn(transportService);
         lenient().when(deviceSessionCtx.getContext()).thenReturn(transportContext);
+        lenient().when(deviceSessionCtx.getChannel()).thenReturn(channel);
+        lenient().when(transportContext.getGatewayDevicesResolutionBatchSize()).thenReturn(100);
+        lenient().when(transportContext.getGatewayDevicesResolutionMaxConcurrency()).thenReturn(1);
 
         var deviceInfo = new TransportDeviceInfo();
         deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
@@ -112,11 +138,190 @@ public class GatewaySessionHandlerTest {
     }
 
     @Test
-    public void givenGatewaySessionHandler_WhenCreateWeakMap_thenConcurrentReferenceHashMapClass() {
-        GatewaySessionHandler gsh = mock(GatewaySessionHandler.class);
-        willCallRealMethod().given(gsh).createWeakMap();
+    public void givenTelemetryForSeveralDevices_whenOnDeviceTelemetryJson_thenSingleBatchIsPushed() throws Exception {
+        // Given
+        setDevices("device1", "device2");
+        String payload = "{\"device1\": [{\"ts\": 1000, \"values\": {\"temperature\": 42}}], \"device2\": [{\"humidity\": 73}]}";
+
+        // When
+        handler.onDeviceTelemetryJson(1, Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        ArgumentCaptor<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>> msgsCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> callbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService, times(1)).process(msgsCaptor.capture(), callbacksCaptor.capture());
+        List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>> msgs = msgsCaptor.getValue();
+        assertThat(msgs).hasSize(2);
+        assertThat(msgs.get(0).getFirst().getDeviceName()).isEqualTo("device1");
+        assertThat(msgs.get(0).getSecond().getTsKvList(0).getTs()).isEqualTo(1000L);
+        assertThat(msgs.get(1).getFirst().getDeviceName()).isEqualTo("device2");
+        assertThat(msgs.get(1).getSecond().getTsKvList(0).getKv(0).getKey()).isEqualTo("humidity");
+        assertThat(callbacksCaptor.getValue()).hasSize(2);
+
+        callbacksCaptor.getValue().get(0).onSuccess(null);
+        verify(channel, never()).writeAndFlush(any());
+        callbacksCaptor.getValue().get(1).onSuccess(null);
+        verify(channel, times(1)).writeAndFlush(any());
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void givenRateLimitedDevice_whenOnDeviceTelemetryJson_thenQuotaExceededIsAckedOnce() throws Exception {
+        // Given
+        setDevices("device1", "device2");
+        lenient().when(deviceSessionCtx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
+        MqttTransportAdaptor adaptor = mock(MqttTransportAdaptor.class);
+        lenient().when(deviceSessionCtx.getPayloadAdaptor()).thenReturn(adaptor);
+        String payload = "{\"device1\": [{\"temperature\": 42}], \"device2\": [{\"humidity\": 73}]}";
+
+        // When
+        handler.onDeviceTelemetryJson(1, Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> callbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(any(List.class), callbacksCaptor.capture());
+        callbacksCaptor.getValue().get(0).onSuccess(null);
+        callbacksCaptor.getValue().get(1).onError(new TbRateLimitsException(EntityType.DEVICE));
+
+        // Then
+        int rateLimitedCode = MqttReasonCodes.Disconnect.MESSAGE_RATE_TOO_HIGH.byteValue() & 0xFF;
+        verify(adaptor).convertToGatewayDeviceDisconnectPublish(deviceSessionCtx, "device2", rateLimitedCode);
+        verify(adaptor, never()).convertToGatewayDeviceDisconnectPublish(eq(deviceSessionCtx), eq("device1"), anyInt());
+        assertThat(getAckReasonCode()).isEqualTo(MqttReasonCodes.PubAck.QUOTA_EXCEEDED.byteValue());
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void givenFailedDeviceAndMqtt3_whenOnDeviceTelemetryJson_thenPublishIsAckedOnceWithoutClosingTheChannel() throws Exception {
+        // Given
+        setDevices("device1", "device2", "device3");
+        lenient().when(deviceSessionCtx.getMqttVersion()).thenReturn(MqttVersion.MQTT_3_1_1);
+        String payload = "{\"device1\": [{\"temperature\": 42}], \"device2\": [{\"humidity\": 73}], \"device3\": [{\"pressure\": 1}]}";
+
+        // When
+        handler.onDeviceTelemetryJson(1, Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> callbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(any(List.class), callbacksCaptor.capture());
+        callbacksCaptor.getValue().get(0).onError(new RuntimeException("Failed to push"));
+        callbacksCaptor.getValue().get(1).onError(new RuntimeException("Failed to push"));
+        verify(channel, never()).writeAndFlush(any());
+        callbacksCaptor.getValue().get(2).onSuccess(null);
+
+        // Then
+        verify(channel, times(1)).writeAndFlush(any());
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void givenDeviceResolutionInProgress_whenOnDeviceTelemetryJson_thenResolvedDevicesArePushedWithoutWaiting() throws Exception {
+        // Given
+        setDevices("device2");
+        lenient().when(transportContext.getExecutor()).thenReturn(MoreExecutors.newDirectExecutorService());
+        handler.onDeviceConnect("device1", "default"); // resolution is in progress
+        ArgumentCaptor<TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>>> resolutionCallbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService).process(any(), any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), resolutionCallbackCaptor.capture());
+        String payload = "{\"device1\": [{\"temperature\": 42}], \"device2\": [{\"humidity\": 73}]}";
+
+        // When
+        handler.onDeviceTelemetryJson(1, Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        ArgumentCaptor<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>> msgsCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> callbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(msgsCaptor.capture(), callbacksCaptor.capture());
+        assertThat(msgsCaptor.getValue()).extracting(msg -> msg.getFirst().getDeviceName()).containsExactly("device2");
+        callbacksCaptor.getValue().get(0).onSuccess(null);
+        verify(channel, never()).writeAndFlush(any());
+
+        resolutionCallbackCaptor.getValue().onSuccess(List.of(GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(newDeviceInfo("device1")).build()));
+        ArgumentCaptor<TransportProtos.SessionInfoProto> sessionCaptor = ArgumentCaptor.forClass(TransportProtos.SessionInfoProto.class);
+        ArgumentCaptor<TransportServiceCallback<Void>> deviceCallbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService).process(sessionCaptor.capture(), any(TransportProtos.PostTelemetryMsg.class), deviceCallbackCaptor.capture());
+        assertThat(sessionCaptor.getValue().getDeviceName()).isEqualTo("device1");
+        deviceCallbackCaptor.getValue().onSuccess(null);
+        assertThat(getAckReasonCode()).isEqualTo(MqttReasonCodes.PubAck.SUCCESS.byteValue());
+    }
+
+    @Test
+    public void givenUnresolvedDevice_whenOnDeviceTelemetryJson_thenOtherDevicesArePushedWithoutSuccessAck() throws Exception {
+        // Given
+        setDevices("device1");
+        lenient().when(deviceSessionCtx.getMqttVersion()).thenReturn(MqttVersion.MQTT_5);
+        lenient().when(transportContext.getExecutor()).thenReturn(MoreExecutors.newDirectExecutorService());
+        handler.onDeviceConnect("device2", "default"); // resolution is in progress
+        ArgumentCaptor<TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>>> resolutionCallbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService).process(any(), any(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class), resolutionCallbackCaptor.capture());
+        String payload = "{\"device1\": [{\"temperature\": 42}], \"device2\": [{\"humidity\": 73}]}";
+
+        // When
+        handler.onDeviceTelemetryJson(1, Unpooled.wrappedBuffer(payload.getBytes(StandardCharsets.UTF_8)));
+        resolutionCallbackCaptor.getValue().onError(new RuntimeException("Failed to resolve device"));
+        ArgumentCaptor<List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>>> msgsCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<TransportServiceCallback<Void>>> callbacksCaptor = ArgumentCaptor.forClass(List.class);
+        verify(transportService).process(msgsCaptor.capture(), callbacksCaptor.capture());
+        callbacksCaptor.getValue().get(0).onSuccess(null);
+
+        // Then
+        assertThat(msgsCaptor.getValue()).hasSize(1);
+        assertThat(msgsCaptor.getValue().get(0).getFirst().getDeviceName()).isEqualTo("device1");
+        assertThat(getAckReasonCode()).isEqualTo(MqttReasonCodes.PubAck.UNSPECIFIED_ERROR.byteValue());
+        verify(channel, never()).close();
+    }
+
+    private byte getAckReasonCode() {
+        ArgumentCaptor<MqttMessage> ackCaptor = ArgumentCaptor.forClass(MqttMessage.class);
+        verify(channel, times(1)).writeAndFlush(ackCaptor.capture());
+        return ((MqttPubReplyMessageVariableHeader) ackCaptor.getValue().variableHeader()).reasonCode();
+    }
+
+    private void setDevices(String... deviceNames) throws Exception {
+        ConcurrentHashMap<String, GatewayDeviceSessionContext> devices = new ConcurrentHashMap<>();
+        for (String deviceName : deviceNames) {
+            devices.put(deviceName, new GatewayDeviceSessionContext(handler, newDeviceInfo(deviceName), null, null, transportService));
+        }
+        Field devicesField = AbstractGatewaySessionHandler.class.getDeclaredField("devices");
+        devicesField.setAccessible(true);
+        devicesField.set(handler, devices);
+    }
+
+    private static TransportDeviceInfo newDeviceInfo(String deviceName) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setTenantId(new TenantId(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceName(deviceName);
+        deviceInfo.setDeviceType("default");
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        return deviceInfo;
+    }
+
+    @Test
+    public void givenDeviceResolutionInProgress_whenOtherDevicesConnect_thenTheyAreQueuedAndResolvedWithSingleBatch() {
+        // Given
+        ArgumentCaptor<TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg> requestCaptor = ArgumentCaptor.forClass(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.class);
+        ArgumentCaptor<TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>>> callbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        var device1Future = handler.onDeviceConnect("device1", "default");
+
+        // When
+        var device2Future = handler.onDeviceConnect("device2", "default");
+        var device3Future = handler.onDeviceConnect("device3", "default");
+
+        // Then
+        assertThat(handler.onDeviceConnect("device2", "default")).isSameAs(device2Future);
+        verify(transportService, times(1)).process(any(), requestCaptor.capture(), callbackCaptor.capture());
+        assertThat(requestCaptor.getValue().getDevicesList()).extracting(TransportProtos.GatewayDeviceNameTypeProto::getDeviceName).containsExactly("device1");
+
+        callbackCaptor.getValue().onSuccess(List.of(GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(newDeviceInfo("device1")).build()));
+
+        assertThat(device1Future).succeedsWithin(1, TimeUnit.SECONDS);
+        verify(transportService, times(2)).process(any(), requestCaptor.capture(), callbackCaptor.capture());
+        assertThat(requestCaptor.getValue().getDevicesList()).extracting(TransportProtos.GatewayDeviceNameTypeProto::getDeviceName).containsExactly("device2", "device3");
+
+        callbackCaptor.getValue().onSuccess(List.of(
+                GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(newDeviceInfo("device2")).build(),
+                GetOrCreateDeviceFromGatewayResponse.builder().error(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED).build()));
 
-        assertThat(gsh.createWeakMap()).isInstanceOf(ConcurrentReferenceHashMap.class);
+        assertThat(device2Future).succeedsWithin(1, TimeUnit.SECONDS);
+        assertThat(device3Future).failsWithin(1, TimeUnit.SECONDS);
+        assertThat(handler.onDeviceConnect("device1", "default")).isDone();
     }
 
 }
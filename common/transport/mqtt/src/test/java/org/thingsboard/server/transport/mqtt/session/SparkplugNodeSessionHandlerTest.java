@@ -0,0 +1,162 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.mqtt.session;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
+import org.thingsboard.server.common.data.device.profile.MqttDeviceProfileTransportConfiguration;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.gen.transport.mqtt.SparkplugBProto;
+import org.thingsboard.server.transport.mqtt.MqttTransportContext;
+import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
+import org.thingsboard.server.transport.mqtt.util.sparkplug.MetricDataType;
+import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugMessageType;
+import org.thingsboard.server.transport.mqtt.util.sparkplug.SparkplugTopic;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class SparkplugNodeSessionHandlerTest {
+
+    private static final String NODE_NAME = "node1";
+
+    @Mock
+    private TransportService transportService;
+
+    @Mock
+    private DeviceSessionCtx deviceSessionCtx;
+
+    @Mock
+    private MqttTransportContext transportContext;
+
+    @Mock
+    private MqttTransportHandler parent;
+
+    private MqttDeviceProfileTransportConfiguration transportConfiguration;
+    private SparkplugNodeSessionHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        lenient().when(transportContext.getTransportService()).thenReturn(transportService);
+        lenient().when(deviceSessionCtx.getContext()).thenReturn(transportContext);
+        lenient().when(deviceSessionCtx.getSessionInfo()).thenReturn(TransportProtos.SessionInfoProto.getDefaultInstance());
+
+        var deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        lenient().when(deviceSessionCtx.getDeviceInfo()).thenReturn(deviceInfo);
+
+        transportConfiguration = new MqttDeviceProfileTransportConfiguration();
+        transportConfiguration.setSparkplug(true);
+        DeviceProfileData profileData = new DeviceProfileData();
+        profileData.setTransportConfiguration(transportConfiguration);
+        DeviceProfile deviceProfile = new DeviceProfile();
+        deviceProfile.setProfileData(profileData);
+        lenient().when(deviceSessionCtx.getDeviceProfile()).thenReturn(deviceProfile);
+
+        handler = new SparkplugNodeSessionHandler(parent, deviceSessionCtx, UUID.randomUUID(), true,
+                new SparkplugTopic("spBv1.0", "group1", NODE_NAME, SparkplugMessageType.NBIRTH));
+    }
+
+    @Test
+    public void givenAliasOnlyMetrics_whenOnNodeData_thenMetricsAreResolvedFromBirthAndPushedAsSingleMessage() throws Exception {
+        // Given
+        handler.onAttributesTelemetryProto(1, SparkplugBProto.Payload.newBuilder()
+                .setTimestamp(1000)
+                .addMetrics(birthMetric("temperature", 1, MetricDataType.Double))
+                .addMetrics(birthMetric("counter", 2, MetricDataType.Int64))
+                .build(), nodeTopic(SparkplugMessageType.NBIRTH));
+
+        // When
+        handler.onAttributesTelemetryProto(2, SparkplugBProto.Payload.newBuilder()
+                .setTimestamp(2000)
+                .addMetrics(SparkplugBProto.Payload.Metric.newBuilder().setAlias(1).setDoubleValue(42.0))
+                .addMetrics(SparkplugBProto.Payload.Metric.newBuilder().setAlias(2).setLongValue(7))
+                .build(), nodeTopic(SparkplugMessageType.NDATA));
+
+        // Then
+        List<TransportProtos.PostTelemetryMsg> msgs = captureTelemetry();
+        TransportProtos.PostTelemetryMsg dataMsg = msgs.get(msgs.size() - 1);
+        assertThat(dataMsg.getTsKvListCount()).isEqualTo(1);
+        TransportProtos.TsKvListProto tsKvList = dataMsg.getTsKvList(0);
+        assertThat(tsKvList.getTs()).isEqualTo(2000);
+        assertThat(tsKvList.getKvList()).extracting(TransportProtos.KeyValueProto::getKey).containsExactly("temperature", "counter");
+        assertThat(tsKvList.getKv(1).getLongV()).isEqualTo(7);
+    }
+
+    @Test
+    public void givenAliasOnlyAttributeMetric_whenOnNodeData_thenAttributeNameIsResolvedFromBirth() throws Exception {
+        // Given
+        transportConfiguration.setSparkplugAttributesMetricNames(Set.of("Properties/*"));
+        handler.onAttributesTelemetryProto(1, SparkplugBProto.Payload.newBuilder()
+                .setTimestamp(1000)
+                .addMetrics(birthMetric("Properties/Version", 3, MetricDataType.String))
+                .build(), nodeTopic(SparkplugMessageType.NBIRTH));
+
+        // When
+        handler.onAttributesTelemetryProto(2, SparkplugBProto.Payload.newBuilder()
+                .setTimestamp(2000)
+                .addMetrics(SparkplugBProto.Payload.Metric.newBuilder().setAlias(3).setStringValue("1.2"))
+                .build(), nodeTopic(SparkplugMessageType.NDATA));
+
+        // Then
+        ArgumentCaptor<TransportProtos.PostAttributeMsg> attributesCaptor = ArgumentCaptor.forClass(TransportProtos.PostAttributeMsg.class);
+        verify(transportService, atLeastOnce()).process(any(TransportProtos.SessionInfoProto.class), attributesCaptor.capture(), any(TransportServiceCallback.class));
+        TransportProtos.PostAttributeMsg attributesMsg = attributesCaptor.getValue();
+        assertThat(attributesMsg.getKvList()).extracting(TransportProtos.KeyValueProto::getKey).containsExactly("Properties/Version");
+        assertThat(attributesMsg.getKv(0).getStringV()).isEqualTo("1.2");
+    }
+
+    private List<TransportProtos.PostTelemetryMsg> captureTelemetry() {
+        ArgumentCaptor<TransportProtos.PostTelemetryMsg> telemetryCaptor = ArgumentCaptor.forClass(TransportProtos.PostTelemetryMsg.class);
+        verify(transportService, atLeastOnce()).process(any(TransportProtos.SessionInfoProto.class), telemetryCaptor.capture(), any(TransportServiceCallback.class));
+        return telemetryCaptor.getAllValues();
+    }
+
+    private static SparkplugTopic nodeTopic(SparkplugMessageType type) {
+        return new SparkplugTopic("spBv1.0", "group1", NODE_NAME, type);
+    }
+
+    private static SparkplugBProto.Payload.Metric birthMetric(String name, long alias, MetricDataType dataType) {
+        SparkplugBProto.Payload.Metric.Builder metric = SparkplugBProto.Payload.Metric.newBuilder()
+                .setName(name)
+                .setAlias(alias)
+                .setDatatype(dataType.toIntValue());
+        switch (dataType) {
+            case Double -> metric.setDoubleValue(0.0);
+            case Int64 -> metric.setLongValue(0);
+            default -> metric.setStringValue("");
+        }
+        return metric.build();
+    }
+}
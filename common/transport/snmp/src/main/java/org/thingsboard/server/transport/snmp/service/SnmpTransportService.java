@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.Builder;
@@ -60,11 +61,15 @@ import org.thingsboard.server.common.data.transport.snmp.SnmpMapping;
 import org.thingsboard.server.common.data.transport.snmp.SnmpMethod;
 import org.thingsboard.server.common.data.transport.snmp.config.RepeatingQueryingSnmpCommunicationConfig;
 import org.thingsboard.server.common.data.transport.snmp.config.SnmpCommunicationConfig;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.common.transport.TransportService;
 import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.queue.util.TbSnmpTransportComponent;
 import org.thingsboard.server.transport.snmp.SnmpTransportContext;
 import org.thingsboard.server.transport.snmp.session.DeviceSessionContext;
+import org.thingsboard.server.transport.snmp.session.PollingScheduler;
 import org.thingsboard.server.transport.snmp.session.ScheduledTask;
 
 import java.io.IOException;
@@ -74,10 +79,12 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @TbSnmpTransportComponent
@@ -88,6 +95,7 @@ import java.util.stream.Collectors;
 public class SnmpTransportService implements TbTransportService, CommandResponder {
     private final TransportService transportService;
     private final PduService pduService;
+    private final StatsFactory statsFactory;
     @Autowired @Lazy
     private SnmpTransportContext transportContext;
 
@@ -95,6 +103,11 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
     private Snmp snmp;
     private ListeningScheduledExecutorService scheduler;
     private ExecutorService executor;
+    private PollingScheduler pollingScheduler;
+
+    private Timer pollLatencyTimer;
+    private DefaultCounter pollTimeoutsCounter;
+    private DefaultCounter skippedPollsCounter;
 
     private final Map<SnmpCommunicationSpec, ResponseDataMapper> responseDataMappers = new EnumMap<>(SnmpCommunicationSpec.class);
     private final Map<SnmpCommunicationSpec, ResponseProcessor> responseProcessors = new EnumMap<>(SnmpCommunicationSpec.class);
@@ -109,11 +122,22 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
     private String snmpUnderlyingProtocol;
     @Value("${transport.snmp.request_chunk_delay_ms:100}")
     private int requestChunkDelayMs;
+    @Value("${transport.snmp.polling.tick_ms:10}")
+    private long pollingTickMs;
+    @Value("${transport.snmp.polling.wheel_size:512}")
+    private int pollingWheelSize;
+    @Value("${transport.snmp.polling.max_in_flight_per_target:2}")
+    private int maxInFlightPollsPerTarget;
 
     @PostConstruct
     private void init() throws IOException {
         scheduler = MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(schedulerThreadPoolSize, ThingsBoardThreadFactory.forName("snmp-querying")));
         executor = ThingsBoardExecutors.newWorkStealingPool(responseProcessingThreadPoolSize, "snmp-response-processing");
+        pollingScheduler = new PollingScheduler(pollingTickMs, pollingWheelSize, scheduler,
+                statsFactory.createTimer(StatsType.TRANSPORT.getName() + ".snmpPollScheduleDrift"));
+        pollLatencyTimer = statsFactory.createTimer(StatsType.TRANSPORT.getName() + ".snmpPollLatency");
+        pollTimeoutsCounter = statsFactory.createDefaultCounter(StatsType.TRANSPORT.getName() + ".snmpPollTimeouts");
+        skippedPollsCounter = statsFactory.createDefaultCounter(StatsType.TRANSPORT.getName() + ".snmpSkippedPolls");
 
         initializeSnmp();
         configureResponseDataMappers();
@@ -124,6 +148,9 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
 
     @PreDestroy
     public void stop() {
+        if (pollingScheduler != null) {
+            pollingScheduler.stop();
+        }
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
@@ -158,20 +185,11 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
                 .filter(communicationConfig -> communicationConfig instanceof RepeatingQueryingSnmpCommunicationConfig)
                 .forEach(config -> {
                     RepeatingQueryingSnmpCommunicationConfig repeatingCommunicationConfig = (RepeatingQueryingSnmpCommunicationConfig) config;
-                    Long queryingFrequency = repeatingCommunicationConfig.getQueryingFrequencyMs();
-
-                    ScheduledTask scheduledTask = new ScheduledTask();
-                    scheduledTask.init(() -> {
-                        try {
-                            if (sessionContext.isActive()) {
-                                return sendRequest(sessionContext, repeatingCommunicationConfig);
-                            }
-                        } catch (Exception e) {
-                            log.error("Failed to send SNMP request for device {}: {}", sessionContext.getDeviceId(), e.toString());
-                            transportService.errorEvent(sessionContext.getTenantId(), sessionContext.getDeviceId(), config.getSpec().getLabel(), e);
-                        }
-                        return Futures.immediateVoidFuture();
-                    }, queryingFrequency, scheduler);
+                    long queryingFrequency = Math.max(repeatingCommunicationConfig.getQueryingFrequencyMs(), pollingTickMs);
+                    // spreading the first polls of all devices evenly across the querying period
+                    long initialDelay = Math.floorMod(Objects.hash(sessionContext.getDeviceId(), config.getSpec()), queryingFrequency);
+
+                    ScheduledTask scheduledTask = pollingScheduler.schedule(() -> poll(sessionContext, repeatingCommunicationConfig), queryingFrequency, initialDelay);
                     sessionContext.getQueryingTasks().add(scheduledTask);
                 });
     }
@@ -181,18 +199,44 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
         sessionContext.getQueryingTasks().clear();
     }
 
-
-    private ListenableFuture<Void> sendRequest(DeviceSessionContext sessionContext, SnmpCommunicationConfig communicationConfig) {
-        return sendRequest(sessionContext, communicationConfig, Collections.emptyMap());
+    private void poll(DeviceSessionContext sessionContext, SnmpCommunicationConfig communicationConfig) {
+        if (!sessionContext.isActive()) {
+            return;
+        }
+        AtomicInteger pollsInFlight = sessionContext.getPollsInFlight();
+        if (pollsInFlight.incrementAndGet() > maxInFlightPollsPerTarget) {
+            pollsInFlight.decrementAndGet();
+            skippedPollsCounter.increment();
+            log.debug("[{}] Skipping {} as {} previous polls are awaiting response", sessionContext.getDeviceId(), communicationConfig.getSpec(), maxInFlightPollsPerTarget);
+            return;
+        }
+        try {
+            sendRequest(sessionContext, communicationConfig, Collections.emptyMap(), true);
+        } catch (Exception e) {
+            pollsInFlight.decrementAndGet();
+            log.error("Failed to send SNMP request for device {}: {}", sessionContext.getDeviceId(), e.toString());
+            transportService.errorEvent(sessionContext.getTenantId(), sessionContext.getDeviceId(), communicationConfig.getSpec().getLabel(), e);
+        }
     }
 
     private ListenableFuture<Void> sendRequest(DeviceSessionContext sessionContext, SnmpCommunicationConfig communicationConfig, Map<String, String> values) {
+        return sendRequest(sessionContext, communicationConfig, values, false);
+    }
+
+    private ListenableFuture<Void> sendRequest(DeviceSessionContext sessionContext, SnmpCommunicationConfig communicationConfig, Map<String, String> values, boolean poll) {
         List<PDU> request = pduService.createPdus(sessionContext, communicationConfig, values);
+        if (request.isEmpty()) {
+            if (poll) {
+                sessionContext.getPollsInFlight().decrementAndGet();
+            }
+            return Futures.immediateVoidFuture();
+        }
         RequestContext requestContext = RequestContext.builder()
                 .communicationSpec(communicationConfig.getSpec())
                 .method(communicationConfig.getMethod())
                 .responseMappings(communicationConfig.getAllMappings())
                 .requestSize(request.size())
+                .poll(poll)
                 .build();
         return sendRequest(sessionContext, request, requestContext);
     }
@@ -214,6 +258,17 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
                 ListenableScheduledFuture<?> future = scheduler.schedule(() -> {
                     sendPdu(pdu, requestContext, sessionContext);
                 }, delay, TimeUnit.MILLISECONDS);
+                // the session cancels chunks that are not sent yet when it is closed
+                sessionContext.getPendingRequestChunks().add(future);
+                future.addListener(() -> {
+                    sessionContext.getPendingRequestChunks().remove(future);
+                    if (future.isCancelled()) {
+                        onRequestPartDone(sessionContext, requestContext, false);
+                    }
+                }, MoreExecutors.directExecutor());
+                if (!sessionContext.isActive()) {
+                    future.cancel(false);
+                }
                 futures.add(future);
             }
         }
@@ -225,6 +280,7 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
         try {
             snmp.send(pdu, sessionContext.getTarget(), requestContext, sessionContext);
         } catch (Exception e) {
+            onRequestPartDone(sessionContext, requestContext, false);
             log.error("[{}] Failed to send SNMP request", sessionContext.getDeviceId(), e);
             transportService.errorEvent(sessionContext.getTenantId(), sessionContext.getDeviceId(), requestContext.getCommunicationSpec().getLabel(), e);
         }
@@ -282,6 +338,7 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
     public void processResponseEvent(DeviceSessionContext sessionContext, ResponseEvent event) {
         ((Snmp) event.getSource()).cancel(event.getRequest(), sessionContext);
         RequestContext requestContext = (RequestContext) event.getUserObject();
+        onRequestPartDone(sessionContext, requestContext, event.getError() == null && event.getResponse() == null);
         if (event.getError() != null) {
             log.warn("[{}] SNMP response error: {}", sessionContext.getDeviceId(), event.getError().toString());
             transportService.errorEvent(sessionContext.getTenantId(), sessionContext.getDeviceId(), requestContext.getCommunicationSpec().getLabel(), new RuntimeException(event.getError()));
@@ -327,6 +384,19 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
         });
     }
 
+    private void onRequestPartDone(DeviceSessionContext sessionContext, RequestContext requestContext, boolean timedOut) {
+        if (!requestContext.isPoll()) {
+            return;
+        }
+        if (timedOut) {
+            pollTimeoutsCounter.increment();
+        }
+        if (requestContext.getPendingParts().decrementAndGet() == 0) {
+            pollLatencyTimer.record(System.currentTimeMillis() - requestContext.getStartTs(), TimeUnit.MILLISECONDS);
+            sessionContext.getPollsInFlight().decrementAndGet();
+        }
+    }
+
     /*
      * SNMP notifications handler
      *
@@ -465,6 +535,9 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
     @PreDestroy
     public void shutdown() {
         log.info("Stopping SNMP transport!");
+        if (pollingScheduler != null) {
+            pollingScheduler.stop();
+        }
         if (scheduler != null) {
             scheduler.shutdownNow();
         }
@@ -491,13 +564,20 @@ public class SnmpTransportService implements TbTransportService, CommandResponde
         private final int requestSize;
         private List<PDU> responseParts;
 
+        private final boolean poll;
+        private final long startTs;
+        private final AtomicInteger pendingParts;
+
         @Builder
-        public RequestContext(Integer requestId, SnmpCommunicationSpec communicationSpec, SnmpMethod method, List<SnmpMapping> responseMappings, int requestSize) {
+        public RequestContext(Integer requestId, SnmpCommunicationSpec communicationSpec, SnmpMethod method, List<SnmpMapping> responseMappings, int requestSize, boolean poll) {
             this.requestId = requestId;
             this.communicationSpec = communicationSpec;
             this.method = method;
             this.responseMappings = responseMappings;
             this.requestSize = requestSize;
+            this.poll = poll;
+            this.startTs = System.currentTimeMillis();
+            this.pendingParts = new AtomicInteger(requestSize);
             if (requestSize > 1) {
                 this.responseParts = Collections.synchronizedList(new ArrayList<>());
             }
@@ -44,7 +44,10 @@ import org.thingsboard.server.transport.snmp.SnmpTransportContext;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
@@ -68,12 +71,16 @@ public class DeviceSessionContext extends DeviceAwareSessionContext implements S
 
     private final AtomicInteger msgIdSeq = new AtomicInteger(0);
     @Getter
-    private boolean isActive = true;
+    private volatile boolean isActive = true;
     @Setter
     private Runnable sessionTimeoutHandler;
 
     @Getter
     private final List<ScheduledTask> queryingTasks = new LinkedList<>();
+    @Getter
+    private final AtomicInteger pollsInFlight = new AtomicInteger();
+    @Getter
+    private final Set<Future<?>> pendingRequestChunks = ConcurrentHashMap.newKeySet();
 
     @Builder
     public DeviceSessionContext(TenantId tenantId, Device device, DeviceProfile deviceProfile, String token,
@@ -123,6 +130,7 @@ public class DeviceSessionContext extends DeviceAwareSessionContext implements S
 
     public void close() {
         isActive = false;
+        pendingRequestChunks.forEach(chunk -> chunk.cancel(false));
     }
 
     public String getToken() {
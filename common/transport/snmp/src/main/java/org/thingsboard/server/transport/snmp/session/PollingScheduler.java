@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.snmp.session;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Hashed timing wheel for periodic device polling.
+ * A single thread advances the wheel every tick and hands expired tasks to the executor,
+ * so the cost of scheduling does not depend on the number of polled devices.
+ * Tasks keep a fixed-rate deadline; the difference between the deadline and the actual start is reported as drift.
+ * */
+@Slf4j
+public class PollingScheduler {
+
+    private final long tickMs;
+    private final List<Queue<ScheduledTask>> wheel;
+    private final Queue<ScheduledTask> newTasks = new ConcurrentLinkedQueue<>();
+    private final Executor executor;
+    private final Timer driftTimer;
+    private final ScheduledExecutorService ticker;
+    private final long startTs;
+    private long currentTick;
+
+    public PollingScheduler(long tickMs, int wheelSize, Executor executor, Timer driftTimer) {
+        this.tickMs = tickMs;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.executor = executor;
+        this.driftTimer = driftTimer;
+        this.startTs = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("snmp-polling-scheduler"));
+        this.ticker.scheduleAtFixedRate(this::onTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public ScheduledTask schedule(Runnable task, long periodMs, long initialDelayMs) {
+        ScheduledTask scheduledTask = new ScheduledTask(task, periodMs, System.currentTimeMillis() + initialDelayMs);
+        newTasks.add(scheduledTask);
+        return scheduledTask;
+    }
+
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void onTick() {
+        try {
+            long now = System.currentTimeMillis();
+            ScheduledTask newTask;
+            while ((newTask = newTasks.poll()) != null) {
+                place(newTask, currentTick);
+            }
+            long targetTick = (now - startTs) / tickMs;
+            while (currentTick <= targetTick) {
+                expire(currentTick, now);
+                currentTick++;
+            }
+        } catch (Throwable t) {
+            log.error("Failed to process polling scheduler tick", t);
+        }
+    }
+
+    private void expire(long tick, long now) {
+        Queue<ScheduledTask> bucket = wheel.get((int) (tick % wheel.size()));
+        for (int i = bucket.size(); i > 0; i--) {
+            ScheduledTask task = bucket.poll();
+            if (task.isStopped()) {
+                continue;
+            }
+            if (task.rounds > 0) {
+                task.rounds--;
+                bucket.add(task);
+                continue;
+            }
+            driftTimer.record(now - task.deadline, TimeUnit.MILLISECONDS);
+            try {
+                executor.execute(task.getTask());
+            } catch (Exception e) {
+                log.warn("Failed to submit polling task", e);
+            }
+            task.deadline += task.getPeriodMs();
+            if (task.deadline <= now) {
+                // skipping the missed polls instead of running them in a burst
+                task.deadline = now + task.getPeriodMs();
+            }
+            place(task, tick + 1);
+        }
+    }
+
+    private void place(ScheduledTask task, long fromTick) {
+        long deadlineTick = Math.max(fromTick, (task.deadline - startTs + tickMs - 1) / tickMs);
+        task.rounds = (deadlineTick - fromTick) / wheel.size();
+        wheel.get((int) (deadlineTick % wheel.size())).add(task);
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.transport.snmp.service;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.snmp4j.PDU;
+import org.snmp4j.Snmp;
+import org.snmp4j.Target;
+import org.snmp4j.event.ResponseEvent;
+import org.snmp4j.event.ResponseListener;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.transport.snmp.SnmpCommunicationSpec;
+import org.thingsboard.server.common.data.transport.snmp.SnmpMethod;
+import org.thingsboard.server.common.data.transport.snmp.config.SnmpCommunicationConfig;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.transport.snmp.SnmpTransportContext;
+import org.thingsboard.server.transport.snmp.session.DeviceSessionContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SnmpTransportServiceTest {
+
+    private PduService pduService;
+    private Snmp snmp;
+    private Target<?> target;
+    private Timer pollLatencyTimer;
+    private DefaultCounter skippedPollsCounter;
+    private ScheduledExecutorService scheduler;
+    private SnmpCommunicationConfig communicationConfig;
+    private DeviceSessionContext sessionContext;
+    private SnmpTransportService snmpTransportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pduService = mock(PduService.class);
+        snmp = mock(Snmp.class);
+        target = mock(Target.class);
+        pollLatencyTimer = mock(Timer.class);
+        skippedPollsCounter = mock(DefaultCounter.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        snmpTransportService = new SnmpTransportService(mock(TransportService.class), pduService, mock(StatsFactory.class));
+        ReflectionTestUtils.setField(snmpTransportService, "snmp", snmp);
+        ReflectionTestUtils.setField(snmpTransportService, "scheduler", MoreExecutors.listeningDecorator(scheduler));
+        ReflectionTestUtils.setField(snmpTransportService, "executor", MoreExecutors.newDirectExecutorService());
+        ReflectionTestUtils.setField(snmpTransportService, "pollLatencyTimer", pollLatencyTimer);
+        ReflectionTestUtils.setField(snmpTransportService, "pollTimeoutsCounter", mock(DefaultCounter.class));
+        ReflectionTestUtils.setField(snmpTransportService, "skippedPollsCounter", skippedPollsCounter);
+        ReflectionTestUtils.setField(snmpTransportService, "maxInFlightPollsPerTarget", 2);
+        ReflectionTestUtils.setField(snmpTransportService, "requestChunkDelayMs", 10);
+
+        communicationConfig = mock(SnmpCommunicationConfig.class);
+        when(communicationConfig.getSpec()).thenReturn(SnmpCommunicationSpec.TELEMETRY_QUERYING);
+        when(communicationConfig.getMethod()).thenReturn(SnmpMethod.GET);
+        when(communicationConfig.getAllMappings()).thenReturn(Collections.emptyList());
+
+        var snmpAuthService = mock(SnmpAuthService.class);
+        when(snmpAuthService.setUpSnmpTarget(any(), any())).thenReturn((Target) target);
+        var snmpTransportContext = mock(SnmpTransportContext.class);
+        when(snmpTransportContext.getSnmpAuthService()).thenReturn(snmpAuthService);
+        when(snmpTransportContext.getSnmpTransportService()).thenReturn(snmpTransportService);
+        sessionContext = DeviceSessionContext.builder()
+                .tenantId(TenantId.fromUUID(UUID.randomUUID()))
+                .device(new Device(new DeviceId(UUID.randomUUID())))
+                .snmpTransportContext(snmpTransportContext)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void givenMaxPollsInFlight_whenPoll_thenPollIsSkippedUntilResponse() throws Exception {
+        mockRequestChunks(1);
+
+        poll();
+        poll();
+        poll();
+
+        verify(snmp, times(2)).send(any(PDU.class), any(Target.class), any(), any(ResponseListener.class));
+        verify(skippedPollsCounter).increment();
+        assertThat(sessionContext.getPollsInFlight()).hasValue(2);
+
+        respond(sentRequestContexts().get(0));
+        assertThat(sessionContext.getPollsInFlight()).hasValue(1);
+
+        poll();
+        verify(snmp, times(3)).send(any(PDU.class), any(Target.class), any(), any(ResponseListener.class));
+        assertThat(sessionContext.getPollsInFlight()).hasValue(2);
+    }
+
+    @Test
+    void givenChunkedPoll_whenAllChunksAnswered_thenPollIsCompleted() throws Exception {
+        mockRequestChunks(3);
+
+        poll();
+
+        verify(snmp, timeout(5000).times(3)).send(any(PDU.class), any(Target.class), any(), any(ResponseListener.class));
+        List<Object> requestContexts = sentRequestContexts();
+
+        respond(requestContexts.get(0));
+        respond(requestContexts.get(1));
+        assertThat(sessionContext.getPollsInFlight()).hasValue(1);
+        verify(pollLatencyTimer, never()).record(anyLong(), any(TimeUnit.class));
+
+        respond(requestContexts.get(2));
+        assertThat(sessionContext.getPollsInFlight()).hasValue(0);
+        verify(pollLatencyTimer).record(anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void givenChunksAwaitingDelay_whenSessionClosed_thenChunksAreNotSent() throws Exception {
+        ReflectionTestUtils.setField(snmpTransportService, "requestChunkDelayMs", 60000);
+        mockRequestChunks(3);
+
+        poll();
+        List<Future<?>> pendingChunks = List.copyOf(sessionContext.getPendingRequestChunks());
+        assertThat(pendingChunks).hasSize(2);
+
+        sessionContext.close();
+
+        assertThat(pendingChunks).allMatch(Future::isCancelled);
+        assertThat(sessionContext.getPendingRequestChunks()).isEmpty();
+        verify(snmp, times(1)).send(any(PDU.class), any(Target.class), any(), any(ResponseListener.class));
+    }
+
+    private void mockRequestChunks(int count) {
+        List<PDU> pdus = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pdus.add(new PDU());
+        }
+        when(pduService.createPdus(sessionContext, communicationConfig, Collections.emptyMap())).thenReturn(pdus);
+    }
+
+    private void poll() {
+        ReflectionTestUtils.invokeMethod(snmpTransportService, "poll", sessionContext, communicationConfig);
+    }
+
+    private List<Object> sentRequestContexts() throws Exception {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(snmp, atLeastOnce()).send(any(PDU.class), any(Target.class), captor.capture(), any(ResponseListener.class));
+        return captor.getAllValues();
+    }
+
+    private void respond(Object requestContext) {
+        ResponseEvent<?> event = mock(ResponseEvent.class);
+        when(event.getSource()).thenReturn(snmp);
+        when(event.getRequest()).thenReturn(new PDU());
+        when(event.getResponse()).thenReturn(new PDU());
+        when(event.getUserObject()).thenReturn(requestContext);
+        snmpTransportService.processResponseEvent(sessionContext, event);
+    }
+
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Token bucket state of all entities of one {@link TransportLimitsType}, stored in primitive arrays indexed by a dense slot id.
+ * Each slot holds one long per bandwidth of the regular message, telemetry message and telemetry data points limits.
+ * Limits with more than {@link #INLINE_BANDWIDTHS} bandwidths keep their state in a separate array per slot and limit.
+ * Slots of removed entities are reused. Checks are lock-free; the table lock is only taken to allocate or release a slot.
+ */
+public class CompactRateLimitTable {
+
+    static final int INLINE_BANDWIDTHS = 4;
+
+    private static final int REGULAR_MSG = 0;
+    private static final int TELEMETRY_MSG = 1;
+    private static final int TELEMETRY_DATA_POINTS = 2;
+    private static final int LIMITS_PER_SLOT = 3;
+    private static final int SLOT_WIDTH = LIMITS_PER_SLOT * INLINE_BANDWIDTHS;
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final TransportLimitsType limitsType;
+    private final long startNanos = System.nanoTime();
+    private final ConcurrentMap<UUID, Integer> slots = new ConcurrentHashMap<>();
+    @Getter
+    private final AtomicInteger size = new AtomicInteger();
+
+    private volatile Page[] pages = new Page[0];
+    private int[] freeSlots = new int[16];
+    private int freeSlotsCount;
+    private int nextSlot;
+
+    public CompactRateLimitTable(TransportLimitsType limitsType) {
+        this.limitsType = limitsType;
+    }
+
+    public boolean tryConsume(UUID entityId, TenantTransportRateLimits tenantLimits, int dataPoints) {
+        int slot = getOrAllocateSlot(entityId, tenantLimits);
+        Page page = pages[slot >>> PAGE_BITS];
+        int idx = slot & PAGE_MASK;
+        EntityTransportRateLimits limits = applyLimits(page, idx);
+        long now = System.nanoTime() - startNanos;
+        if (dataPoints > 0) {
+            return tryConsume(limits.getTelemetryMsgRateLimit(), page, idx, TELEMETRY_MSG, 1, now)
+                    && tryConsume(limits.getTelemetryDataPointsRateLimit(), page, idx, TELEMETRY_DATA_POINTS, dataPoints, now);
+        } else {
+            return tryConsume(limits.getRegularMsgRateLimit(), page, idx, REGULAR_MSG, 1, now);
+        }
+    }
+
+    public void remove(UUID entityId) {
+        synchronized (this) {
+            Integer slot = slots.remove(entityId);
+            if (slot != null) {
+                Page page = pages[slot >>> PAGE_BITS];
+                page.owners.set(slot & PAGE_MASK, null);
+                page.appliedLimits.set(slot & PAGE_MASK, null);
+                for (int limit = 0; limit < LIMITS_PER_SLOT; limit++) {
+                    page.overflowState.set((slot & PAGE_MASK) * LIMITS_PER_SLOT + limit, null);
+                }
+                if (freeSlotsCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+                }
+                freeSlots[freeSlotsCount++] = slot;
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    public boolean contains(UUID entityId) {
+        return slots.containsKey(entityId);
+    }
+
+    private static boolean tryConsume(TokenBucketLimit limit, Page page, int idx, int limitIdx, long tokens, long now) {
+        if (limit == null) {
+            return true;
+        }
+        int stateIdx = idx * LIMITS_PER_SLOT + limitIdx;
+        if (limit.size() <= INLINE_BANDWIDTHS) {
+            return limit.tryConsume(page.state, stateIdx * INLINE_BANDWIDTHS, tokens, now);
+        }
+        return limit.tryConsume(page.getOverflowState(stateIdx, limit.size()), 0, tokens, now);
+    }
+
+    private int getOrAllocateSlot(UUID entityId, TenantTransportRateLimits tenantLimits) {
+        Integer slot = slots.get(entityId);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (this) {
+            slot = slots.get(entityId);
+            if (slot == null) {
+                slot = allocateSlot(tenantLimits);
+                slots.put(entityId, slot);
+                size.incrementAndGet();
+            }
+            return slot;
+        }
+    }
+
+    private int allocateSlot(TenantTransportRateLimits tenantLimits) {
+        int slot;
+        if (freeSlotsCount > 0) {
+            slot = freeSlots[--freeSlotsCount];
+        } else {
+            slot = nextSlot++;
+            int pageIdx = slot >>> PAGE_BITS;
+            if (pageIdx == pages.length) {
+                Page[] newPages = Arrays.copyOf(pages, pageIdx + 1);
+                newPages[pageIdx] = new Page();
+                pages = newPages;
+            }
+        }
+        Page page = pages[slot >>> PAGE_BITS];
+        int idx = slot & PAGE_MASK;
+        for (int limit = 0; limit < LIMITS_PER_SLOT; limit++) {
+            reset(page, idx * LIMITS_PER_SLOT + limit);
+        }
+        page.appliedLimits.set(idx, tenantLimits.get(limitsType));
+        page.owners.set(idx, tenantLimits);
+        return slot;
+    }
+
+    /**
+     * Picks up the current limits of the owning tenant and resets the state of the limits that were changed since the last check,
+     * the same way the new limits used to replace only the changed buckets.
+     */
+    private EntityTransportRateLimits applyLimits(Page page, int idx) {
+        TenantTransportRateLimits owner = page.owners.get(idx);
+        EntityTransportRateLimits applied = page.appliedLimits.get(idx);
+        if (owner == null || applied == null) {
+            // slot was released concurrently
+            return EntityTransportRateLimits.UNLIMITED;
+        }
+        EntityTransportRateLimits current = owner.get(limitsType);
+        if (applied != current && page.appliedLimits.compareAndSet(idx, applied, current)) {
+            int stateIdx = idx * LIMITS_PER_SLOT;
+            if (!applied.sameRegularMsgRateLimit(current)) {
+                reset(page, stateIdx + REGULAR_MSG);
+            }
+            if (!applied.sameTelemetryMsgRateLimit(current)) {
+                reset(page, stateIdx + TELEMETRY_MSG);
+            }
+            if (!applied.sameTelemetryDataPointsRateLimit(current)) {
+                reset(page, stateIdx + TELEMETRY_DATA_POINTS);
+            }
+        }
+        return current;
+    }
+
+    private static void reset(Page page, int stateIdx) {
+        for (int i = stateIdx * INLINE_BANDWIDTHS; i < (stateIdx + 1) * INLINE_BANDWIDTHS; i++) {
+            page.state.set(i, 0);
+        }
+        page.overflowState.set(stateIdx, null);
+    }
+
+    private static class Page {
+        private final AtomicLongArray state = new AtomicLongArray(PAGE_SIZE * SLOT_WIDTH);
+        private final AtomicReferenceArray<AtomicLongArray> overflowState = new AtomicReferenceArray<>(PAGE_SIZE * LIMITS_PER_SLOT);
+        private final AtomicReferenceArray<TenantTransportRateLimits> owners = new AtomicReferenceArray<>(PAGE_SIZE);
+        private final AtomicReferenceArray<EntityTransportRateLimits> appliedLimits = new AtomicReferenceArray<>(PAGE_SIZE);
+
+        private AtomicLongArray getOverflowState(int stateIdx, int bandwidths) {
+            AtomicLongArray state = overflowState.get(stateIdx);
+            while (state == null || state.length() < bandwidths) {
+                AtomicLongArray newState = new AtomicLongArray(bandwidths);
+                if (overflowState.compareAndSet(stateIdx, state, newState)) {
+                    return newState;
+                }
+                state = overflowState.get(stateIdx);
+            }
+            return state;
+        }
+    }
+
+}
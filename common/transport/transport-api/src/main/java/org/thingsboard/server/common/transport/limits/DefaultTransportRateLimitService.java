@@ -15,18 +15,20 @@
  */
 package org.thingsboard.server.common.transport.limits;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.common.data.EntityType;
-import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.id.DeviceId;
-import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
 import org.thingsboard.server.common.data.tenant.profile.TenantProfileData;
 import org.thingsboard.server.common.data.util.TbPair;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.common.transport.TransportTenantProfileCache;
 import org.thingsboard.server.common.transport.profile.TenantProfileUpdateResult;
 import org.thingsboard.server.queue.util.TbTransportComponent;
@@ -34,11 +36,8 @@ import org.thingsboard.server.queue.util.TbTransportComponent;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.BiConsumer;
-import java.util.function.Function;
 
 import static org.thingsboard.server.common.transport.limits.TransportLimitsType.DEVICE_LIMITS;
 import static org.thingsboard.server.common.transport.limits.TransportLimitsType.GATEWAY_DEVICE_LIMITS;
@@ -50,18 +49,21 @@ import static org.thingsboard.server.common.transport.limits.TransportLimitsType
 @Slf4j
 public class DefaultTransportRateLimitService implements TransportRateLimitService {
 
-    private final static DummyTransportRateLimit ALLOW = new DummyTransportRateLimit();
+    private static final String RATE_LIMITS_STATS = StatsType.TRANSPORT.getName() + ".rateLimits";
+
     private final ConcurrentMap<TenantId, Boolean> tenantAllowed = new ConcurrentHashMap<>();
-    private final ConcurrentMap<TenantId, Set<DeviceId>> tenantDevices = new ConcurrentHashMap<>();
-    private final ConcurrentMap<TenantId, Set<DeviceId>> tenantGateways = new ConcurrentHashMap<>();
-    private final ConcurrentMap<TenantId, Set<DeviceId>> tenantGatewayDevices = new ConcurrentHashMap<>();
-    private final ConcurrentMap<TenantId, EntityTransportRateLimits> perTenantLimits = new ConcurrentHashMap<>();
-    private final ConcurrentMap<DeviceId, EntityTransportRateLimits> perDeviceLimits = new ConcurrentHashMap<>();
-    private final ConcurrentMap<DeviceId, EntityTransportRateLimits> perGatewayLimits = new ConcurrentHashMap<>();
-    private final ConcurrentMap<DeviceId, EntityTransportRateLimits> perGatewayDeviceLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, TenantTransportRateLimits> tenantLimits = new ConcurrentHashMap<>();
+    private final CompactRateLimitTable perTenantLimits = new CompactRateLimitTable(TENANT_LIMITS);
+    private final CompactRateLimitTable perDeviceLimits = new CompactRateLimitTable(DEVICE_LIMITS);
+    private final CompactRateLimitTable perGatewayLimits = new CompactRateLimitTable(GATEWAY_LIMITS);
+    private final CompactRateLimitTable perGatewayDeviceLimits = new CompactRateLimitTable(GATEWAY_DEVICE_LIMITS);
     private final Map<InetAddress, InetAddressRateLimitStats> ipMap = new ConcurrentHashMap<>();
+    private InetAddressFailureSketch ipFailureSketch;
 
     private final TransportTenantProfileCache tenantProfileCache;
+    private final DefaultCounter tenantRejectedCounter;
+    private final DefaultCounter gatewayRejectedCounter;
+    private final DefaultCounter deviceRejectedCounter;
 
     @Value("${transport.rate_limits.ip_limits_enabled:false}")
     private boolean ipRateLimitsEnabled;
@@ -69,9 +71,27 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     private int maxWrongCredentialsPerIp;
     @Value("${transport.rate_limits.ip_block_timeout:60000}")
     private long ipBlockTimeout;
+    @Value("${transport.rate_limits.ip_sketch_enabled:false}")
+    private boolean ipSketchEnabled;
+    @Value("${transport.rate_limits.ip_sketch_width:16384}")
+    private int ipSketchWidth;
 
-    public DefaultTransportRateLimitService(TransportTenantProfileCache tenantProfileCache) {
+    public DefaultTransportRateLimitService(TransportTenantProfileCache tenantProfileCache, StatsFactory statsFactory) {
         this.tenantProfileCache = tenantProfileCache;
+        statsFactory.createGauge(RATE_LIMITS_STATS + ".entities", perTenantLimits.getSize(), "type", "tenant");
+        statsFactory.createGauge(RATE_LIMITS_STATS + ".entities", perDeviceLimits.getSize(), "type", "device");
+        statsFactory.createGauge(RATE_LIMITS_STATS + ".entities", perGatewayLimits.getSize(), "type", "gateway");
+        statsFactory.createGauge(RATE_LIMITS_STATS + ".entities", perGatewayDeviceLimits.getSize(), "type", "gatewayDevice");
+        this.tenantRejectedCounter = statsFactory.createDefaultCounter(RATE_LIMITS_STATS + ".rejected", "level", "tenant");
+        this.gatewayRejectedCounter = statsFactory.createDefaultCounter(RATE_LIMITS_STATS + ".rejected", "level", "gateway");
+        this.deviceRejectedCounter = statsFactory.createDefaultCounter(RATE_LIMITS_STATS + ".rejected", "level", "device");
+    }
+
+    @PostConstruct
+    public void init() {
+        if (ipRateLimitsEnabled && ipSketchEnabled) {
+            ipFailureSketch = new InetAddressFailureSketch(ipSketchWidth, ipBlockTimeout);
+        }
     }
 
     @Override
@@ -79,75 +99,77 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         if (!tenantAllowed.getOrDefault(tenantId, Boolean.TRUE)) {
             return TbPair.of(EntityType.API_USAGE_STATE, false);
         }
-        if (!checkEntityRateLimit(dataPoints, getTenantRateLimits(tenantId))) {
+        TenantTransportRateLimits limits = getTenantLimits(tenantId);
+        if (!perTenantLimits.tryConsume(tenantId.getId(), limits, dataPoints)) {
+            tenantRejectedCounter.increment();
             return TbPair.of(EntityType.TENANT, false);
         }
-        if (isGateway && !checkEntityRateLimit(dataPoints, getGatewayDeviceRateLimits(tenantId, deviceId))) {
+        if (isGateway && !perGatewayDeviceLimits.tryConsume(deviceId.getId(), limits, dataPoints)) {
+            gatewayRejectedCounter.increment();
             return TbPair.of(EntityType.DEVICE, true);
         }
-        if (gatewayId != null && !checkEntityRateLimit(dataPoints, getGatewayRateLimits(tenantId, gatewayId))) {
+        if (gatewayId != null && !perGatewayLimits.tryConsume(gatewayId.getId(), limits, dataPoints)) {
+            gatewayRejectedCounter.increment();
             return TbPair.of(EntityType.DEVICE, true);
         }
-        if (!isGateway && deviceId != null && !checkEntityRateLimit(dataPoints, getDeviceRateLimits(tenantId, deviceId))) {
+        if (!isGateway && deviceId != null && !perDeviceLimits.tryConsume(deviceId.getId(), limits, dataPoints)) {
+            deviceRejectedCounter.increment();
             return TbPair.of(EntityType.DEVICE, false);
         }
 
         return null;
     }
 
-    private boolean checkEntityRateLimit(int dataPoints, EntityTransportRateLimits limits) {
-        if (dataPoints > 0) {
-            return limits.getTelemetryMsgRateLimit().tryConsume() && limits.getTelemetryDataPointsRateLimit().tryConsume(dataPoints);
-        } else {
-            return limits.getRegularMsgRateLimit().tryConsume();
-        }
-    }
-
     @Override
     public void update(TenantProfileUpdateResult update) {
         log.info("Received tenant profile update: {}", update.getProfile());
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(update.getProfile(), TENANT_LIMITS);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(update.getProfile(), DEVICE_LIMITS);
-        EntityTransportRateLimits gatewayRateLimitPrototype = createRateLimits(update.getProfile(), GATEWAY_LIMITS);
-        EntityTransportRateLimits gatewayDeviceRateLimitPrototype = createRateLimits(update.getProfile(), GATEWAY_DEVICE_LIMITS);
+        EntityTransportRateLimits tenantRateLimits = createRateLimits(update.getProfile(), TENANT_LIMITS);
+        EntityTransportRateLimits deviceRateLimits = createRateLimits(update.getProfile(), DEVICE_LIMITS);
+        EntityTransportRateLimits gatewayRateLimits = createRateLimits(update.getProfile(), GATEWAY_LIMITS);
+        EntityTransportRateLimits gatewayDeviceRateLimits = createRateLimits(update.getProfile(), GATEWAY_DEVICE_LIMITS);
         for (TenantId tenantId : update.getAffectedTenants()) {
-            update(tenantId, tenantRateLimitPrototype, deviceRateLimitPrototype, gatewayRateLimitPrototype, gatewayDeviceRateLimitPrototype);
+            update(tenantId, tenantRateLimits, deviceRateLimits, gatewayRateLimits, gatewayDeviceRateLimits);
         }
     }
 
     @Override
     public void update(TenantId tenantId) {
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS);
-        EntityTransportRateLimits gatewayRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS);
-        EntityTransportRateLimits gatewayDeviceRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS);
-        update(tenantId, tenantRateLimitPrototype, deviceRateLimitPrototype, gatewayRateLimitPrototype, gatewayDeviceRateLimitPrototype);
+        TenantProfile tenantProfile = tenantProfileCache.get(tenantId);
+        update(tenantId, createRateLimits(tenantProfile, TENANT_LIMITS), createRateLimits(tenantProfile, DEVICE_LIMITS),
+                createRateLimits(tenantProfile, GATEWAY_LIMITS), createRateLimits(tenantProfile, GATEWAY_DEVICE_LIMITS));
     }
 
-    private void update(TenantId tenantId, EntityTransportRateLimits tenantRateLimitPrototype, EntityTransportRateLimits deviceRateLimitPrototype,
-                        EntityTransportRateLimits gatewayRateLimitPrototype, EntityTransportRateLimits gatewayDeviceRateLimitPrototype) {
-        mergeLimits(tenantId, tenantRateLimitPrototype, perTenantLimits::get, perTenantLimits::put);
-        getTenantDevices(tenantId).forEach(deviceId -> mergeLimits(deviceId, deviceRateLimitPrototype, perDeviceLimits::get, perDeviceLimits::put));
-        getTenantGateways(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, gatewayRateLimitPrototype, perGatewayLimits::get, perGatewayLimits::put));
-        getTenantGatewayDevices(tenantId).forEach(gatewayId -> mergeLimits(gatewayId, gatewayDeviceRateLimitPrototype, perGatewayDeviceLimits::get, perGatewayDeviceLimits::put));
+    private void update(TenantId tenantId, EntityTransportRateLimits tenantRateLimits, EntityTransportRateLimits deviceRateLimits,
+                        EntityTransportRateLimits gatewayRateLimits, EntityTransportRateLimits gatewayDeviceRateLimits) {
+        TenantTransportRateLimits limits = tenantLimits.get(tenantId);
+        if (limits == null) {
+            return;
+        }
+        if (limits.update(TENANT_LIMITS, tenantRateLimits)) {
+            log.info("[{}] Updated rate limits: {}", tenantId, tenantRateLimits);
+        }
+        if (limits.update(DEVICE_LIMITS, deviceRateLimits)) {
+            log.debug("[{}] Updated device rate limits: {}", tenantId, deviceRateLimits);
+        }
+        if (limits.update(GATEWAY_LIMITS, gatewayRateLimits)) {
+            log.debug("[{}] Updated gateway rate limits: {}", tenantId, gatewayRateLimits);
+        }
+        if (limits.update(GATEWAY_DEVICE_LIMITS, gatewayDeviceRateLimits)) {
+            log.debug("[{}] Updated gateway device rate limits: {}", tenantId, gatewayDeviceRateLimits);
+        }
     }
 
     @Override
     public void remove(TenantId tenantId) {
-        perTenantLimits.remove(tenantId);
-        tenantDevices.remove(tenantId);
-        tenantGateways.remove(tenantId);
-        tenantGatewayDevices.remove(tenantId);
+        tenantLimits.remove(tenantId);
+        perTenantLimits.remove(tenantId.getId());
     }
 
     @Override
     public void remove(DeviceId deviceId) {
-        perDeviceLimits.remove(deviceId);
-        perGatewayLimits.remove(deviceId);
-        perGatewayDeviceLimits.remove(deviceId);
-        tenantDevices.values().forEach(set -> set.remove(deviceId));
-        tenantGateways.values().forEach(set -> set.remove(deviceId));
-        tenantGatewayDevices.values().forEach(set -> set.remove(deviceId));
+        perDeviceLimits.remove(deviceId.getId());
+        perGatewayLimits.remove(deviceId.getId());
+        perGatewayDeviceLimits.remove(deviceId.getId());
     }
 
     @Override
@@ -160,6 +182,9 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         if (!ipRateLimitsEnabled) {
             return true;
         }
+        if (ipFailureSketch != null) {
+            return ipFailureSketch.estimate(address.getAddress()) < maxWrongCredentialsPerIp;
+        }
         var stats = ipMap.computeIfAbsent(address.getAddress(), a -> new InetAddressRateLimitStats());
         return !stats.isBlocked() || (stats.getLastActivityTs() + ipBlockTimeout < System.currentTimeMillis());
     }
@@ -169,6 +194,10 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         if (!ipRateLimitsEnabled) {
             return;
         }
+        if (ipFailureSketch != null) {
+            ipFailureSketch.onSuccess(address.getAddress());
+            return;
+        }
 
         var stats = ipMap.computeIfAbsent(address.getAddress(), a -> new InetAddressRateLimitStats());
         stats.getLock().lock();
@@ -189,6 +218,10 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         if (!ipRateLimitsEnabled) {
             return;
         }
+        if (ipFailureSketch != null) {
+            ipFailureSketch.onFailure(address.getAddress());
+            return;
+        }
 
         var stats = ipMap.computeIfAbsent(address.getAddress(), a -> new InetAddressRateLimitStats());
         stats.getLock().lock();
@@ -211,6 +244,10 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
             return;
         }
         long currentTime = System.currentTimeMillis();
+        if (ipFailureSketch != null) {
+            ipFailureSketch.rotate(currentTime);
+            return;
+        }
         long expTime = currentTime - Math.max(sessionInactivityTimeout, ipBlockTimeout);
         for (var entry : ipMap.entrySet()) {
             var stats = entry.getValue();
@@ -224,73 +261,35 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         }
     }
 
-    private <T extends EntityId> void mergeLimits(T entityId, EntityTransportRateLimits newRateLimits,
-                                                  Function<T, EntityTransportRateLimits> getFunction,
-                                                  BiConsumer<T, EntityTransportRateLimits> putFunction) {
-        EntityTransportRateLimits oldRateLimits = getFunction.apply(entityId);
-        if (oldRateLimits == null) {
-            if (EntityType.TENANT.equals(entityId.getEntityType())) {
-                log.info("[{}] New rate limits: {}", entityId, newRateLimits);
-            } else {
-                log.debug("[{}] New rate limits: {}", entityId, newRateLimits);
-            }
-            putFunction.accept(entityId, newRateLimits);
-        } else {
-            EntityTransportRateLimits updated = merge(oldRateLimits, newRateLimits);
-            if (updated != null) {
-                if (EntityType.TENANT.equals(entityId.getEntityType())) {
-                    log.info("[{}] Updated rate limits: {}", entityId, updated);
-                } else {
-                    log.debug("[{}] Updated rate limits: {}", entityId, updated);
-                }
-                putFunction.accept(entityId, updated);
-            }
-        }
-    }
-
-    private EntityTransportRateLimits merge(EntityTransportRateLimits oldRateLimits, EntityTransportRateLimits newRateLimits) {
-        boolean regularUpdate = !oldRateLimits.getRegularMsgRateLimit().getConfiguration().equals(newRateLimits.getRegularMsgRateLimit().getConfiguration());
-        boolean telemetryMsgRateUpdate = !oldRateLimits.getTelemetryMsgRateLimit().getConfiguration().equals(newRateLimits.getTelemetryMsgRateLimit().getConfiguration());
-        boolean telemetryDataPointUpdate = !oldRateLimits.getTelemetryDataPointsRateLimit().getConfiguration().equals(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration());
-        if (regularUpdate || telemetryMsgRateUpdate || telemetryDataPointUpdate) {
-            return new EntityTransportRateLimits(
-                    regularUpdate ? newLimit(newRateLimits.getRegularMsgRateLimit().getConfiguration()) : oldRateLimits.getRegularMsgRateLimit(),
-                    telemetryMsgRateUpdate ? newLimit(newRateLimits.getTelemetryMsgRateLimit().getConfiguration()) : oldRateLimits.getTelemetryMsgRateLimit(),
-                    telemetryDataPointUpdate ? newLimit(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration()) : oldRateLimits.getTelemetryDataPointsRateLimit());
-        } else {
-            return null;
-        }
-    }
-
     private EntityTransportRateLimits createRateLimits(TenantProfile tenantProfile, TransportLimitsType limitsType) {
         TenantProfileData profileData = tenantProfile.getProfileData();
         DefaultTenantProfileConfiguration profile = (DefaultTenantProfileConfiguration) profileData.getConfiguration();
         if (profile == null) {
-            return new EntityTransportRateLimits(ALLOW, ALLOW, ALLOW);
+            return EntityTransportRateLimits.UNLIMITED;
         } else {
-            TransportRateLimit regularMsgRateLimit;
-            TransportRateLimit telemetryMsgRateLimit;
-            TransportRateLimit telemetryDpRateLimit;
+            TokenBucketLimit regularMsgRateLimit;
+            TokenBucketLimit telemetryMsgRateLimit;
+            TokenBucketLimit telemetryDpRateLimit;
             switch (limitsType) {
                 case TENANT_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportTenantMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportTenantTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportTenantTelemetryDataPointsRateLimit());
+                    regularMsgRateLimit = TokenBucketLimit.parse(profile.getTransportTenantMsgRateLimit());
+                    telemetryMsgRateLimit = TokenBucketLimit.parse(profile.getTransportTenantTelemetryMsgRateLimit());
+                    telemetryDpRateLimit = TokenBucketLimit.parse(profile.getTransportTenantTelemetryDataPointsRateLimit());
                 }
                 case DEVICE_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportDeviceMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportDeviceTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportDeviceTelemetryDataPointsRateLimit());
+                    regularMsgRateLimit = TokenBucketLimit.parse(profile.getTransportDeviceMsgRateLimit());
+                    telemetryMsgRateLimit = TokenBucketLimit.parse(profile.getTransportDeviceTelemetryMsgRateLimit());
+                    telemetryDpRateLimit = TokenBucketLimit.parse(profile.getTransportDeviceTelemetryDataPointsRateLimit());
                 }
                 case GATEWAY_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportGatewayMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportGatewayTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportGatewayTelemetryDataPointsRateLimit());
+                    regularMsgRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayMsgRateLimit());
+                    telemetryMsgRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayTelemetryMsgRateLimit());
+                    telemetryDpRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayTelemetryDataPointsRateLimit());
                 }
                 case GATEWAY_DEVICE_LIMITS -> {
-                    regularMsgRateLimit = newLimit(profile.getTransportGatewayDeviceMsgRateLimit());
-                    telemetryMsgRateLimit = newLimit(profile.getTransportGatewayDeviceTelemetryMsgRateLimit());
-                    telemetryDpRateLimit = newLimit(profile.getTransportGatewayDeviceTelemetryDataPointsRateLimit());
+                    regularMsgRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayDeviceMsgRateLimit());
+                    telemetryMsgRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayDeviceTelemetryMsgRateLimit());
+                    telemetryDpRateLimit = TokenBucketLimit.parse(profile.getTransportGatewayDeviceTelemetryDataPointsRateLimit());
                 }
                 default -> throw new IllegalStateException("Unknown limits type: " + limitsType);
             }
@@ -299,48 +298,20 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         }
     }
 
-    private static TransportRateLimit newLimit(String config) {
-        return StringUtils.isEmpty(config) ? ALLOW : new SimpleTransportRateLimit(config);
-    }
-
-    private EntityTransportRateLimits getTenantRateLimits(TenantId tenantId) {
-        return perTenantLimits.computeIfAbsent(tenantId, k -> createRateLimits(tenantProfileCache.get(tenantId), TENANT_LIMITS));
-    }
-
-    private EntityTransportRateLimits getDeviceRateLimits(TenantId tenantId, DeviceId deviceId) {
-        return perDeviceLimits.computeIfAbsent(deviceId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), DEVICE_LIMITS);
-            getTenantDevices(tenantId).add(deviceId);
-            return limits;
-        });
-    }
-
-    private EntityTransportRateLimits getGatewayRateLimits(TenantId tenantId, DeviceId gatewayId) {
-        return perGatewayLimits.computeIfAbsent(gatewayId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_LIMITS);
-            getTenantGateways(tenantId).add(gatewayId);
-            return limits;
-        });
-    }
-
-    private EntityTransportRateLimits getGatewayDeviceRateLimits(TenantId tenantId, DeviceId gatewayId) {
-        return perGatewayDeviceLimits.computeIfAbsent(gatewayId, k -> {
-            EntityTransportRateLimits limits = createRateLimits(tenantProfileCache.get(tenantId), GATEWAY_DEVICE_LIMITS);
-            getTenantGatewayDevices(tenantId).add(gatewayId);
-            return limits;
-        });
-    }
-
-    private Set<DeviceId> getTenantDevices(TenantId tenantId) {
-        return tenantDevices.computeIfAbsent(tenantId, id -> ConcurrentHashMap.newKeySet());
-    }
-
-    private Set<DeviceId> getTenantGateways(TenantId tenantId) {
-        return tenantGateways.computeIfAbsent(tenantId, id -> ConcurrentHashMap.newKeySet());
-    }
-
-    private Set<DeviceId> getTenantGatewayDevices(TenantId tenantId) {
-        return tenantGatewayDevices.computeIfAbsent(tenantId, id -> ConcurrentHashMap.newKeySet());
+    private TenantTransportRateLimits getTenantLimits(TenantId tenantId) {
+        TenantTransportRateLimits limits = tenantLimits.get(tenantId);
+        if (limits == null) {
+            limits = tenantLimits.computeIfAbsent(tenantId, id -> {
+                TenantProfile tenantProfile = tenantProfileCache.get(tenantId);
+                TenantTransportRateLimits newLimits = new TenantTransportRateLimits();
+                for (TransportLimitsType limitsType : TransportLimitsType.values()) {
+                    newLimits.update(limitsType, createRateLimits(tenantProfile, limitsType));
+                }
+                log.info("[{}] New rate limits: {}", tenantId, newLimits.get(TENANT_LIMITS));
+                return newLimits;
+            });
+        }
+        return limits;
     }
 
 }
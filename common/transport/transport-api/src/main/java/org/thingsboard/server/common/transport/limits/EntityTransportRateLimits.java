@@ -15,15 +15,33 @@
  */
 package org.thingsboard.server.common.transport.limits;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Objects;
+
 @Data
-@AllArgsConstructor
 public class EntityTransportRateLimits {
 
-    private TransportRateLimit regularMsgRateLimit;
-    private TransportRateLimit telemetryMsgRateLimit;
-    private TransportRateLimit telemetryDataPointsRateLimit;
+    public static final EntityTransportRateLimits UNLIMITED = new EntityTransportRateLimits(null, null, null);
+
+    private final TokenBucketLimit regularMsgRateLimit;
+    private final TokenBucketLimit telemetryMsgRateLimit;
+    private final TokenBucketLimit telemetryDataPointsRateLimit;
+
+    boolean sameRegularMsgRateLimit(EntityTransportRateLimits other) {
+        return sameConfiguration(regularMsgRateLimit, other.regularMsgRateLimit);
+    }
+
+    boolean sameTelemetryMsgRateLimit(EntityTransportRateLimits other) {
+        return sameConfiguration(telemetryMsgRateLimit, other.telemetryMsgRateLimit);
+    }
+
+    boolean sameTelemetryDataPointsRateLimit(EntityTransportRateLimits other) {
+        return sameConfiguration(telemetryDataPointsRateLimit, other.telemetryDataPointsRateLimit);
+    }
+
+    private static boolean sameConfiguration(TokenBucketLimit a, TokenBucketLimit b) {
+        return Objects.equals(a != null ? a.getConfiguration() : null, b != null ? b.getConfiguration() : null);
+    }
 
 }
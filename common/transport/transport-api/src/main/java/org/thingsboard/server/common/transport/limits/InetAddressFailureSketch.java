@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Approximate per IP address counter of failed authentication attempts with a fixed memory footprint.
+ * Count-min sketch over two rotating windows: failures alone never make the estimate under-count, so hash
+ * collisions may only block an address slightly earlier. A successful authentication clears the estimate of its
+ * address, which may also clear failures of addresses colliding with it, letting those through earlier.
+ */
+public class InetAddressFailureSketch {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int width;
+    private final long windowMs;
+    private volatile AtomicIntegerArray current;
+    private volatile AtomicIntegerArray previous;
+    private volatile long windowStartTs;
+
+    public InetAddressFailureSketch(int width, long windowMs) {
+        this.width = width;
+        this.windowMs = windowMs;
+        this.current = new AtomicIntegerArray(DEPTH * width);
+        this.previous = new AtomicIntegerArray(DEPTH * width);
+        this.windowStartTs = System.currentTimeMillis();
+    }
+
+    public void onFailure(InetAddress address) {
+        int hash = hash(address);
+        AtomicIntegerArray counters = current;
+        for (int i = 0; i < DEPTH; i++) {
+            counters.incrementAndGet(index(hash, i));
+        }
+    }
+
+    public void onSuccess(InetAddress address) {
+        int hash = hash(address);
+        clear(current, hash);
+        clear(previous, hash);
+    }
+
+    public int estimate(InetAddress address) {
+        int hash = hash(address);
+        return estimate(current, hash) + estimate(previous, hash);
+    }
+
+    public synchronized void rotate(long ts) {
+        if (ts - windowStartTs >= windowMs) {
+            previous = ts - windowStartTs >= 2 * windowMs ? new AtomicIntegerArray(DEPTH * width) : current;
+            current = new AtomicIntegerArray(DEPTH * width);
+            windowStartTs = ts;
+        }
+    }
+
+    private int estimate(AtomicIntegerArray counters, int hash) {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, counters.get(index(hash, i)));
+        }
+        return min;
+    }
+
+    /**
+     * Subtracts the estimated count of the address from its counters. The estimate includes collisions when every
+     * counter of the address is shared, so the counts of colliding addresses may be reduced below their own failures.
+     */
+    private void clear(AtomicIntegerArray counters, int hash) {
+        int count = estimate(counters, hash);
+        if (count > 0) {
+            for (int i = 0; i < DEPTH; i++) {
+                counters.getAndUpdate(index(hash, i), value -> Math.max(0, value - count));
+            }
+        }
+    }
+
+    private int index(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x45D9F3B;
+        h ^= h >>> 16;
+        return row * width + ((h & Integer.MAX_VALUE) % width);
+    }
+
+    private static int hash(InetAddress address) {
+        return Arrays.hashCode(address.getAddress());
+    }
+
+}
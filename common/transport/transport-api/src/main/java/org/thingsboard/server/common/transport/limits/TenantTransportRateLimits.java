@@ -0,0 +1,52 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rate limits of a single tenant profile, shared by the tenant and all its devices and gateways.
+ * Entities keep a reference to this holder instead of a private copy of the limits, so a profile update is a single write
+ * and the per-entity state is reset lazily on the next check.
+ */
+public class TenantTransportRateLimits {
+
+    private final AtomicReferenceArray<EntityTransportRateLimits> limits = new AtomicReferenceArray<>(TransportLimitsType.values().length);
+
+    public TenantTransportRateLimits() {
+        for (TransportLimitsType type : TransportLimitsType.values()) {
+            limits.set(type.ordinal(), EntityTransportRateLimits.UNLIMITED);
+        }
+    }
+
+    public EntityTransportRateLimits get(TransportLimitsType type) {
+        return limits.get(type.ordinal());
+    }
+
+    /**
+     * @return true if the limits of the given type were changed
+     */
+    public boolean update(TransportLimitsType type, EntityTransportRateLimits newLimits) {
+        EntityTransportRateLimits oldLimits = limits.get(type.ordinal());
+        if (oldLimits.sameRegularMsgRateLimit(newLimits) && oldLimits.sameTelemetryMsgRateLimit(newLimits)
+                && oldLimits.sameTelemetryDataPointsRateLimit(newLimits)) {
+            return false;
+        }
+        limits.set(type.ordinal(), newLimits);
+        return true;
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parsed rate limit configuration in the same "capacity:seconds,capacity:seconds" format as {@link org.thingsboard.server.common.msg.tools.TbRateLimits}.
+ * Each bandwidth is evaluated with the generic cell rate algorithm, which is equivalent to a greedy token bucket
+ * but needs a single long (theoretical arrival time) of state per bandwidth.
+ */
+public final class TokenBucketLimit {
+
+    @Getter
+    private final String configuration;
+    private final long[] capacities;
+    private final long[] emissionIntervals;
+    private final long[] periods;
+
+    private TokenBucketLimit(String configuration, long[] capacities, long[] emissionIntervals, long[] periods) {
+        this.configuration = configuration;
+        this.capacities = capacities;
+        this.emissionIntervals = emissionIntervals;
+        this.periods = periods;
+    }
+
+    public static TokenBucketLimit parse(String configuration) {
+        if (StringUtils.isEmpty(configuration)) {
+            return null;
+        }
+        String[] limits = configuration.split(",");
+        int size = limits.length;
+        long[] capacities = new long[size];
+        long[] emissionIntervals = new long[size];
+        long[] periods = new long[size];
+        for (int i = 0; i < size; i++) {
+            String[] parts = limits[i].split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Failed to parse rate limits configuration: " + configuration);
+            }
+            long capacity = Long.parseLong(parts[0].trim());
+            long period = TimeUnit.SECONDS.toNanos(Long.parseLong(parts[1].trim()));
+            if (capacity <= 0 || period <= 0) {
+                throw new IllegalArgumentException("Failed to parse rate limits configuration: " + configuration);
+            }
+            capacities[i] = capacity;
+            periods[i] = period;
+            emissionIntervals[i] = Math.max(1, period / capacity);
+        }
+        return new TokenBucketLimit(configuration, capacities, emissionIntervals, periods);
+    }
+
+    public int size() {
+        return capacities.length;
+    }
+
+    /**
+     * Tries to consume the tokens from the bandwidths stored in {@code state} starting at {@code offset}.
+     * Lock-free: each bandwidth is updated with a CAS loop and already consumed bandwidths are rolled back if a later one rejects.
+     */
+    boolean tryConsume(AtomicLongArray state, int offset, long tokens, long now) {
+        for (int i = 0; i < capacities.length; i++) {
+            if (!tryAcquire(state, offset + i, i, tokens, now)) {
+                for (int j = 0; j < i; j++) {
+                    state.getAndAdd(offset + j, -emissionIntervals[j] * tokens);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean tryAcquire(AtomicLongArray state, int idx, int bandwidth, long tokens, long now) {
+        if (tokens > capacities[bandwidth]) {
+            return false;
+        }
+        long increment = emissionIntervals[bandwidth] * tokens;
+        while (true) {
+            long arrivalTime = state.get(idx);
+            long newArrivalTime = Math.max(arrivalTime, now) + increment;
+            if (newArrivalTime - now > periods[bandwidth]) {
+                return false;
+            }
+            if (state.compareAndSet(idx, arrivalTime, newArrivalTime)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return configuration;
+    }
+
+}
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -58,6 +59,7 @@ import org.thingsboard.server.common.data.msg.TbMsgType;
 import org.thingsboard.server.common.data.notification.rule.trigger.RateLimitsTrigger;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.data.rpc.RpcStatus;
+import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.notification.NotificationRuleProcessor;
@@ -112,6 +114,7 @@ import org.thingsboard.server.queue.scheduler.SchedulerComponent;
 import org.thingsboard.server.queue.util.AfterStartUp;
 import org.thingsboard.server.queue.util.TbTransportComponent;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -190,6 +193,7 @@ public class DefaultTransportService extends TransportActivityManager implements
     protected MessagesStats ruleEngineProducerStats;
     protected MessagesStats tbCoreProducerStats;
     protected MessagesStats transportApiStats;
+    protected Timer gatewayDevicesResolutionTimer;
 
     protected ExecutorService transportCallbackExecutor;
     private ExecutorService consumerExecutor;
@@ -202,6 +206,7 @@ public class DefaultTransportService extends TransportActivityManager implements
         this.ruleEngineProducerStats = statsFactory.createMessagesStats(StatsType.RULE_ENGINE.getName() + ".producer");
         this.tbCoreProducerStats = statsFactory.createMessagesStats(StatsType.CORE.getName() + ".producer");
         this.transportApiStats = statsFactory.createMessagesStats(StatsType.TRANSPORT.getName() + ".producer");
+        this.gatewayDevicesResolutionTimer = statsFactory.createTimer(StatsType.TRANSPORT.getName() + ".gatewayDevicesResolution");
         this.transportCallbackExecutor = ThingsBoardExecutors.newWorkStealingPool(20, getClass());
         this.scheduler.scheduleAtFixedRate(this::invalidateRateLimits, new Random().nextInt((int) sessionReportTimeout), sessionReportTimeout, TimeUnit.MILLISECONDS);
         transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
@@ -441,24 +446,74 @@ public class DefaultTransportService extends TransportActivityManager implements
             transportCallbackExecutor.submit(() -> callback.onError(new RuntimeException(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED)));
         } else {
             ListenableFuture<GetOrCreateDeviceFromGatewayResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
-                TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg = tmp.getValue().getGetOrCreateDeviceResponseMsg();
-                GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
-                if (msg.hasDeviceInfo()) {
-                    TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
-                    result.deviceInfo(tdi);
-                    if (msg.hasDeviceProfile()) {
-                        result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile()));
-                    }
-                } else if (TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT.equals(msg.getError())) {
-                    entityLimitsCache.put(key, true);
-                    throw new RuntimeException(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED);
+                GetOrCreateDeviceFromGatewayResponse result = toGetOrCreateDeviceFromGatewayResponse(key, tmp.getValue().getGetOrCreateDeviceResponseMsg());
+                if (result.getError() != null) {
+                    throw new RuntimeException(result.getError());
                 }
-                return result.build();
+                return result;
             }, MoreExecutors.directExecutor());
             AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
         }
     }
 
+    @Override
+    public void process(TenantId tenantId, TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg requestMsg, TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback) {
+        log.trace("Processing msg: {}", requestMsg);
+        DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
+        if (!checkLimits(tenantId, gatewayId, null, null, requestMsg, callback, 0, false)) {
+            return;
+        }
+
+        List<GetOrCreateDeviceFromGatewayResponse> result = new ArrayList<>(requestMsg.getDevicesCount());
+        List<Integer> requestedIdxs = new ArrayList<>(requestMsg.getDevicesCount());
+        List<EntityLimitKey> requestedKeys = new ArrayList<>(requestMsg.getDevicesCount());
+        TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg.Builder request = requestMsg.toBuilder().clearDevices();
+        for (int i = 0; i < requestMsg.getDevicesCount(); i++) {
+            TransportProtos.GatewayDeviceNameTypeProto device = requestMsg.getDevices(i);
+            var key = new EntityLimitKey(tenantId, StringUtils.truncate(device.getDeviceName(), 256));
+            if (entityLimitsCache.get(key)) {
+                result.add(GetOrCreateDeviceFromGatewayResponse.builder().error(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED).build());
+            } else {
+                result.add(null);
+                requestedIdxs.add(i);
+                requestedKeys.add(key);
+                request.addDevices(device);
+            }
+        }
+        if (requestedIdxs.isEmpty()) {
+            transportCallbackExecutor.submit(() -> callback.onSuccess(result));
+            return;
+        }
+
+        TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(request).build());
+        long startTs = System.nanoTime();
+        ListenableFuture<List<GetOrCreateDeviceFromGatewayResponse>> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
+            gatewayDevicesResolutionTimer.record(System.nanoTime() - startTs, TimeUnit.NANOSECONDS);
+            List<TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg> msgs = tmp.getValue().getGetOrCreateDevicesResponseMsg().getResponsesList();
+            for (int i = 0; i < requestedIdxs.size(); i++) {
+                TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg = i < msgs.size() ? msgs.get(i) : TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg.getDefaultInstance();
+                result.set(requestedIdxs.get(i), toGetOrCreateDeviceFromGatewayResponse(requestedKeys.get(i), msg));
+            }
+            return result;
+        }, MoreExecutors.directExecutor());
+        AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
+    }
+
+    private GetOrCreateDeviceFromGatewayResponse toGetOrCreateDeviceFromGatewayResponse(EntityLimitKey key, TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg) {
+        GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
+        if (msg.hasDeviceInfo()) {
+            TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
+            result.deviceInfo(tdi);
+            if (msg.hasDeviceProfile()) {
+                result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), msg.getDeviceProfile()));
+            }
+        } else if (TransportProtos.TransportApiRequestErrorCode.ENTITY_LIMIT.equals(msg.getError())) {
+            entityLimitsCache.put(key, true);
+            result.error(DataConstants.MAXIMUM_NUMBER_OF_DEVICES_REACHED);
+        }
+        return result.build();
+    }
+
     @Override
     public void process(TransportProtos.LwM2MRequestMsg msg, TransportServiceCallback<TransportProtos.LwM2MResponseMsg> callback) {
         log.trace("Processing msg: {}", msg);
@@ -541,27 +596,54 @@ public class DefaultTransportService extends TransportActivityManager implements
 
     @Override
     public void process(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostTelemetryMsg msg, TbMsgMetaData md, TransportServiceCallback<Void> callback) {
-        int dataPoints = 0;
-        for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
-            dataPoints += tsKv.getKvCount();
-        }
+        int dataPoints = getDataPoints(msg);
         if (checkLimits(sessionInfo, msg, callback, dataPoints)) {
-            recordActivityInternal(sessionInfo);
             TenantId tenantId = getTenantId(sessionInfo);
-            DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
             CustomerId customerId = getCustomerId(sessionInfo);
             MsgPackCallback packCallback = new MsgPackCallback(msg.getTsKvListCount(), new ApiStatsProxyCallback<>(tenantId, customerId, dataPoints, callback));
-            for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
-                TbMsgMetaData metaData = md != null ? md.copy() : new TbMsgMetaData();
-                metaData.putValue("deviceName", sessionInfo.getDeviceName());
-                metaData.putValue("deviceType", sessionInfo.getDeviceType());
-                metaData.putValue("ts", tsKv.getTs() + "");
-                JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
-                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_TELEMETRY_REQUEST, packCallback);
+            sendTelemetryToRuleEngine(sessionInfo, msg, md, packCallback);
+        }
+    }
+
+    @Override
+    public void process(List<TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg>> msgs, List<TransportServiceCallback<Void>> callbacks) {
+        if (msgs.size() != callbacks.size()) {
+            throw new IllegalArgumentException("Expected " + msgs.size() + " callbacks but got " + callbacks.size());
+        }
+        for (int i = 0; i < msgs.size(); i++) {
+            TbPair<TransportProtos.SessionInfoProto, TransportProtos.PostTelemetryMsg> pair = msgs.get(i);
+            TransportServiceCallback<Void> callback = callbacks.get(i);
+            if (pair.getSecond().getTsKvListCount() == 0) {
+                transportCallbackExecutor.submit(() -> callback.onSuccess(null)); // nothing to push, but the batch still waits for this callback
+            } else {
+                process(pair.getFirst(), pair.getSecond(), null, callback);
             }
         }
     }
 
+    private void sendTelemetryToRuleEngine(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostTelemetryMsg msg, TbMsgMetaData md, TbQueueCallback callback) {
+        recordActivityInternal(sessionInfo);
+        TenantId tenantId = getTenantId(sessionInfo);
+        DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
+        CustomerId customerId = getCustomerId(sessionInfo);
+        for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
+            TbMsgMetaData metaData = md != null ? md.copy() : new TbMsgMetaData();
+            metaData.putValue("deviceName", sessionInfo.getDeviceName());
+            metaData.putValue("deviceType", sessionInfo.getDeviceType());
+            metaData.putValue("ts", tsKv.getTs() + "");
+            JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
+            sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, TbMsgType.POST_TELEMETRY_REQUEST, callback);
+        }
+    }
+
+    private static int getDataPoints(TransportProtos.PostTelemetryMsg msg) {
+        int dataPoints = 0;
+        for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
+            dataPoints += tsKv.getKvCount();
+        }
+        return dataPoints;
+    }
+
     @Override
     public void process(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostAttributeMsg msg, TransportServiceCallback<Void> callback) {
         process(sessionInfo, msg, null, callback);
@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactRateLimitTableTest {
+
+    @Test
+    public void givenRegularMsgLimit_whenCapacityExhausted_thenRejected() {
+        CompactRateLimitTable table = new CompactRateLimitTable(TransportLimitsType.DEVICE_LIMITS);
+        TenantTransportRateLimits tenantLimits = newTenantLimits("3:60", null, null);
+        UUID deviceId = UUID.randomUUID();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        }
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isFalse();
+        assertThat(table.tryConsume(UUID.randomUUID(), tenantLimits, 0)).isTrue();
+        assertThat(table.getSize().get()).isEqualTo(2);
+    }
+
+    @Test
+    public void givenSeveralBandwidths_whenAnyExhausted_thenRejected() {
+        CompactRateLimitTable table = new CompactRateLimitTable(TransportLimitsType.DEVICE_LIMITS);
+        TenantTransportRateLimits tenantLimits = newTenantLimits(null, "10:60", "100:60,5:3600");
+        UUID deviceId = UUID.randomUUID();
+
+        assertThat(table.tryConsume(deviceId, tenantLimits, 5)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 1)).isFalse();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 101)).isFalse();
+    }
+
+    @Test
+    public void givenMoreBandwidthsThanInline_whenLastExhausted_thenRejected() {
+        CompactRateLimitTable table = new CompactRateLimitTable(TransportLimitsType.DEVICE_LIMITS);
+        TenantTransportRateLimits tenantLimits = newTenantLimits("100:1,100:10,100:60,100:600,2:3600", null, "100:1,100:10,100:60,100:600,7:3600");
+        UUID deviceId = UUID.randomUUID();
+        UUID otherDeviceId = UUID.randomUUID();
+
+        assertThat(TokenBucketLimit.parse("100:1,100:10,100:60,100:600,2:3600").size()).isGreaterThan(CompactRateLimitTable.INLINE_BANDWIDTHS);
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isFalse();
+        assertThat(table.tryConsume(otherDeviceId, tenantLimits, 0)).isTrue();
+
+        assertThat(table.tryConsume(deviceId, tenantLimits, 5)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 3)).isFalse();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 2)).isTrue();
+
+        tenantLimits.update(TransportLimitsType.DEVICE_LIMITS, newLimits("100:1,100:10,100:60,100:600,3:3600", null, null));
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+    }
+
+    @Test
+    public void givenUpdatedLimits_whenChecked_thenOnlyChangedLimitsAreReset() {
+        CompactRateLimitTable table = new CompactRateLimitTable(TransportLimitsType.DEVICE_LIMITS);
+        TenantTransportRateLimits tenantLimits = newTenantLimits("1:60", "1:60", null);
+        UUID deviceId = UUID.randomUUID();
+
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 1)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isFalse();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 1)).isFalse();
+
+        tenantLimits.update(TransportLimitsType.DEVICE_LIMITS, newLimits("2:60", "1:60", null));
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 1)).isFalse();
+    }
+
+    @Test
+    public void givenRemovedEntity_whenSlotReused_thenStateIsFresh() {
+        CompactRateLimitTable table = new CompactRateLimitTable(TransportLimitsType.DEVICE_LIMITS);
+        TenantTransportRateLimits tenantLimits = newTenantLimits("1:60", null, null);
+        UUID deviceId = UUID.randomUUID();
+
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(deviceId, tenantLimits, 0)).isFalse();
+        table.remove(deviceId);
+        assertThat(table.contains(deviceId)).isFalse();
+        assertThat(table.getSize().get()).isZero();
+
+        UUID otherDeviceId = UUID.randomUUID();
+        assertThat(table.tryConsume(otherDeviceId, tenantLimits, 0)).isTrue();
+        assertThat(table.tryConsume(otherDeviceId, tenantLimits, 0)).isFalse();
+    }
+
+    private static TenantTransportRateLimits newTenantLimits(String regular, String telemetryMsg, String telemetryDataPoints) {
+        TenantTransportRateLimits tenantLimits = new TenantTransportRateLimits();
+        tenantLimits.update(TransportLimitsType.DEVICE_LIMITS, newLimits(regular, telemetryMsg, telemetryDataPoints));
+        return tenantLimits;
+    }
+
+    private static EntityTransportRateLimits newLimits(String regular, String telemetryMsg, String telemetryDataPoints) {
+        return new EntityTransportRateLimits(TokenBucketLimit.parse(regular), TokenBucketLimit.parse(telemetryMsg), TokenBucketLimit.parse(telemetryDataPoints));
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InetAddressFailureSketchTest {
+
+    @Test
+    public void givenFailures_whenEstimate_thenNeverUnderCounts() throws Exception {
+        InetAddressFailureSketch sketch = new InetAddressFailureSketch(1024, 60000);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+
+        for (int i = 0; i < 5; i++) {
+            sketch.onFailure(address);
+        }
+        for (int i = 0; i < 256; i++) {
+            sketch.onFailure(InetAddress.getByName("10.0.1." + i));
+        }
+
+        assertThat(sketch.estimate(address)).isGreaterThanOrEqualTo(5);
+    }
+
+    @Test
+    public void givenSuccess_whenEstimate_thenAddressIsCleared() throws Exception {
+        InetAddressFailureSketch sketch = new InetAddressFailureSketch(1024, 60000);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+        sketch.onFailure(address);
+        sketch.onFailure(address);
+
+        sketch.onSuccess(address);
+
+        assertThat(sketch.estimate(address)).isZero();
+    }
+
+    @Test
+    public void givenAllCountersShared_whenCollidingAddressSucceeds_thenFailuresAreCleared() throws Exception {
+        InetAddressFailureSketch sketch = new InetAddressFailureSketch(1, 60000);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+        InetAddress collidingAddress = InetAddress.getByName("10.0.0.2");
+        sketch.onFailure(address);
+        sketch.onFailure(address);
+        sketch.onFailure(collidingAddress);
+
+        assertThat(sketch.estimate(address)).isEqualTo(3);
+
+        sketch.onSuccess(collidingAddress);
+
+        assertThat(sketch.estimate(address)).isZero();
+    }
+
+    @Test
+    public void givenTwoWindowsPassed_whenRotate_thenFailuresExpire() throws Exception {
+        InetAddressFailureSketch sketch = new InetAddressFailureSketch(1024, 1000);
+        InetAddress address = InetAddress.getByName("10.0.0.1");
+        long ts = System.currentTimeMillis();
+        sketch.onFailure(address);
+
+        sketch.rotate(ts + 1000);
+        assertThat(sketch.estimate(address)).isEqualTo(1);
+
+        sketch.rotate(ts + 2000);
+        assertThat(sketch.estimate(address)).isZero();
+    }
+
+}
@@ -258,10 +258,12 @@ public class DefaultClusterVersionControlService extends TbApplicationEventListe
         var ids = vcService.listEntitiesAtVersion(ctx.getTenantId(), request.getVersionId(), path)
                 .stream().skip(request.getOffset()).limit(request.getLimit()).collect(Collectors.toList());
         if (!ids.isEmpty()) {
+            List<String> paths = ids.stream()
+                    .map(info -> getRelativePath(info.getExternalId().getEntityType(), info.getExternalId().getId().toString()))
+                    .collect(Collectors.toList());
+            List<String> contents = vcService.getFilesContentAtCommit(ctx.getTenantId(), paths, request.getVersionId());
             for (int i = 0; i < ids.size(); i++) {
-                VersionedEntityInfo info = ids.get(i);
-                var data = vcService.getFileContentAtCommit(ctx.getTenantId(),
-                        getRelativePath(info.getExternalId().getEntityType(), info.getExternalId().getId().toString()), request.getVersionId());
+                var data = contents.get(i);
                 Iterable<String> dataChunks = StringUtils.split(data, msgChunkSize);
                 int chunksCount = Iterables.size(dataChunks);
                 AtomicInteger chunkIndex = new AtomicInteger();
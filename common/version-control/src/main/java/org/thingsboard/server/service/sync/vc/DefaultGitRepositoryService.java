@@ -110,7 +110,13 @@ public class DefaultGitRepositoryService implements GitRepositoryService {
     @Override
     public void add(PendingCommit commit, String relativePath, String entityDataJson) throws IOException {
         GitRepository repository = checkRepository(commit.getTenantId());
-        FileUtils.write(Path.of(repository.getDirectory(), relativePath).toFile(), entityDataJson, StandardCharsets.UTF_8);
+        File file = Path.of(repository.getDirectory(), relativePath).toFile();
+        if (file.isFile() && entityDataJson.equals(FileUtils.readFileToString(file, StandardCharsets.UTF_8))) {
+            // keeping the file untouched lets the index skip it on add instead of re-hashing it
+            log.trace("[{}] Skipping unchanged file {}", commit.getTenantId(), relativePath);
+            return;
+        }
+        FileUtils.write(file, entityDataJson, StandardCharsets.UTF_8);
     }
 
     @Override
@@ -175,6 +181,12 @@ public class DefaultGitRepositoryService implements GitRepositoryService {
         return repository.getFileContentAtCommit(relativePath, versionId);
     }
 
+    @Override
+    public List<String> getFilesContentAtCommit(TenantId tenantId, List<String> relativePaths, String versionId) throws IOException {
+        GitRepository repository = checkRepository(tenantId);
+        return repository.getFilesContentAtCommit(relativePaths, versionId);
+    }
+
     @Override
     public List<Diff> getVersionsDiffList(TenantId tenantId, String path, String versionId1, String versionId2) throws IOException {
         GitRepository repository = checkRepository(tenantId);
@@ -62,6 +62,7 @@ import org.eclipse.jgit.transport.sshd.SshdSessionFactoryBuilder;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.page.SortOrder;
@@ -83,8 +84,10 @@ import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
@@ -305,6 +308,38 @@ public class GitRepository {
         }
     }
 
+    public List<String> getFilesContentAtCommit(List<String> files, String commitId) throws IOException {
+        log.debug("Executing getFilesContentAtCommit [{}][{}][{}]", settings.getRepositoryUri(), commitId, files.size());
+        if (files.isEmpty()) {
+            return Collections.emptyList();
+        }
+        RevCommit revCommit = resolveCommit(commitId);
+        Map<String, String> contents = new HashMap<>();
+        try (ObjectReader objectReader = git.getRepository().newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(git.getRepository(), objectReader)) {
+            treeWalk.reset(revCommit.getTree().getId());
+            treeWalk.setFilter(PathFilterGroup.createFromStrings(files));
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                String file = treeWalk.getPathString();
+                ObjectLoader objectLoader = objectReader.open(treeWalk.getObjectId(0));
+                try {
+                    contents.put(file, new String(objectLoader.getBytes(), StandardCharsets.UTF_8));
+                } catch (LargeObjectException e) {
+                    throw new RuntimeException("File " + file + " is too big to load");
+                }
+            }
+        }
+        List<String> result = new ArrayList<>(files.size());
+        for (String file : files) {
+            String content = contents.get(file);
+            if (content == null) {
+                throw new IllegalArgumentException("File not found");
+            }
+            result.add(content);
+        }
+        return result;
+    }
 
     public void createAndCheckoutOrphanBranch(String name) throws GitAPIException {
         log.debug("Executing createAndCheckoutOrphanBranch [{}][{}]", settings.getRepositoryUri(), name);
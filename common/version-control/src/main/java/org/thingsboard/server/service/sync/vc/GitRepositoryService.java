@@ -62,6 +62,8 @@ public interface GitRepositoryService {
 
     String getFileContentAtCommit(TenantId tenantId, String relativePath, String versionId) throws IOException;
 
+    List<String> getFilesContentAtCommit(TenantId tenantId, List<String> relativePaths, String versionId) throws IOException;
+
     List<Diff> getVersionsDiffList(TenantId tenantId, String path, String versionId1, String versionId2) throws IOException;
 
     String getContentsDiff(TenantId tenantId, String content1, String content2) throws IOException;
@@ -0,0 +1,89 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.sync.vc;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.sync.vc.RepositorySettings;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultGitRepositoryServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("9c3f1a2b-5d4e-4f6a-8b7c-1d2e3f4a5b6c"));
+    private static final long OLD_TIMESTAMP = 1_000_000_000_000L;
+
+    @TempDir
+    private File directory;
+
+    private DefaultGitRepositoryService gitRepositoryService;
+    private GitRepository repository;
+    private PendingCommit commit;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        RepositorySettings settings = new RepositorySettings();
+        settings.setLocalOnly(true);
+        repository = GitRepository.create(settings, directory);
+        gitRepositoryService = new DefaultGitRepositoryService();
+        ((Map<TenantId, GitRepository>) ReflectionTestUtils.getField(gitRepositoryService, "repositories")).put(TENANT_ID, repository);
+        commit = new PendingCommit(TENANT_ID, "node", UUID.randomUUID(), "main", "Version", "Tenant Administrator", "tenant@thingsboard.org");
+
+        gitRepositoryService.add(commit, "device/1.json", "{\"name\":\"Device 1\"}");
+        gitRepositoryService.add(commit, "device/2.json", "{\"name\":\"Device 2\"}");
+        repository.add(".");
+        repository.commit("Initial", commit.getAuthorName(), commit.getAuthorEmail());
+    }
+
+    @Test
+    void givenUnchangedContent_whenAdd_thenFileIsNotRewritten() throws Exception {
+        File file = new File(directory, "device/1.json");
+        assertThat(file.setLastModified(OLD_TIMESTAMP)).isTrue();
+
+        gitRepositoryService.add(commit, "device/1.json", "{\"name\":\"Device 1\"}");
+
+        assertThat(file.lastModified()).isEqualTo(OLD_TIMESTAMP);
+        repository.add(".");
+        GitRepository.Status status = repository.status();
+        assertThat(status.getAdded()).isEmpty();
+        assertThat(status.getModified()).isEmpty();
+    }
+
+    @Test
+    void givenChangedContent_whenAdd_thenOnlyChangedFileIsModified() throws Exception {
+        gitRepositoryService.add(commit, "device/1.json", "{\"name\":\"Device 1\"}");
+        gitRepositoryService.add(commit, "device/2.json", "{\"name\":\"Device 2 updated\"}");
+        gitRepositoryService.add(commit, "asset/1.json", "{\"name\":\"Asset 1\"}");
+
+        assertThat(FileUtils.readFileToString(new File(directory, "device/2.json"), StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"Device 2 updated\"}");
+        repository.add(".");
+        GitRepository.Status status = repository.status();
+        assertThat(status.getAdded()).containsExactly("asset/1.json");
+        assertThat(status.getModified()).containsExactly("device/2.json");
+        assertThat(status.getRemoved()).isEmpty();
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.sync.vc;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.thingsboard.server.common.data.sync.vc.RepositorySettings;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GitRepositoryTest {
+
+    @TempDir
+    private File directory;
+
+    private GitRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RepositorySettings settings = new RepositorySettings();
+        settings.setLocalOnly(true);
+        repository = GitRepository.create(settings, directory);
+    }
+
+    @Test
+    void givenSeveralFiles_whenGetFilesContentAtCommit_thenContentsAreReturnedInRequestedOrder() throws Exception {
+        writeFile("device/1.json", "{\"name\":\"Device 1\"}");
+        writeFile("device/2.json", "{\"name\":\"Device 2\"}");
+        writeFile("asset/1.json", "{\"name\":\"Asset 1\"}");
+        String commitId = commit("Initial");
+        writeFile("device/1.json", "{\"name\":\"Device 1 updated\"}");
+        commit("Update");
+
+        List<String> contents = repository.getFilesContentAtCommit(List.of("asset/1.json", "device/2.json", "device/1.json"), commitId);
+
+        assertThat(contents).containsExactly("{\"name\":\"Asset 1\"}", "{\"name\":\"Device 2\"}", "{\"name\":\"Device 1\"}");
+    }
+
+    @Test
+    void givenMissingFile_whenGetFilesContentAtCommit_thenExceptionIsThrown() throws Exception {
+        writeFile("device/1.json", "{}");
+        String commitId = commit("Initial");
+
+        assertThatThrownBy(() -> repository.getFilesContentAtCommit(List.of("device/1.json", "device/2.json"), commitId))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File not found");
+    }
+
+    @Test
+    void givenNoFiles_whenGetFilesContentAtCommit_thenEmptyListIsReturned() throws Exception {
+        writeFile("device/1.json", "{}");
+        String commitId = commit("Initial");
+
+        assertThat(repository.getFilesContentAtCommit(Collections.emptyList(), commitId)).isEmpty();
+    }
+
+    private void writeFile(String relativePath, String content) throws Exception {
+        FileUtils.write(new File(directory, relativePath), content, StandardCharsets.UTF_8);
+    }
+
+    private String commit(String message) throws Exception {
+        repository.add(".");
+        return repository.commit(message, "Tenant Administrator", "tenant@thingsboard.org").getId();
+    }
+
+}
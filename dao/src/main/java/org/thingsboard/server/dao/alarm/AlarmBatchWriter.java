@@ -0,0 +1,344 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.alarm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmApiCallResult;
+import org.thingsboard.server.common.data.alarm.AlarmCreateOrUpdateActiveRequest;
+import org.thingsboard.server.common.data.alarm.AlarmPropagationInfo;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.id.AlarmId;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executes alarm create and clear requests in batched transactions.
+ * Requests are partitioned by alarm originator, consecutive identical requests of a partition are executed once
+ * and every request still receives its own {@link AlarmApiCallResult}.
+ * If a batch transaction fails, the requests of the batch are retried one by one in separate transactions.
+ * A request that is still queued after {@code sql.alarms.batch_await_timeout_ms} is executed by the caller instead.
+ * */
+@Component
+@ConditionalOnProperty(prefix = "sql.alarms", value = "batch_enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class AlarmBatchWriter {
+
+    private final AlarmService alarmService;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledLogExecutorComponent logExecutor;
+    private final StatsFactory statsFactory;
+
+    @Value("${sql.alarms.batch_size:100}")
+    private int batchSize;
+    @Value("${sql.alarms.batch_max_delay:10}")
+    private long maxDelay;
+    @Value("${sql.alarms.stats_print_interval_ms:10000}")
+    private long statsPrintIntervalMs;
+    @Value("${sql.alarms.batch_threads:3}")
+    private int batchThreads;
+    @Value("${sql.batch_sort:true}")
+    private boolean batchSortEnabled;
+    @Value("${sql.alarms.batch_await_timeout_ms:1000}")
+    private long awaitTimeoutMs;
+
+    private TbSqlBlockingQueueWrapper<AlarmOperation, AlarmOperationResult> queue;
+
+    private StatsCounter batchesCounter;
+    private StatsCounter operationsCounter;
+    private StatsCounter collapsedCounter;
+    private StatsCounter fallbackCounter;
+    private StatsCounter callerExecutedCounter;
+    private Timer operationTimer;
+    private Timer batchTimer;
+
+    @PostConstruct
+    private void init() {
+        String statsKey = StatsType.CORE.getName();
+        batchesCounter = statsFactory.createStatsCounter(statsKey, "alarmBatches");
+        operationsCounter = statsFactory.createStatsCounter(statsKey, "alarmBatchOperations");
+        collapsedCounter = statsFactory.createStatsCounter(statsKey, "alarmBatchOperationsCollapsed");
+        fallbackCounter = statsFactory.createStatsCounter(statsKey, "alarmBatchFallbacks");
+        callerExecutedCounter = statsFactory.createStatsCounter(statsKey, "alarmBatchOperationsExecutedByCaller");
+        operationTimer = statsFactory.createTimer(statsKey + ".alarmOperationLatency");
+        batchTimer = statsFactory.createTimer(statsKey + ".alarmBatchExecutionTime");
+
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Alarms")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("alarms")
+                .batchSortEnabled(batchSortEnabled)
+                .withResponse(true)
+                .build();
+        queue = new TbSqlBlockingQueueWrapper<>(params, operation -> operation.partitionKey().hashCode(), batchThreads, statsFactory);
+        queue.init(logExecutor, this::execute, Comparator.comparing(AlarmOperation::partitionKey), l -> l);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
+    public AlarmApiCallResult createAlarm(AlarmCreateOrUpdateActiveRequest request, boolean alarmCreationEnabled) {
+        return submitAndAwait(AlarmOperation.create(request, alarmCreationEnabled));
+    }
+
+    public AlarmApiCallResult clearAlarm(TenantId tenantId, AlarmId alarmId, long clearTs, JsonNode details) {
+        // clear requests go to the partition of the originator, so that they are ordered with its create requests
+        Alarm alarm = alarmService.findAlarmById(tenantId, alarmId);
+        EntityId originator = alarm != null ? alarm.getOriginator() : null;
+        return submitAndAwait(AlarmOperation.clear(tenantId, alarmId, originator, clearTs, details));
+    }
+
+    private AlarmApiCallResult submitAndAwait(AlarmOperation operation) {
+        ListenableFuture<AlarmApiCallResult> future = submit(operation);
+        try {
+            try {
+                return future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (!operation.claim()) {
+                    // the batch is already executing the request
+                    return future.get();
+                }
+            }
+            log.debug("Alarm request was not executed within {} ms, executing it in the calling thread", awaitTimeoutMs);
+            callerExecutedCounter.increment();
+            AlarmOperationResult result = executeInTransaction(operation);
+            if (result.error() != null) {
+                throw result.error() instanceof RuntimeException error ? error : new RuntimeException(result.error());
+            }
+            return result.result();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private ListenableFuture<AlarmApiCallResult> submit(AlarmOperation operation) {
+        return Futures.transformAsync(queue.add(operation), result -> {
+            operationTimer.record(System.currentTimeMillis() - operation.submitTs(), TimeUnit.MILLISECONDS);
+            return result.error() != null ? Futures.immediateFailedFuture(result.error()) : Futures.immediateFuture(result.result());
+        }, MoreExecutors.directExecutor());
+    }
+
+    List<AlarmOperationResult> execute(List<AlarmOperation> operations) {
+        long startTs = System.currentTimeMillis();
+        AlarmOperationResult[] results = new AlarmOperationResult[operations.size()];
+        // only consecutive identical requests of the same partition are collapsed, so that e.g. MAJOR, CRITICAL, MAJOR ends as MAJOR
+        List<List<Integer>> groups = new ArrayList<>();
+        Map<UUID, List<Integer>> lastGroups = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            AlarmOperation operation = operations.get(i);
+            if (!operation.claim()) {
+                // the caller stopped waiting and executes the request itself
+                results[i] = new AlarmOperationResult(null, new CancellationException("Executed by the caller"));
+                continue;
+            }
+            List<Integer> lastGroup = lastGroups.get(operation.partitionKey());
+            if (lastGroup != null && operations.get(lastGroup.get(0)).collapseKey().equals(operation.collapseKey())) {
+                lastGroup.add(i);
+            } else {
+                List<Integer> group = new ArrayList<>();
+                group.add(i);
+                groups.add(group);
+                lastGroups.put(operation.partitionKey(), group);
+            }
+        }
+        List<AlarmOperation> merged = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups) {
+            AlarmOperation operation = operations.get(group.get(0));
+            for (int i = 1; i < group.size(); i++) {
+                operation = operation.merge(operations.get(group.get(i)));
+            }
+            merged.add(operation);
+        }
+        List<AlarmOperationResult> mergedResults;
+        try {
+            mergedResults = transactionTemplate.execute(status -> merged.stream().map(this::executeOne).toList());
+        } catch (Exception e) {
+            log.debug("Failed to execute batch of {} alarm operations, retrying one by one", merged.size(), e);
+            fallbackCounter.increment();
+            mergedResults = merged.stream().map(this::executeInTransaction).toList();
+        }
+
+        int groupIdx = 0;
+        for (List<Integer> group : groups) {
+            AlarmOperationResult result = mergedResults.get(groupIdx++);
+            results[group.get(0)] = result;
+            for (int i = 1; i < group.size(); i++) {
+                results[group.get(i)] = result.forDuplicate(operations.get(group.get(i)));
+            }
+        }
+        batchesCounter.increment();
+        operationsCounter.add(operations.size());
+        collapsedCounter.add(groups.stream().mapToInt(List::size).sum() - merged.size());
+        batchTimer.record(System.currentTimeMillis() - startTs, TimeUnit.MILLISECONDS);
+        return List.of(results);
+    }
+
+    private AlarmOperationResult executeInTransaction(AlarmOperation operation) {
+        try {
+            return transactionTemplate.execute(status -> executeOne(operation));
+        } catch (Exception e) {
+            return new AlarmOperationResult(null, e);
+        }
+    }
+
+    private AlarmOperationResult executeOne(AlarmOperation operation) {
+        try {
+            AlarmApiCallResult result = operation.createRequest() != null ?
+                    alarmService.createAlarm(operation.createRequest(), operation.alarmCreationEnabled()) :
+                    alarmService.clearAlarm(operation.tenantId(), operation.alarmId(), operation.clearTs(), operation.details());
+            return new AlarmOperationResult(result, null);
+        } catch (Exception e) {
+            return new AlarmOperationResult(null, e);
+        }
+    }
+
+    record AlarmOperation(TenantId tenantId, AlarmCreateOrUpdateActiveRequest createRequest, boolean alarmCreationEnabled,
+                          AlarmId alarmId, EntityId originator, long clearTs, JsonNode details, long submitTs, AtomicBoolean claimed) {
+
+        static AlarmOperation create(AlarmCreateOrUpdateActiveRequest request, boolean alarmCreationEnabled) {
+            return new AlarmOperation(request.getTenantId(), request, alarmCreationEnabled, null, request.getOriginator(), 0, null,
+                    System.currentTimeMillis(), new AtomicBoolean());
+        }
+
+        static AlarmOperation clear(TenantId tenantId, AlarmId alarmId, EntityId originator, long clearTs, JsonNode details) {
+            return new AlarmOperation(tenantId, null, false, alarmId, originator, clearTs, details, System.currentTimeMillis(), new AtomicBoolean());
+        }
+
+        /**
+         * Clear requests for an unknown alarm fall back to the alarm id, they fail anyway.
+         * */
+        UUID partitionKey() {
+            return originator != null ? originator.getId() : alarmId.getId();
+        }
+
+        /**
+         * @return true if the request is claimed for execution, either by the batch or by the caller that stopped waiting
+         * */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        Object collapseKey() {
+            if (createRequest != null) {
+                AlarmCreateOrUpdateActiveRequest r = createRequest;
+                return new CreateKey(tenantId, r.getCustomerId(), r.getOriginator(), r.getType(), r.getSeverity(), r.getDetails(),
+                        r.getPropagation(), r.getUserId(), r.getEdgeAlarmId(), alarmCreationEnabled);
+            } else {
+                return new ClearKey(tenantId, alarmId, details);
+            }
+        }
+
+        /**
+         * Merges an identical request that arrived later: the alarm keeps the earliest start and the latest end time.
+         * */
+        AlarmOperation merge(AlarmOperation other) {
+            if (createRequest != null) {
+                AlarmCreateOrUpdateActiveRequest r = createRequest;
+                AlarmCreateOrUpdateActiveRequest request = AlarmCreateOrUpdateActiveRequest.builder()
+                        .tenantId(r.getTenantId())
+                        .customerId(r.getCustomerId())
+                        .type(r.getType())
+                        .originator(r.getOriginator())
+                        .severity(r.getSeverity())
+                        .startTs(Math.min(r.getStartTs(), other.createRequest.getStartTs()))
+                        .endTs(Math.max(r.getEndTs(), other.createRequest.getEndTs()))
+                        .details(r.getDetails())
+                        .propagation(r.getPropagation())
+                        .userId(r.getUserId())
+                        .edgeAlarmId(r.getEdgeAlarmId())
+                        .build();
+                return new AlarmOperation(tenantId, request, alarmCreationEnabled, null, originator, 0, null, submitTs, claimed);
+            } else {
+                return this;
+            }
+        }
+
+    }
+
+    record CreateKey(TenantId tenantId, CustomerId customerId, EntityId originator, String type, AlarmSeverity severity, JsonNode details,
+                     AlarmPropagationInfo propagation, UserId userId, AlarmId edgeAlarmId, boolean alarmCreationEnabled) {
+    }
+
+    record ClearKey(TenantId tenantId, AlarmId alarmId, JsonNode details) {
+    }
+
+    record AlarmOperationResult(AlarmApiCallResult result, Throwable error) {
+
+        /**
+         * Result for a collapsed request, as if it was executed right after the original one:
+         * the alarm is already created or cleared, so only the active alarm update is reported.
+         * */
+        AlarmOperationResult forDuplicate(AlarmOperation operation) {
+            if (error != null || result == null || !result.isSuccessful()) {
+                return this;
+            }
+            return new AlarmOperationResult(AlarmApiCallResult.builder()
+                    .successful(true)
+                    .modified(operation.createRequest() != null)
+                    .alarm(result.getAlarm())
+                    .old(result.getAlarm())
+                    .propagatedEntitiesList(result.getPropagatedEntitiesList())
+                    .build(), null);
+        }
+
+    }
+
+}
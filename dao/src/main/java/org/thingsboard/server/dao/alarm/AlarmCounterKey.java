@@ -0,0 +1,31 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.alarm;
+
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.id.EntityId;
+
+import java.util.UUID;
+
+public record AlarmCounterKey(UUID customerId, String type, AlarmSeverity severity, boolean acknowledged, boolean cleared) {
+
+    public static AlarmCounterKey of(Alarm alarm) {
+        UUID customerId = alarm.getCustomerId() != null ? alarm.getCustomerId().getId() : EntityId.NULL_UUID;
+        return new AlarmCounterKey(customerId, alarm.getType(), alarm.getSeverity(), alarm.isAcknowledged(), alarm.isCleared());
+    }
+
+}
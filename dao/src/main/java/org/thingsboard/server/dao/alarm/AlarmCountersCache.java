@@ -0,0 +1,266 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.alarm;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.CollectionUtils;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmApiCallResult;
+import org.thingsboard.server.common.data.alarm.AlarmStatusFilter;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.AlarmCountQuery;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.eventsourcing.ActionEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps per-tenant alarm counters grouped by customer, type, severity and status, so that alarm count queries
+ * and alarm count subscriptions don't scan the alarm table on every refresh.
+ * Counters are loaded on the first query for the tenant, updated from alarm lifecycle events of this node
+ * and periodically reloaded from the database to pick up changes made by other nodes, TTL cleanup or bulk deletes.
+ * Updates that happen while the counters are reloaded are also applied to the reloaded counters.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sql.alarms", value = "counters_enabled", havingValue = "true")
+@Slf4j
+public class AlarmCountersCache {
+
+    private static final String STATS_NAME = "alarmCounters";
+
+    private final AlarmDao alarmDao;
+    private final ConcurrentMap<TenantId, TenantAlarmCounters> tenants = new ConcurrentHashMap<>();
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private final DefaultCounter reloadCounter;
+    private ScheduledExecutorService executor;
+
+    @Value("${sql.alarms.counters_reconciliation_interval_sec:60}")
+    private long reconciliationIntervalSec;
+    @Value("${sql.alarms.counters_max_idle_time_sec:3600}")
+    private long maxIdleTimeSec;
+
+    public AlarmCountersCache(AlarmDao alarmDao, StatsFactory statsFactory) {
+        this.alarmDao = alarmDao;
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+        this.reloadCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "reload");
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("alarm-counters"));
+        executor.scheduleWithFixedDelay(this::reconcile, reconciliationIntervalSec, reconciliationIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return null if the query can't be answered from the counters
+     */
+    public Long countAlarmsByQuery(TenantId tenantId, CustomerId customerId, AlarmCountQuery query) {
+        if (!isSupported(query)) {
+            missCounter.increment();
+            return null;
+        }
+        TenantAlarmCounters counters = tenants.computeIfAbsent(tenantId, id -> new TenantAlarmCounters());
+        counters.lastAccessTs = System.currentTimeMillis();
+        counters.loadIfNeeded(tenantId);
+        hitCounter.increment();
+
+        boolean customerScope = customerId != null && !customerId.isNullUid();
+        AlarmStatusFilter statusFilter = AlarmStatusFilter.from(query.getStatusList());
+        long count = 0;
+        for (Map.Entry<AlarmCounterKey, LongAdder> entry : counters.values.entrySet()) {
+            AlarmCounterKey key = entry.getKey();
+            if (customerScope && !customerId.getId().equals(key.customerId())) {
+                continue;
+            }
+            if (!CollectionUtils.isEmpty(query.getTypeList()) && !query.getTypeList().contains(key.type())) {
+                continue;
+            }
+            if (!CollectionUtils.isEmpty(query.getSeverityList()) && !query.getSeverityList().contains(key.severity())) {
+                continue;
+            }
+            if (statusFilter.hasAckFilter() && statusFilter.getAckFilter() != key.acknowledged()) {
+                continue;
+            }
+            if (statusFilter.hasClearFilter() && statusFilter.getClearFilter() != key.cleared()) {
+                continue;
+            }
+            count += entry.getValue().sum();
+        }
+        return count;
+    }
+
+    /*
+     * Time window and assignee filters and the propagated alarms search need the alarm rows
+     */
+    static boolean isSupported(AlarmCountQuery query) {
+        return query.getTimeWindow() <= 0 && query.getStartTs() <= 0 && query.getEndTs() <= 0
+                && query.getAssigneeId() == null && !query.isSearchPropagatedAlarms();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        if (event.getEntity() instanceof AlarmApiCallResult result) {
+            onAlarmUpdate(event.getTenantId(), result);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(ActionEntityEvent<?> event) {
+        if (event.getEntity() instanceof AlarmApiCallResult result) {
+            onAlarmUpdate(event.getTenantId(), result);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        if (event.getEntityId() == null) {
+            return;
+        }
+        if (event.getEntityId().getEntityType() == EntityType.ALARM && event.getEntity() instanceof Alarm alarm) {
+            TenantAlarmCounters counters = tenants.get(event.getTenantId());
+            if (counters != null) {
+                counters.add(AlarmCounterKey.of(alarm), -1);
+            }
+        } else if (event.getEntityId().getEntityType() == EntityType.TENANT) {
+            tenants.remove(event.getTenantId());
+        }
+    }
+
+    void onAlarmUpdate(TenantId tenantId, AlarmApiCallResult result) {
+        TenantAlarmCounters counters = tenants.get(tenantId);
+        if (counters == null || !result.isSuccessful() || result.getAlarm() == null) {
+            return;
+        }
+        AlarmCounterKey newKey = AlarmCounterKey.of(result.getAlarm());
+        if (result.isCreated()) {
+            counters.add(newKey, 1);
+        } else if (result.isModified()) {
+            AlarmCounterKey oldKey;
+            if (result.getOld() != null) {
+                oldKey = AlarmCounterKey.of(result.getOld());
+            } else if (result.isCleared()) {
+                // clear results don't carry the previous state, only the cleared flag was changed
+                oldKey = new AlarmCounterKey(newKey.customerId(), newKey.type(), newKey.severity(), newKey.acknowledged(), false);
+            } else {
+                // assign and unassign results don't carry the previous state and don't change the counter key
+                return;
+            }
+            if (!oldKey.equals(newKey)) {
+                counters.add(oldKey, -1);
+                counters.add(newKey, 1);
+            }
+        }
+    }
+
+    void reconcile() {
+        long idleThreshold = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(maxIdleTimeSec);
+        tenants.forEach((tenantId, counters) -> {
+            if (counters.lastAccessTs < idleThreshold) {
+                tenants.remove(tenantId, counters);
+                return;
+            }
+            try {
+                counters.reload(tenantId);
+                reloadCounter.increment();
+            } catch (Exception e) {
+                log.warn("[{}] Failed to reload alarm counters", tenantId, e);
+            }
+        });
+    }
+
+    private class TenantAlarmCounters {
+
+        private volatile Map<AlarmCounterKey, LongAdder> values = Map.of();
+        private volatile boolean stale = true;
+        private volatile long lastAccessTs;
+        // guards the swap of the values and the deltas of the updates that happen while the counts are loaded
+        private final Object updateLock = new Object();
+        private Map<AlarmCounterKey, Long> pendingDeltas;
+
+        synchronized void loadIfNeeded(TenantId tenantId) {
+            if (stale) {
+                reload(tenantId);
+            }
+        }
+
+        synchronized void reload(TenantId tenantId) {
+            stale = false;
+            synchronized (updateLock) {
+                pendingDeltas = new HashMap<>();
+            }
+            ConcurrentMap<AlarmCounterKey, LongAdder> loaded = new ConcurrentHashMap<>();
+            try {
+                alarmDao.countAlarmsGroupedByStatus(tenantId).forEach((key, count) -> {
+                    LongAdder adder = new LongAdder();
+                    adder.add(count);
+                    loaded.put(key, adder);
+                });
+            } catch (RuntimeException e) {
+                synchronized (updateLock) {
+                    pendingDeltas = null;
+                }
+                throw e;
+            }
+            synchronized (updateLock) {
+                // updates made while the counts were loaded may be missing in the loaded snapshot
+                pendingDeltas.forEach((key, delta) -> loaded.computeIfAbsent(key, k -> new LongAdder()).add(delta));
+                pendingDeltas = null;
+                values = loaded;
+            }
+        }
+
+        void add(AlarmCounterKey key, long delta) {
+            synchronized (updateLock) {
+                if (values instanceof ConcurrentMap<AlarmCounterKey, LongAdder> map) {
+                    map.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+                }
+                if (pendingDeltas != null) {
+                    pendingDeltas.merge(key, delta, Long::sum);
+                }
+            }
+        }
+
+    }
+
+}
@@ -43,6 +43,7 @@ import org.thingsboard.server.dao.Dao;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -107,6 +108,8 @@ public interface AlarmDao extends Dao<Alarm> {
 
     long countAlarmsByQuery(TenantId tenantId, CustomerId customerId, AlarmCountQuery query);
 
+    Map<AlarmCounterKey, Long> countAlarmsGroupedByStatus(TenantId tenantId);
+
     PageData<EntitySubtype> findTenantAlarmTypes(UUID tenantId, PageLink pageLink);
 
     boolean removeAlarmTypesIfNoAlarmsPresent(UUID tenantId, Set<String> types);
@@ -21,6 +21,7 @@ import com.google.common.base.Function;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.event.TransactionalEventListener;
@@ -98,6 +99,9 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     private final EntityService entityService;
     private final DataValidator<Alarm> alarmDataValidator;
 
+    @Autowired(required = false)
+    private AlarmCountersCache alarmCountersCache;
+
     @TransactionalEventListener(classes = AlarmTypesCacheEvictEvent.class)
     @Override
     public void handleEvictEvent(AlarmTypesCacheEvictEvent event) {
@@ -148,7 +152,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
         var result = withPropagated(alarmDao.acknowledgeAlarm(tenantId, alarmId, ackTs));
         if (result.getAlarm() != null) {
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
-                    .actionType(ActionType.ALARM_ACK).build());
+                    .entity(result).actionType(ActionType.ALARM_ACK).build());
         }
         return result;
     }
@@ -158,7 +162,7 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
         var result = withPropagated(alarmDao.clearAlarm(tenantId, alarmId, clearTs, details));
         if (result.getAlarm() != null) {
             eventPublisher.publishEvent(ActionEntityEvent.builder().tenantId(tenantId).entityId(result.getAlarm().getId())
-                    .actionType(ActionType.ALARM_CLEAR).build());
+                    .entity(result).actionType(ActionType.ALARM_CLEAR).build());
         }
         return result;
     }
@@ -351,6 +355,12 @@ public class BaseAlarmService extends AbstractCachedEntityService<TenantId, Page
     @Override
     public long countAlarmsByQuery(TenantId tenantId, CustomerId customerId, AlarmCountQuery query) {
         validateId(tenantId, id -> INCORRECT_TENANT_ID + id);
+        if (alarmCountersCache != null) {
+            Long count = alarmCountersCache.countAlarmsByQuery(tenantId, customerId, query);
+            if (count != null) {
+                return count;
+            }
+        }
         return alarmDao.countAlarmsByQuery(tenantId, customerId, query);
     }
 
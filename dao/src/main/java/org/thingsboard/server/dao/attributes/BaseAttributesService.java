@@ -33,6 +33,7 @@ import org.thingsboard.server.dao.service.Validator;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -75,6 +76,13 @@ public class BaseAttributesService implements AttributesService {
         return Futures.immediateFuture(attributesDao.findAll(tenantId, entityId, scope));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findAll(TenantId tenantId, Collection<EntityId> entityIds, AttributeScope scope, Collection<String> attributeKeys) {
+        entityIds.forEach(entityId -> validate(entityId, scope));
+        attributeKeys.forEach(attributeKey -> Validator.validateString(attributeKey, k -> "Incorrect attribute key " + k));
+        return Futures.immediateFuture(attributesDao.findAll(tenantId, entityIds, scope, attributeKeys));
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         return attributesDao.findAllKeysByDeviceProfileId(tenantId, deviceProfileId);
@@ -44,6 +44,7 @@ import org.thingsboard.server.dao.sql.JpaExecutorService;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -52,6 +53,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.thingsboard.server.dao.attributes.AttributeUtils.validate;
@@ -196,6 +198,74 @@ public class CachedAttributesService implements AttributesService {
         return jpaExecutorService.submit(() -> attributesDao.findAll(tenantId, entityId, scope));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findAll(TenantId tenantId, Collection<EntityId> entityIdsNonUnique, AttributeScope scope, Collection<String> attributeKeysNonUnique) {
+        final var entityIds = new LinkedHashSet<>(entityIdsNonUnique);
+        final var attributeKeys = new LinkedHashSet<>(attributeKeysNonUnique);
+        entityIds.forEach(entityId -> validate(entityId, scope));
+        attributeKeys.forEach(attributeKey -> Validator.validateString(attributeKey, k -> "Incorrect attribute key " + k));
+
+        List<AttributeCacheKey> cacheKeys = new ArrayList<>(entityIds.size() * attributeKeys.size());
+        for (EntityId entityId : entityIds) {
+            for (String attributeKey : attributeKeys) {
+                cacheKeys.add(new AttributeCacheKey(scope, entityId, attributeKey));
+            }
+        }
+
+        //CacheExecutor for Redis or DirectExecutor for local Caffeine
+        return Futures.transformAsync(cacheExecutor.submit(() -> {
+                    var wrappedCachedAttributes = cache.getAll(cacheKeys);
+                    hitCounter.add(wrappedCachedAttributes.size());
+                    missCounter.add(cacheKeys.size() - wrappedCachedAttributes.size());
+                    return wrappedCachedAttributes;
+                }),
+                wrappedCachedAttributes -> {
+                    Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+                    Set<AttributeCacheKey> notFoundKeys = new HashSet<>();
+                    for (AttributeCacheKey cacheKey : cacheKeys) {
+                        TbCacheValueWrapper<AttributeKvEntry> cachedAttributeValue = wrappedCachedAttributes.get(cacheKey);
+                        if (cachedAttributeValue == null) {
+                            notFoundKeys.add(cacheKey);
+                        } else if (cachedAttributeValue.get() != null) {
+                            result.computeIfAbsent(cacheKey.getEntityId(), id -> new ArrayList<>()).add(cachedAttributeValue.get());
+                        }
+                    }
+                    if (notFoundKeys.isEmpty()) {
+                        log.trace("[{}][{}] Found all attributes of {} entities from cache", scope, attributeKeys, entityIds.size());
+                        return Futures.immediateFuture(result);
+                    }
+
+                    Set<EntityId> notFoundEntityIds = new LinkedHashSet<>();
+                    Set<String> notFoundAttributeKeys = new LinkedHashSet<>();
+                    notFoundKeys.forEach(cacheKey -> {
+                        notFoundEntityIds.add(cacheKey.getEntityId());
+                        notFoundAttributeKeys.add(cacheKey.getKey());
+                    });
+
+                    // DB call should run in DB executor, not in cache-related executor
+                    return jpaExecutorService.submit(() -> {
+                        log.trace("[{}][{}] Lookup attributes of {} entities from db", scope, notFoundAttributeKeys, notFoundEntityIds.size());
+                        Map<EntityId, List<AttributeKvEntry>> foundInDb = attributesDao.findAll(tenantId, notFoundEntityIds, scope, notFoundAttributeKeys);
+                        for (EntityId entityId : notFoundEntityIds) {
+                            Map<String, AttributeKvEntry> foundInDbByKey = foundInDb.getOrDefault(entityId, Collections.emptyList()).stream()
+                                    .collect(Collectors.toMap(AttributeKvEntry::getKey, Function.identity()));
+                            for (String attributeKey : notFoundAttributeKeys) {
+                                AttributeCacheKey cacheKey = new AttributeCacheKey(scope, entityId, attributeKey);
+                                if (!notFoundKeys.contains(cacheKey)) {
+                                    continue; // already resolved from the cache
+                                }
+                                AttributeKvEntry foundInDbAttribute = foundInDbByKey.get(attributeKey);
+                                cache.put(cacheKey, foundInDbAttribute);
+                                if (foundInDbAttribute != null) {
+                                    result.computeIfAbsent(entityId, id -> new ArrayList<>()).add(foundInDbAttribute);
+                                }
+                            }
+                        }
+                        return result;
+                    });
+                }, MoreExecutors.directExecutor()); // cacheExecutor analyse and returns results or submit to DB executor
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         return attributesDao.findAllKeysByDeviceProfileId(tenantId, deviceProfileId);
@@ -0,0 +1,178 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.audit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsTimer;
+import org.thingsboard.server.common.stats.StatsType;
+import org.thingsboard.server.dao.audit.sink.AuditLogSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persists audit logs and delivers them to the sink in batches from a bounded in-memory buffer.
+ * When the buffer is full or the writer is stopped, new entries are dropped and the returned future fails.
+ * */
+@Component
+@ConditionalOnProperty(prefix = "audit-log.buffer", value = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogBatchWriter {
+
+    private final AuditLogDao auditLogDao;
+    private final AuditLogSink auditLogSink;
+    private final StatsFactory statsFactory;
+
+    @Value("${audit-log.buffer.capacity:100000}")
+    private int capacity;
+    @Value("${audit-log.buffer.batch-size:1000}")
+    private int batchSize;
+    @Value("${audit-log.buffer.max-delay-ms:500}")
+    private long maxDelay;
+
+    private BlockingQueue<AuditLogElement> buffer;
+    private ExecutorService executor;
+    private volatile boolean stopped;
+
+    private final AtomicInteger bufferDepth = new AtomicInteger();
+    private StatsCounter savedCounter;
+    private StatsCounter droppedCounter;
+    private StatsCounter failedCounter;
+    private StatsTimer flushTimer;
+
+    @PostConstruct
+    private void init() {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        savedCounter = statsFactory.createStatsCounter(StatsType.CORE.getName(), "auditLogsSaved");
+        droppedCounter = statsFactory.createStatsCounter(StatsType.CORE.getName(), "auditLogsDropped");
+        failedCounter = statsFactory.createStatsCounter(StatsType.CORE.getName(), "auditLogsFailed");
+        flushTimer = statsFactory.createTimer(StatsType.CORE, "auditLogsFlushTime");
+        statsFactory.createGauge(StatsType.CORE.getName() + ".auditLogsBufferDepth", bufferDepth);
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("audit-log-writer"));
+        executor.execute(this::process);
+    }
+
+    public ListenableFuture<Void> add(AuditLog auditLog) {
+        SettableFuture<Void> future = SettableFuture.create();
+        AuditLogElement element = new AuditLogElement(auditLog, future);
+        if (stopped) {
+            return reject(future, "Audit log writer is stopped");
+        }
+        if (!buffer.offer(element)) {
+            return reject(future, "Audit log buffer is full");
+        }
+        // destroy() sets the flag before the final drain, so an entry offered concurrently is either flushed by the drain
+        // or still in the buffer here
+        if (stopped && buffer.remove(element)) {
+            return reject(future, "Audit log writer is stopped");
+        }
+        bufferDepth.incrementAndGet();
+        return future;
+    }
+
+    private ListenableFuture<Void> reject(SettableFuture<Void> future, String message) {
+        droppedCounter.increment();
+        future.setException(new RejectedExecutionException(message));
+        return future;
+    }
+
+    private void process() {
+        List<AuditLogElement> batch = new ArrayList<>(batchSize);
+        while (!stopped) {
+            try {
+                AuditLogElement element = buffer.poll(maxDelay, TimeUnit.MILLISECONDS);
+                if (element == null) {
+                    continue;
+                }
+                batch.add(element);
+                buffer.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        log.debug("Audit log writer stopped");
+    }
+
+    private void flush(List<AuditLogElement> batch) {
+        bufferDepth.addAndGet(-batch.size());
+        long startTs = System.currentTimeMillis();
+        List<AuditLog> auditLogs = new ArrayList<>(batch.size());
+        batch.forEach(element -> auditLogs.add(element.auditLog()));
+        try {
+            List<AuditLog> saved = auditLogDao.saveAll(auditLogs);
+            savedCounter.add(saved.size());
+            try {
+                auditLogSink.logActions(saved);
+            } catch (Throwable e) {
+                log.error("Failed to deliver {} audit logs to sink", saved.size(), e);
+            }
+            batch.forEach(element -> element.future().set(null));
+        } catch (Throwable e) {
+            log.error("Failed to save {} audit logs", auditLogs.size(), e);
+            failedCounter.add(auditLogs.size());
+            batch.forEach(element -> element.future().setException(e));
+        }
+        flushTimer.record(System.currentTimeMillis() - startTs);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(maxDelay * 2, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        List<AuditLogElement> remaining = new ArrayList<>(buffer.size());
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("Flushing {} audit logs on shutdown", remaining.size());
+            for (int i = 0; i < remaining.size(); i += batchSize) {
+                flush(remaining.subList(i, Math.min(i + batchSize, remaining.size())));
+            }
+        }
+    }
+
+    private record AuditLogElement(AuditLog auditLog, SettableFuture<Void> future) {}
+
+}
@@ -37,6 +37,8 @@ public interface AuditLogDao extends Dao<AuditLog> {
 
     PageData<AuditLog> findAuditLogsByTenantId(UUID tenantId, List<ActionType> actionTypes, TimePageLink pageLink);
 
+    List<AuditLog> saveAll(List<AuditLog> auditLogs);
+
     void cleanUpAuditLogs(long expTime);
 
 }
@@ -84,6 +84,9 @@ public class AuditLogServiceImpl implements AuditLogService {
     @Autowired
     private DataValidator<AuditLog> auditLogValidator;
 
+    @Autowired(required = false)
+    private AuditLogBatchWriter batchWriter;
+
     @Override
     public PageData<AuditLog> findAuditLogsByTenantIdAndCustomerId(TenantId tenantId, CustomerId customerId, List<ActionType> actionTypes, TimePageLink pageLink) {
         log.trace("Executing findAuditLogsByTenantIdAndCustomerId [{}], [{}], [{}]", tenantId, customerId, pageLink);
@@ -425,6 +428,9 @@ public class AuditLogServiceImpl implements AuditLogService {
             }
         }
 
+        if (batchWriter != null) {
+            return batchWriter.add(auditLogEntry);
+        }
         return executor.submit(() -> {
             try {
                 AuditLog auditLog = auditLogDao.save(tenantId, auditLogEntry);
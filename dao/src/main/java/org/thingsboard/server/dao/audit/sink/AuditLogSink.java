@@ -17,7 +17,14 @@ package org.thingsboard.server.dao.audit.sink;
 
 import org.thingsboard.server.common.data.audit.AuditLog;
 
+import java.util.List;
+
 public interface AuditLogSink {
 
     void logAction(AuditLog auditLogEntry);
+
+    default void logActions(List<AuditLog> auditLogEntries) {
+        auditLogEntries.forEach(this::logAction);
+    }
+
 }
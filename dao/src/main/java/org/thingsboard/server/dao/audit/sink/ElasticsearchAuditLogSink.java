@@ -44,6 +44,7 @@ import org.thingsboard.server.common.data.id.TenantId;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -117,6 +118,36 @@ public class ElasticsearchAuditLogSink implements AuditLogSink {
         });
     }
 
+    @Override
+    public void logActions(List<AuditLog> auditLogEntries) {
+        executor.execute(() -> {
+            try {
+                doLogActions(auditLogEntries);
+            } catch (Exception e) {
+                log.error("Failed to log actions", e);
+            }
+        });
+    }
+
+    private void doLogActions(List<AuditLog> auditLogEntries) {
+        StringBuilder bulkContent = new StringBuilder();
+        for (AuditLog auditLogEntry : auditLogEntries) {
+            ObjectNode actionNode = JacksonUtil.newObjectNode();
+            actionNode.putObject("index").put("_index", getIndexName(auditLogEntry.getTenantId()));
+            bulkContent.append(actionNode).append('\n');
+            bulkContent.append(createElasticJsonRecord(auditLogEntry)).append('\n');
+        }
+
+        HttpEntity entity = new NStringEntity(
+                bulkContent.toString(),
+                ContentType.create("application/x-ndjson"));
+
+        Request request = new Request(HttpMethod.POST.name(), "/_bulk");
+        request.setEntity(entity);
+
+        restClient.performRequestAsync(request, responseListener);
+    }
+
     private void doLogAction(AuditLog auditLogEntry) {
         String jsonContent = createElasticJsonRecord(auditLogEntry);
 
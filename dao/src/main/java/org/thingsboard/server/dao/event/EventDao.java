@@ -38,6 +38,13 @@ public interface EventDao {
      */
     ListenableFuture<Void> saveAsync(Event event);
 
+    /**
+     * Save events with a single batch insert, bypassing the events queue
+     *
+     * @param events the event objects
+     */
+    void saveAll(List<Event> events);
+
     /**
      * Find events by tenantId, entityId, eventType and pageLink.
      *
@@ -396,6 +396,10 @@ public interface AlarmRepository extends JpaRepository<AlarmEntity, UUID> {
     @Query(value = "SELECT unassign_alarm(:t_id, :a_id, :a_ts)", nativeQuery = true)
     String unassignAlarm(@Param("t_id") UUID tenantId, @Param("a_id") UUID alarmId, @Param("a_ts") long unassignTime);
 
+    @Query(value = "SELECT a.customer_id, a.type, a.severity, a.acknowledged, a.cleared, count(*) FROM alarm a WHERE a.tenant_id = :tenantId " +
+            "GROUP BY a.customer_id, a.type, a.severity, a.acknowledged, a.cleared", nativeQuery = true)
+    List<Object[]> countAlarmsGroupedByStatus(@Param("tenantId") UUID tenantId);
+
     @Query(value = "SELECT at.type FROM alarm_types AS at WHERE at.tenant_id = :tenantId AND at.type ILIKE CONCAT('%', :searchText, '%')", nativeQuery = true)
     Page<String> findTenantAlarmTypes(@Param("tenantId") UUID tenantId, @Param("searchText") String searchText, Pageable pageable);
 
@@ -56,6 +56,7 @@ import org.thingsboard.server.common.data.query.AlarmData;
 import org.thingsboard.server.common.data.query.AlarmDataQuery;
 import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.dao.DaoUtil;
+import org.thingsboard.server.dao.alarm.AlarmCounterKey;
 import org.thingsboard.server.dao.alarm.AlarmDao;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.model.sql.AlarmEntity;
@@ -67,7 +68,9 @@ import org.thingsboard.server.dao.util.SqlDao;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -418,6 +421,17 @@ public class JpaAlarmDao extends JpaAbstractDao<AlarmEntity, Alarm> implements A
         return alarmQueryRepository.countAlarmsByQuery(tenantId, customerId, query);
     }
 
+    @Override
+    public Map<AlarmCounterKey, Long> countAlarmsGroupedByStatus(TenantId tenantId) {
+        Map<AlarmCounterKey, Long> counters = new HashMap<>();
+        for (Object[] row : alarmRepository.countAlarmsGroupedByStatus(tenantId.getId())) {
+            AlarmCounterKey key = new AlarmCounterKey(row[0] != null ? (UUID) row[0] : EntityId.NULL_UUID, (String) row[1],
+                    AlarmSeverity.valueOf((String) row[2]), (Boolean) row[3], (Boolean) row[4]);
+            counters.merge(key, ((Number) row[5]).longValue(), Long::sum);
+        }
+        return counters;
+    }
+
     @Override
     public PageData<EntitySubtype> findTenantAlarmTypes(UUID tenantId, PageLink pageLink) {
         Page<String> page = alarmRepository.findTenantAlarmTypes(tenantId, Objects.toString(pageLink.getTextSearch(), ""), toPageable(pageLink, false));
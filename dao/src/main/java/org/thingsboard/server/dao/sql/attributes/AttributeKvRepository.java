@@ -23,6 +23,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.server.dao.model.sql.AttributeKvCompositeKey;
 import org.thingsboard.server.dao.model.sql.AttributeKvEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -33,6 +34,13 @@ public interface AttributeKvRepository extends JpaRepository<AttributeKvEntity,
     List<AttributeKvEntity> findAllByEntityIdAndAttributeType(@Param("entityId") UUID entityId,
                                                               @Param("attributeType") int attributeType);
 
+    @Query("SELECT a FROM AttributeKvEntity a WHERE a.id.entityId IN :entityIds " +
+            "AND a.id.attributeType = :attributeType " +
+            "AND a.id.attributeKey IN :attributeKeys")
+    List<AttributeKvEntity> findAllByEntityIdsAndAttributeTypeAndAttributeKeys(@Param("entityIds") Collection<UUID> entityIds,
+                                                                               @Param("attributeType") int attributeType,
+                                                                               @Param("attributeKeys") Collection<Integer> attributeKeys);
+
     @Transactional
     @Modifying
     @Query("DELETE FROM AttributeKvEntity a WHERE a.id.entityId = :entityId " +
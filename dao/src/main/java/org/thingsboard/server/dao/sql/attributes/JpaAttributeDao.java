@@ -46,9 +46,13 @@ import org.thingsboard.server.dao.util.SqlDao;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -84,6 +88,9 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Value("${sql.attributes.batch_threads:4}")
     private int batchThreads;
 
+    @Value("${sql.attributes.multi_entity_query_partition_size:1000}")
+    private int multiEntityQueryPartitionSize;
+
     @Value("${sql.batch_sort:true}")
     private boolean batchSortEnabled;
 
@@ -152,6 +159,29 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
         return DaoUtil.convertDataList(Lists.newArrayList(attributes));
     }
 
+    @Override
+    public Map<EntityId, List<AttributeKvEntry>> findAll(TenantId tenantId, Collection<EntityId> entityIds, AttributeScope attributeScope, Collection<String> attributeKeys) {
+        if (entityIds.isEmpty() || attributeKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<UUID, EntityId> entityIdsByUuid = new HashMap<>(entityIds.size());
+        entityIds.forEach(entityId -> entityIdsByUuid.put(entityId.getId(), entityId));
+        Map<Integer, String> keysById = new HashMap<>(attributeKeys.size());
+        attributeKeys.forEach(attributeKey -> keysById.put(keyDictionaryDao.getOrSaveKeyId(attributeKey), attributeKey));
+
+        Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+        for (List<UUID> partition : Lists.partition(new ArrayList<>(entityIdsByUuid.keySet()), multiEntityQueryPartitionSize)) {
+            List<AttributeKvEntity> attributes = attributeKvRepository.findAllByEntityIdsAndAttributeTypeAndAttributeKeys(
+                    partition, attributeScope.getId(), keysById.keySet());
+            for (AttributeKvEntity attributeKvEntity : attributes) {
+                attributeKvEntity.setStrKey(keysById.get(attributeKvEntity.getId().getAttributeKey()));
+                result.computeIfAbsent(entityIdsByUuid.get(attributeKvEntity.getId().getEntityId()), id -> new ArrayList<>())
+                        .add(attributeKvEntity.toData());
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         if (deviceProfileId != null) {
@@ -15,13 +15,16 @@
  */
 package org.thingsboard.server.dao.sql.audit;
 
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.audit.ActionType;
 import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.AuditLogId;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.UserId;
@@ -35,6 +38,7 @@ import org.thingsboard.server.dao.sql.JpaPartitionedAbstractDao;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
 
+import java.sql.Types;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -48,8 +52,14 @@ import static org.thingsboard.server.dao.model.ModelConstants.AUDIT_LOG_TABLE_NA
 @Slf4j
 public class JpaAuditLogDao extends JpaPartitionedAbstractDao<AuditLogEntity, AuditLog> implements AuditLogDao {
 
+    private static final String INSERT_QUERY = "INSERT INTO " + AUDIT_LOG_TABLE_NAME +
+            " (id, created_time, tenant_id, customer_id, entity_id, entity_type, entity_name, user_id, user_name, " +
+            "action_type, action_data, action_status, action_failure_details) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING;";
+
     private final AuditLogRepository auditLogRepository;
     private final SqlPartitioningRepository partitioningRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${sql.audit_logs.partition_size:168}")
     private int partitionSizeInHours;
@@ -109,6 +119,35 @@ public class JpaAuditLogDao extends JpaPartitionedAbstractDao<AuditLogEntity, Au
                         DaoUtil.toPageable(pageLink)));
     }
 
+    @Override
+    public List<AuditLog> saveAll(List<AuditLog> auditLogs) {
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getId() == null) {
+                UUID uuid = Uuids.timeBased();
+                auditLog.setId(new AuditLogId(uuid));
+                auditLog.setCreatedTime(Uuids.unixTimestamp(uuid));
+            }
+            partitioningRepository.createPartitionIfNotExists(AUDIT_LOG_TABLE_NAME, auditLog.getCreatedTime(), TimeUnit.HOURS.toMillis(partitionSizeInHours));
+        }
+        jdbcTemplate.batchUpdate(INSERT_QUERY, auditLogs, auditLogs.size(), (ps, auditLog) -> {
+            AuditLogEntity entity = new AuditLogEntity(auditLog);
+            ps.setObject(1, entity.getUuid());
+            ps.setLong(2, entity.getCreatedTime());
+            ps.setObject(3, entity.getTenantId(), Types.OTHER);
+            ps.setObject(4, entity.getCustomerId(), Types.OTHER);
+            ps.setObject(5, entity.getEntityId(), Types.OTHER);
+            ps.setString(6, entity.getEntityType() != null ? entity.getEntityType().name() : null);
+            ps.setString(7, entity.getEntityName());
+            ps.setObject(8, entity.getUserId(), Types.OTHER);
+            ps.setString(9, entity.getUserName());
+            ps.setString(10, entity.getActionType() != null ? entity.getActionType().name() : null);
+            ps.setString(11, entity.getActionData() != null ? entity.getActionData().toString() : null);
+            ps.setString(12, entity.getActionStatus() != null ? entity.getActionStatus().name() : null);
+            ps.setString(13, entity.getActionFailureDetails());
+        });
+        return auditLogs;
+    }
+
     @Override
     public void cleanUpAuditLogs(long expTime) {
         partitioningRepository.dropPartitionsBefore(AUDIT_LOG_TABLE_NAME, expTime, TimeUnit.HOURS.toMillis(partitionSizeInHours));
@@ -122,6 +122,18 @@ public class JpaBaseEventDao implements EventDao {
     @Override
     public ListenableFuture<Void> saveAsync(Event event) {
         log.debug("Save event [{}] ", event);
+        prepareForSave(event);
+        return queue.add(event);
+    }
+
+    @Override
+    public void saveAll(List<Event> events) {
+        log.debug("Save {} events", events.size());
+        events.forEach(this::prepareForSave);
+        eventInsertRepository.save(events);
+    }
+
+    private void prepareForSave(Event event) {
         if (event.getId() == null) {
             UUID timeBased = Uuids.timeBased();
             event.setId(new EventId(timeBased));
@@ -136,7 +148,6 @@ public class JpaBaseEventDao implements EventDao {
         }
         partitioningRepository.createPartitionIfNotExists(event.getType().getTable(), event.getCreatedTime(),
                 partitionConfiguration.getPartitionSizeInMs(event.getType()));
-        return queue.add(event);
     }
 
     @Override
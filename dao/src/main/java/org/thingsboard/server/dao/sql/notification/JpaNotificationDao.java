@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.sql.notification;
 
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.collections4.CollectionUtils;
 import org.springframework.beans.factory.annotation.Value;
@@ -39,6 +40,8 @@ import org.thingsboard.server.dao.sql.JpaPartitionedAbstractDao;
 import org.thingsboard.server.dao.sqlts.insert.sql.SqlPartitioningRepository;
 import org.thingsboard.server.dao.util.SqlDao;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -54,6 +57,44 @@ public class JpaNotificationDao extends JpaPartitionedAbstractDao<NotificationEn
     @Value("${sql.notifications.partition_size:168}")
     private int partitionSizeInHours;
 
+    private static final String INSERT_NOTIFICATION_QUERY = "INSERT INTO notification " +
+            "(id, created_time, request_id, recipient_id, type, delivery_method, subject, body, additional_config, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Inserts new notifications with a single JDBC batch instead of persisting them one by one
+     * */
+    @Override
+    public List<Notification> saveAll(TenantId tenantId, List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return notifications;
+        }
+        List<NotificationEntity> entities = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            NotificationEntity entity = new NotificationEntity(notification);
+            if (entity.getUuid() == null) {
+                UUID uuid = Uuids.timeBased();
+                entity.setUuid(uuid);
+                entity.setCreatedTime(Uuids.unixTimestamp(uuid));
+            }
+            createPartition(entity);
+            entities.add(entity);
+        }
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_QUERY, entities, entities.size(), (ps, entity) -> {
+            ps.setObject(1, entity.getUuid());
+            ps.setLong(2, entity.getCreatedTime());
+            ps.setObject(3, entity.getRequestId());
+            ps.setObject(4, entity.getRecipientId());
+            ps.setString(5, entity.getType().name());
+            ps.setString(6, entity.getDeliveryMethod().name());
+            ps.setString(7, entity.getSubject());
+            ps.setString(8, entity.getText());
+            ps.setString(9, entity.getAdditionalConfig() != null ? entity.getAdditionalConfig().toString() : null);
+            ps.setString(10, entity.getStatus() != null ? entity.getStatus().name() : null);
+        });
+        return DaoUtil.convertDataList(entities);
+    }
+
     @Override
     public PageData<Notification> findUnreadByDeliveryMethodAndRecipientIdAndPageLink(TenantId tenantId, NotificationDeliveryMethod deliveryMethod, UserId recipientId, PageLink pageLink) {
         return DaoUtil.toPageData(notificationRepository.findByDeliveryMethodAndRecipientIdAndStatusNot(deliveryMethod,
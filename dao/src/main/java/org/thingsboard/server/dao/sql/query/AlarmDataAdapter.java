@@ -48,12 +48,19 @@ public class AlarmDataAdapter {
     public static PageData<AlarmData> createAlarmData(EntityDataPageLink pageLink,
                                                       List<Map<String, Object>> rows,
                                                       int totalElements, Collection<EntityId> orderedEntityIds) {
-        Map<UUID, EntityId> entityIdMap = orderedEntityIds.stream().collect(Collectors.toMap(EntityId::getId, Function.identity()));
-        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
         int startIndex = pageLink.getPageSize() * pageLink.getPage();
         boolean hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + rows.size();
+        return createAlarmData(pageLink, rows, totalElements, hasNext, false, orderedEntityIds);
+    }
+
+    public static PageData<AlarmData> createAlarmData(EntityDataPageLink pageLink,
+                                                      List<Map<String, Object>> rows,
+                                                      int totalElements, boolean hasNext, boolean approximate,
+                                                      Collection<EntityId> orderedEntityIds) {
+        Map<UUID, EntityId> entityIdMap = orderedEntityIds.stream().collect(Collectors.toMap(EntityId::getId, Function.identity()));
+        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
         List<AlarmData> entitiesData = convertListToAlarmData(rows, entityIdMap);
-        return new PageData<>(entitiesData, totalPages, totalElements, hasNext);
+        return new PageData<>(entitiesData, totalPages, totalElements, hasNext, approximate);
     }
 
     private static List<AlarmData> convertListToAlarmData(List<Map<String, Object>> result, Map<UUID, EntityId> entityIdMap) {
@@ -35,6 +35,7 @@ import org.thingsboard.server.common.data.query.AlarmDataQuery;
 import org.thingsboard.server.common.data.query.EntityDataSortOrder;
 import org.thingsboard.server.common.data.query.EntityKey;
 import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.dao.exception.IncorrectParameterException;
 import org.thingsboard.server.dao.model.ModelConstants;
 
 import java.util.ArrayList;
@@ -44,6 +45,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Repository
@@ -51,6 +53,12 @@ import java.util.stream.Collectors;
 public class DefaultAlarmQueryRepository implements AlarmQueryRepository {
 
     private static final Map<String, String> alarmFieldColumnMap = new HashMap<>();
+    private static final Set<String> numericKeysetColumns = Set.of(ModelConstants.CREATED_TIME_PROPERTY, ModelConstants.ALARM_ACK_TS_PROPERTY,
+            ModelConstants.ALARM_CLEAR_TS_PROPERTY, ModelConstants.ALARM_ASSIGN_TS_PROPERTY, ModelConstants.ALARM_END_TS_PROPERTY,
+            ModelConstants.ALARM_START_TS_PROPERTY);
+    private static final Set<String> textKeysetColumns = Set.of(ModelConstants.ALARM_TYPE_PROPERTY, ModelConstants.ALARM_SEVERITY_PROPERTY,
+            ModelConstants.ALARM_ORIGINATOR_NAME_PROPERTY, ModelConstants.ALARM_ORIGINATOR_LABEL_PROPERTY, ModelConstants.ALARM_ASSIGNEE_FIRST_NAME_PROPERTY,
+            ModelConstants.ALARM_ASSIGNEE_LAST_NAME_PROPERTY, ModelConstants.ALARM_ASSIGNEE_EMAIL_PROPERTY);
 
     private static final String ASSIGNEE_EMAIL_KEY = "assigneeEmail";
     private static final String ASSIGNEE_LAST_NAME_KEY = "assigneeLastName";
@@ -117,11 +125,14 @@ public class DefaultAlarmQueryRepository implements AlarmQueryRepository {
     private final TransactionTemplate transactionTemplate;
 
     private final DefaultQueryLogComponent queryLog;
+    private final QueryCountEstimator countEstimator;
 
-    public DefaultAlarmQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, DefaultQueryLogComponent queryLog) {
+    public DefaultAlarmQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       DefaultQueryLogComponent queryLog, QueryCountEstimator countEstimator) {
         this.jdbcTemplate = jdbcTemplate;
         this.transactionTemplate = transactionTemplate;
         this.queryLog = queryLog;
+        this.countEstimator = countEstimator;
     }
 
     @Override
@@ -163,13 +174,18 @@ public class DefaultAlarmQueryRepository implements AlarmQueryRepository {
             }
 
             String textSearchQuery = buildTextSearchQuery(ctx, alarmFields, pageLink.getTextSearch());
+            String keysetColumn = null;
             if (sortOrder != null && sortOrder.getKey().getType().equals(EntityKeyType.ALARM_FIELD)) {
                 String sortOrderKey = sortOrder.getKey().getKey();
                 if ("status".equalsIgnoreCase(sortOrderKey)) {
                     selectPart.append(", a.status as status ");
                 }
-                sortPart.append(alarmFieldColumnMap.getOrDefault(sortOrderKey, sortOrderKey))
-                        .append(" ").append(sortOrder.getDirection().name());
+                String sortColumn = alarmFieldColumnMap.getOrDefault(sortOrderKey, sortOrderKey);
+                sortPart.append(sortColumn).append(" ").append(sortOrder.getDirection().name())
+                        .append(", a.id ").append(sortOrder.getDirection().name());
+                if (numericKeysetColumns.contains(sortColumn) || textKeysetColumns.contains(sortColumn)) {
+                    keysetColumn = sortColumn;
+                }
                 if (pageLink.isSearchPropagatedAlarms()) {
                     wherePart.append(" and ea.entity_id in (:entity_ids)");
                 } else {
@@ -284,23 +300,45 @@ public class DefaultAlarmQueryRepository implements AlarmQueryRepository {
             } else {
                 mainQuery = String.format("select * from (%s%s) a %s WHERE %s", mainQuery, wherePart, joinPart, textSearchQuery);
             }
-            String countQuery = String.format("select count(*) from (%s) result", mainQuery);
+            String countFromClause = String.format("from (%s) result", mainQuery);
+            String countQuery = "select count(*) " + countFromClause;
             long queryTs = System.currentTimeMillis();
             int totalElements;
-            try {
-                totalElements = jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
-            } finally {
-                queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - queryTs);
+            boolean approximate = false;
+            if (pageLink.isApproximateCount()) {
+                QueryCountEstimator.QueryCount count = countEstimator.count(ctx, countQuery, countFromClause);
+                totalElements = count.value();
+                approximate = count.approximate();
+            } else {
+                try {
+                    totalElements = jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
+                } finally {
+                    queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - queryTs);
+                }
             }
-            if (totalElements == 0) {
+            if (totalElements == 0 && !approximate) {
                 return AlarmDataAdapter.createAlarmData(pageLink, Collections.emptyList(), totalElements, orderedEntityIds);
             }
 
-            String dataQuery = mainQuery + sortPart;
+            // propagated alarms may be returned once per entity, so the alarm id is not a unique seek key for them
+            boolean keyset = pageLink.isKeyset() && pageLink.getPageSize() > 0 && keysetColumn != null && !pageLink.isSearchPropagatedAlarms();
+            String dataQuery;
+            if (keyset) {
+                boolean asc = sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC;
+                String keysetCondition = KeysetCondition.build(ctx, "a." + keysetColumn, "a.id", asc,
+                        toKeysetValue(keysetColumn, pageLink.getLastSortValue()), pageLink.getLastId());
+                dataQuery = String.format("select * from (%s) a where %s%s", mainQuery, keysetCondition, sortPart);
+            } else {
+                dataQuery = mainQuery + sortPart;
+            }
 
             int startIndex = pageLink.getPageSize() * pageLink.getPage();
+            // one extra row tells whether there is a next page when the total count is not exact or not offset based
+            boolean fetchNext = pageLink.getPageSize() > 0 && (keyset || approximate);
             if (pageLink.getPageSize() > 0) {
-                dataQuery = String.format("%s limit %s offset %s", dataQuery, pageLink.getPageSize(), startIndex);
+                int limit = fetchNext ? pageLink.getPageSize() + 1 : pageLink.getPageSize();
+                dataQuery = keyset ? String.format("%s limit %s", dataQuery, limit) :
+                        String.format("%s limit %s offset %s", dataQuery, limit, startIndex);
             }
             queryTs = System.currentTimeMillis();
             List<Map<String, Object>> rows;
@@ -309,10 +347,30 @@ public class DefaultAlarmQueryRepository implements AlarmQueryRepository {
             } finally {
                 queryLog.logQuery(ctx, dataQuery, System.currentTimeMillis() - queryTs);
             }
-            return AlarmDataAdapter.createAlarmData(pageLink, rows, totalElements, orderedEntityIds);
+            boolean hasNext;
+            if (fetchNext) {
+                hasNext = rows.size() > pageLink.getPageSize();
+                if (hasNext) {
+                    rows = rows.subList(0, pageLink.getPageSize());
+                }
+            } else {
+                hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + rows.size();
+            }
+            return AlarmDataAdapter.createAlarmData(pageLink, rows, totalElements, hasNext, approximate, orderedEntityIds);
         });
     }
 
+    private static Object toKeysetValue(String column, String value) {
+        if (value == null || !numericKeysetColumns.contains(column)) {
+            return value;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IncorrectParameterException("Invalid last sort value '" + value + "' for alarm field '" + column + "'");
+        }
+    }
+
     @Override
     public long countAlarmsByQuery(TenantId tenantId, CustomerId customerId, AlarmCountQuery query) {
         QueryContext ctx = new QueryContext(new QuerySecurityContext(tenantId, null, EntityType.ALARM));
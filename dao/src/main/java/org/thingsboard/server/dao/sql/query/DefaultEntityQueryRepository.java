@@ -58,7 +58,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -324,11 +323,14 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TransactionTemplate transactionTemplate;
     private final DefaultQueryLogComponent queryLog;
+    private final QueryCountEstimator countEstimator;
 
-    public DefaultEntityQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, DefaultQueryLogComponent queryLog) {
+    public DefaultEntityQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                        DefaultQueryLogComponent queryLog, QueryCountEstimator countEstimator) {
         this.jdbcTemplate = jdbcTemplate;
         this.transactionTemplate = transactionTemplate;
         this.queryLog = queryLog;
+        this.countEstimator = countEstimator;
     }
 
     @Override
@@ -484,34 +486,56 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
 
             long startTs = System.currentTimeMillis();
             int totalElements;
-            try {
-                totalElements = jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
-            } finally {
-                queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - startTs);
+            boolean approximate = false;
+            if (pageLink.isApproximateCount()) {
+                QueryCountEstimator.QueryCount count = countEstimator.count(ctx, countQuery, fromClauseCount);
+                totalElements = count.value();
+                approximate = count.approximate();
+            } else {
+                try {
+                    totalElements = jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
+                } finally {
+                    queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - startTs);
+                }
             }
 
-            if (totalElements == 0) {
+            if (totalElements == 0 && !approximate) {
                 return new PageData<>();
             }
             String dataQuery = String.format("select * %s", fromClauseData);
 
             EntityDataSortOrder sortOrder = pageLink.getSortOrder();
+            EntityKeyMapping sortOrderMapping = null;
             if (sortOrder != null) {
-                Optional<EntityKeyMapping> sortOrderMappingOpt = mappings.stream().filter(EntityKeyMapping::isSortOrder).findFirst();
-                if (sortOrderMappingOpt.isPresent()) {
-                    EntityKeyMapping sortOrderMapping = sortOrderMappingOpt.get();
-                    String direction = sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC ? "asc" : "desc";
-                    if (sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD) {
-                        dataQuery = String.format("%s order by %s %s, result.id %s", dataQuery, sortOrderMapping.getValueAlias(), direction, direction);
-                    } else {
-                        dataQuery = String.format("%s order by %s %s, %s %s, result.id %s", dataQuery,
-                                sortOrderMapping.getSortOrderNumAlias(), direction, sortOrderMapping.getSortOrderStrAlias(), direction, direction);
-                    }
+                sortOrderMapping = mappings.stream().filter(EntityKeyMapping::isSortOrder).findFirst().orElse(null);
+            }
+            boolean keyset = pageLink.isKeyset() && pageLink.getPageSize() > 0 &&
+                    (sortOrderMapping == null || sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD);
+            if (keyset) {
+                boolean asc = sortOrderMapping == null || sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC;
+                String valueExpr = sortOrderMapping != null ? "result." + sortOrderMapping.getValueAlias() : null;
+                dataQuery = String.format("select * from (%s) result where %s", dataQuery,
+                        KeysetCondition.build(ctx, valueExpr, "result.id", asc, pageLink.getLastSortValue(), pageLink.getLastId()));
+                if (sortOrderMapping == null) {
+                    dataQuery = dataQuery + " order by result.id asc";
+                }
+            }
+            if (sortOrderMapping != null) {
+                String direction = sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC ? "asc" : "desc";
+                if (sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD) {
+                    dataQuery = String.format("%s order by %s %s, result.id %s", dataQuery, sortOrderMapping.getValueAlias(), direction, direction);
+                } else {
+                    dataQuery = String.format("%s order by %s %s, %s %s, result.id %s", dataQuery,
+                            sortOrderMapping.getSortOrderNumAlias(), direction, sortOrderMapping.getSortOrderStrAlias(), direction, direction);
                 }
             }
             int startIndex = pageLink.getPageSize() * pageLink.getPage();
+            // one extra row tells whether there is a next page when the total count is not exact or not offset based
+            boolean fetchNext = pageLink.getPageSize() > 0 && (keyset || approximate);
             if (pageLink.getPageSize() > 0) {
-                dataQuery = String.format("%s limit %s offset %s", dataQuery, pageLink.getPageSize(), startIndex);
+                int limit = fetchNext ? pageLink.getPageSize() + 1 : pageLink.getPageSize();
+                dataQuery = keyset ? String.format("%s limit %s", dataQuery, limit) :
+                        String.format("%s limit %s offset %s", dataQuery, limit, startIndex);
             }
             startTs = System.currentTimeMillis();
             List<Map<String, Object>> rows;
@@ -520,7 +544,16 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
             } finally {
                 queryLog.logQuery(ctx, dataQuery, System.currentTimeMillis() - startTs);
             }
-            return EntityDataAdapter.createEntityData(pageLink, selectionMapping, rows, totalElements);
+            boolean hasNext;
+            if (fetchNext) {
+                hasNext = rows.size() > pageLink.getPageSize();
+                if (hasNext) {
+                    rows = rows.subList(0, pageLink.getPageSize());
+                }
+            } else {
+                hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + rows.size();
+            }
+            return EntityDataAdapter.createEntityData(pageLink, selectionMapping, rows, totalElements, hasNext, approximate);
         });
     }
 
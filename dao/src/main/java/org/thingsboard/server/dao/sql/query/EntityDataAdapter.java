@@ -39,11 +39,18 @@ public class EntityDataAdapter {
                                                         List<EntityKeyMapping> selectionMapping,
                                                         List<Map<String, Object>> rows,
                                                         int totalElements) {
-        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
         int startIndex = pageLink.getPageSize() * pageLink.getPage();
         boolean hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + rows.size();
+        return createEntityData(pageLink, selectionMapping, rows, totalElements, hasNext, false);
+    }
+
+    public static PageData<EntityData> createEntityData(EntityDataPageLink pageLink,
+                                                        List<EntityKeyMapping> selectionMapping,
+                                                        List<Map<String, Object>> rows,
+                                                        int totalElements, boolean hasNext, boolean approximate) {
+        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
         List<EntityData> entitiesData = convertListToEntityData(rows, selectionMapping);
-        return new PageData<>(entitiesData, totalPages, totalElements, hasNext);
+        return new PageData<>(entitiesData, totalPages, totalElements, hasNext, approximate);
     }
 
     private static List<EntityData> convertListToEntityData(List<Map<String, Object>> result, List<EntityKeyMapping> selectionMapping) {
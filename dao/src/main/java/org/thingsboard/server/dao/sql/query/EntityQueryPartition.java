@@ -0,0 +1,295 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Columnar in-memory replica of the entity fields of one entity type of one tenant.
+ * Rows are stored densely; a removed row is replaced with the last one.
+ * While the partition is loading, ids of removed entities are remembered so that the rows read by the load
+ * before the delete was committed are not inserted back.
+ */
+public class EntityQueryPartition {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    @Getter
+    private final TenantId tenantId;
+    @Getter
+    private final EntityType entityType;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> rows = new HashMap<>();
+    private final Map<String, Integer> typeIndex = new HashMap<>();
+    private final Set<UUID> removedWhileLoading = new HashSet<>();
+    private boolean loading = true;
+    private String[] typeDictionary = new String[16];
+
+    private long[] idMsb = new long[INITIAL_CAPACITY];
+    private long[] idLsb = new long[INITIAL_CAPACITY];
+    private long[] customerIdMsb = new long[INITIAL_CAPACITY];
+    private long[] customerIdLsb = new long[INITIAL_CAPACITY];
+    private long[] createdTime = new long[INITIAL_CAPACITY];
+    private long[] version = new long[INITIAL_CAPACITY];
+    private int[] type = new int[INITIAL_CAPACITY];
+    private String[] name = new String[INITIAL_CAPACITY];
+    private String[] label = new String[INITIAL_CAPACITY];
+    private int size;
+    private long versionSum;
+
+    @Getter
+    private volatile long lastAccessTs = System.currentTimeMillis();
+    @Getter
+    private volatile long lastCheckTs;
+    private final AtomicBoolean readSinceCheck = new AtomicBoolean();
+
+    public EntityQueryPartition(TenantId tenantId, EntityType entityType) {
+        this.tenantId = tenantId;
+        this.entityType = entityType;
+    }
+
+    /**
+     * Inserts or updates the entity unless the partition already has a newer version of it.
+     */
+    public void upsert(UUID id, long createdTime, UUID customerId, String name, String type, String label, long version) {
+        lock.writeLock().lock();
+        try {
+            removedWhileLoading.remove(id);
+            doUpsert(id, createdTime, customerId, name, type, label, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a row read by the initial load, unless the entity was removed after the load started.
+     */
+    public void load(UUID id, long createdTime, UUID customerId, String name, String type, String label, long version) {
+        lock.writeLock().lock();
+        try {
+            if (!removedWhileLoading.contains(id)) {
+                doUpsert(id, createdTime, customerId, name, type, label, version);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoading() {
+        lock.writeLock().lock();
+        try {
+            loading = false;
+            removedWhileLoading.clear();
+            lastCheckTs = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void markChecked() {
+        lastCheckTs = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if the partition was read since the previous call
+     */
+    public boolean resetReadSinceCheck() {
+        return readSinceCheck.getAndSet(false);
+    }
+
+    private void doUpsert(UUID id, long createdTime, UUID customerId, String name, String type, String label, long version) {
+        Integer row = rows.get(id);
+        if (row == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rows.put(id, row);
+            this.idMsb[row] = id.getMostSignificantBits();
+            this.idLsb[row] = id.getLeastSignificantBits();
+        } else if (this.version[row] > version) {
+            // the partition is being loaded and already has a newer state of the entity
+            return;
+        } else {
+            versionSum -= this.version[row];
+        }
+        this.createdTime[row] = createdTime;
+        this.customerIdMsb[row] = customerId != null ? customerId.getMostSignificantBits() : 0;
+        this.customerIdLsb[row] = customerId != null ? customerId.getLeastSignificantBits() : 0;
+        this.name[row] = name;
+        this.type[row] = typeIndex(type);
+        this.label[row] = label;
+        this.version[row] = version;
+        versionSum += version;
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                removedWhileLoading.add(id);
+            }
+            Integer row = rows.remove(id);
+            if (row == null) {
+                return;
+            }
+            versionSum -= version[row];
+            int last = --size;
+            if (row != last) {
+                idMsb[row] = idMsb[last];
+                idLsb[row] = idLsb[last];
+                customerIdMsb[row] = customerIdMsb[last];
+                customerIdLsb[row] = customerIdLsb[last];
+                createdTime[row] = createdTime[last];
+                version[row] = version[last];
+                type[row] = type[last];
+                name[row] = name[last];
+                label[row] = label[last];
+                rows.put(new UUID(idMsb[row], idLsb[row]), row);
+            }
+            name[last] = null;
+            label[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getVersionSum() {
+        lock.readLock().lock();
+        try {
+            return versionSum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs {@code action} under the read lock, so the row indexes it sees stay valid until it returns.
+     */
+    public <T> T read(Function<EntityQueryPartition, T> action) {
+        lastAccessTs = System.currentTimeMillis();
+        readSinceCheck.set(true);
+        lock.readLock().lock();
+        try {
+            return action.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int[] scan(IntPredicate filter) {
+        int[] result = new int[Math.min(size, 64)];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (filter.test(row)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, Math.max(16, Math.min(size, count * 2)));
+                }
+                result[count++] = row;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    int rowCount() {
+        return size;
+    }
+
+    UUID getId(int row) {
+        return new UUID(idMsb[row], idLsb[row]);
+    }
+
+    boolean hasId(int row, UUID id) {
+        return idMsb[row] == id.getMostSignificantBits() && idLsb[row] == id.getLeastSignificantBits();
+    }
+
+    boolean hasCustomerId(int row, UUID customerId) {
+        return customerIdMsb[row] == customerId.getMostSignificantBits() && customerIdLsb[row] == customerId.getLeastSignificantBits();
+    }
+
+    /**
+     * Same order as the Postgres uuid type: unsigned byte-wise comparison.
+     */
+    int compareIds(int row1, int row2) {
+        int result = Long.compareUnsigned(idMsb[row1], idMsb[row2]);
+        return result != 0 ? result : Long.compareUnsigned(idLsb[row1], idLsb[row2]);
+    }
+
+    long getCreatedTime(int row) {
+        return createdTime[row];
+    }
+
+    String getName(int row) {
+        return name[row];
+    }
+
+    String getType(int row) {
+        return typeDictionary[type[row]];
+    }
+
+    String getLabel(int row) {
+        return label[row];
+    }
+
+    private int typeIndex(String type) {
+        return typeIndex.computeIfAbsent(type, t -> {
+            int idx = typeIndex.size();
+            if (idx == typeDictionary.length) {
+                typeDictionary = Arrays.copyOf(typeDictionary, idx * 2);
+            }
+            typeDictionary[idx] = t;
+            return idx;
+        });
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= idMsb.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, idMsb.length * 2);
+        idMsb = Arrays.copyOf(idMsb, newCapacity);
+        idLsb = Arrays.copyOf(idLsb, newCapacity);
+        customerIdMsb = Arrays.copyOf(customerIdMsb, newCapacity);
+        customerIdLsb = Arrays.copyOf(customerIdLsb, newCapacity);
+        createdTime = Arrays.copyOf(createdTime, newCapacity);
+        version = Arrays.copyOf(version, newCapacity);
+        type = Arrays.copyOf(type, newCapacity);
+        name = Arrays.copyOf(name, newCapacity);
+        label = Arrays.copyOf(label, newCapacity);
+    }
+
+}
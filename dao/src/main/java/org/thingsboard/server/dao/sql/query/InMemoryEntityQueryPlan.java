@@ -0,0 +1,399 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.AssetTypeFilter;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityListFilter;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.FilterPredicateType;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.SingleEntityFilter;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+import org.thingsboard.server.common.data.query.TsValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.thingsboard.server.common.data.StringUtils.splitByCommaWithoutQuotes;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.ADDITIONAL_INFO;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.CREATED_TIME;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.ENTITY_TYPE;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.LABEL;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.NAME;
+import static org.thingsboard.server.dao.sql.query.EntityKeyMapping.TYPE;
+
+/**
+ * Evaluates entity data and count queries over an {@link EntityQueryPartition} with the same semantics as
+ * the SQL generated by {@link DefaultEntityQueryRepository}. Only queries over entity fields are supported.
+ */
+public class InMemoryEntityQueryPlan {
+
+    private static final Set<String> SUPPORTED_FIELDS = Set.of(CREATED_TIME, ENTITY_TYPE, NAME, TYPE, LABEL);
+
+    public static boolean isSupported(EntityDataQuery query) {
+        EntityDataPageLink pageLink = query.getPageLink();
+        EntityDataSortOrder sortOrder = pageLink.getSortOrder();
+        // pages are selected by offset only, keyset and approximate count paging are left to the SQL engine.
+        // string fields are sorted by the database collation, which can't be reproduced here, so only createdTime sort is supported
+        return !pageLink.isKeyset() && !pageLink.isApproximateCount()
+                && isSupported(query.getEntityFilter(), query.getKeyFilters())
+                && (query.getLatestValues() == null || query.getLatestValues().isEmpty())
+                && (query.getEntityFields() == null || query.getEntityFields().stream().allMatch(InMemoryEntityQueryPlan::isSupportedKey))
+                && (sortOrder == null || sortOrder.getKey() == null || isSupportedSortKey(sortOrder.getKey()));
+    }
+
+    public static boolean isSupported(EntityCountQuery query) {
+        return isSupported(query.getEntityFilter(), query.getKeyFilters());
+    }
+
+    private static boolean isSupported(EntityFilter entityFilter, List<KeyFilter> keyFilters) {
+        if (entityFilter == null) {
+            return false;
+        }
+        switch (entityFilter.getType()) {
+            case SINGLE_ENTITY, ENTITY_LIST, ENTITY_NAME, ENTITY_TYPE, DEVICE_TYPE, ASSET_TYPE -> {
+            }
+            default -> {
+                return false;
+            }
+        }
+        return keyFilters == null || keyFilters.stream().allMatch(keyFilter -> isSupportedKey(keyFilter.getKey())
+                && isSupportedPredicate(keyFilter.getKey(), keyFilter.getPredicate()));
+    }
+
+    private static boolean isSupportedKey(EntityKey key) {
+        return key.getType() == EntityKeyType.ENTITY_FIELD && SUPPORTED_FIELDS.contains(key.getKey());
+    }
+
+    private static boolean isSupportedSortKey(EntityKey key) {
+        return key.getType() == EntityKeyType.ENTITY_FIELD && CREATED_TIME.equals(key.getKey());
+    }
+
+    private static boolean isSupportedPredicate(EntityKey key, KeyFilterPredicate predicate) {
+        if (predicate == null) {
+            return false;
+        }
+        return switch (predicate.getType()) {
+            case STRING -> !CREATED_TIME.equals(key.getKey());
+            case NUMERIC -> CREATED_TIME.equals(key.getKey());
+            case COMPLEX -> ((ComplexFilterPredicate) predicate).getPredicates().stream().allMatch(p -> isSupportedPredicate(key, p));
+            default -> false;
+        };
+    }
+
+    public static long countEntities(EntityQueryPartition partition, CustomerId customerId, EntityCountQuery query) {
+        IntPredicate filter = buildFilter(partition, customerId, query.getEntityFilter(), query.getKeyFilters());
+        return partition.scan(filter).length;
+    }
+
+    public static PageData<EntityData> findEntityData(EntityQueryPartition partition, CustomerId customerId, EntityDataQuery query) {
+        EntityDataPageLink pageLink = query.getPageLink();
+        List<EntityKey> entityFields = query.getEntityFields() != null ? query.getEntityFields() : Collections.emptyList();
+        IntPredicate filter = buildFilter(partition, customerId, query.getEntityFilter(), query.getKeyFilters());
+        if (StringUtils.isNotEmpty(pageLink.getTextSearch()) && !entityFields.isEmpty()) {
+            filter = filter.and(textSearchFilter(partition, entityFields, pageLink.getTextSearch()));
+        }
+        int[] rows = partition.scan(filter);
+        int totalElements = rows.length;
+        if (totalElements == 0) {
+            return new PageData<>();
+        }
+        int startIndex = pageLink.getPageSize() * pageLink.getPage();
+        int endIndex = pageLink.getPageSize() > 0 ? (int) Math.min((long) startIndex + pageLink.getPageSize(), totalElements) : totalElements;
+        int[] pageRows;
+        if (startIndex >= totalElements) {
+            pageRows = new int[0];
+        } else {
+            EntityDataSortOrder sortOrder = pageLink.getSortOrder();
+            if (sortOrder != null && sortOrder.getKey() != null) {
+                rows = sortedHead(partition, rows, sortOrder, endIndex);
+            }
+            pageRows = Arrays.copyOfRange(rows, startIndex, endIndex);
+        }
+        long ts = System.currentTimeMillis();
+        List<EntityData> data = new ArrayList<>(pageRows.length);
+        for (int row : pageRows) {
+            Map<String, TsValue> fields = new HashMap<>();
+            for (EntityKey key : entityFields) {
+                String value = getFieldValue(partition, key.getKey(), row);
+                fields.put(key.getKey(), new TsValue(ts, value != null ? value : ""));
+            }
+            Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+            if (!fields.isEmpty()) {
+                latest.put(EntityKeyType.ENTITY_FIELD, fields);
+            }
+            data.add(new EntityData(EntityIdFactory.getByTypeAndUuid(partition.getEntityType(), partition.getId(row)), latest, new HashMap<>(), new HashMap<>()));
+        }
+        int totalPages = pageLink.getPageSize() > 0 ? (int) Math.ceil((float) totalElements / pageLink.getPageSize()) : 1;
+        boolean hasNext = pageLink.getPageSize() > 0 && totalElements > startIndex + data.size();
+        return new PageData<>(data, totalPages, totalElements, hasNext);
+    }
+
+    /**
+     * Returns the first {@code limit} rows in the sort order. Uses a bounded heap when only a small head of the result is needed.
+     */
+    private static int[] sortedHead(EntityQueryPartition partition, int[] rows, EntityDataSortOrder sortOrder, int limit) {
+        Comparator<Integer> comparator = rowComparator(partition, sortOrder);
+        if (limit < rows.length / 4) {
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, comparator.reversed());
+            for (int row : rows) {
+                heap.offer(row);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            int[] result = new int[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap.poll();
+            }
+            return result;
+        }
+        return Arrays.stream(rows).boxed().sorted(comparator).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Comparator<Integer> rowComparator(EntityQueryPartition partition, EntityDataSortOrder sortOrder) {
+        Comparator<Integer> comparator = (r1, r2) -> Long.compare(partition.getCreatedTime(r1), partition.getCreatedTime(r2));
+        comparator = comparator.thenComparing(partition::compareIds);
+        return sortOrder.getDirection() == EntityDataSortOrder.Direction.DESC ? comparator.reversed() : comparator;
+    }
+
+    private static IntPredicate buildFilter(EntityQueryPartition partition, CustomerId customerId, EntityFilter entityFilter, List<KeyFilter> keyFilters) {
+        IntPredicate filter = entityFilter(partition, entityFilter);
+        if (customerId != null && !customerId.isNullUid()) {
+            UUID customerUuid = customerId.getId();
+            filter = filter.and(row -> partition.hasCustomerId(row, customerUuid));
+        }
+        if (keyFilters != null) {
+            for (KeyFilter keyFilter : keyFilters) {
+                String key = keyFilter.getKey().getKey();
+                RowCondition condition = compile(partition, key, keyFilter.getPredicate());
+                filter = filter.and(row -> !Boolean.FALSE.equals(condition.test(row)));
+            }
+        }
+        return filter;
+    }
+
+    private static IntPredicate entityFilter(EntityQueryPartition partition, EntityFilter entityFilter) {
+        switch (entityFilter.getType()) {
+            case SINGLE_ENTITY: {
+                UUID id = ((SingleEntityFilter) entityFilter).getSingleEntity().getId();
+                return row -> partition.hasId(row, id);
+            }
+            case ENTITY_LIST: {
+                Set<UUID> ids = ((EntityListFilter) entityFilter).getEntityList().stream().map(UUID::fromString).collect(Collectors.toSet());
+                return row -> ids.contains(partition.getId(row));
+            }
+            case ENTITY_NAME:
+                return nameFilter(partition, ((EntityNameFilter) entityFilter).getEntityNameFilter());
+            case DEVICE_TYPE: {
+                DeviceTypeFilter filter = (DeviceTypeFilter) entityFilter;
+                return typeFilter(partition, filter.getDeviceTypes()).and(nameFilter(partition, filter.getDeviceNameFilter()));
+            }
+            case ASSET_TYPE: {
+                AssetTypeFilter filter = (AssetTypeFilter) entityFilter;
+                return typeFilter(partition, filter.getAssetTypes()).and(nameFilter(partition, filter.getAssetNameFilter()));
+            }
+            default:
+                return row -> true;
+        }
+    }
+
+    private static IntPredicate typeFilter(EntityQueryPartition partition, List<String> types) {
+        Set<String> typesSet = new HashSet<>(types);
+        return row -> typesSet.contains(partition.getType(row));
+    }
+
+    private static IntPredicate nameFilter(EntityQueryPartition partition, String nameFilter) {
+        if (StringUtils.isEmpty(nameFilter)) {
+            return row -> true;
+        }
+        String pattern = nameFilter.startsWith("%") || nameFilter.endsWith("%") ? nameFilter : nameFilter + "%";
+        Pattern regex = likeToRegex(pattern, true);
+        return row -> {
+            String name = partition.getName(row);
+            return name != null && regex.matcher(name).matches();
+        };
+    }
+
+    private static IntPredicate textSearchFilter(EntityQueryPartition partition, List<EntityKey> entityFields, String textSearch) {
+        List<String> searchKeys = entityFields.stream().map(EntityKey::getKey).filter(key -> !ADDITIONAL_INFO.equals(key)).toList();
+        if (searchKeys.isEmpty()) {
+            return row -> true;
+        }
+        Pattern regex = likeToRegex("%" + textSearch + "%", true);
+        return row -> {
+            StringBuilder text = new StringBuilder();
+            for (String key : searchKeys) {
+                String value = getFieldValue(partition, key, row);
+                if (value != null) {
+                    text.append(value);
+                }
+            }
+            return regex.matcher(text).matches();
+        };
+    }
+
+    /**
+     * Compiles the predicate once per query. The condition returns null if the predicate does not constrain the value,
+     * the same way empty predicates are dropped from the SQL.
+     */
+    private static RowCondition compile(EntityQueryPartition partition, String key, KeyFilterPredicate predicate) {
+        if (predicate.getType() == FilterPredicateType.COMPLEX) {
+            ComplexFilterPredicate complex = (ComplexFilterPredicate) predicate;
+            boolean and = complex.getOperation() == ComplexFilterPredicate.ComplexOperation.AND;
+            List<RowCondition> children = complex.getPredicates().stream().map(child -> compile(partition, key, child)).toList();
+            return row -> {
+                Boolean result = null;
+                for (RowCondition child : children) {
+                    Boolean childResult = child.test(row);
+                    if (childResult == null) {
+                        continue;
+                    }
+                    if (childResult != and) {
+                        return childResult;
+                    }
+                    result = childResult;
+                }
+                return result;
+            };
+        } else if (predicate.getType() == FilterPredicateType.NUMERIC) {
+            return compileNumeric(partition, (NumericFilterPredicate) predicate);
+        } else {
+            return compileString(partition, key, (StringFilterPredicate) predicate);
+        }
+    }
+
+    private static RowCondition compileNumeric(EntityQueryPartition partition, NumericFilterPredicate predicate) {
+        Double value = predicate.getValue().getValue();
+        if (value == null) {
+            return row -> false;
+        }
+        double v = value;
+        return switch (predicate.getOperation()) {
+            case EQUAL -> row -> partition.getCreatedTime(row) == v;
+            case NOT_EQUAL -> row -> partition.getCreatedTime(row) != v;
+            case GREATER -> row -> partition.getCreatedTime(row) > v;
+            case GREATER_OR_EQUAL -> row -> partition.getCreatedTime(row) >= v;
+            case LESS -> row -> partition.getCreatedTime(row) < v;
+            case LESS_OR_EQUAL -> row -> partition.getCreatedTime(row) <= v;
+        };
+    }
+
+    private static RowCondition compileString(EntityQueryPartition partition, String key, StringFilterPredicate predicate) {
+        String value = predicate.getValue().getValue();
+        if (StringUtils.isEmpty(value)) {
+            return row -> null;
+        }
+        boolean ignoreCase = predicate.isIgnoreCase();
+        String v = ignoreCase ? value.toLowerCase() : value;
+        Predicate<String> condition = switch (predicate.getOperation()) {
+            case EQUAL -> field -> field.equals(v);
+            case NOT_EQUAL -> field -> !field.equals(v);
+            case STARTS_WITH -> likeToRegex(v + "%", false).asMatchPredicate();
+            case ENDS_WITH -> likeToRegex("%" + v, false).asMatchPredicate();
+            case CONTAINS -> likeToRegex("%" + v + "%", false).asMatchPredicate();
+            case NOT_CONTAINS -> likeToRegex("%" + v + "%", false).asMatchPredicate().negate();
+            case IN -> {
+                Set<String> values = new HashSet<>(splitByCommaWithoutQuotes(v));
+                yield values::contains;
+            }
+            case NOT_IN -> {
+                Set<String> values = new HashSet<>(splitByCommaWithoutQuotes(v));
+                yield field -> !values.contains(field);
+            }
+        };
+        return row -> {
+            String field = getFieldValue(partition, key, row);
+            if (field == null) {
+                return false;
+            }
+            return condition.test(ignoreCase ? field.toLowerCase() : field);
+        };
+    }
+
+    private static String getFieldValue(EntityQueryPartition partition, String key, int row) {
+        return switch (key) {
+            case CREATED_TIME -> Long.toString(partition.getCreatedTime(row));
+            case ENTITY_TYPE -> partition.getEntityType().name();
+            case NAME -> partition.getName(row);
+            case TYPE -> partition.getType(row);
+            case LABEL -> partition.getLabel(row);
+            default -> null;
+        };
+    }
+
+    /**
+     * Converts a SQL LIKE pattern ('%' - any sequence, '_' - any character, '\' - escape) to a regular expression.
+     */
+    static Pattern likeToRegex(String pattern, boolean ignoreCase) {
+        StringBuilder regex = new StringBuilder(pattern.length() + 8);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                literal.append(pattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        int flags = Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return Pattern.compile(regex.toString(), flags);
+    }
+
+    @FunctionalInterface
+    private interface RowCondition {
+        Boolean test(int row);
+    }
+
+}
@@ -0,0 +1,283 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.asset.Asset;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.eventsourcing.DeleteEntityEvent;
+import org.thingsboard.server.dao.eventsourcing.SaveEntityEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers entity data and count queries over device and asset entity fields from an in-memory replica of the entity tables.
+ * Partitions are loaded per tenant and entity type on first use, kept up to date with the local entity save/delete events
+ * and periodically compared with the database (row count and sum of entity versions) to catch changes made by other nodes.
+ * Only partitions that were queried since their last check are compared, so idle tenants cost no database scans;
+ * a partition that was not checked for two intervals is checked before it is queried again.
+ * Queries that are not supported, or target a partition that is still loading or being checked, are executed by {@link DefaultEntityQueryRepository}.
+ */
+@Repository
+@ConditionalOnProperty(prefix = "sql.entity_query.in_memory", value = "enabled", havingValue = "true")
+@Slf4j
+public class InMemoryEntityQueryRepository {
+
+    private static final Set<EntityType> SUPPORTED_ENTITY_TYPES = Set.of(EntityType.DEVICE, EntityType.ASSET);
+    private static final Map<EntityType, String> TABLES = Map.of(EntityType.DEVICE, "device", EntityType.ASSET, "asset");
+    private static final String STATS_NAME = "inMemoryEntityQuery";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ConcurrentMap<PartitionKey, EntityQueryPartition> partitions = new ConcurrentHashMap<>();
+    private final Set<PartitionKey> readyPartitions = ConcurrentHashMap.newKeySet();
+    private final Set<PartitionKey> pendingChecks = ConcurrentHashMap.newKeySet();
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private final DefaultCounter inconsistencyCounter;
+    private ScheduledExecutorService executor;
+
+    @Value("${sql.entity_query.in_memory.consistency_check_interval_sec:60}")
+    private long consistencyCheckIntervalSec;
+    @Value("${sql.entity_query.in_memory.max_idle_time_sec:3600}")
+    private long maxIdleTimeSec;
+
+    public InMemoryEntityQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, StatsFactory statsFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+        this.inconsistencyCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "inconsistency");
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("in-memory-entity-query"));
+        executor.scheduleWithFixedDelay(this::checkConsistency, consistencyCheckIntervalSec, consistencyCheckIntervalSec, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return null if the query can't be answered from memory
+     */
+    public PageData<EntityData> findEntityDataByQuery(TenantId tenantId, CustomerId customerId, EntityDataQuery query) {
+        if (!InMemoryEntityQueryPlan.isSupported(query)) {
+            return null;
+        }
+        EntityQueryPartition partition = getReadyPartition(tenantId, query.getEntityFilter());
+        if (partition == null) {
+            return null;
+        }
+        return partition.read(p -> InMemoryEntityQueryPlan.findEntityData(p, customerId, query));
+    }
+
+    /**
+     * @return null if the query can't be answered from memory
+     */
+    public Long countEntitiesByQuery(TenantId tenantId, CustomerId customerId, EntityCountQuery query) {
+        if (!InMemoryEntityQueryPlan.isSupported(query)) {
+            return null;
+        }
+        EntityQueryPartition partition = getReadyPartition(tenantId, query.getEntityFilter());
+        if (partition == null) {
+            return null;
+        }
+        return partition.read(p -> InMemoryEntityQueryPlan.countEntities(p, customerId, query));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(SaveEntityEvent<?> event) {
+        if (event.getEntity() instanceof Device device) {
+            EntityQueryPartition partition = partitions.get(new PartitionKey(device.getTenantId(), EntityType.DEVICE));
+            if (partition != null) {
+                partition.upsert(device.getUuidId(), device.getCreatedTime(), device.getCustomerId() != null ? device.getCustomerId().getId() : null,
+                        device.getName(), device.getType(), device.getLabel(), versionOf(device.getVersion()));
+            }
+        } else if (event.getEntity() instanceof Asset asset) {
+            EntityQueryPartition partition = partitions.get(new PartitionKey(asset.getTenantId(), EntityType.ASSET));
+            if (partition != null) {
+                partition.upsert(asset.getUuidId(), asset.getCreatedTime(), asset.getCustomerId() != null ? asset.getCustomerId().getId() : null,
+                        asset.getName(), asset.getType(), asset.getLabel(), versionOf(asset.getVersion()));
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void handleEvent(DeleteEntityEvent<?> event) {
+        if (event.getEntityId() == null) {
+            return;
+        }
+        EntityType entityType = event.getEntityId().getEntityType();
+        if (entityType == EntityType.TENANT) {
+            for (EntityType type : SUPPORTED_ENTITY_TYPES) {
+                removePartition(new PartitionKey(TenantId.fromUUID(event.getEntityId().getId()), type));
+            }
+        } else if (SUPPORTED_ENTITY_TYPES.contains(entityType)) {
+            EntityQueryPartition partition = partitions.get(new PartitionKey(event.getTenantId(), entityType));
+            if (partition != null) {
+                partition.remove(event.getEntityId().getId());
+            }
+        }
+    }
+
+    private EntityQueryPartition getReadyPartition(TenantId tenantId, EntityFilter entityFilter) {
+        if (tenantId == null || tenantId.isSysTenantId()) {
+            missCounter.increment();
+            return null;
+        }
+        EntityType entityType = DefaultEntityQueryRepository.resolveEntityType(entityFilter);
+        if (!SUPPORTED_ENTITY_TYPES.contains(entityType)) {
+            missCounter.increment();
+            return null;
+        }
+        PartitionKey key = new PartitionKey(tenantId, entityType);
+        if (readyPartitions.contains(key)) {
+            EntityQueryPartition partition = partitions.get(key);
+            if (partition != null) {
+                if (partition.getLastCheckTs() >= System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(consistencyCheckIntervalSec * 2)) {
+                    hitCounter.increment();
+                    return partition;
+                }
+                if (pendingChecks.add(key)) {
+                    executor.submit(() -> {
+                        try {
+                            checkPartition(key, partition);
+                        } finally {
+                            pendingChecks.remove(key);
+                        }
+                    });
+                }
+                missCounter.increment();
+                return null;
+            }
+        }
+        if (partitions.putIfAbsent(key, new EntityQueryPartition(tenantId, entityType)) == null) {
+            executor.submit(() -> loadPartition(key));
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    private void loadPartition(PartitionKey key) {
+        EntityQueryPartition partition = partitions.get(key);
+        if (partition == null) {
+            return;
+        }
+        long startTs = System.currentTimeMillis();
+        try {
+            String query = String.format("select id, created_time, customer_id, name, type, label, version from %s where tenant_id = :tenant_id",
+                    TABLES.get(key.entityType()));
+            jdbcTemplate.query(query, new MapSqlParameterSource("tenant_id", key.tenantId().getId()), rs -> {
+                partition.load((UUID) rs.getObject("id"), rs.getLong("created_time"), (UUID) rs.getObject("customer_id"),
+                        rs.getString("name"), rs.getString("type"), rs.getString("label"), rs.getLong("version"));
+            });
+            partition.finishLoading();
+            readyPartitions.add(key);
+            log.debug("[{}] Loaded {} {} entities in {} ms", key.tenantId(), partition.size(), key.entityType(), System.currentTimeMillis() - startTs);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to load {} entities", key.tenantId(), key.entityType(), e);
+            partitions.remove(key, partition);
+        }
+    }
+
+    private void checkConsistency() {
+        long idleThreshold = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(maxIdleTimeSec);
+        for (PartitionKey key : readyPartitions) {
+            EntityQueryPartition partition = partitions.get(key);
+            if (partition == null) {
+                readyPartitions.remove(key);
+                continue;
+            }
+            if (partition.getLastAccessTs() < idleThreshold) {
+                log.debug("[{}] Evicting idle {} partition", key.tenantId(), key.entityType());
+                removePartition(key);
+                continue;
+            }
+            if (!partition.resetReadSinceCheck()) {
+                // no queries were answered since the last check, the partition is checked on the next access instead
+                continue;
+            }
+            checkPartition(key, partition);
+        }
+    }
+
+    private void checkPartition(PartitionKey key, EntityQueryPartition partition) {
+        if (partitions.get(key) != partition) {
+            return;
+        }
+        try {
+            String query = String.format("select count(*) as cnt, coalesce(sum(version), 0) as version_sum from %s where tenant_id = :tenant_id",
+                    TABLES.get(key.entityType()));
+            Map<String, Object> result = jdbcTemplate.queryForMap(query, new MapSqlParameterSource("tenant_id", key.tenantId().getId()));
+            long count = ((Number) result.get("cnt")).longValue();
+            long versionSum = ((Number) result.get("version_sum")).longValue();
+            if (count != partition.size() || versionSum != partition.getVersionSum()) {
+                inconsistencyCounter.increment();
+                log.info("[{}] In-memory {} partition is out of sync with the database (count {} vs {}), reloading",
+                        key.tenantId(), key.entityType(), partition.size(), count);
+                removePartition(key);
+                partitions.put(key, new EntityQueryPartition(key.tenantId(), key.entityType()));
+                loadPartition(key);
+            } else {
+                partition.markChecked();
+            }
+        } catch (Exception e) {
+            log.warn("[{}] Failed to check consistency of {} partition", key.tenantId(), key.entityType(), e);
+        }
+    }
+
+    private void removePartition(PartitionKey key) {
+        readyPartitions.remove(key);
+        partitions.remove(key);
+    }
+
+    private static long versionOf(Long version) {
+        return version != null ? version : 0;
+    }
+
+    private record PartitionKey(TenantId tenantId, EntityType entityType) {}
+
+}
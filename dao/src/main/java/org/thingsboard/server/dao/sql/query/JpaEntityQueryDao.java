@@ -31,13 +31,28 @@ public class JpaEntityQueryDao implements EntityQueryDao {
     @Autowired
     private EntityQueryRepository entityQueryRepository;
 
+    @Autowired(required = false)
+    private InMemoryEntityQueryRepository inMemoryEntityQueryRepository;
+
     @Override
     public long countEntitiesByQuery(TenantId tenantId, CustomerId customerId, EntityCountQuery query) {
+        if (inMemoryEntityQueryRepository != null) {
+            Long count = inMemoryEntityQueryRepository.countEntitiesByQuery(tenantId, customerId, query);
+            if (count != null) {
+                return count;
+            }
+        }
         return entityQueryRepository.countEntitiesByQuery(tenantId, customerId, query);
     }
 
     @Override
     public PageData<EntityData> findEntityDataByQuery(TenantId tenantId, CustomerId customerId, EntityDataQuery query) {
+        if (inMemoryEntityQueryRepository != null) {
+            PageData<EntityData> result = inMemoryEntityQueryRepository.findEntityDataByQuery(tenantId, customerId, query);
+            if (result != null) {
+                return result;
+            }
+        }
         return entityQueryRepository.findEntityDataByQuery(tenantId, customerId, query);
     }
 }
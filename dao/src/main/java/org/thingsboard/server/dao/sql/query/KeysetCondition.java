@@ -0,0 +1,57 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import java.util.UUID;
+
+/**
+ * Builds the seek predicate for keyset pagination over "order by value dir, id dir".
+ * PostgreSQL sorts nulls last in ascending and first in descending order, so the predicate keeps the same null placement.
+ */
+final class KeysetCondition {
+
+    static final String VALUE_PARAM = "keyset_value";
+    static final String ID_PARAM = "keyset_id";
+
+    private KeysetCondition() {
+    }
+
+    static String build(QueryContext ctx, String valueExpr, String idExpr, boolean asc, Object lastValue, UUID lastId) {
+        ctx.addUuidParameter(ID_PARAM, lastId);
+        String op = asc ? ">" : "<";
+        if (valueExpr == null) {
+            return String.format("%s %s :%s", idExpr, op, ID_PARAM);
+        }
+        if (lastValue == null) {
+            if (asc) {
+                return String.format("(%s is null and %s > :%s)", valueExpr, idExpr, ID_PARAM);
+            } else {
+                return String.format("(%s is not null or %s < :%s)", valueExpr, idExpr, ID_PARAM);
+            }
+        }
+        if (lastValue instanceof Long longValue) {
+            ctx.addLongParameter(VALUE_PARAM, longValue);
+        } else {
+            ctx.addStringParameter(VALUE_PARAM, lastValue.toString());
+        }
+        String condition = String.format("%1$s %2$s :%3$s or (%1$s = :%3$s and %4$s %2$s :%5$s)", valueExpr, op, VALUE_PARAM, idExpr, ID_PARAM);
+        if (asc) {
+            condition = String.format("%s or %s is null", condition, valueExpr);
+        }
+        return "(" + condition + ")";
+    }
+
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.JacksonUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves approximate total counts for paged queries: a recently computed count is reused for the configured TTL,
+ * and large results are estimated from the planner statistics instead of being counted.
+ */
+@Component
+@Slf4j
+public class QueryCountEstimator {
+
+    @Value("${sql.entity_query.approximate_count.cache_ttl_ms:30000}")
+    private long cacheTtlMs;
+    @Value("${sql.entity_query.approximate_count.cache_max_size:10000}")
+    private long cacheMaxSize;
+    @Value("${sql.entity_query.approximate_count.estimate_threshold:100000}")
+    private long estimateThreshold;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DefaultQueryLogComponent queryLog;
+    private Cache<String, Integer> counts;
+
+    public QueryCountEstimator(NamedParameterJdbcTemplate jdbcTemplate, DefaultQueryLogComponent queryLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.queryLog = queryLog;
+    }
+
+    @PostConstruct
+    public void init() {
+        counts = Caffeine.newBuilder()
+                .expireAfterWrite(cacheTtlMs, TimeUnit.MILLISECONDS)
+                .maximumSize(cacheMaxSize)
+                .build();
+    }
+
+    /**
+     * @param countQuery exact count query, also used as part of the cache key
+     * @param fromClause 'from ...' part of the query, used to obtain the planner estimate
+     */
+    public QueryCount count(QueryContext ctx, String countQuery, String fromClause) {
+        String key = toCacheKey(ctx, countQuery);
+        Integer cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return new QueryCount(cached, true);
+        }
+        long estimate = estimate(ctx, fromClause);
+        QueryCount result;
+        if (estimate >= estimateThreshold) {
+            result = new QueryCount((int) Math.min(estimate, Integer.MAX_VALUE), true);
+        } else {
+            long startTs = System.currentTimeMillis();
+            try {
+                result = new QueryCount(jdbcTemplate.queryForObject(countQuery, ctx, Integer.class), false);
+            } finally {
+                queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - startTs);
+            }
+        }
+        counts.put(key, result.value());
+        return result;
+    }
+
+    private long estimate(QueryContext ctx, String fromClause) {
+        String explainQuery = "explain (format json) select 1 " + fromClause;
+        long startTs = System.currentTimeMillis();
+        try {
+            String plan = jdbcTemplate.queryForObject(explainQuery, ctx, String.class);
+            JsonNode planRows = JacksonUtil.toJsonNode(plan).path(0).path("Plan").path("Plan Rows");
+            return planRows.isNumber() ? planRows.asLong() : -1;
+        } catch (Exception e) {
+            log.debug("Failed to estimate row count: {}", explainQuery, e);
+            return -1;
+        } finally {
+            queryLog.logQuery(ctx, explainQuery, System.currentTimeMillis() - startTs);
+        }
+    }
+
+    private static String toCacheKey(QueryContext ctx, String countQuery) {
+        StringBuilder key = new StringBuilder(countQuery);
+        String[] names = ctx.getParameterNames();
+        Arrays.sort(names);
+        for (String name : names) {
+            key.append('|').append(name).append('=').append(ctx.getValue(name));
+        }
+        return key.toString();
+    }
+
+    public record QueryCount(int value, boolean approximate) {
+    }
+
+}
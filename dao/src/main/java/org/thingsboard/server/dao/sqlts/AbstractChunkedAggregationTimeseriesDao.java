@@ -17,15 +17,18 @@ package org.thingsboard.server.dao.sqlts;
 
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort.Direction;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.common.data.kv.AggregationParams;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.IntervalType;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
@@ -39,16 +42,23 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 import org.thingsboard.server.dao.util.TimeUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("UnstableApiUsage")
 @Slf4j
@@ -67,6 +77,12 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     private KeyDictionaryDao keyDictionaryDao;
 
+    @Autowired
+    protected TsKvAggregationRepository aggregationRepository;
+
+    @Value("${sql.ts.grouped_aggregation_enabled:true}")
+    protected boolean groupedAggregationEnabled;
+
     @PostConstruct
     protected void init() {
         TbSqlBlockingQueueParams tsParams = TbSqlBlockingQueueParams.builder()
@@ -113,7 +129,28 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
 
     @Override
     public ListenableFuture<List<ReadTsKvQueryResult>> findAllAsync(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
-        return processFindAllAsync(tenantId, entityId, queries);
+        if (!groupedAggregationEnabled || queries.size() < 2) {
+            return processFindAllAsync(tenantId, entityId, queries);
+        }
+        Map<AggregationGroup, List<ReadTsKvQuery>> groups = new LinkedHashMap<>();
+        for (ReadTsKvQuery query : queries) {
+            if (!Aggregation.NONE.equals(query.getAggParameters().getAggregation())) {
+                groups.computeIfAbsent(new AggregationGroup(query.getStartTs(), query.getEndTs(), query.getAggParameters()), k -> new ArrayList<>()).add(query);
+            }
+        }
+        Map<ReadTsKvQuery, ListenableFuture<ReadTsKvQueryResult>> groupedResults = new HashMap<>();
+        groups.values().forEach(group -> {
+            List<ListenableFuture<ReadTsKvQueryResult>> results = findAllAndAggregateGroupedAsync(entityId, group);
+            for (int i = 0; i < group.size(); i++) {
+                groupedResults.put(group.get(i), results.get(i));
+            }
+        });
+        List<ListenableFuture<ReadTsKvQueryResult>> futures = new ArrayList<>(queries.size());
+        for (ReadTsKvQuery query : queries) {
+            ListenableFuture<ReadTsKvQueryResult> future = groupedResults.get(query);
+            futures.add(future != null ? future : findAllAsync(tenantId, entityId, query));
+        }
+        return Futures.transform(Futures.allAsList(futures), results -> results.stream().filter(Objects::nonNull).collect(Collectors.toList()), service);
     }
 
     @Override
@@ -121,29 +158,83 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         var aggParams = query.getAggParameters();
         if (Aggregation.NONE.equals(aggParams.getAggregation())) {
             return Futures.immediateFuture(findAllAsyncWithLimit(entityId, query));
+        } else if (groupedAggregationEnabled) {
+            return findAllAndAggregateGroupedAsync(entityId, List.of(query)).get(0);
         } else {
             List<ListenableFuture<Optional<TsKvEntity>>> futures = new ArrayList<>();
-            var intervalType = aggParams.getIntervalType();
-            long startPeriod = query.getStartTs();
-            long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
-            while (startPeriod < endPeriod) {
-                long startTs = startPeriod;
-                long endTs;
-                if (IntervalType.MILLISECONDS.equals(intervalType)) {
-                    endTs = startPeriod + aggParams.getInterval();
-                } else {
-                    endTs = TimeUtils.calculateIntervalEnd(startTs, intervalType, aggParams.getTzId());
-                }
-                endTs = Math.min(endTs, endPeriod);
+            long[] intervalBounds = calculateIntervalBounds(query);
+            for (int i = 0; i < intervalBounds.length - 1; i++) {
+                long startTs = intervalBounds[i];
+                long endTs = intervalBounds[i + 1];
                 long ts = startTs + (endTs - startTs) / 2;
                 ListenableFuture<Optional<TsKvEntity>> aggregateTsKvEntry = findAndAggregateAsync(entityId, query.getKey(), startTs, endTs, ts, query.getAggregation());
                 futures.add(aggregateTsKvEntry);
-                startPeriod = endTs;
             }
             return getReadTsKvQueryResultFuture(query, Futures.allAsList(futures));
         }
     }
 
+    /*
+     * Aggregates all intervals of the queries with a single SQL statement instead of one statement per interval.
+     * All queries are expected to share the time range and aggregation parameters and to differ only by key.
+     */
+    List<ListenableFuture<ReadTsKvQueryResult>> findAllAndAggregateGroupedAsync(EntityId entityId, List<ReadTsKvQuery> queries) {
+        ReadTsKvQuery first = queries.get(0);
+        long[] intervalBounds = calculateIntervalBounds(first);
+        long[] intervalStarts = Arrays.copyOf(intervalBounds, intervalBounds.length - 1);
+        long endPeriod = intervalBounds[intervalBounds.length - 1];
+        ListenableFuture<Map<String, TsKvEntity[]>> aggregated = service.submit(() -> {
+            Map<Integer, String> keys = new HashMap<>();
+            Map<String, TsKvEntity[]> result = new HashMap<>();
+            for (ReadTsKvQuery query : queries) {
+                keys.put(keyDictionaryDao.getOrSaveKeyId(query.getKey()), query.getKey());
+                result.put(query.getKey(), new TsKvEntity[intervalStarts.length]);
+            }
+            aggregationRepository.findAggregates(entityId.getId(), new ArrayList<>(keys.keySet()), first.getAggregation(),
+                    intervalStarts, endPeriod, (keyId, intervalIdx, entity) -> {
+                        String key = keys.get(keyId);
+                        entity.setEntityId(entityId.getId());
+                        entity.setStrKey(key);
+                        entity.setTs(intervalStarts[intervalIdx] + (intervalBounds[intervalIdx + 1] - intervalStarts[intervalIdx]) / 2);
+                        result.get(key)[intervalIdx] = entity;
+                    });
+            return result;
+        });
+        List<ListenableFuture<ReadTsKvQueryResult>> results = new ArrayList<>(queries.size());
+        for (ReadTsKvQuery query : queries) {
+            ListenableFuture<List<Optional<? extends AbstractTsKvEntity>>> data = Futures.transform(aggregated, entities -> {
+                List<Optional<? extends AbstractTsKvEntity>> list = new ArrayList<>(intervalStarts.length);
+                for (TsKvEntity entity : entities.get(query.getKey())) {
+                    list.add(Optional.ofNullable(entity));
+                }
+                return list;
+            }, MoreExecutors.directExecutor());
+            results.add(getReadTsKvQueryResultFuture(query, data));
+        }
+        return results;
+    }
+
+    static long[] calculateIntervalBounds(ReadTsKvQuery query) {
+        var aggParams = query.getAggParameters();
+        var intervalType = aggParams.getIntervalType();
+        long startPeriod = query.getStartTs();
+        long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(startPeriod);
+        while (startPeriod < endPeriod) {
+            long endTs;
+            if (IntervalType.MILLISECONDS.equals(intervalType)) {
+                endTs = startPeriod + aggParams.getInterval();
+            } else {
+                endTs = TimeUtils.calculateIntervalEnd(startPeriod, intervalType, aggParams.getTzId());
+            }
+            endTs = Math.min(endTs, endPeriod);
+            bounds.add(endTs);
+            startPeriod = endTs;
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
     private ReadTsKvQueryResult findAllAsyncWithLimit(EntityId entityId, ReadTsKvQuery query) {
         Integer keyId = keyDictionaryDao.getOrSaveKeyId(query.getKey());
         List<TsKvEntity> tsKvEntities = tsKvRepository.findAllWithLimit(
@@ -199,4 +290,7 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
         }
     }
+
+    private record AggregationGroup(long startTs, long endTs, AggregationParams aggParams) {}
+
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.ts;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Computes all aggregation intervals of a time-series query with a single grouped SQL statement.
+ * Rows are assigned to the intervals with {@code width_bucket} over the array of interval start timestamps,
+ * so calendar intervals (weeks, months, time zones) are supported on plain PostgreSQL as well.
+ */
+@Repository
+@SqlTsDao
+@RequiredArgsConstructor
+public class TsKvAggregationRepository {
+
+    private static final String SELECT_PREFIX = "SELECT tskv.key AS key, width_bucket(tskv.ts, ?) AS bucket, " +
+            "SUM(CASE WHEN tskv.bool_v IS NULL THEN 0 ELSE 1 END) AS booleanValueCount, " +
+            "SUM(CASE WHEN tskv.str_v IS NULL THEN 0 ELSE 1 END) AS strValueCount, " +
+            "SUM(CASE WHEN tskv.long_v IS NULL THEN 0 ELSE 1 END) AS longValueCount, " +
+            "SUM(CASE WHEN tskv.dbl_v IS NULL THEN 0 ELSE 1 END) AS doubleValueCount, " +
+            "SUM(CASE WHEN tskv.json_v IS NULL THEN 0 ELSE 1 END) AS jsonValueCount, " +
+            "MAX(tskv.ts) AS maxAggTs, ";
+
+    private static final String FROM_WHERE_CLAUSE = " FROM ts_kv tskv WHERE tskv.entity_id = ? " +
+            "AND tskv.key = ANY (?) AND tskv.ts >= ? AND tskv.ts < ? " +
+            "GROUP BY tskv.key, bucket";
+
+    private static final String SUM_AVG_SELECT = "SUM(COALESCE(tskv.long_v, 0)) AS longValue, " +
+            "SUM(COALESCE(tskv.dbl_v, 0.0)) AS doubleValue, " +
+            "null AS strValue, null AS strMaxAggTs";
+
+    private static final String MAX_SELECT = "MAX(COALESCE(tskv.long_v, -9223372036854775807)) AS longValue, " +
+            "MAX(COALESCE(tskv.dbl_v, -1.79769E+308)) AS doubleValue, " +
+            "MAX(tskv.str_v) AS strValue, MAX(CASE WHEN tskv.str_v IS NULL THEN NULL ELSE tskv.ts END) AS strMaxAggTs";
+
+    private static final String MIN_SELECT = "MIN(COALESCE(tskv.long_v, 9223372036854775807)) AS longValue, " +
+            "MIN(COALESCE(tskv.dbl_v, 1.79769E+308)) AS doubleValue, " +
+            "MIN(tskv.str_v) AS strValue, MAX(CASE WHEN tskv.str_v IS NULL THEN NULL ELSE tskv.ts END) AS strMaxAggTs";
+
+    private static final String COUNT_SELECT = "null AS longValue, null AS doubleValue, null AS strValue, null AS strMaxAggTs";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param intervalStarts ascending start timestamps of the aggregation intervals; the last interval ends at {@code endTs}
+     * @param consumer       receives every non-empty interval as soon as its row is read from the result set
+     */
+    public void findAggregates(UUID entityId, List<Integer> keys, Aggregation aggregation,
+                               long[] intervalStarts, long endTs, AggregationConsumer consumer) {
+        String query = SELECT_PREFIX + getAggregationSelect(aggregation) + FROM_WHERE_CLAUSE;
+        jdbcTemplate.query(query, ps -> {
+            Array bounds = ps.getConnection().createArrayOf("bigint", toObjectArray(intervalStarts));
+            Array keyIds = ps.getConnection().createArrayOf("int", keys.toArray());
+            ps.setArray(1, bounds);
+            ps.setObject(2, entityId);
+            ps.setArray(3, keyIds);
+            ps.setLong(4, intervalStarts[0]);
+            ps.setLong(5, endTs);
+        }, rs -> {
+            TsKvEntity entity = toEntity(rs, aggregation);
+            if (entity.isNotEmpty()) {
+                consumer.accept(rs.getInt("key"), rs.getInt("bucket") - 1, entity);
+            }
+        });
+    }
+
+    private static TsKvEntity toEntity(ResultSet rs, Aggregation aggregation) throws SQLException {
+        Long maxAggTs = rs.getLong("maxAggTs");
+        switch (aggregation) {
+            case COUNT:
+                return new TsKvEntity(rs.getLong("booleanValueCount"), rs.getLong("strValueCount"), rs.getLong("longValueCount"),
+                        rs.getLong("doubleValueCount"), rs.getLong("jsonValueCount"), maxAggTs);
+            case AVG:
+            case SUM:
+            case MIN:
+            case MAX:
+                Long longValue = rs.getObject("longValue") != null ? rs.getLong("longValue") : null;
+                Double doubleValue = rs.getObject("doubleValue") != null ? rs.getDouble("doubleValue") : null;
+                TsKvEntity numeric = new TsKvEntity(longValue, doubleValue, rs.getLong("longValueCount"),
+                        rs.getLong("doubleValueCount"), aggregation.name(), maxAggTs);
+                String strValue = rs.getString("strValue");
+                if (numeric.isNotEmpty() || strValue == null) {
+                    return numeric;
+                }
+                return new TsKvEntity(strValue, rs.getLong("strMaxAggTs"));
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    private static String getAggregationSelect(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return SUM_AVG_SELECT;
+            case MAX:
+                return MAX_SELECT;
+            case MIN:
+                return MIN_SELECT;
+            case COUNT:
+                return COUNT_SELECT;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    private static Long[] toObjectArray(long[] values) {
+        Long[] result = new Long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface AggregationConsumer {
+
+        void accept(int keyId, int intervalIdx, TsKvEntity entity);
+
+    }
+
+}
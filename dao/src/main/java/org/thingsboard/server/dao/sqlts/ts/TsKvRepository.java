@@ -62,7 +62,7 @@ public interface TsKvRepository extends JpaRepository<TsKvEntity, TsKvCompositeK
                              @Param("endTs") long endTs);
 
     @Query("SELECT new TsKvEntity(MAX(COALESCE(tskv.longValue, -9223372036854775807)), " +
-            "MAX(COALESCE(tskv.doubleValue, java.lang.Double.MIN_VALUE)), " +
+            "MAX(COALESCE(tskv.doubleValue, -1.79769E+308)), " +
             "SUM(CASE WHEN tskv.longValue IS NULL THEN 0 ELSE 1 END), " +
             "SUM(CASE WHEN tskv.doubleValue IS NULL THEN 0 ELSE 1 END), " +
             "'MAX', MAX(tskv.ts)) FROM TsKvEntity tskv " +
@@ -82,7 +82,7 @@ public interface TsKvRepository extends JpaRepository<TsKvEntity, TsKvCompositeK
                              @Param("endTs") long endTs);
 
     @Query("SELECT new TsKvEntity(MIN(COALESCE(tskv.longValue, 9223372036854775807)), " +
-            "MIN(COALESCE(tskv.doubleValue, java.lang.Double.MAX_VALUE)), " +
+            "MIN(COALESCE(tskv.doubleValue, 1.79769E+308)), " +
             "SUM(CASE WHEN tskv.longValue IS NULL THEN 0 ELSE 1 END), " +
             "SUM(CASE WHEN tskv.doubleValue IS NULL THEN 0 ELSE 1 END), " +
             "'MIN', MAX(tskv.ts)) FROM TsKvEntity tskv " +
@@ -28,6 +28,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -51,6 +52,8 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
 import org.thingsboard.server.common.data.kv.TsKvQuery;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.dao.model.ModelConstants;
 import org.thingsboard.server.dao.nosql.TbResultSet;
 import org.thingsboard.server.dao.nosql.TbResultSetFuture;
@@ -67,6 +70,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -105,6 +110,9 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Autowired
     private Environment environment;
 
+    @Autowired(required = false)
+    private StatsFactory statsFactory;
+
     @Getter
     @Value("${cassandra.query.ts_key_value_partitioning}")
     private String partitioning;
@@ -122,6 +130,11 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Value("${cassandra.query.set_null_values_enabled}")
     private boolean setNullValuesEnabled;
 
+    @Value("${cassandra.query.ts_key_value_partitions_read_parallelism:1}")
+    private int partitionsReadParallelism;
+
+    private final ConcurrentMap<String, Timer> readTimers = new ConcurrentHashMap<>();
+
     private NoSqlTsPartitionDate tsFormat;
 
     private PreparedStatement partitionInsertStmt;
@@ -264,46 +277,72 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         if (Aggregation.NONE.equals(aggParams.getAggregation())) {
             return findAllAsyncWithLimit(tenantId, entityId, query);
         } else {
-            long startPeriod = query.getStartTs();
             long endPeriod = Math.max(query.getStartTs() + 1, query.getEndTs());
-            List<ListenableFuture<Optional<TsKvEntryAggWrapper>>> futures = new ArrayList<>();
-            var intervalType = aggParams.getIntervalType();
-            while (startPeriod < endPeriod) {
-                long startTs = startPeriod;
-                long endTs;
-                if (IntervalType.MILLISECONDS.equals(intervalType)) {
-                    endTs = startPeriod + Math.max(query.getInterval(), MIN_AGGREGATION_STEP_MS);
-                } else {
-                    endTs = TimeUtils.calculateIntervalEnd(startTs, aggParams.getIntervalType(), aggParams.getTzId());
-                }
-                endTs = Math.min(endTs, endPeriod);
-                ReadTsKvQuery subQuery = new BaseReadTsKvQuery(query.getKey(), startTs, endTs, endTs - startTs, 1, query.getAggregation(), query.getOrder());
-                futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, toPartitionTs(startTs), toPartitionTs(endTs)));
-                startPeriod = endTs;
+            long startNs = System.nanoTime();
+            ListenableFuture<List<Long>> partitionsFuture = getPartitionsFuture(tenantId, query, entityId, toPartitionTs(query.getStartTs()), toPartitionTs(endPeriod));
+            ListenableFuture<ReadTsKvQueryResult> resultFuture = Futures.transformAsync(partitionsFuture,
+                    partitions -> findAllAndAggregateAsync(tenantId, entityId, query, endPeriod, partitions), readResultsProcessingExecutor);
+            return withReadTimer(resultFuture, partitionsFuture, startNs);
+        }
+    }
+
+    /*
+     * partitions are resolved once for the whole query and then shared by the aggregation intervals,
+     * each interval being fanned out to its partitions in parallel
+     * */
+    private ListenableFuture<ReadTsKvQueryResult> findAllAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, long endPeriod, List<Long> partitions) {
+        var aggParams = query.getAggParameters();
+        long startPeriod = query.getStartTs();
+        List<ListenableFuture<Optional<TsKvEntryAggWrapper>>> futures = new ArrayList<>();
+        var intervalType = aggParams.getIntervalType();
+        while (startPeriod < endPeriod) {
+            long startTs = startPeriod;
+            long endTs;
+            if (IntervalType.MILLISECONDS.equals(intervalType)) {
+                endTs = startPeriod + Math.max(query.getInterval(), MIN_AGGREGATION_STEP_MS);
+            } else {
+                endTs = TimeUtils.calculateIntervalEnd(startTs, aggParams.getIntervalType(), aggParams.getTzId());
             }
-            ListenableFuture<List<Optional<TsKvEntryAggWrapper>>> future = Futures.allAsList(futures);
-            return Futures.transform(future, new Function<>() {
-                @Nullable
-                @Override
-                public ReadTsKvQueryResult apply(@Nullable List<Optional<TsKvEntryAggWrapper>> input) {
-                    if (input == null) {
-                        return new ReadTsKvQueryResult(query.getId(), Collections.emptyList(), query.getStartTs());
-                    } else {
-                        long maxTs = query.getStartTs();
-                        List<TsKvEntry> data = new ArrayList<>();
-                        for (var opt : input) {
-                            if (opt.isPresent()) {
-                                TsKvEntryAggWrapper tsKvEntryAggWrapper = opt.get();
-                                maxTs = Math.max(maxTs, tsKvEntryAggWrapper.getLastEntryTs());
-                                data.add(tsKvEntryAggWrapper.getEntry());
-                            }
+            endTs = Math.min(endTs, endPeriod);
+            ReadTsKvQuery subQuery = new BaseReadTsKvQuery(query.getKey(), startTs, endTs, endTs - startTs, 1, query.getAggregation(), query.getOrder());
+            futures.add(findAndAggregateAsync(tenantId, entityId, subQuery, filterPartitions(partitions, toPartitionTs(startTs), toPartitionTs(endTs))));
+            startPeriod = endTs;
+        }
+        ListenableFuture<List<Optional<TsKvEntryAggWrapper>>> future = Futures.allAsList(futures);
+        return Futures.transform(future, new Function<>() {
+            @Nullable
+            @Override
+            public ReadTsKvQueryResult apply(@Nullable List<Optional<TsKvEntryAggWrapper>> input) {
+                if (input == null) {
+                    return new ReadTsKvQueryResult(query.getId(), Collections.emptyList(), query.getStartTs());
+                } else {
+                    long maxTs = query.getStartTs();
+                    List<TsKvEntry> data = new ArrayList<>();
+                    for (var opt : input) {
+                        if (opt.isPresent()) {
+                            TsKvEntryAggWrapper tsKvEntryAggWrapper = opt.get();
+                            maxTs = Math.max(maxTs, tsKvEntryAggWrapper.getLastEntryTs());
+                            data.add(tsKvEntryAggWrapper.getEntry());
                         }
-                        return new ReadTsKvQueryResult(query.getId(), data, maxTs);
                     }
-
+                    return new ReadTsKvQueryResult(query.getId(), data, maxTs);
                 }
-            }, readResultsProcessingExecutor);
+
+            }
+        }, readResultsProcessingExecutor);
+    }
+
+    List<Long> filterPartitions(List<Long> partitions, long minPartition, long maxPartition) {
+        if (isFixedPartitioning()) {
+            return partitions;
+        }
+        List<Long> result = new ArrayList<>();
+        for (Long partition : partitions) {
+            if (partition >= minPartition && partition <= maxPartition) {
+                result.add(partition);
+            }
         }
+        return result;
     }
 
     @Override
@@ -314,6 +353,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     private ListenableFuture<ReadTsKvQueryResult> findAllAsyncWithLimit(TenantId tenantId, EntityId entityId, ReadTsKvQuery query) {
         long minPartition = toPartitionTs(query.getStartTs());
         long maxPartition = toPartitionTs(query.getEndTs());
+        long startNs = System.nanoTime();
         final ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, minPartition, maxPartition);
         final SimpleListenableFuture<List<TsKvEntry>> resultFuture = new SimpleListenableFuture<>();
 
@@ -321,7 +361,11 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             @Override
             public void onSuccess(@Nullable List<Long> partitions) {
                 TsKvQueryCursor cursor = new TsKvQueryCursor(entityId.getEntityType().name(), entityId.getId(), query, partitions);
-                findAllAsyncSequentiallyWithLimit(tenantId, cursor, resultFuture);
+                if (partitionsReadParallelism > 1) {
+                    findAllAsyncInParallelWithLimit(tenantId, cursor, resultFuture);
+                } else {
+                    findAllAsyncSequentiallyWithLimit(tenantId, cursor, resultFuture);
+                }
             }
 
             @Override
@@ -330,13 +374,100 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             }
         }, readResultsProcessingExecutor);
 
-        return Futures.transform(resultFuture, tsKvEntries -> {
+        ListenableFuture<ReadTsKvQueryResult> result = Futures.transform(resultFuture, tsKvEntries -> {
             long lastTs = query.getStartTs();
             if (tsKvEntries != null) {
                 lastTs = tsKvEntries.stream().map(TsKvEntry::getTs).max(Long::compare).orElse(query.getStartTs());
             }
             return new ReadTsKvQueryResult(query.getId(), tsKvEntries, lastTs);
         }, MoreExecutors.directExecutor());
+        return withReadTimer(result, partitionsListFuture, startNs);
+    }
+
+    /*
+     * fetches up to partitionsReadParallelism partitions at once (in the cursor order), and then merges them in order,
+     * stopping as soon as the limit is reached
+     * */
+    private void findAllAsyncInParallelWithLimit(TenantId tenantId, final TsKvQueryCursor cursor, final SimpleListenableFuture<List<TsKvEntry>> resultFuture) {
+        if (cursor.isFull() || !cursor.hasNextPartition()) {
+            resultFuture.set(cursor.getData());
+            return;
+        }
+        PreparedStatement proto = getFetchStmt(Aggregation.NONE, cursor.getOrderBy());
+        List<ListenableFuture<List<TsKvEntry>>> futures = new ArrayList<>(partitionsReadParallelism);
+        while (futures.size() < partitionsReadParallelism && cursor.hasNextPartition()) {
+            BoundStatement stmt = buildFetchStmt(proto, cursor, cursor.getNextPartition());
+            futures.add(Futures.transformAsync(executeAsyncRead(tenantId, stmt), result -> {
+                if (result == null) {
+                    return Futures.immediateFuture(Collections.<TsKvEntry>emptyList());
+                }
+                return Futures.transform(result.allRows(readResultsProcessingExecutor), this::convertResultToTsKvEntryList, readResultsProcessingExecutor);
+            }, readResultsProcessingExecutor));
+        }
+        Futures.addCallback(Futures.allAsList(futures), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable List<List<TsKvEntry>> result) {
+                if (result != null) {
+                    for (List<TsKvEntry> partitionData : result) {
+                        if (cursor.isFull()) {
+                            break;
+                        }
+                        int limit = cursor.getCurrentLimit();
+                        cursor.addData(partitionData.size() > limit ? partitionData.subList(0, limit) : partitionData);
+                    }
+                }
+                findAllAsyncInParallelWithLimit(tenantId, cursor, resultFuture);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.error("[{}][{}] Failed to fetch data for key {}", cursor.getEntityType(), cursor.getEntityId(), cursor.getKey(), t);
+                resultFuture.setException(t);
+            }
+        }, readResultsProcessingExecutor);
+    }
+
+    private BoundStatement buildFetchStmt(PreparedStatement proto, TsKvQueryCursor cursor, long partition) {
+        BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
+        stmtBuilder.setString(0, cursor.getEntityType());
+        stmtBuilder.setUuid(1, cursor.getEntityId());
+        stmtBuilder.setString(2, cursor.getKey());
+        stmtBuilder.setLong(3, partition);
+        stmtBuilder.setLong(4, cursor.getStartTs());
+        stmtBuilder.setLong(5, cursor.getEndTs());
+        stmtBuilder.setInt(6, cursor.getCurrentLimit());
+        return stmtBuilder.build();
+    }
+
+    private <T> ListenableFuture<T> withReadTimer(ListenableFuture<T> future, ListenableFuture<List<Long>> partitionsFuture, long startNs) {
+        if (statsFactory != null) {
+            future.addListener(() -> {
+                if (partitionsFuture.isDone()) {
+                    try {
+                        getReadTimer(Futures.getDone(partitionsFuture).size()).record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+                    } catch (Exception e) {
+                        log.trace("Failed to record read latency", e);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        return future;
+    }
+
+    private Timer getReadTimer(int partitionsCount) {
+        String partitionsBucket;
+        if (partitionsCount <= 1) {
+            partitionsBucket = "1";
+        } else if (partitionsCount <= 4) {
+            partitionsBucket = "2-4";
+        } else if (partitionsCount <= 16) {
+            partitionsBucket = "5-16";
+        } else if (partitionsCount <= 64) {
+            partitionsBucket = "17-64";
+        } else {
+            partitionsBucket = "65+";
+        }
+        return readTimers.computeIfAbsent(partitionsBucket, bucket -> statsFactory.createTimer(StatsType.CORE.getName() + ".cassandraTsReadLatency", "partitions", bucket));
     }
 
     long toPartitionTs(long ts) {
@@ -349,17 +480,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             resultFuture.set(cursor.getData());
         } else {
             PreparedStatement proto = getFetchStmt(Aggregation.NONE, cursor.getOrderBy());
-            BoundStatementBuilder stmtBuilder = new BoundStatementBuilder(proto.bind());
-
-            stmtBuilder.setString(0, cursor.getEntityType());
-            stmtBuilder.setUuid(1, cursor.getEntityId());
-            stmtBuilder.setString(2, cursor.getKey());
-            stmtBuilder.setLong(3, cursor.getNextPartition());
-            stmtBuilder.setLong(4, cursor.getStartTs());
-            stmtBuilder.setLong(5, cursor.getEndTs());
-            stmtBuilder.setInt(6, cursor.getCurrentLimit());
-
-            BoundStatement stmt = stmtBuilder.build();
+            BoundStatement stmt = buildFetchStmt(proto, cursor, cursor.getNextPartition());
 
             Futures.addCallback(executeAsyncRead(tenantId, stmt), new FutureCallback<TbResultSet>() {
                 @Override
@@ -394,14 +515,13 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         }
     }
 
-    private ListenableFuture<Optional<TsKvEntryAggWrapper>> findAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, long minPartition, long maxPartition) {
+    private ListenableFuture<Optional<TsKvEntryAggWrapper>> findAndAggregateAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query, List<Long> partitions) {
         final Aggregation aggregation = query.getAggregation();
         final String key = query.getKey();
         final long startTs = query.getStartTs();
         final long endTs = query.getEndTs();
         final long ts = startTs + (endTs - startTs) / 2;
-        ListenableFuture<List<Long>> partitionsListFuture = getPartitionsFuture(tenantId, query, entityId, minPartition, maxPartition);
-        ListenableFuture<List<TbResultSet>> aggregationChunks = Futures.transformAsync(partitionsListFuture,
+        ListenableFuture<List<TbResultSet>> aggregationChunks = Futures.transformAsync(Futures.immediateFuture(partitions),
                 getFetchChunksAsyncFunction(tenantId, entityId, key, aggregation, startTs, endTs), readResultsProcessingExecutor);
 
         return Futures.transformAsync(aggregationChunks, new AggregatePartitionsFunction(aggregation, key, ts, readResultsProcessingExecutor), readResultsProcessingExecutor);
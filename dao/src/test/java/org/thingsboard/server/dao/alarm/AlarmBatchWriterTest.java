@@ -0,0 +1,218 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.alarm;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmApiCallResult;
+import org.thingsboard.server.common.data.alarm.AlarmCreateOrUpdateActiveRequest;
+import org.thingsboard.server.common.data.alarm.AlarmInfo;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.id.AlarmId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.exception.DataValidationException;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AlarmBatchWriterTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Mock
+    private AlarmService alarmService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private AlarmBatchWriter writer;
+
+    @Before
+    public void setUp() {
+        writer = new AlarmBatchWriter(alarmService, transactionTemplate, mock(ScheduledLogExecutorComponent.class), mock(StatsFactory.class));
+        for (String counter : List.of("batchesCounter", "operationsCounter", "collapsedCounter", "fallbackCounter", "callerExecutedCounter")) {
+            ReflectionTestUtils.setField(writer, counter, mock(StatsCounter.class));
+        }
+        ReflectionTestUtils.setField(writer, "operationTimer", mock(Timer.class));
+        ReflectionTestUtils.setField(writer, "batchTimer", mock(Timer.class));
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    public void testIdenticalCreateRequestsAreExecutedOnce() {
+        AlarmInfo alarm = new AlarmInfo();
+        alarm.setId(new AlarmId(UUID.randomUUID()));
+        when(alarmService.createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), eq(true)))
+                .thenReturn(AlarmApiCallResult.builder().successful(true).created(true).modified(true).alarm(alarm).build());
+
+        List<AlarmBatchWriter.AlarmOperationResult> results = writer.execute(List.of(
+                AlarmBatchWriter.AlarmOperation.create(newRequest(100, 100), true),
+                AlarmBatchWriter.AlarmOperation.create(newRequest(200, 200), true)));
+
+        verify(alarmService, times(1)).createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), eq(true));
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).result().isCreated()).isTrue();
+        assertThat(results.get(1).result().isCreated()).isFalse();
+        assertThat(results.get(1).result().isModified()).isTrue();
+        assertThat(results.get(1).result().getAlarm()).isEqualTo(alarm);
+    }
+
+    @Test
+    public void testFailedRequestDoesNotFailOtherRequests() {
+        AlarmId alarmId = new AlarmId(UUID.randomUUID());
+        when(alarmService.createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), eq(true)))
+                .thenThrow(new DataValidationException("Alarm type should be specified!"));
+        when(alarmService.clearAlarm(tenantId, alarmId, 300, null))
+                .thenReturn(AlarmApiCallResult.builder().successful(true).cleared(true).modified(true).build());
+
+        List<AlarmBatchWriter.AlarmOperationResult> results = writer.execute(List.of(
+                AlarmBatchWriter.AlarmOperation.create(newRequest(100, 100), true),
+                AlarmBatchWriter.AlarmOperation.clear(tenantId, alarmId, deviceId, 300, null)));
+
+        assertThat(results.get(0).error()).isInstanceOf(DataValidationException.class);
+        assertThat(results.get(1).result().isCleared()).isTrue();
+    }
+
+    @Test
+    public void testInterleavedCreateRequestsAreExecutedInOrder() {
+        AlarmInfo alarm = new AlarmInfo();
+        alarm.setId(new AlarmId(UUID.randomUUID()));
+        List<AlarmSeverity> severities = new ArrayList<>();
+        when(alarmService.createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), eq(true))).thenAnswer(invocation -> {
+            severities.add(invocation.<AlarmCreateOrUpdateActiveRequest>getArgument(0).getSeverity());
+            return AlarmApiCallResult.builder().successful(true).modified(true).alarm(alarm).build();
+        });
+
+        List<AlarmBatchWriter.AlarmOperationResult> results = writer.execute(List.of(
+                AlarmBatchWriter.AlarmOperation.create(newRequest(100, 100, AlarmSeverity.MAJOR), true),
+                AlarmBatchWriter.AlarmOperation.create(newRequest(200, 200, AlarmSeverity.CRITICAL), true),
+                AlarmBatchWriter.AlarmOperation.create(newRequest(300, 300, AlarmSeverity.MAJOR), true),
+                AlarmBatchWriter.AlarmOperation.create(newRequest(400, 400, AlarmSeverity.MAJOR), true)));
+
+        assertThat(severities).containsExactly(AlarmSeverity.MAJOR, AlarmSeverity.CRITICAL, AlarmSeverity.MAJOR);
+        assertThat(results).hasSize(4);
+        assertThat(results).allMatch(result -> result.result().isSuccessful());
+    }
+
+    @Test
+    public void testOperationClaimedByCallerIsNotExecutedByBatch() {
+        AlarmBatchWriter.AlarmOperation operation = AlarmBatchWriter.AlarmOperation.create(newRequest(100, 100), true);
+        assertThat(operation.claim()).isTrue();
+
+        List<AlarmBatchWriter.AlarmOperationResult> results = writer.execute(List.of(operation));
+
+        verify(alarmService, never()).createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), anyBoolean());
+        assertThat(results.get(0).error()).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    public void testClearRequestIsQueuedToOriginatorPartitionAndExecutedByCallerAfterTimeout() {
+        AlarmId alarmId = new AlarmId(UUID.randomUUID());
+        Alarm alarm = new Alarm(alarmId);
+        alarm.setOriginator(deviceId);
+        when(alarmService.findAlarmById(tenantId, alarmId)).thenReturn(alarm);
+        when(alarmService.clearAlarm(tenantId, alarmId, 300, null))
+                .thenReturn(AlarmApiCallResult.builder().successful(true).cleared(true).modified(true).build());
+        List<AlarmBatchWriter.AlarmOperation> queued = mockQueue(operation -> SettableFuture.create());
+
+        AlarmApiCallResult result = writer.clearAlarm(tenantId, alarmId, 300, null);
+
+        assertThat(result.isCleared()).isTrue();
+        assertThat(queued).hasSize(1);
+        assertThat(queued.get(0).partitionKey()).isEqualTo(AlarmBatchWriter.AlarmOperation.create(newRequest(100, 100), true).partitionKey());
+        assertThat(queued.get(0).claim()).isFalse();
+        verify(alarmService).clearAlarm(tenantId, alarmId, 300, null);
+    }
+
+    @Test
+    public void testRequestStartedByBatchIsAwaitedAfterTimeout() {
+        AlarmApiCallResult batchResult = AlarmApiCallResult.builder().successful(true).created(true).modified(true).build();
+        mockQueue(operation -> {
+            SettableFuture<AlarmBatchWriter.AlarmOperationResult> future = SettableFuture.create();
+            assertThat(operation.claim()).isTrue();
+            CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)
+                    .execute(() -> future.set(new AlarmBatchWriter.AlarmOperationResult(batchResult, null)));
+            return future;
+        });
+
+        AlarmApiCallResult result = writer.createAlarm(newRequest(100, 100), true);
+
+        assertThat(result).isSameAs(batchResult);
+        verify(alarmService, never()).createAlarm(any(AlarmCreateOrUpdateActiveRequest.class), anyBoolean());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AlarmBatchWriter.AlarmOperation> mockQueue(Function<AlarmBatchWriter.AlarmOperation, ListenableFuture<AlarmBatchWriter.AlarmOperationResult>> onAdd) {
+        List<AlarmBatchWriter.AlarmOperation> queued = new ArrayList<>();
+        TbSqlBlockingQueueWrapper<AlarmBatchWriter.AlarmOperation, AlarmBatchWriter.AlarmOperationResult> queue = mock(TbSqlBlockingQueueWrapper.class);
+        when(queue.add(any())).thenAnswer(invocation -> {
+            AlarmBatchWriter.AlarmOperation operation = invocation.getArgument(0);
+            queued.add(operation);
+            return onAdd.apply(operation);
+        });
+        ReflectionTestUtils.setField(writer, "queue", queue);
+        ReflectionTestUtils.setField(writer, "awaitTimeoutMs", 20L);
+        return queued;
+    }
+
+    private AlarmCreateOrUpdateActiveRequest newRequest(long startTs, long endTs) {
+        return newRequest(startTs, endTs, AlarmSeverity.CRITICAL);
+    }
+
+    private AlarmCreateOrUpdateActiveRequest newRequest(long startTs, long endTs, AlarmSeverity severity) {
+        return AlarmCreateOrUpdateActiveRequest.builder()
+                .tenantId(tenantId)
+                .originator(deviceId)
+                .type("High Temperature")
+                .severity(severity)
+                .startTs(startTs)
+                .endTs(endTs)
+                .build();
+    }
+
+}
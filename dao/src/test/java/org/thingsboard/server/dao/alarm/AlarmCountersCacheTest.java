@@ -0,0 +1,143 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.alarm;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.alarm.Alarm;
+import org.thingsboard.server.common.data.alarm.AlarmApiCallResult;
+import org.thingsboard.server.common.data.alarm.AlarmInfo;
+import org.thingsboard.server.common.data.alarm.AlarmSearchStatus;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.AlarmCountQuery;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AlarmCountersCacheTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final CustomerId customerId = new CustomerId(UUID.randomUUID());
+
+    @Mock
+    private AlarmDao alarmDao;
+
+    private final Map<AlarmCounterKey, Long> storedCounts = Map.of(
+            new AlarmCounterKey(EntityId.NULL_UUID, "High Temperature", AlarmSeverity.CRITICAL, false, false), 5L,
+            new AlarmCounterKey(customerId.getId(), "High Temperature", AlarmSeverity.MAJOR, true, false), 2L,
+            new AlarmCounterKey(customerId.getId(), "Low Battery", AlarmSeverity.MINOR, false, true), 3L);
+
+    private AlarmCountersCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new AlarmCountersCache(alarmDao, mock(StatsFactory.class, RETURNS_MOCKS));
+        ReflectionTestUtils.setField(cache, "maxIdleTimeSec", 3600L);
+        when(alarmDao.countAlarmsGroupedByStatus(tenantId)).thenReturn(storedCounts);
+    }
+
+    @Test
+    public void testCountByFilters() {
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder().build())).isEqualTo(10L);
+        assertThat(cache.countAlarmsByQuery(tenantId, customerId, AlarmCountQuery.builder().build())).isEqualTo(5L);
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder()
+                .typeList(List.of("High Temperature")).statusList(List.of(AlarmSearchStatus.UNACK)).build())).isEqualTo(5L);
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder()
+                .statusList(List.of(AlarmSearchStatus.ACTIVE)).build())).isEqualTo(7L);
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder()
+                .severityList(List.of(AlarmSeverity.MINOR)).build())).isEqualTo(3L);
+    }
+
+    @Test
+    public void testUnsupportedQuery() {
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder().timeWindow(60000).build())).isNull();
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder().searchPropagatedAlarms(true).build())).isNull();
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder().build())).isEqualTo(10L);
+    }
+
+    @Test
+    public void testAlarmLifecycleUpdatesCounters() {
+        AlarmCountQuery activeQuery = AlarmCountQuery.builder().statusList(List.of(AlarmSearchStatus.ACTIVE)).build();
+        assertThat(cache.countAlarmsByQuery(tenantId, null, activeQuery)).isEqualTo(7L);
+
+        AlarmInfo created = newAlarm(false);
+        cache.onAlarmUpdate(tenantId, AlarmApiCallResult.builder().successful(true).created(true).modified(true).alarm(created).build());
+        assertThat(cache.countAlarmsByQuery(tenantId, null, activeQuery)).isEqualTo(8L);
+
+        AlarmInfo cleared = newAlarm(true);
+        cache.onAlarmUpdate(tenantId, AlarmApiCallResult.builder().successful(true).cleared(true).modified(true).alarm(cleared).build());
+        assertThat(cache.countAlarmsByQuery(tenantId, null, activeQuery)).isEqualTo(7L);
+        assertThat(cache.countAlarmsByQuery(tenantId, null, AlarmCountQuery.builder().build())).isEqualTo(11L);
+    }
+
+    @Test
+    public void testAlarmCreatedDuringReloadIsCounted() {
+        AlarmCountQuery query = AlarmCountQuery.builder().build();
+        assertThat(cache.countAlarmsByQuery(tenantId, null, query)).isEqualTo(10L);
+
+        when(alarmDao.countAlarmsGroupedByStatus(tenantId)).thenAnswer(invocation -> {
+            // the alarm is created after the counts were selected, so it is missing in the loaded snapshot
+            cache.onAlarmUpdate(tenantId, AlarmApiCallResult.builder().successful(true).created(true).modified(true).alarm(newAlarm(false)).build());
+            return storedCounts;
+        });
+        cache.reconcile();
+
+        assertThat(cache.countAlarmsByQuery(tenantId, null, query)).isEqualTo(11L);
+    }
+
+    @Test
+    public void testAlarmCreatedBeforeReloadIsNotCountedTwice() {
+        AlarmCountQuery query = AlarmCountQuery.builder().build();
+        assertThat(cache.countAlarmsByQuery(tenantId, null, query)).isEqualTo(10L);
+
+        AlarmInfo created = newAlarm(false);
+        cache.onAlarmUpdate(tenantId, AlarmApiCallResult.builder().successful(true).created(true).modified(true).alarm(created).build());
+        assertThat(cache.countAlarmsByQuery(tenantId, null, query)).isEqualTo(11L);
+
+        Map<AlarmCounterKey, Long> countsWithCreated = new HashMap<>(storedCounts);
+        countsWithCreated.put(AlarmCounterKey.of(created), 1L);
+        when(alarmDao.countAlarmsGroupedByStatus(tenantId)).thenReturn(countsWithCreated);
+        cache.reconcile();
+
+        assertThat(cache.countAlarmsByQuery(tenantId, null, query)).isEqualTo(11L);
+    }
+
+    private AlarmInfo newAlarm(boolean cleared) {
+        return new AlarmInfo(Alarm.builder()
+                .tenantId(tenantId)
+                .type("Door Open")
+                .severity(AlarmSeverity.WARNING)
+                .cleared(cleared)
+                .build());
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.audit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.audit.ActionStatus;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.audit.sink.AuditLogSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuditLogBatchWriterTest {
+
+    private final TenantId TENANT_ID = TenantId.fromUUID(UUID.fromString("0a3f8c52-7d1e-4b69-a2c4-5e6f7a8b9c0d"));
+
+    private AuditLogDao auditLogDao;
+    private AuditLogSink auditLogSink;
+    private AuditLogBatchWriter batchWriter;
+    private final List<Integer> savedBatchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger saveCalls = new AtomicInteger();
+    private final CountDownLatch firstSaveStarted = new CountDownLatch(1);
+    private final CountDownLatch firstSaveReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setUp() {
+        auditLogDao = mock(AuditLogDao.class);
+        auditLogSink = mock(AuditLogSink.class);
+        when(auditLogDao.saveAll(anyList())).thenAnswer(invocation -> {
+            List<AuditLog> auditLogs = invocation.getArgument(0);
+            if (saveCalls.incrementAndGet() == 1) {
+                firstSaveStarted.countDown();
+                firstSaveReleased.await();
+            }
+            savedBatchSizes.add(auditLogs.size());
+            return auditLogs;
+        });
+        batchWriter = new AuditLogBatchWriter(auditLogDao, auditLogSink, mock(StatsFactory.class, RETURNS_MOCKS));
+        ReflectionTestUtils.setField(batchWriter, "capacity", 10);
+        ReflectionTestUtils.setField(batchWriter, "batchSize", 3);
+        ReflectionTestUtils.setField(batchWriter, "maxDelay", 50L);
+        ReflectionTestUtils.invokeMethod(batchWriter, "init");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        firstSaveReleased.countDown();
+        ReflectionTestUtils.invokeMethod(batchWriter, "destroy");
+    }
+
+    @Test
+    public void givenEntriesAddedWhileSaving_whenProcessed_thenSavedInBatches() throws Exception {
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        futures.add(batchWriter.add(newAuditLog()));
+        assertThat(firstSaveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 7; i++) {
+            futures.add(batchWriter.add(newAuditLog()));
+        }
+
+        firstSaveReleased.countDown();
+        for (ListenableFuture<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(savedBatchSizes).containsExactly(1, 3, 3, 1);
+        verify(auditLogSink, timeout(5000).times(4)).logActions(anyList());
+    }
+
+    @Test
+    public void givenFullBuffer_whenAdd_thenEntryIsRejected() throws Exception {
+        batchWriter.add(newAuditLog());
+        assertThat(firstSaveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 10; i++) {
+            assertThat(batchWriter.add(newAuditLog()).isDone()).isFalse();
+        }
+
+        ListenableFuture<Void> rejected = batchWriter.add(newAuditLog());
+
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void givenBufferedEntries_whenDestroy_thenFlushedAndNewEntriesAreRejected() throws Exception {
+        ListenableFuture<Void> inProgress = batchWriter.add(newAuditLog());
+        assertThat(firstSaveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        List<ListenableFuture<Void>> buffered = List.of(batchWriter.add(newAuditLog()), batchWriter.add(newAuditLog()));
+
+        ReflectionTestUtils.invokeMethod(batchWriter, "destroy");
+
+        for (ListenableFuture<Void> future : buffered) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(savedBatchSizes).containsExactly(2);
+        // the batch that was being saved is interrupted by the shutdown
+        assertThatThrownBy(() -> inProgress.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        ListenableFuture<Void> late = batchWriter.add(newAuditLog());
+        assertThatThrownBy(late::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void givenSaveFailure_whenProcessed_thenFuturesFailAndSinkIsNotCalled() throws Exception {
+        firstSaveReleased.countDown();
+        RuntimeException failure = new RuntimeException("Failed to save");
+        doThrow(failure).when(auditLogDao).saveAll(anyList());
+
+        ListenableFuture<Void> future = batchWriter.add(newAuditLog());
+
+        assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+        verify(auditLogSink, never()).logActions(anyList());
+    }
+
+    @Test
+    public void givenSinkFailure_whenProcessed_thenFutureSucceeds() throws Exception {
+        firstSaveReleased.countDown();
+        doThrow(new RuntimeException("Sink is unavailable")).when(auditLogSink).logActions(anyList());
+
+        batchWriter.add(newAuditLog()).get(5, TimeUnit.SECONDS);
+
+        verify(auditLogSink).logActions(anyList());
+    }
+
+    private AuditLog newAuditLog() {
+        AuditLog auditLog = new AuditLog();
+        auditLog.setTenantId(TENANT_ID);
+        auditLog.setActionType(ActionType.ADDED);
+        auditLog.setActionStatus(ActionStatus.SUCCESS);
+        return auditLog;
+    }
+
+}
@@ -21,6 +21,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.alarm.Alarm;
 import org.thingsboard.server.common.data.alarm.AlarmComment;
@@ -46,6 +47,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
 
 @ExtendWith(MockitoExtension.class)
 public class AuditLogServiceImplTest {
@@ -130,6 +132,25 @@ public class AuditLogServiceImplTest {
         verifyEntityName("Test alarm");
     }
 
+    @Test
+    public void givenBatchWriterIsEnabled_whenLogEntityAction_thenShouldAddToBatchWriter() {
+        // GIVEN
+        AuditLogBatchWriter batchWriter = mock(AuditLogBatchWriter.class);
+        ReflectionTestUtils.setField(auditLogService, "batchWriter", batchWriter);
+        given(auditLogLevelFilter.logEnabled(any(), any())).willReturn(true);
+        given(entityService.fetchEntityName(any(), any())).willReturn(Optional.of("Test device"));
+
+        // WHEN
+        auditLogService.logEntityAction(TENANT_ID, CUSTOMER_ID, USER_ID, USER_NAME, DEVICE_ID, null, ActionType.ADDED, null);
+
+        // THEN
+        ArgumentCaptor<AuditLog> auditLogEntry = ArgumentCaptor.forClass(AuditLog.class);
+        then(batchWriter).should().add(auditLogEntry.capture());
+        assertThat(auditLogEntry.getValue().getEntityName()).isEqualTo("Test device");
+        then(executor).shouldHaveNoInteractions();
+        then(auditLogDao).shouldHaveNoInteractions();
+    }
+
     private void verifyEntityName(String entityName) throws Exception {
         then(auditLogDataValidator).should().validate(any(AuditLog.class), any());
         ArgumentCaptor<Callable> submitTask = ArgumentCaptor.forClass(Callable.class);
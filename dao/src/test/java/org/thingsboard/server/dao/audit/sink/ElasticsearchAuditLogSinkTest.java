@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.audit.sink;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.audit.ActionStatus;
+import org.thingsboard.server.common.data.audit.ActionType;
+import org.thingsboard.server.common.data.audit.AuditLog;
+import org.thingsboard.server.common.data.id.AuditLogId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ElasticsearchAuditLogSinkTest {
+
+    private final TenantId TENANT_ID_1 = TenantId.fromUUID(UUID.fromString("1e2d3c4b-5a69-4788-96a5-b4c3d2e1f001"));
+    private final TenantId TENANT_ID_2 = TenantId.fromUUID(UUID.fromString("1e2d3c4b-5a69-4788-96a5-b4c3d2e1f002"));
+
+    private ElasticsearchAuditLogSink sink;
+    private RestClient restClient;
+
+    @BeforeEach
+    public void setUp() {
+        sink = new ElasticsearchAuditLogSink();
+        restClient = mock(RestClient.class);
+        ReflectionTestUtils.setField(sink, "indexPattern", "@{TENANT}_AUDIT_LOG");
+        ReflectionTestUtils.setField(sink, "dateFormat", "YYYY.MM.dd");
+        ReflectionTestUtils.setField(sink, "restClient", restClient);
+        ReflectionTestUtils.setField(sink, "executor", MoreExecutors.newDirectExecutorService());
+    }
+
+    @Test
+    public void givenSeveralAuditLogs_whenLogActions_thenSentInOneBulkRequest() throws Exception {
+        AuditLog auditLog1 = newAuditLog(TENANT_ID_1, "Device 1");
+        AuditLog auditLog2 = newAuditLog(TENANT_ID_2, "Device 2");
+
+        sink.logActions(List.of(auditLog1, auditLog2));
+
+        ArgumentCaptor<Request> request = ArgumentCaptor.forClass(Request.class);
+        verify(restClient).performRequestAsync(request.capture(), any());
+        assertThat(request.getValue().getMethod()).isEqualTo("POST");
+        assertThat(request.getValue().getEndpoint()).isEqualTo("/_bulk");
+        assertThat(request.getValue().getEntity().getContentType().getValue()).startsWith("application/x-ndjson");
+
+        String content = EntityUtils.toString(request.getValue().getEntity());
+        assertThat(content).endsWith("\n");
+        List<JsonNode> lines = content.lines().map(JacksonUtil::toJsonNode).toList();
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0).get("index").get("_index").asText()).isEqualTo(TENANT_ID_1.getId() + "_audit_log");
+        assertThat(lines.get(1).get("id").asText()).isEqualTo(auditLog1.getId().getId().toString());
+        assertThat(lines.get(1).get("entityName").asText()).isEqualTo("Device 1");
+        assertThat(lines.get(2).get("index").get("_index").asText()).isEqualTo(TENANT_ID_2.getId() + "_audit_log");
+        assertThat(lines.get(3).get("id").asText()).isEqualTo(auditLog2.getId().getId().toString());
+        assertThat(lines.get(3).get("entityName").asText()).isEqualTo("Device 2");
+    }
+
+    private AuditLog newAuditLog(TenantId tenantId, String entityName) {
+        AuditLog auditLog = new AuditLog(new AuditLogId(UUID.randomUUID()));
+        auditLog.setTenantId(tenantId);
+        auditLog.setEntityId(new DeviceId(UUID.randomUUID()));
+        auditLog.setEntityName(entityName);
+        auditLog.setUserId(new UserId(UUID.randomUUID()));
+        auditLog.setUserName("tenant@thingsboard.org");
+        auditLog.setActionType(ActionType.ADDED);
+        auditLog.setActionStatus(ActionStatus.SUCCESS);
+        return auditLog;
+    }
+
+}
@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.server.common.data.AttributeScope;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
@@ -40,6 +41,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Executors;
@@ -241,6 +243,83 @@ public abstract class BaseAttributesServiceTest extends AbstractServiceTest {
         });
     }
 
+    @Test
+    public void testFindAllByEntityIdsAndKeys() throws Exception {
+        var tenantId = new TenantId(UUID.randomUUID());
+        var deviceId1 = new DeviceId(UUID.randomUUID());
+        var deviceId2 = new DeviceId(UUID.randomUUID());
+        var deviceId3 = new DeviceId(UUID.randomUUID());
+        var scope = AttributeScope.SERVER_SCOPE;
+        saveAttribute(tenantId, deviceId1, scope, "key1", OLD_VALUE);
+        saveAttribute(tenantId, deviceId1, scope, "key2", OLD_VALUE);
+        saveAttribute(tenantId, deviceId2, scope, "key1", NEW_VALUE);
+        saveAttribute(tenantId, deviceId2, scope, "key3", NEW_VALUE);
+
+        // warm up the cache for one of the entities to get a mix of cached and not cached attributes
+        Assert.assertEquals(List.of(OLD_VALUE), getAttributeValues(tenantId, deviceId1, scope, List.of("key1")));
+
+        Map<EntityId, List<AttributeKvEntry>> result = attributesService.findAll(tenantId, List.of(deviceId1, deviceId2, deviceId3),
+                scope, List.of("key1", "key2")).get(10, TimeUnit.SECONDS);
+        assertThat(result).containsOnlyKeys(deviceId1, deviceId2);
+        assertThat(result.get(deviceId1)).extracting(KvEntry::getKey).containsOnly("key1", "key2");
+        assertThat(result.get(deviceId2)).extracting(KvEntry::getKey).containsOnly("key1");
+        assertThat(result.get(deviceId2).get(0).getStrValue()).hasValue(NEW_VALUE);
+
+        saveAttribute(tenantId, deviceId3, scope, "key2", NEW_VALUE);
+        result = attributesService.findAll(tenantId, List.of(deviceId1, deviceId2, deviceId3),
+                scope, List.of("key1", "key2")).get(10, TimeUnit.SECONDS);
+        assertThat(result).containsOnlyKeys(deviceId1, deviceId2, deviceId3);
+        assertThat(result.get(deviceId3)).extracting(KvEntry::getKey).containsOnly("key2");
+    }
+
+    @Test
+    public void testFindAllByEntityIdsPageComparedToPerEntityLookups() throws Exception {
+        var tenantId = new TenantId(UUID.randomUUID());
+        var scope = AttributeScope.SERVER_SCOPE;
+        var keys = List.of("key1", "key2", "key3");
+        // each lookup style runs against its own entities, so neither of them benefits from a cache warmed by the other
+        List<EntityId> perEntityDeviceIds = saveAttributesOfNewDevices(tenantId, scope, keys, 1000);
+        List<EntityId> bulkDeviceIds = saveAttributesOfNewDevices(tenantId, scope, keys, 1000);
+
+        long startTs = System.nanoTime();
+        List<ListenableFuture<List<AttributeKvEntry>>> perEntityFutures = new ArrayList<>();
+        for (EntityId deviceId : perEntityDeviceIds) {
+            perEntityFutures.add(attributesService.find(tenantId, deviceId, scope, keys));
+        }
+        List<List<AttributeKvEntry>> perEntityResult = Futures.allAsList(perEntityFutures).get(30, TimeUnit.SECONDS);
+        long perEntityTime = System.nanoTime() - startTs;
+
+        startTs = System.nanoTime();
+        Map<EntityId, List<AttributeKvEntry>> bulkResult = attributesService.findAll(tenantId, bulkDeviceIds, scope, keys).get(30, TimeUnit.SECONDS);
+        long bulkTime = System.nanoTime() - startTs;
+        log.info("Fetched attributes of {} entities: bulk lookup took {} ms, per entity lookups took {} ms",
+                bulkDeviceIds.size(), TimeUnit.NANOSECONDS.toMillis(bulkTime), TimeUnit.NANOSECONDS.toMillis(perEntityTime));
+
+        assertThat(bulkResult).hasSize(bulkDeviceIds.size());
+        assertThat(bulkResult.values()).allSatisfy(attributes -> assertThat(attributes).extracting(KvEntry::getKey).containsExactlyInAnyOrderElementsOf(keys));
+        assertThat(perEntityResult).allSatisfy(attributes -> assertThat(attributes).extracting(KvEntry::getKey).containsExactlyInAnyOrderElementsOf(keys));
+
+        Map<EntityId, List<AttributeKvEntry>> warmBulkResult = attributesService.findAll(tenantId, perEntityDeviceIds, scope, keys).get(30, TimeUnit.SECONDS);
+        for (int i = 0; i < perEntityDeviceIds.size(); i++) {
+            assertThat(warmBulkResult.get(perEntityDeviceIds.get(i))).containsExactlyInAnyOrderElementsOf(perEntityResult.get(i));
+        }
+    }
+
+    private List<EntityId> saveAttributesOfNewDevices(TenantId tenantId, AttributeScope scope, List<String> keys, int count) throws Exception {
+        List<EntityId> deviceIds = new ArrayList<>();
+        List<ListenableFuture<List<Long>>> saveFutures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            var deviceId = new DeviceId(UUID.randomUUID());
+            deviceIds.add(deviceId);
+            List<AttributeKvEntry> attributes = keys.stream()
+                    .map(key -> (AttributeKvEntry) new BaseAttributeKvEntry(System.currentTimeMillis(), new StringDataEntry(key, NEW_VALUE)))
+                    .collect(Collectors.toList());
+            saveFutures.add(attributesService.save(tenantId, deviceId, scope, attributes));
+        }
+        Futures.allAsList(saveFutures).get(30, TimeUnit.SECONDS);
+        return deviceIds;
+    }
+
     private void testConcurrentFetchAndUpdate(TenantId tenantId, DeviceId deviceId, ListeningExecutorService pool) throws Exception {
         var scope = AttributeScope.SERVER_SCOPE;
         var key = "TEST";
@@ -709,6 +709,32 @@ public abstract class BaseTimeseriesServiceTest extends AbstractServiceTest {
         assertEquals(java.util.Optional.of(2L), list.get(2).getLongValue());
     }
 
+    @Test
+    public void testFindDeviceNegativeLongAndDoubleTsDataMax() throws Exception {
+        saveNegativeLongAndDoubleEntries();
+
+        assertMaxOfNegativeLongAndDoubleEntries();
+    }
+
+    protected void saveNegativeLongAndDoubleEntries() throws Exception {
+        save(deviceId, 5000, -100);
+        save(deviceId, 15000, -200.5);
+        save(deviceId, 25000, -300.5);
+        save(deviceId, 35000, -400);
+    }
+
+    protected void assertMaxOfNegativeLongAndDoubleEntries() throws Exception {
+        List<TsKvEntry> list = tsService.findAll(tenantId, deviceId, Collections.singletonList(new BaseReadTsKvQuery(LONG_KEY, 0,
+                40000, 20000, 2, Aggregation.MAX))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        assertEquals(2, list.size());
+        assertEquals(10000, list.get(0).getTs());
+        assertEquals(java.util.Optional.of(-100.0), list.get(0).getDoubleValue());
+
+        assertEquals(30000, list.get(1).getTs());
+        assertEquals(java.util.Optional.of(-300.5), list.get(1).getDoubleValue());
+    }
+
     @Test
     public void testSaveTs_RemoveTs_AndSaveTsAgain() throws Exception {
         save(deviceId, 2000000L, 95);
@@ -0,0 +1,65 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service.timeseries.nosql;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.service.DaoNoSqlTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DaoNoSqlTest
+@TestPropertySource(properties = {
+        "cassandra.query.ts_key_value_partitions_read_parallelism=2",
+})
+public class TimeseriesServiceNoSqlParallelReadTest extends TimeseriesServiceNoSqlTest {
+
+    @Test
+    public void testFindAllWithLimitAcrossPartitionsReadInParallel() throws ExecutionException, InterruptedException, TimeoutException {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        List<TsKvEntry> timeseries = new ArrayList<>();
+        // two entries per hourly partition over five partitions
+        for (int i = 0; i < 10; i++) {
+            timeseries.add(new BasicTsKvEntry(TimeUnit.MINUTES.toMillis(30 * i + 1), new LongDataEntry("temp", (long) i)));
+        }
+        tsService.save(tenantId, deviceId, timeseries, 0).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        long endTs = TimeUnit.HOURS.toMillis(5);
+
+        assertThat(findAll(deviceId, endTs, 3, "DESC")).containsExactly(9L, 8L, 7L);
+        assertThat(findAll(deviceId, endTs, 5, "ASC")).containsExactly(0L, 1L, 2L, 3L, 4L);
+        assertThat(findAll(deviceId, endTs, 100, "DESC")).containsExactly(9L, 8L, 7L, 6L, 5L, 4L, 3L, 2L, 1L, 0L);
+        assertThat(findAll(deviceId, TimeUnit.MINUTES.toMillis(100), 100, "ASC")).containsExactly(0L, 1L, 2L, 3L);
+    }
+
+    private List<Long> findAll(DeviceId deviceId, long endTs, int limit, String order) throws ExecutionException, InterruptedException, TimeoutException {
+        List<TsKvEntry> entries = tsService.findAll(tenantId, deviceId, Collections.singletonList(new BaseReadTsKvQuery("temp", 0L, endTs, limit, order))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        return entries.stream().map(entry -> entry.getLongValue().orElseThrow()).toList();
+    }
+
+}
@@ -15,9 +15,32 @@
  */
 package org.thingsboard.server.dao.service.timeseries.sql;
 
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.thingsboard.server.dao.service.DaoSqlTest;
 import org.thingsboard.server.dao.service.timeseries.BaseTimeseriesServiceTest;
+import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 
 @DaoSqlTest
 public class TimeseriesServiceSqlTest extends BaseTimeseriesServiceTest {
+
+    @Autowired
+    private TimeseriesDao timeseriesDao;
+
+    @Test
+    public void testFindDeviceNegativeLongAndDoubleTsDataMaxWithoutGroupedAggregation() throws Exception {
+        Object tsDao = AopTestUtils.getUltimateTargetObject(timeseriesDao);
+        Object groupedAggregationEnabled = ReflectionTestUtils.getField(tsDao, "groupedAggregationEnabled");
+        ReflectionTestUtils.setField(tsDao, "groupedAggregationEnabled", false);
+        try {
+            saveNegativeLongAndDoubleEntries();
+
+            assertMaxOfNegativeLongAndDoubleEntries();
+        } finally {
+            ReflectionTestUtils.setField(tsDao, "groupedAggregationEnabled", groupedAggregationEnabled);
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.audit.ActionStatus;
 import org.thingsboard.server.common.data.audit.ActionType;
 import org.thingsboard.server.common.data.audit.AuditLog;
 import org.thingsboard.server.common.data.id.CustomerId;
@@ -140,6 +141,34 @@ public class JpaAuditLogDaoTest extends AbstractJpaDaoTest {
         checkFoundedAuditLogsList(foundedAuditLogs, 6);
     }
 
+    @Test
+    public void testSaveAll() {
+        List<AuditLog> auditLogs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            AuditLog auditLog = new AuditLog();
+            auditLog.setTenantId(TenantId.fromUUID(tenantId));
+            auditLog.setCustomerId(customerId1);
+            auditLog.setUserId(userId1);
+            auditLog.setEntityId(entityId1);
+            auditLog.setUserName("BATCH_AUDIT_LOG_" + i);
+            auditLog.setActionType(ActionType.UPDATED);
+            auditLog.setActionStatus(ActionStatus.SUCCESS);
+            auditLogs.add(auditLog);
+        }
+
+        List<AuditLog> savedAuditLogs = auditLogDao.saveAll(auditLogs);
+        auditLogList.addAll(savedAuditLogs);
+
+        assertEquals(5, savedAuditLogs.size());
+        for (AuditLog savedAuditLog : savedAuditLogs) {
+            assertNotNull(savedAuditLog.getId());
+            assertEquals(savedAuditLog, auditLogDao.findById(TenantId.fromUUID(tenantId), savedAuditLog.getUuidId()));
+        }
+        // saving the same entries again does not create duplicates
+        auditLogDao.saveAll(savedAuditLogs);
+        assertEquals(65, auditLogDao.find(TenantId.fromUUID(tenantId)).size());
+    }
+
     private void checkFoundedAuditLogsList(List<AuditLog> foundedAuditLogs, int neededSizeForFoundedList) {
         assertNotNull(foundedAuditLogs);
         assertEquals(neededSizeForFoundedList, foundedAuditLogs.size());
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.notification;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.id.NotificationRequestId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.id.UserId;
+import org.thingsboard.server.common.data.notification.Notification;
+import org.thingsboard.server.common.data.notification.NotificationDeliveryMethod;
+import org.thingsboard.server.common.data.notification.NotificationStatus;
+import org.thingsboard.server.common.data.notification.NotificationType;
+import org.thingsboard.server.common.data.page.PageLink;
+import org.thingsboard.server.dao.AbstractJpaDaoTest;
+import org.thingsboard.server.dao.notification.NotificationDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JpaNotificationDaoTest extends AbstractJpaDaoTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+    private final UserId recipientId = new UserId(Uuids.timeBased());
+    private final NotificationRequestId requestId = new NotificationRequestId(Uuids.timeBased());
+
+    @Autowired
+    private NotificationDao notificationDao;
+
+    @After
+    public void tearDown() {
+        notificationDao.deleteByRecipientId(tenantId, recipientId);
+    }
+
+    @Test
+    public void testSaveAll() {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            notifications.add(Notification.builder()
+                    .requestId(requestId)
+                    .recipientId(recipientId)
+                    .type(NotificationType.GENERAL)
+                    .deliveryMethod(NotificationDeliveryMethod.WEB)
+                    .subject("Subject " + i)
+                    .text("Text " + i)
+                    .status(NotificationStatus.SENT)
+                    .build());
+        }
+
+        List<Notification> saved = notificationDao.saveAll(tenantId, notifications);
+
+        assertEquals(5, saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            Notification notification = saved.get(i);
+            assertNotNull(notification.getId());
+            assertTrue(notification.getCreatedTime() > 0);
+
+            Notification found = notificationDao.findById(tenantId, notification.getUuidId());
+            assertNotNull(found);
+            assertEquals("Subject " + i, found.getSubject());
+            assertEquals("Text " + i, found.getText());
+            assertEquals(NotificationStatus.SENT, found.getStatus());
+            assertEquals(recipientId, found.getRecipientId());
+        }
+        assertEquals(5, notificationDao.countUnreadByDeliveryMethodAndRecipientId(tenantId, NotificationDeliveryMethod.WEB, recipientId));
+        assertEquals(5, notificationDao.findByDeliveryMethodAndRecipientIdAndPageLink(tenantId, NotificationDeliveryMethod.WEB, recipientId, new PageLink(10)).getData().size());
+    }
+
+    @Test
+    public void testSaveAllEmpty() {
+        assertTrue(notificationDao.saveAll(tenantId, List.of()).isEmpty());
+    }
+
+}
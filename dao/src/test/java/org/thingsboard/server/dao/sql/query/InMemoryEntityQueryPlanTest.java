@@ -0,0 +1,235 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class InMemoryEntityQueryPlanTest {
+
+    private static final EntityKey NAME = new EntityKey(EntityKeyType.ENTITY_FIELD, "name");
+    private static final EntityKey LABEL = new EntityKey(EntityKeyType.ENTITY_FIELD, "label");
+    private static final EntityKey CREATED_TIME = new EntityKey(EntityKeyType.ENTITY_FIELD, "createdTime");
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final UUID customerId = UUID.randomUUID();
+    private EntityQueryPartition partition;
+
+    @Before
+    public void before() {
+        partition = new EntityQueryPartition(tenantId, EntityType.DEVICE);
+        for (int i = 0; i < 10; i++) {
+            partition.upsert(UUID.randomUUID(), 1000 + i, i % 2 == 0 ? customerId : null,
+                    "Device " + i, i < 5 ? "thermostat" : "meter", i == 3 ? null : "Label " + i, 1);
+        }
+    }
+
+    @Test
+    public void testSortAndPaging() {
+        EntityDataQuery query = newQuery(new EntityTypeFilter(), new EntityDataPageLink(3, 1, null,
+                new EntityDataSortOrder(CREATED_TIME, EntityDataSortOrder.Direction.DESC)), null);
+
+        PageData<EntityData> result = InMemoryEntityQueryPlan.findEntityData(partition, null, query);
+
+        assertThat(result.getTotalElements()).isEqualTo(10);
+        assertThat(result.getTotalPages()).isEqualTo(4);
+        assertThat(result.hasNext()).isTrue();
+        assertThat(result.getData()).extracting(this::getName).containsExactly("Device 6", "Device 5", "Device 4");
+    }
+
+    @Test
+    public void testCustomerPermissionAndTypeFilter() {
+        DeviceTypeFilter filter = new DeviceTypeFilter();
+        filter.setDeviceTypes(List.of("thermostat"));
+        EntityDataQuery query = newQuery(filter, new EntityDataPageLink(10, 0, null, new EntityDataSortOrder(CREATED_TIME)), null);
+
+        PageData<EntityData> result = InMemoryEntityQueryPlan.findEntityData(partition, new CustomerId(customerId), query);
+
+        assertThat(result.getData()).extracting(this::getName).containsExactly("Device 0", "Device 2", "Device 4");
+    }
+
+    @Test
+    public void testKeyFilterAndTextSearch() {
+        StringFilterPredicate predicate = new StringFilterPredicate();
+        predicate.setOperation(StringFilterPredicate.StringOperation.STARTS_WITH);
+        predicate.setValue(FilterPredicateValue.fromString("label"));
+        predicate.setIgnoreCase(true);
+        KeyFilter keyFilter = new KeyFilter();
+        keyFilter.setKey(LABEL);
+        keyFilter.setPredicate(predicate);
+
+        EntityCountQuery countQuery = new EntityCountQuery(new EntityTypeFilter(), List.of(keyFilter));
+        assertThat(InMemoryEntityQueryPlan.countEntities(partition, null, countQuery)).isEqualTo(9);
+
+        EntityDataQuery query = newQuery(new EntityTypeFilter(), new EntityDataPageLink(10, 0, "ice 7", null), List.of(keyFilter));
+        PageData<EntityData> result = InMemoryEntityQueryPlan.findEntityData(partition, null, query);
+        assertThat(result.getData()).extracting(this::getName).containsExactly("Device 7");
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        EntityDataQuery query = newQuery(new EntityTypeFilter(), new EntityDataPageLink(100, 0, null, null), null);
+        EntityData first = InMemoryEntityQueryPlan.findEntityData(partition, null, query).getData().get(0);
+        UUID id = first.getEntityId().getId();
+
+        partition.upsert(id, 1000, null, "Renamed", "meter", null, 2);
+        partition.upsert(id, 1000, null, "Stale", "meter", null, 1);
+        assertThat(InMemoryEntityQueryPlan.findEntityData(partition, null, query).getData())
+                .extracting(this::getName).contains("Renamed").doesNotContain("Stale");
+        assertThat(partition.getVersionSum()).isEqualTo(11);
+
+        partition.remove(id);
+        assertThat(partition.size()).isEqualTo(9);
+        assertThat(partition.getVersionSum()).isEqualTo(9);
+    }
+
+    @Test
+    public void testRemoveWhileLoading() {
+        EntityQueryPartition loadingPartition = new EntityQueryPartition(tenantId, EntityType.DEVICE);
+        UUID removedId = UUID.randomUUID();
+        UUID keptId = UUID.randomUUID();
+
+        loadingPartition.remove(removedId);
+        loadingPartition.load(removedId, 1000, null, "Removed", "meter", null, 1);
+        loadingPartition.load(keptId, 1001, null, "Kept", "meter", null, 1);
+        loadingPartition.finishLoading();
+        assertThat(loadingPartition.size()).isEqualTo(1);
+        assertThat(loadingPartition.getVersionSum()).isEqualTo(1);
+
+        loadingPartition.upsert(removedId, 1000, null, "Created again", "meter", null, 2);
+        assertThat(loadingPartition.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testOnlyCreatedTimeSortIsSupported() {
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(), new EntityDataPageLink(3, 0, null, null), null))).isTrue();
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(),
+                new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(CREATED_TIME)), null))).isTrue();
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(),
+                new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(NAME)), null))).isFalse();
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(),
+                new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(LABEL)), null))).isFalse();
+    }
+
+    @Test
+    public void testKeysetAndApproximateCountPagingAreNotSupported() {
+        EntityDataPageLink pageLink = new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(CREATED_TIME));
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(), pageLink, null))).isTrue();
+
+        EntityDataPageLink keysetPageLink = new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(CREATED_TIME));
+        keysetPageLink.setLastId(UUID.randomUUID());
+        keysetPageLink.setLastSortValue("1002");
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(), keysetPageLink, null))).isFalse();
+
+        EntityDataPageLink approximatePageLink = new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(CREATED_TIME));
+        approximatePageLink.setApproximateCount(true);
+        assertThat(InMemoryEntityQueryPlan.isSupported(newQuery(new EntityTypeFilter(), approximatePageLink, null))).isFalse();
+    }
+
+    @Test
+    public void testKeysetQueryIsNotAnsweredFromMemory() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        InMemoryEntityQueryRepository repository = new InMemoryEntityQueryRepository(jdbcTemplate, mock(StatsFactory.class, RETURNS_MOCKS));
+        EntityDataPageLink keysetPageLink = new EntityDataPageLink(3, 0, null, new EntityDataSortOrder(NAME));
+        keysetPageLink.setLastId(UUID.randomUUID());
+        keysetPageLink.setLastSortValue("Device 2");
+
+        assertThat(repository.findEntityDataByQuery(tenantId, null, newQuery(new EntityTypeFilter(), keysetPageLink, null))).isNull();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testOnlyQueriedPartitionsAreChecked() {
+        NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        when(jdbcTemplate.queryForMap(anyString(), any(SqlParameterSource.class))).thenReturn(Map.of("cnt", 0L, "version_sum", 0L));
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        when(executor.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        });
+        InMemoryEntityQueryRepository repository = new InMemoryEntityQueryRepository(jdbcTemplate, mock(StatsFactory.class, RETURNS_MOCKS));
+        ReflectionTestUtils.setField(repository, "executor", executor);
+        ReflectionTestUtils.setField(repository, "consistencyCheckIntervalSec", 60L);
+        ReflectionTestUtils.setField(repository, "maxIdleTimeSec", 3600L);
+        EntityDataQuery query = newQuery(new EntityTypeFilter(), new EntityDataPageLink(10, 0, null, new EntityDataSortOrder(CREATED_TIME)), null);
+
+        assertThat(repository.findEntityDataByQuery(tenantId, null, query)).isNull();
+        ReflectionTestUtils.invokeMethod(repository, "checkConsistency");
+        verify(jdbcTemplate, never()).queryForMap(anyString(), any(SqlParameterSource.class));
+
+        assertThat(repository.findEntityDataByQuery(tenantId, null, query)).isNotNull();
+        ReflectionTestUtils.invokeMethod(repository, "checkConsistency");
+        ReflectionTestUtils.invokeMethod(repository, "checkConsistency");
+        verify(jdbcTemplate, times(1)).queryForMap(anyString(), any(SqlParameterSource.class));
+    }
+
+    @Test
+    public void testLikeToRegex() {
+        assertThat(InMemoryEntityQueryPlan.likeToRegex("dev%", true).matcher("Device 1").matches()).isTrue();
+        assertThat(InMemoryEntityQueryPlan.likeToRegex("%1_", true).matcher("Device 12").matches()).isTrue();
+        assertThat(InMemoryEntityQueryPlan.likeToRegex("a.c%", false).matcher("abc").matches()).isFalse();
+        assertThat(InMemoryEntityQueryPlan.likeToRegex("50\\%", false).matcher("50%").matches()).isTrue();
+    }
+
+    private EntityDataQuery newQuery(EntityFilter filter, EntityDataPageLink pageLink, List<KeyFilter> keyFilters) {
+        if (filter instanceof EntityTypeFilter entityTypeFilter) {
+            entityTypeFilter.setEntityType(EntityType.DEVICE);
+        }
+        return new EntityDataQuery(filter, pageLink, List.of(NAME, LABEL), null, keyFilters);
+    }
+
+    private String getName(EntityData entityData) {
+        return entityData.getLatest().get(EntityKeyType.ENTITY_FIELD).get("name").getValue();
+    }
+
+}
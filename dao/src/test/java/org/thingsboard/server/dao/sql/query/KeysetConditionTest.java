@@ -0,0 +1,66 @@
+/**
+ * Copyright © 2016-2024 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.query;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeysetConditionTest {
+
+    private static final UUID LAST_ID = UUID.fromString("7f2b6a9e-1c1d-11ee-be56-0242ac120002");
+
+    @Test
+    public void testAscendingCondition() {
+        QueryContext ctx = newContext();
+        String condition = KeysetCondition.build(ctx, "result.name", "result.id", true, "Device 1", LAST_ID);
+        assertThat(condition).isEqualTo("(result.name > :keyset_value or (result.name = :keyset_value and result.id > :keyset_id) or result.name is null)");
+        assertThat(ctx.getValue(KeysetCondition.VALUE_PARAM)).isEqualTo("Device 1");
+        assertThat(ctx.getValue(KeysetCondition.ID_PARAM)).isEqualTo(LAST_ID);
+    }
+
+    @Test
+    public void testDescendingNumericCondition() {
+        QueryContext ctx = newContext();
+        String condition = KeysetCondition.build(ctx, "a.created_time", "a.id", false, 1700000000000L, LAST_ID);
+        assertThat(condition).isEqualTo("(a.created_time < :keyset_value or (a.created_time = :keyset_value and a.id < :keyset_id))");
+        assertThat(ctx.getValue(KeysetCondition.VALUE_PARAM)).isEqualTo(1700000000000L);
+    }
+
+    @Test
+    public void testNullLastValue() {
+        QueryContext ctx = newContext();
+        assertThat(KeysetCondition.build(ctx, "result.label", "result.id", true, null, LAST_ID))
+                .isEqualTo("(result.label is null and result.id > :keyset_id)");
+        assertThat(KeysetCondition.build(newContext(), "result.label", "result.id", false, null, LAST_ID))
+                .isEqualTo("(result.label is not null or result.id < :keyset_id)");
+        assertThat(ctx.hasValue(KeysetCondition.VALUE_PARAM)).isFalse();
+    }
+
+    @Test
+    public void testIdOnlyCondition() {
+        assertThat(KeysetCondition.build(newContext(), null, "result.id", true, null, LAST_ID)).isEqualTo("result.id > :keyset_id");
+    }
+
+    private static QueryContext newContext() {
+        return new QueryContext(new QuerySecurityContext(TenantId.SYS_TENANT_ID, null, EntityType.DEVICE));
+    }
+
+}
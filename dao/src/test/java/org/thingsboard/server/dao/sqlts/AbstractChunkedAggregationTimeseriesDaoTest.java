@@ -18,17 +18,26 @@ package org.thingsboard.server.dao.sqlts;
 import com.google.common.util.concurrent.Futures;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.kv.AggregationParams;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.dictionary.KeyDictionaryDao;
+import org.thingsboard.server.dao.sql.JpaExecutorService;
+import org.thingsboard.server.dao.sqlts.ts.TsKvAggregationRepository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
@@ -36,6 +45,7 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.thingsboard.server.common.data.id.TenantId.SYS_TENANT_ID;
+import static org.thingsboard.server.common.data.kv.Aggregation.AVG;
 import static org.thingsboard.server.common.data.kv.Aggregation.COUNT;
 
 public class AbstractChunkedAggregationTimeseriesDaoTest {
@@ -146,6 +156,35 @@ public class AbstractChunkedAggregationTimeseriesDaoTest {
         }
     }
 
+    @Test
+    public void givenIntervalNotMultiplePeriod_whenCalculateIntervalBounds_thenLastBoundEqualsEndTs() {
+        ReadTsKvQuery query = new BaseReadTsKvQuery(TEMP, 1, 3000, 1000, LIMIT, COUNT, DESC);
+        assertThat(AbstractChunkedAggregationTimeseriesDao.calculateIntervalBounds(query)).containsExactly(1, 1001, 2001, 3000);
+    }
+
+    @Test
+    public void givenGroupedAggregationEnabled_whenFindAllForSeveralKeys_thenSingleGroupedQueryIsExecuted() {
+        TsKvAggregationRepository aggregationRepository = mock(TsKvAggregationRepository.class);
+        KeyDictionaryDao keyDictionaryDao = mock(KeyDictionaryDao.class);
+        JpaExecutorService service = mock(JpaExecutorService.class);
+        willAnswer(invocation -> Futures.immediateFuture(invocation.<Callable<?>>getArgument(0).call())).given(service).submit(any(Callable.class));
+        willReturn(1).given(keyDictionaryDao).getOrSaveKeyId(TEMP);
+        willReturn(2).given(keyDictionaryDao).getOrSaveKeyId("humidity");
+        ReflectionTestUtils.setField(tsDao, "keyDictionaryDao", keyDictionaryDao);
+        tsDao.aggregationRepository = aggregationRepository;
+        ReflectionTestUtils.setField(tsDao, "service", service);
+        tsDao.groupedAggregationEnabled = true;
+
+        AggregationParams aggParams = AggregationParams.milliseconds(AVG, 1000);
+        List<ReadTsKvQuery> queries = List.of(
+                new BaseReadTsKvQuery(TEMP, 1, 3000, aggParams, LIMIT, DESC),
+                new BaseReadTsKvQuery("humidity", 1, 3000, aggParams, LIMIT, DESC));
+        tsDao.findAllAsync(SYS_TENANT_ID, SYS_TENANT_ID, queries);
+
+        verify(aggregationRepository, times(1)).findAggregates(eq(SYS_TENANT_ID.getId()), any(), eq(AVG), eq(new long[]{1, 1001, 2001}), eq(3000L), any());
+        verify(tsDao, times(0)).findAndAggregateAsync(any(), any(), anyLong(), anyLong(), anyLong(), any());
+    }
+
     long getTsForReadTsKvQuery(long startTs, long endTs) {
         return startTs + (endTs - startTs) / 2L;
     }
@@ -131,4 +131,23 @@ public class CassandraBaseTimeseriesDaoPartitioningMonthsAlwaysExistsTest {
                 ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2021-01-01T00:00:00Z").getTime()));
     }
 
+    @Test
+    public void testFilterPartitionsMonths() throws ParseException {
+        long startTs = tsDao.toPartitionTs(
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2019-12-12T00:00:00Z").getTime());
+        long endTs = tsDao.toPartitionTs(
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2021-01-31T23:59:59Z").getTime());
+        List<Long> partitions = tsDao.calculatePartitions(startTs, endTs);
+
+        long intervalStartTs = tsDao.toPartitionTs(
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2020-02-15T00:00:00Z").getTime());
+        long intervalEndTs = tsDao.toPartitionTs(
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2020-03-15T00:00:00Z").getTime());
+
+        assertThat(tsDao.filterPartitions(partitions, intervalStartTs, intervalEndTs)).isEqualTo(List.of(
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2020-02-01T00:00:00Z").getTime(),
+                ISO_8601_EXTENDED_DATETIME_TIME_ZONE_FORMAT.parse("2020-03-01T00:00:00Z").getTime()));
+        assertThat(tsDao.filterPartitions(partitions, 0, 1)).isEmpty();
+    }
+
 }